@@ -0,0 +1,11 @@
+package de.glassroom.gpe.bench;
+
+/**
+ * Seeds of the generated corpora, so all benchmarks of a release run on identical inputs.
+ */
+final class BenchmarkSeeds {
+    static final long CORPUS = 20161L;
+
+    private BenchmarkSeeds() {
+    }
+}
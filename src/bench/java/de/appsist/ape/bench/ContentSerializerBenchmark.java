@@ -0,0 +1,101 @@
+package de.glassroom.gpe.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.content.ContentDescriptor;
+import de.glassroom.gpe.utils.ContentSerializer;
+import de.glassroom.gpe.utils.GuideCorpusGenerator;
+
+/**
+ * Round trips of generated content descriptors through the JSON and XML representation. Scores are given per descriptor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentSerializerBenchmark {
+    private static final int DESCRIPTOR_COUNT = 100;
+
+    private List<ContentDescriptor> descriptors;
+    private List<String> json;
+    private List<String> xml;
+
+    @Setup
+    public void setUp() {
+        GuideCorpusGenerator.Corpus corpus = new GuideCorpusGenerator(BenchmarkSeeds.CORPUS).setNodeCount(1000).setAnnotationDensity(1).generate();
+        Guide guide = corpus.getMainGuide();
+        descriptors = new ArrayList<>(corpus.getContentDescriptors(guide.getId()).subList(0, DESCRIPTOR_COUNT));
+        json = new ArrayList<>();
+        xml = new ArrayList<>();
+        for (ContentDescriptor descriptor : descriptors) {
+            json.add(ContentSerializer.writeAsJSON(descriptor, true));
+            xml.add(ContentSerializer.writeAsXML(descriptor, true));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DESCRIPTOR_COUNT)
+    public void writeAsJSON(Blackhole blackhole) {
+        for (ContentDescriptor descriptor : descriptors) {
+            blackhole.consume(ContentSerializer.writeAsJSON(descriptor, true));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DESCRIPTOR_COUNT)
+    public void readFromJSON(Blackhole blackhole) {
+        for (String descriptor : json) {
+            blackhole.consume(ContentSerializer.readFromJSON(descriptor));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DESCRIPTOR_COUNT)
+    public void jsonRoundTrip(Blackhole blackhole) {
+        for (ContentDescriptor descriptor : descriptors) {
+            blackhole.consume(ContentSerializer.readFromJSON(ContentSerializer.writeAsJSON(descriptor, true)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DESCRIPTOR_COUNT)
+    public void writeAsXML(Blackhole blackhole) {
+        for (ContentDescriptor descriptor : descriptors) {
+            blackhole.consume(ContentSerializer.writeAsXML(descriptor, true));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DESCRIPTOR_COUNT)
+    public void readFromXML(Blackhole blackhole) {
+        for (String descriptor : xml) {
+            blackhole.consume(ContentSerializer.readFromXML(descriptor));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DESCRIPTOR_COUNT)
+    public void xmlRoundTrip(Blackhole blackhole) {
+        for (ContentDescriptor descriptor : descriptors) {
+            blackhole.consume(ContentSerializer.readFromXML(ContentSerializer.writeAsXML(descriptor, true)));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package de.glassroom.gpe.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.Node;
+import de.glassroom.gpe.Step;
+import de.glassroom.gpe.utils.GuideCorpusGenerator;
+
+/**
+ * Modifications of the node graph of a linear guide. Each benchmark restores the original structure, so all invocations operate on a guide of the same size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GuideModelBenchmark {
+    @Param({ "100", "1000", "10000" })
+    public int nodeCount;
+
+    private Guide guide;
+    private Node<?> middle;
+    private Node<?> middlePredecessor;
+    private Node<?> last;
+    private Step added;
+
+    @Setup
+    public void setUp() {
+        guide = new GuideCorpusGenerator(BenchmarkSeeds.CORPUS).setNodeCount(nodeCount).setBranchingFactor(1).generate().getMainGuide();
+        List<Node<?>> nodes = guide.getNodes();
+        middle = nodes.get(nodes.size() / 2);
+        middlePredecessor = nodes.get(nodes.size() / 2 - 1);
+        last = nodes.get(nodes.size() - 2);
+        added = new Step("added").setName("Added");
+    }
+
+    @Benchmark
+    public Guide addAndRemoveNode() {
+        guide.addNode(added, middle);
+        return guide.removeNode(added);
+    }
+
+    @Benchmark
+    public Guide moveNode() {
+        guide.moveNode(middle, last);
+        return guide.moveNode(middle, middlePredecessor);
+    }
+}
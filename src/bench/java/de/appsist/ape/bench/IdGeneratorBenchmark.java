@@ -0,0 +1,37 @@
+package de.glassroom.gpe.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.glassroom.gpe.utils.IdGenerator;
+
+/**
+ * Identifier generation by a single thread and under contention of multiple threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    @Benchmark
+    @Threads(1)
+    public String generateId() {
+        return IdGenerator.generateId("step-");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateIdContended() {
+        return IdGenerator.generateId("step-");
+    }
+}
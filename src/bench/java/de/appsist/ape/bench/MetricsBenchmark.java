@@ -0,0 +1,71 @@
+package de.glassroom.gpe.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.glassroom.gpe.metrics.InMemoryMetricsRecorder;
+import de.glassroom.gpe.metrics.Metric;
+import de.glassroom.gpe.metrics.Metrics;
+
+/**
+ * Overhead of recording metrics with disabled metrics and with the in-memory recorder, by a single thread and under contention.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean enabled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Metrics.setRecorder(enabled ? new InMemoryMetricsRecorder() : null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Metrics.setRecorder(null);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void increment() {
+        Metrics.increment(Metric.NODES_ADDED);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void incrementContended() {
+        Metrics.increment(Metric.NODES_ADDED);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void recordTime() {
+        Metrics.recordTime(Metric.GUIDE_LOOKUP_TIME, Metrics.startTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordTimeContended() {
+        Metrics.recordTime(Metric.GUIDE_LOOKUP_TIME, Metrics.startTime());
+    }
+}
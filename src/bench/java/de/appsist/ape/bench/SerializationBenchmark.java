@@ -0,0 +1,68 @@
+package de.glassroom.gpe.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.utils.GuideCorpusGenerator;
+import de.glassroom.gpe.utils.GuideSerializer;
+
+/**
+ * Reading and writing BPMN of generated guides.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({ "100", "1000", "10000", "100000" })
+    public int nodeCount;
+
+    private Guide guide;
+    private byte[] bpmn;
+
+    @Setup
+    public void setUp() {
+        guide = new GuideCorpusGenerator(BenchmarkSeeds.CORPUS).setNodeCount(nodeCount).generate().getMainGuide();
+        bpmn = GuideSerializer.writeAsBPMN(guide, true).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String writeAsBPMNString() {
+        return GuideSerializer.writeAsBPMN(guide, true);
+    }
+
+    @Benchmark
+    public int writeAsBPMNStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bpmn.length);
+        GuideSerializer.writeAsBPMN(guide, out, true);
+        return out.size();
+    }
+
+    @Benchmark
+    public Guide readFromBPMN() {
+        return GuideSerializer.readFromBPMN(new ByteArrayInputStream(bpmn));
+    }
+
+    @Benchmark
+    public Guide readFromBPMNLazyAnnotations() {
+        return GuideSerializer.readFromBPMN(new ByteArrayInputStream(bpmn), true);
+    }
+}
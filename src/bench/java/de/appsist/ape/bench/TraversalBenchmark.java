@@ -0,0 +1,62 @@
+package de.glassroom.gpe.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideManager;
+import de.glassroom.gpe.Node;
+import de.glassroom.gpe.Step;
+import de.glassroom.gpe.utils.GuideCorpusGenerator;
+
+/**
+ * Traversals of generated guides. Both traversals recurse once per node, so the sizes are kept small.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraversalBenchmark {
+    @Param({ "100", "1000" })
+    public int nodeCount;
+
+    private Guide branchedGuide;
+    private GuideManager manager;
+    private String chapteredGuideId;
+
+    @Setup
+    public void setUp() {
+        branchedGuide = new GuideCorpusGenerator(BenchmarkSeeds.CORPUS).setNodeCount(nodeCount).setBranchDensity(0.01).generate().getMainGuide();
+        // The steps of a guide are only collected up to the first branch.
+        GuideCorpusGenerator.Corpus chaptered = new GuideCorpusGenerator(BenchmarkSeeds.CORPUS).setNodeCount(nodeCount).setBranchingFactor(1)
+                .setChapters(2, 2).generate();
+        manager = new GuideManager();
+        manager.addGuides(chaptered.getGuides());
+        chapteredGuideId = chaptered.getMainGuide().getId();
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Benchmark
+    public List<List<Node>> getAllPaths() {
+        return branchedGuide.getAllPaths();
+    }
+
+    @Benchmark
+    public List<Step> serializeGuide() {
+        return manager.serializeGuide(chapteredGuideId);
+    }
+}
@@ -0,0 +1,90 @@
+package de.glassroom.gpe.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideManager;
+import de.glassroom.gpe.content.ContentDescriptor;
+import de.glassroom.gpe.metrics.JFREvents;
+import de.glassroom.gpe.utils.ContentSerializer;
+import de.glassroom.gpe.utils.GuideSerializer;
+
+public class FlightRecorderTest {
+
+	public static void testFlightRecorderEvents() throws IOException {
+		if (!JFREvents.isAvailable()) {
+			System.out.println("Flight recorder events: SKIPPED");
+			return;
+		}
+		GuideManager manager = new GuideManager();
+		Guide guide;
+		byte[] bpmn;
+		String xml;
+		Path file = Files.createTempFile("gpe", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("de.glassroom.gpe.GuideRead");
+			recording.enable("de.glassroom.gpe.ContentWrite");
+			recording.enable("de.glassroom.gpe.GuideQuery");
+			recording.enable("de.glassroom.gpe.GuideEdit");
+			recording.disable("de.glassroom.gpe.GuideWrite");
+			recording.start();
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			GuideSerializer.writeAsBPMN(GuideSerializerTest.createGuide(), out, true);
+			bpmn = out.toByteArray();
+			guide = GuideSerializer.readFromBPMN(new ByteArrayInputStream(bpmn));
+			manager.addGuide(guide);
+			guide.removeNode(guide.getNode("chapter1"));
+			manager.getGuides(null, null);
+			xml = ContentSerializer.writeAsXML(new ContentDescriptor("package1", "de_DE"), true);
+			recording.stop();
+			recording.dump(file);
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		Files.delete(file);
+		int reads = 0, writes = 0, contentWrites = 0, queries = 0, edits = 0;
+		boolean isValid = true;
+		for (RecordedEvent event : events) {
+			switch (event.getEventType().getName()) {
+			case "de.glassroom.gpe.GuideRead":
+				reads++;
+				isValid &= "serializer".equals(event.getString("guideId")) && event.getInt("nodeCount") == guide.getNodeCount() + 1
+						&& event.getLong("size") == bpmn.length;
+				break;
+			case "de.glassroom.gpe.GuideWrite":
+				writes++;
+				break;
+			case "de.glassroom.gpe.ContentWrite":
+				contentWrites++;
+				isValid &= "package1".equals(event.getString("packageId")) && "de_DE".equals(event.getString("languageId"))
+						&& event.getLong("size") == xml.length();
+				break;
+			case "de.glassroom.gpe.GuideQuery":
+				queries++;
+				isValid &= event.getInt("resultCount") == 1;
+				break;
+			case "de.glassroom.gpe.GuideEdit":
+				edits++;
+				isValid &= "serializer".equals(event.getString("guideId"));
+				break;
+			default:
+				break;
+			}
+		}
+		isValid &= reads == 1 && writes == 0 && contentWrites == 1 && queries == 1 && edits > 0;
+		System.out.println("Flight recorder events (" + events.size() + " events): " + (isValid ? "OK" : "FAILED"));
+	}
+
+	public static void main(String[] args) throws Exception {
+		testFlightRecorderEvents();
+	}
+
+}
@@ -0,0 +1,231 @@
+package de.glassroom.gpe.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder implementation of the event emitter, see {@link JFREvents}.
+ * This class refers to the <code>jdk.jfr</code> API and is only loaded reflectively if it is available.
+ */
+final class JFREmitter implements JFREvents.Emitter {
+    private final EventType[] eventTypes;
+    private final EventType editEventType;
+
+    @Name("de.glassroom.gpe.GuideRead")
+    @Label("Guide Read")
+    @Description("Reading of a BPMN process")
+    @Category({ "Glassroom", "Process Engine" })
+    static final class GuideReadEvent extends Event {
+        @Label("Guide Id")
+        String guideId;
+        @Label("Node Count")
+        int nodeCount;
+        @Label("Size")
+        @Description("Bytes for streams, characters for strings and readers")
+        long size;
+    }
+
+    @Name("de.glassroom.gpe.GuideWrite")
+    @Label("Guide Write")
+    @Description("Writing of a BPMN process")
+    @Category({ "Glassroom", "Process Engine" })
+    static final class GuideWriteEvent extends Event {
+        @Label("Guide Id")
+        String guideId;
+        @Label("Node Count")
+        int nodeCount;
+        @Label("Size")
+        @Description("Bytes for streams, characters for strings and writers")
+        long size;
+    }
+
+    @Name("de.glassroom.gpe.ContentRead")
+    @Label("Content Read")
+    @Description("Reading of a content descriptor")
+    @Category({ "Glassroom", "Process Engine" })
+    static final class ContentReadEvent extends Event {
+        @Label("Package Id")
+        String packageId;
+        @Label("Language")
+        String languageId;
+        @Label("Size")
+        @Description("Bytes for streams, characters for strings")
+        long size;
+    }
+
+    @Name("de.glassroom.gpe.ContentWrite")
+    @Label("Content Write")
+    @Description("Writing of a content descriptor")
+    @Category({ "Glassroom", "Process Engine" })
+    static final class ContentWriteEvent extends Event {
+        @Label("Package Id")
+        String packageId;
+        @Label("Language")
+        String languageId;
+        @Label("Size")
+        @Description("Characters of the written string")
+        long size;
+    }
+
+    @Name("de.glassroom.gpe.GuideLoad")
+    @Label("Guide Load")
+    @Description("Loading of a guide from the store of a guide manager")
+    @Category({ "Glassroom", "Process Engine" })
+    static final class GuideLoadEvent extends Event {
+        @Label("Guide Id")
+        String guideId;
+        @Label("Node Count")
+        int nodeCount;
+    }
+
+    @Name("de.glassroom.gpe.GuideQuery")
+    @Label("Guide Query")
+    @Description("Listing of guides of a guide manager")
+    @Category({ "Glassroom", "Process Engine" })
+    static final class GuideQueryEvent extends Event {
+        @Label("Result Count")
+        int resultCount;
+    }
+
+    @Name("de.glassroom.gpe.GuideEdit")
+    @Label("Guide Edit")
+    @Description("Change of a guide or one of its nodes")
+    @Category({ "Glassroom", "Process Engine" })
+    @Enabled(false)
+    @StackTrace(false)
+    static final class GuideEditEvent extends Event {
+        @Label("Guide Id")
+        String guideId;
+        @Label("Change")
+        String change;
+        @Label("Node Id")
+        String nodeId;
+    }
+
+    /**
+     * Creates the emitter and registers the event types.
+     * @throws IllegalStateException Flight Recorder is not available in this JVM.
+     */
+    JFREmitter() throws IllegalStateException {
+        if (!FlightRecorder.isAvailable()) {
+            throw new IllegalStateException("Flight Recorder is not available.");
+        }
+        JFREvents.Type[] types = JFREvents.Type.values();
+        eventTypes = new EventType[types.length];
+        eventTypes[JFREvents.Type.GUIDE_READ.ordinal()] = EventType.getEventType(GuideReadEvent.class);
+        eventTypes[JFREvents.Type.GUIDE_WRITE.ordinal()] = EventType.getEventType(GuideWriteEvent.class);
+        eventTypes[JFREvents.Type.CONTENT_READ.ordinal()] = EventType.getEventType(ContentReadEvent.class);
+        eventTypes[JFREvents.Type.CONTENT_WRITE.ordinal()] = EventType.getEventType(ContentWriteEvent.class);
+        eventTypes[JFREvents.Type.GUIDE_LOAD.ordinal()] = EventType.getEventType(GuideLoadEvent.class);
+        eventTypes[JFREvents.Type.GUIDE_QUERY.ordinal()] = EventType.getEventType(GuideQueryEvent.class);
+        editEventType = EventType.getEventType(GuideEditEvent.class);
+    }
+
+    @Override
+    public Object begin(JFREvents.Type type) {
+        // Avoids creating events which are not enabled in any recording.
+        if (!eventTypes[type.ordinal()].isEnabled()) return null;
+        Event event;
+        switch (type) {
+        case GUIDE_READ:
+            event = new GuideReadEvent();
+            break;
+        case GUIDE_WRITE:
+            event = new GuideWriteEvent();
+            break;
+        case CONTENT_READ:
+            event = new ContentReadEvent();
+            break;
+        case CONTENT_WRITE:
+            event = new ContentWriteEvent();
+            break;
+        case GUIDE_LOAD:
+            event = new GuideLoadEvent();
+            break;
+        case GUIDE_QUERY:
+            event = new GuideQueryEvent();
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown event type: " + type);
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitGuide(Object event, String guideId, int nodeCount, long size) {
+        if (event instanceof GuideReadEvent) {
+            GuideReadEvent readEvent = (GuideReadEvent) event;
+            readEvent.end();
+            if (!readEvent.shouldCommit()) return;
+            readEvent.guideId = guideId;
+            readEvent.nodeCount = nodeCount;
+            readEvent.size = size;
+            readEvent.commit();
+        } else if (event instanceof GuideWriteEvent) {
+            GuideWriteEvent writeEvent = (GuideWriteEvent) event;
+            writeEvent.end();
+            if (!writeEvent.shouldCommit()) return;
+            writeEvent.guideId = guideId;
+            writeEvent.nodeCount = nodeCount;
+            writeEvent.size = size;
+            writeEvent.commit();
+        } else if (event instanceof GuideLoadEvent) {
+            GuideLoadEvent loadEvent = (GuideLoadEvent) event;
+            loadEvent.end();
+            if (!loadEvent.shouldCommit()) return;
+            loadEvent.guideId = guideId;
+            loadEvent.nodeCount = nodeCount;
+            loadEvent.commit();
+        }
+    }
+
+    @Override
+    public void commitContent(Object event, String packageId, String languageId, long size) {
+        if (event instanceof ContentReadEvent) {
+            ContentReadEvent readEvent = (ContentReadEvent) event;
+            readEvent.end();
+            if (!readEvent.shouldCommit()) return;
+            readEvent.packageId = packageId;
+            readEvent.languageId = languageId;
+            readEvent.size = size;
+            readEvent.commit();
+        } else if (event instanceof ContentWriteEvent) {
+            ContentWriteEvent writeEvent = (ContentWriteEvent) event;
+            writeEvent.end();
+            if (!writeEvent.shouldCommit()) return;
+            writeEvent.packageId = packageId;
+            writeEvent.languageId = languageId;
+            writeEvent.size = size;
+            writeEvent.commit();
+        }
+    }
+
+    @Override
+    public void commitQuery(Object event, int resultCount) {
+        if (event instanceof GuideQueryEvent) {
+            GuideQueryEvent queryEvent = (GuideQueryEvent) event;
+            queryEvent.end();
+            if (!queryEvent.shouldCommit()) return;
+            queryEvent.resultCount = resultCount;
+            queryEvent.commit();
+        }
+    }
+
+    @Override
+    public void guideEdited(String guideId, String change, String nodeId) {
+        if (!editEventType.isEnabled()) return;
+        GuideEditEvent event = new GuideEditEvent();
+        event.guideId = guideId;
+        event.change = change;
+        event.nodeId = nodeId;
+        event.commit();
+    }
+}
@@ -36,9 +36,12 @@ public class Chapter extends Node<Chapter> {
     /**
      * Sets the called process.
      * @param calledProcessId Identifier of the process called during this step.
+     * @throws IllegalStateException The parent guide has been detached from its manager, see {@link Guide#isDetached()}.
      */
-    public void setCalledProcessId(String calledProcessId) {
+    public void setCalledProcessId(String calledProcessId) throws IllegalStateException {
+        checkAttached();
         this.calledProcess = calledProcessId;
+        fireAnnotationChanged();
     }
 
 }
@@ -10,6 +10,11 @@ import java.util.Map;
 import java.util.Set;
 
 import de.glassroom.gpe.annotations.MetadataAnnotation;
+import de.glassroom.gpe.event.GuideEvent;
+import de.glassroom.gpe.event.GuideEventBus;
+import de.glassroom.gpe.metrics.JFREvents;
+import de.glassroom.gpe.metrics.Metric;
+import de.glassroom.gpe.metrics.Metrics;
 import java.util.HashSet;
 
 /**
@@ -23,6 +28,9 @@ public class Guide {
     private final Map<String, Node<?>> nodes;
     private Node<?> activeNode;
     private MetadataAnnotation metadata;
+    private GuideEventBus eventBus;
+    private volatile boolean isDetached;
+    private volatile long modificationCount;
     
     /**
      * Creates a new assistance process.
@@ -83,6 +91,83 @@ public class Guide {
         }
         activeNode = newNode;
         update();
+        fireEvent(GuideEvent.Type.NODE_ADDED, newNode.getId());
+    }
+    
+    /**
+     * Sets the event bus to publish changes of this guide and its nodes on.
+     * Setting an event bus ends a detachment, see {@link #detach()}.
+     * @param eventBus Event bus or <code>null</code> to stop publishing changes.
+     */
+    void setEventBus(GuideEventBus eventBus) {
+        this.eventBus = eventBus;
+        if (eventBus != null) isDetached = false;
+    }
+    
+    /**
+     * Detaches the guide from its manager, e.g., if it has been evicted from the cache of the manager.
+     * Changes are no longer published and further modifications cause an {@link IllegalStateException},
+     * as they would not be written back to the store.
+     */
+    void detach() {
+        eventBus = null;
+        isDetached = true;
+    }
+    
+    /**
+     * Checks if the guide has been detached from its manager.
+     * A detached guide is outdated and must not be modified. The current instance has to be requested from the manager.
+     * @return <code>true</code> if the guide has been detached, otherwise <code>false</code>.
+     */
+    public boolean isDetached() {
+        return isDetached;
+    }
+    
+    /**
+     * Checks if the guide may be modified, i.e., if it has not been detached from its manager.
+     * Modification methods of the guide and its nodes call this method before changing any state.
+     * @throws IllegalStateException The guide has been detached from its manager.
+     */
+    void checkAttached() throws IllegalStateException {
+        if (isDetached) {
+            throw new IllegalStateException("Guide " + id + " has been evicted from the cache of its manager. Modifications would be lost.");
+        }
+    }
+    
+    /**
+     * Returns the number of changes of this guide and its nodes, including structural changes and annotation changes of nodes.
+     * Changes are counted even if no event bus is set, so the count can be compared to detect modifications, e.g., by guide caches.
+     * @return Number of changes since the guide has been created.
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+    
+    /**
+     * Publishes and counts a change of this guide or one of its nodes.
+     * Nothing will happen if the guide is not connected to an event bus with listeners.
+     * The change is also emitted as Flight Recorder event, see {@link JFREvents}.
+     * @param type Type of the change.
+     * @param nodeId Identifier of the changed node or <code>null</code> if the guide itself has been changed.
+     * @throws IllegalStateException The guide has been detached from its manager.
+     */
+    void fireEvent(GuideEvent.Type type, String nodeId) throws IllegalStateException {
+        checkAttached();
+        modificationCount++;
+        JFREvents.guideEdited(id, type.name(), nodeId);
+        GuideEventBus bus = eventBus;
+        if (bus != null && bus.hasListeners()) {
+            bus.publish(new GuideEvent(type, id, nodeId));
+        }
+    }
+    
+    private GuideEventBus beginTransaction() {
+        GuideEventBus bus = eventBus;
+        if (bus != null && bus.hasListeners()) {
+            bus.beginTransaction();
+            return bus;
+        }
+        return null;
     }
     
     public void update() {
@@ -96,9 +181,12 @@ public class Guide {
      * Adds a node to the process.
      * @param node Node to add.
      * @return This for chaining.
+     * @throws IllegalStateException The guide has been detached from its manager, see {@link #isDetached()}.
      */
-    public Guide addNode(Node<?> node) {
+    public Guide addNode(Node<?> node) throws IllegalStateException {
+        checkAttached();
         insertNode(node);
+        Metrics.increment(Metric.NODES_ADDED);
         return this;
     }
     
@@ -108,10 +196,13 @@ public class Guide {
      * @param node Node to add.
      * @param predecessor Node to add the node after.
      * @return This for chaining.
+     * @throws IllegalStateException The guide has been detached from its manager, see {@link #isDetached()}.
      */
-    public Guide addNode(Node<?> node, Node<?> predecessor) {
+    public Guide addNode(Node<?> node, Node<?> predecessor) throws IllegalStateException {
+        checkAttached();
         activeNode = predecessor;
         insertNode(node);
+        Metrics.increment(Metric.NODES_ADDED);
         return this;
     }
     
@@ -120,9 +211,16 @@ public class Guide {
      * @param node Node to remove.
      * @return This for chaining.
      * @throws IllegalArgumentException Node is not part of the guide or cannot be removed based on its type.
-     * @throws IllegalStateException A removal of the node will corrupt the guide structure and is therefore not possible.
+     * @throws IllegalStateException A removal of the node will corrupt the guide structure and is therefore not possible, or the guide has been detached from its manager.
      */
     public Guide removeNode(Node<?> node) throws IllegalArgumentException, IllegalStateException {
+        checkAttached();
+        deleteNode(node);
+        Metrics.increment(Metric.NODES_REMOVED);
+        return this;
+    }
+    
+    private void deleteNode(Node<?> node) throws IllegalArgumentException, IllegalStateException {
         if (!nodes.containsValue(node)) {
             throw new IllegalArgumentException("The given node is not part of guide: " + id);
         }
@@ -156,7 +254,7 @@ public class Guide {
         node.setParentGuide(null);
         nodes.remove(node.getId());
         update();
-        return this;
+        fireEvent(GuideEvent.Type.NODE_REMOVED, node.getId());
     }
     
     /**
@@ -165,17 +263,25 @@ public class Guide {
      * @param newPredecessor New predecessor of the node.
      * @return This for chaining.
      * @throws IllegalArgumentException The node cannot be moved.
-     * @throws IllegalStateException A movement of the node would corrupt the guide structure.
+     * @throws IllegalStateException A movement of the node would corrupt the guide structure, or the guide has been detached from its manager.
      */
     public Guide moveNode(Node<?> nodeToMove, Node<?> newPredecessor) throws IllegalArgumentException, IllegalStateException {
+        checkAttached();
         if (!nodes.containsValue(nodeToMove)) {
             throw new IllegalArgumentException("The given node is not part of guide: " + id);
         }        
         if (newPredecessor instanceof GuideEnd) {
             throw new IllegalArgumentException("Cannot define a successor of an end node.");
         }
-        removeNode(nodeToMove);
-        addNode(nodeToMove, newPredecessor);
+        GuideEventBus bus = beginTransaction();
+        try {
+            deleteNode(nodeToMove);
+            activeNode = newPredecessor;
+            insertNode(nodeToMove);
+        } finally {
+            if (bus != null) bus.endTransaction();
+        }
+        Metrics.increment(Metric.NODES_MOVED);
         return this;
     }
     
@@ -204,10 +310,13 @@ public class Guide {
      * Existing metadata will be overwritten.
      * @param metadata Metadata for the process.
      * @return This for chaining.
+     * @throws IllegalStateException The guide has been detached from its manager, see {@link #isDetached()}.
      */
-    public Guide setMetadata(MetadataAnnotation metadata) {
+    public Guide setMetadata(MetadataAnnotation metadata) throws IllegalStateException {
+        checkAttached();
         this.metadata = metadata;
         update();
+        fireEvent(GuideEvent.Type.ANNOTATION_CHANGED, null);
         return this;
     }
     
@@ -230,13 +339,16 @@ public class Guide {
      * @param languageId ISO language code.
      * @param title Localized title to set.
      * @return This for chaining.
+     * @throws IllegalStateException The guide has been detached from its manager, see {@link #isDetached()}.
      */
-    public Guide setTitle(String languageId, String title) {
+    public Guide setTitle(String languageId, String title) throws IllegalStateException {
+        checkAttached();
         if (metadata == null) {
             metadata = new MetadataAnnotation();
         }
         metadata.setTitle(languageId, title);
         update();
+        fireEvent(GuideEvent.Type.ANNOTATION_CHANGED, null);
         return this;
     }
     
@@ -246,13 +358,16 @@ public class Guide {
      * @param languageId ISO language code.
      * @param description Localized description to set.
      * @return This for chaining.
+     * @throws IllegalStateException The guide has been detached from its manager, see {@link #isDetached()}.
      */
-    public Guide setDescription(String languageId, String description) {
+    public Guide setDescription(String languageId, String description) throws IllegalStateException {
+        checkAttached();
         if (metadata == null) {
             metadata = new MetadataAnnotation();
         }
         metadata.setDescription(languageId, description);
         update();
+        fireEvent(GuideEvent.Type.ANNOTATION_CHANGED, null);
         return this;
     }
     
@@ -273,6 +388,14 @@ public class Guide {
         return new ArrayList<>(nodes.values());
     }
     
+    /**
+     * Returns the number of nodes of the process, without copying them.
+     * @return Number of nodes, including start and end nodes.
+     */
+    public int getNodeCount() {
+        return nodes.size();
+    }
+    
     public Set<GuideEnd> getEndNodes() {
         Set<GuideEnd> endNodes = new LinkedHashSet<>();
         for (Node<?> node : nodes.values()) {
@@ -347,8 +470,10 @@ public class Guide {
      * @param nodesToCombine List of nodes to combine. The list may not be empty and may not have external references.
      * @return New guide contining the given nodes and referenced as chapter.
      * @throws IllegalArgumentException The list of nodes is empty or contains depencencies to external nodes.
+     * @throws IllegalStateException The guide has been detached from its manager, see {@link #isDetached()}.
      */
-    public Guide combineStepsToChapter(String newGuideId, List<Node> nodesToCombine) throws IllegalArgumentException {
+    public Guide combineStepsToChapter(String newGuideId, List<Node> nodesToCombine) throws IllegalArgumentException, IllegalStateException {
+        checkAttached();
         if (nodesToCombine.isEmpty()) throw new IllegalArgumentException("The list of nodes to combine may not be empty.");
         if (!isClosure(nodesToCombine)) throw new IllegalArgumentException("Dependencies to external nodes are not resolved.");
         
@@ -357,30 +482,37 @@ public class Guide {
         Node lastNode = nodesToCombine.get(nodesToCombine.size() - 1);
         Set<Node> successors = lastNode.getNextNodes();
         Chapter newChapter = new Chapter(newGuideId);
-        nodes.put(newChapter.getId(), newChapter);
-        
         Node startEvent = new GuideStart();
         Node endEvent = new GuideEnd();
-        
-        for (Node predecessor : predecessors) {
-            firstNode.removePrevious(predecessor);
-            newChapter.addPrevious(predecessor);
-        }
-        firstNode.addPrevious(startEvent);
-        
-        for (Node successor : successors) {
-            lastNode.removeNext(successor);
-            newChapter.addNext(successor);
-        }
-        lastNode.addNext(endEvent);
-        
         Map<String, Node<?>> newGuideNodes = new LinkedHashMap<>();
-        newGuideNodes.put(startEvent.getId(), startEvent);
-        for (Node node : nodesToCombine) {
-            nodes.remove(node.getId());
-            newGuideNodes.put(node.getId(), node);
+        GuideEventBus bus = beginTransaction();
+        try {
+            nodes.put(newChapter.getId(), newChapter);
+            newChapter.setParentGuide(this);
+            fireEvent(GuideEvent.Type.NODE_ADDED, newChapter.getId());
+            
+            for (Node predecessor : predecessors) {
+                firstNode.removePrevious(predecessor);
+                newChapter.addPrevious(predecessor);
+            }
+            firstNode.addPrevious(startEvent);
+            
+            for (Node successor : successors) {
+                lastNode.removeNext(successor);
+                newChapter.addNext(successor);
+            }
+            lastNode.addNext(endEvent);
+            
+            newGuideNodes.put(startEvent.getId(), startEvent);
+            for (Node node : nodesToCombine) {
+                nodes.remove(node.getId());
+                newGuideNodes.put(node.getId(), node);
+                fireEvent(GuideEvent.Type.NODE_REMOVED, node.getId());
+            }
+            newGuideNodes.put(endEvent.getId(), endEvent);
+        } finally {
+            if (bus != null) bus.endTransaction();
         }
-        newGuideNodes.put(endEvent.getId(), endEvent);
         
         Guide newGuide = new Guide(newGuideId, newGuideNodes);
         return newGuide;
@@ -1,25 +1,74 @@
 package de.glassroom.gpe;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import de.glassroom.gpe.event.GuideEvent;
+import de.glassroom.gpe.event.GuideEventBus;
+import de.glassroom.gpe.metrics.JFREvents;
+import de.glassroom.gpe.metrics.Metric;
+import de.glassroom.gpe.metrics.Metrics;
+import de.glassroom.gpe.store.GuideCache;
+import de.glassroom.gpe.store.GuideStore;
+
 /**
  * Manager for guides.
+ * By default, all guides are held in memory. If the manager is backed by a guide store, guides are loaded on first access
+ * and held in a bounded cache.
  * @author simon.schwantzer(at)im-c.de
  */
 public class GuideManager {
     private final Map<String, Guide> guides;
+    private final GuideStore store;
+    private final GuideCache cache;
+    private final GuideEventBus eventBus;
+    private boolean isParallelFiltering;
 
     /**
      * Creates a new guide manager.
      */
     public GuideManager() {
         this.guides = new LinkedHashMap<String, Guide>();
+        this.store = null;
+        this.cache = null;
+        this.eventBus = new GuideEventBus();
+    }
+    
+    /**
+     * Creates a new guide manager backed by a guide store.
+     * Guides are loaded from the store on first access. Loaded guides are cached, modified guides are written back to the store
+     * when they are evicted from the cache or the manager is flushed.
+     * <p>
+     * Evicted guides are detached: They no longer publish events and their modification methods throw an {@link IllegalStateException},
+     * see {@link Guide#isDetached()}. References to guides should therefore not be kept, but requested from the manager again.
+     * Changes of annotation objects modified directly are only detected if they are notified, see {@link Node#fireAnnotationChanged()}.
+     * </p>
+     * @param store Store containing the guides.
+     * @param maxCachedGuides Maximum number of guides to keep in memory. Values less or equal zero disable the bound.
+     * @param maxCachedBytes Maximum estimated number of bytes of the guides kept in memory. Values less or equal zero disable the bound.
+     */
+    public GuideManager(GuideStore store, int maxCachedGuides, long maxCachedBytes) {
+        this.guides = null;
+        this.store = store;
+        this.cache = new GuideCache(store, maxCachedGuides, maxCachedBytes);
+        this.eventBus = new GuideEventBus();
+    }
+    
+    /**
+     * Returns the event bus publishing changes of the managed guides and their nodes.
+     * Changes are only published for guides created, added or loaded by this manager.
+     * @return Event bus of this manager.
+     */
+    public GuideEventBus getEventBus() {
+        return eventBus;
     }
     
     /**
@@ -29,11 +78,11 @@ public class GuideManager {
      * @throws IllegalArgumentException A guide with the given identifier already exsists.
      */
     public Guide createGuide(String id) throws IllegalArgumentException {
-        if (guides.containsKey(id)) {
+        if (containsGuide(id)) {
             throw new IllegalArgumentException("A process with id \"" + id + "\" already exists.");
         }
         Guide process = new Guide(id);
-        guides.put(id, process);
+        putGuide(process);
         return process;
     }
     
@@ -42,59 +91,318 @@ public class GuideManager {
      * @return Set of guide identifiers.
      */
     public Set<String> getGuideIds() {
-        return guides.keySet();
+        if (store == null) {
+            return guides.keySet();
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        for (GuideSummary summary : store.getSummaries()) {
+            ids.add(summary.getId());
+        }
+        return ids;
+    }
+    
+    /**
+     * Returns the summaries of all managed guides.
+     * If the manager is backed by a store, the summaries are taken from its index and no guide is loaded.
+     * @return Collection of guide summaries. May be empty.
+     */
+    public Collection<GuideSummary> getGuideSummaries() {
+        if (store != null) {
+            return store.getSummaries();
+        }
+        List<GuideSummary> summaries = new ArrayList<>(guides.size());
+        for (Guide guide : guides.values()) {
+            summaries.add(GuideSummary.of(guide));
+        }
+        return summaries;
     }
     
     /**
      * Returns a managed guide.
      * @param id Identifier of the guide.
      * @return Guide or <code>null</code> if no guide with the given identifier is managed.
+     * @throws IllegalStateException Failed to load the guide from the store.
      */
-    public Guide getGuide(String id) {
-        return guides.get(id);
+    public Guide getGuide(String id) throws IllegalStateException {
+        long startTime = Metrics.startTime();
+        Guide guide = lookupGuide(id);
+        Metrics.recordTime(Metric.GUIDE_LOOKUP_TIME, startTime);
+        return guide;
+    }
+    
+    /**
+     * Returns a managed guide without recording its lookup time, as queries record their own time.
+     * @param id Identifier of the guide.
+     * @return Guide or <code>null</code> if no guide with the given identifier is managed.
+     * @throws IllegalStateException Failed to load the guide from the store.
+     */
+    private Guide lookupGuide(String id) throws IllegalStateException {
+        Guide guide;
+        if (store == null) {
+            guide = guides.get(id);
+        } else {
+            guide = cache.get(id);
+            if (guide == null && store.contains(id)) {
+                Object event = JFREvents.begin(JFREvents.Type.GUIDE_LOAD);
+                try {
+                    guide = store.load(id);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to load guide " + id + ".", e);
+                }
+                if (guide != null) {
+                    guide.setEventBus(eventBus);
+                    detach(cache.put(guide));
+                    Metrics.increment(Metric.GUIDES_LOADED);
+                    JFREvents.commitGuide(event, id, guide.getNodeCount(), -1L);
+                }
+            }
+        }
+        return guide;
     }
     
     /**
      * Removes a single guide. 
      * @param id Identifier of the guide to remove.
+     * @throws IllegalStateException Failed to remove the guide from the store.
      */
-    public void deleteGuide(String id) {
-        guides.remove(id);
+    public void deleteGuide(String id) throws IllegalStateException {
+        if (store == null) {
+            Guide guide = guides.remove(id);
+            if (guide == null) return;
+            guide.setEventBus(null);
+        } else {
+            if (!store.contains(id)) return;
+            Guide guide = cache.get(id);
+            if (guide != null) {
+                guide.setEventBus(null);
+                cache.remove(id);
+            }
+            try {
+                store.delete(id);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to delete guide " + id + ".", e);
+            }
+        }
+        Metrics.increment(Metric.GUIDES_DELETED);
+        if (eventBus.hasListeners()) {
+            eventBus.publish(new GuideEvent(GuideEvent.Type.GUIDE_DELETED, id, null));
+        }
     }
     
     /**
      * Returns a list of guides.
+     * If the manager is backed by a store, all guides will be loaded. If the store contains more guides than the cache can hold,
+     * guides loaded earlier are evicted while the list is built, so most of the returned guides may be detached and reject
+     * modifications, see {@link Guide#isDetached()}. Guides to be modified have to be requested with {@link #getGuide(String)}.
+     * Use {@link #getGuidePage(Filter, Comparator, GuidePage.Cursor, int)} to list large stores.
      * @param filter Filter to apply. If <code>null</code>, all available guides are returned.
      * @param comparator Comparator to sort guides. If <code>null</code> the guides are ordered by insertion. 
      * @return List of guides. May be empty.
      */
     public List<Guide> getGuides(Filter<Guide> filter, Comparator<Guide> comparator) {
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.GUIDE_QUERY);
         List<Guide> newList = new ArrayList<Guide>();
-        if (filter != null) {
-            for (Guide guide : guides.values()) {
-                if (filter.accept(guide)) {
-                    newList.add(guide);
-                }
+        for (String id : getGuideIds()) {
+            Guide guide = lookupGuide(id);
+            if (guide != null && (filter == null || filter.accept(guide))) {
+                newList.add(guide);
             }
-        } else {
-            newList.addAll(guides.values());
         }
-        if (comparator != null) {
+        if (comparator instanceof IndexedComparator) {
+            GuideSelection.sort(newList, (IndexedComparator) comparator);
+        } else if (comparator != null) {
             Collections.sort(newList, comparator);
         }
+        Metrics.recordTime(Metric.GUIDE_QUERY_TIME, startTime);
+        JFREvents.commitQuery(event, newList.size());
         return newList;
     }
     
+    /**
+     * Returns a section of a list of guides.
+     * Only the requested section is sorted, i.e., the method does not sort all accepted guides.
+     * If the manager is backed by a store and no filter is given, the guides are selected based on the index
+     * and only the returned guides are loaded. This requires the comparator to be <code>null</code> or an {@link IndexedComparator}.
+     * Returned guides may be detached if the section exceeds the bounds of the cache, see {@link #getGuides(Filter, Comparator)}.
+     * @param filter Filter to apply. If <code>null</code>, all available guides are considered.
+     * @param comparator Comparator to sort guides. If <code>null</code> the guides are ordered by insertion. Guides considered equal are ordered by identifier.
+     * @param offset Number of guides to skip.
+     * @param limit Maximum number of guides to return.
+     * @return List of guides. May be empty.
+     * @throws IllegalArgumentException The offset or the limit is negative.
+     */
+    public List<Guide> getGuides(Filter<Guide> filter, Comparator<Guide> comparator, int offset, int limit) throws IllegalArgumentException {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit may not be negative.");
+        }
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.GUIDE_QUERY);
+        List<GuideSelection.Entry> entries = selectGuides(filter, comparator, (int) Math.min((long) offset + limit, Integer.MAX_VALUE), null);
+        List<Guide> guideList = new ArrayList<>(Math.max(0, entries.size() - offset));
+        for (int i = offset; i < entries.size(); i++) {
+            guideList.add(entries.get(i).guide);
+        }
+        Metrics.recordTime(Metric.GUIDE_QUERY_TIME, startTime);
+        JFREvents.commitQuery(event, guideList.size());
+        return guideList;
+    }
+    
+    /**
+     * Returns a page of a list of guides.
+     * The listing is continued with the cursor of the previous page. Guides added or removed between two calls do not shift the pages,
+     * except for listings ordered by insertion.
+     * @param filter Filter to apply. If <code>null</code>, all available guides are considered.
+     * @param comparator Comparator to sort guides. If <code>null</code> the guides are ordered by insertion. Guides considered equal are ordered by identifier.
+     * @param cursor Cursor of the previous page. If <code>null</code>, the first page is returned.
+     * @param limit Maximum number of guides of the page.
+     * @return Page of guides.
+     * @throws IllegalArgumentException The limit is less than one.
+     * @see #getGuides(Filter, Comparator, int, int)
+     */
+    public GuidePage getGuidePage(Filter<Guide> filter, Comparator<Guide> comparator, GuidePage.Cursor cursor, int limit) throws IllegalArgumentException {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit has to be positive.");
+        }
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.GUIDE_QUERY);
+        List<GuideSelection.Entry> entries = selectGuides(filter, comparator, limit < Integer.MAX_VALUE ? limit + 1 : limit, cursor);
+        List<Guide> guideList = new ArrayList<>(Math.min(limit, entries.size()));
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            guideList.add(entries.get(i).guide);
+        }
+        GuidePage.Cursor nextCursor = null;
+        if (entries.size() > limit) {
+            GuideSelection.Entry last = entries.get(limit - 1);
+            nextCursor = new GuidePage.Cursor(last.sortKey, last.guideId, last.guide);
+        }
+        Metrics.recordTime(Metric.GUIDE_QUERY_TIME, startTime);
+        JFREvents.commitQuery(event, guideList.size());
+        return new GuidePage(guideList, nextCursor);
+    }
+    
+    /**
+     * Enables or disables the parallel filter evaluation for paged guide listings.
+     * If enabled, the filters and comparators passed to the manager have to be thread-safe.
+     * @param isParallelFiltering If set to <code>true</code>, large guide lists are filtered in parallel.
+     */
+    public void setParallelFiltering(boolean isParallelFiltering) {
+        this.isParallelFiltering = isParallelFiltering;
+    }
+    
+    private List<GuideSelection.Entry> selectGuides(Filter<Guide> filter, Comparator<Guide> comparator, int capacity, GuidePage.Cursor cursor) {
+        if (store != null && filter == null && (comparator == null || comparator instanceof IndexedComparator)) {
+            GuideSelection selection = new GuideSelection(comparator, capacity, cursor);
+            int position = 0;
+            for (GuideSummary summary : store.getSummaries()) {
+                Object sortKey = comparator != null ? ((IndexedComparator) comparator).getSortKey(summary) : Integer.valueOf(position);
+                selection.offer(new GuideSelection.Entry(sortKey, summary.getId(), null));
+                position++;
+            }
+            List<GuideSelection.Entry> entries = selection.getEntries();
+            for (GuideSelection.Entry entry : entries) {
+                entry.guide = lookupGuide(entry.guideId);
+            }
+            return entries;
+        }
+        
+        List<Guide> candidates;
+        if (store != null) {
+            candidates = new ArrayList<>();
+            for (String id : getGuideIds()) {
+                candidates.add(lookupGuide(id));
+            }
+        } else {
+            candidates = new ArrayList<>(guides.values());
+        }
+        return GuideSelection.select(candidates, filter, comparator, capacity, cursor, isParallelFiltering).getEntries();
+    }
+    
     /**
      * Adds a single guide to be managed.
+     * If the manager is backed by a store, the guide is written to the store immediately.
      * @param guide Guide to be managed.
+     * @throws IllegalStateException Failed to write the guide to the store.
+     */
+    public void addGuide(Guide guide) throws IllegalStateException {
+        putGuide(guide);
+    }
+
+    /**
+     * Adds multiple guides to be managed.
+     * @param guides Guides to be managed.
+     * @throws IllegalStateException Failed to write a guide to the store.
+     */
+    public void addGuides(Collection<Guide> guides) throws IllegalStateException {
+        boolean isTransaction = eventBus.hasListeners();
+        if (isTransaction) eventBus.beginTransaction();
+        try {
+            for (Guide guide : guides) {
+                putGuide(guide);
+            }
+        } finally {
+            if (isTransaction) eventBus.endTransaction();
+        }
+    }
+
+    /**
+     * Marks a guide as modified, so it will be written back to the store.
+     * Modifications of the guide and its nodes are detected automatically. Only annotation objects modified directly,
+     * without calling {@link Node#fireAnnotationChanged()}, have to be marked explicitly.
+     * Nothing will happen if the manager is not backed by a store or the guide is not loaded.
+     * @param id Identifier of the modified guide.
      */
-    public void addGuide(Guide guide) {
-        guides.put(guide.getId(), guide);
+    public void markModified(String id) {
+        if (cache != null) {
+            cache.markModified(id);
+        }
+    }
+    
+    /**
+     * Writes all modified guides and the index back to the store.
+     * Nothing will happen if the manager is not backed by a store.
+     * @throws IllegalStateException Failed to write to the store.
+     */
+    public void flush() throws IllegalStateException {
+        if (store == null) return;
+        try {
+            cache.flush();
+            store.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to flush guide store.", e);
+        }
+    }
+    
+    private boolean containsGuide(String id) {
+        return store != null ? store.contains(id) : guides.containsKey(id);
+    }
+    
+    private void putGuide(Guide guide) throws IllegalStateException {
+        if (store == null) {
+            guides.put(guide.getId(), guide);
+        } else {
+            try {
+                store.save(guide);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to store guide " + guide.getId() + ".", e);
+            }
+            detach(cache.put(guide));
+        }
+        guide.setEventBus(eventBus);
+        Metrics.increment(Metric.GUIDES_ADDED);
+        if (eventBus.hasListeners()) {
+            eventBus.publish(new GuideEvent(GuideEvent.Type.GUIDE_ADDED, guide.getId(), null));
+        }
+    }
+    
+    private static void detach(List<Guide> evictedGuides) {
+        for (Guide evictedGuide : evictedGuides) {
+            evictedGuide.detach();
+        }
     }
     
     public List<Step> serializeGuide(String guideId) {
-        Guide guide = guides.get(guideId);
+        Guide guide = getGuide(guideId);
         
         Set<Node<?>> nextNodes = guide.getStart().getNextNodes();
         Node<?> firstNode = nextNodes.iterator().next();
@@ -111,7 +419,7 @@ public class GuideManager {
         } else if (node instanceof Chapter) {
             Chapter chapter = (Chapter) node;
             String guideId = chapter.getCalledProcessId();
-            if (guides.containsKey(guideId)) {
+            if (containsGuide(guideId)) {
                 list.addAll(serializeGuide(guideId));
             }
             Set<Node<?>> nextNodes = node.getNextNodes();
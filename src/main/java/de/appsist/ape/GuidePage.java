@@ -0,0 +1,57 @@
+package de.glassroom.gpe;
+
+import java.util.List;
+
+/**
+ * Page of a guide listing.
+ * A page provides a cursor to continue the listing with the next page.
+ */
+public class GuidePage {
+    private final List<Guide> guides;
+    private final Cursor nextCursor;
+
+    /**
+     * Position in a guide listing.
+     * A cursor is bound to the filter and comparator of the listing it has been created for.
+     */
+    public static class Cursor {
+        final Object sortKey;
+        final String guideId;
+        final Guide guide;
+
+        Cursor(Object sortKey, String guideId, Guide guide) {
+            this.sortKey = sortKey;
+            this.guideId = guideId;
+            this.guide = guide;
+        }
+    }
+
+    GuidePage(List<Guide> guides, Cursor nextCursor) {
+        this.guides = guides;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Returns the guides of this page.
+     * @return List of guides. May be empty.
+     */
+    public List<Guide> getGuides() {
+        return guides;
+    }
+
+    /**
+     * Checks if more guides are available after this page.
+     * @return <code>true</code> if a next page exists, otherwise <code>false</code>.
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Returns the cursor to retrieve the next page.
+     * @return Cursor or <code>null</code> if this is the last page.
+     */
+    public Cursor getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,215 @@
+package de.glassroom.gpe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Bounded selection of the first guides of a listing.
+ * The selection keeps the guides in a heap limited to the requested number of guides, so it needs linear time
+ * in the number of offered guides and memory bound by the capacity only.
+ * Guides are ordered by the comparator of the listing and by their identifier if the comparator considers them equal.
+ */
+class GuideSelection {
+    private static final int PARALLEL_CHUNK_SIZE = 1024;
+
+    /**
+     * Guide offered to the selection, together with its precomputed sort key.
+     */
+    static class Entry {
+        final Object sortKey;
+        final String guideId;
+        Guide guide;
+
+        Entry(Object sortKey, String guideId, Guide guide) {
+            this.sortKey = sortKey;
+            this.guideId = guideId;
+            this.guide = guide;
+        }
+    }
+
+    private static class PoolHolder {
+        private static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    @SuppressWarnings("serial")
+    private static class SelectionTask extends RecursiveTask<GuideSelection> {
+        private final List<Guide> candidates;
+        private final int from;
+        private final int to;
+        private final Filter<Guide> filter;
+        private final Comparator<Guide> comparator;
+        private final int capacity;
+        private final GuidePage.Cursor cursor;
+
+        private SelectionTask(List<Guide> candidates, int from, int to, Filter<Guide> filter, Comparator<Guide> comparator, int capacity, GuidePage.Cursor cursor) {
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+            this.comparator = comparator;
+            this.capacity = capacity;
+            this.cursor = cursor;
+        }
+
+        @Override
+        protected GuideSelection compute() {
+            if (to - from <= PARALLEL_CHUNK_SIZE) {
+                return select(candidates, from, to, filter, comparator, capacity, cursor);
+            }
+            int middle = (from + to) >>> 1;
+            SelectionTask left = new SelectionTask(candidates, from, middle, filter, comparator, capacity, cursor);
+            left.fork();
+            GuideSelection selection = new SelectionTask(candidates, middle, to, filter, comparator, capacity, cursor).compute();
+            selection.merge(left.join());
+            return selection;
+        }
+    }
+
+    private final Comparator<Entry> order;
+    private final PriorityQueue<Entry> heap;
+    private final int capacity;
+    private final Entry lowerBound;
+
+    /**
+     * Creates a new selection.
+     * @param comparator Comparator of the listing. If <code>null</code>, the sort keys have to be insertion positions.
+     * @param capacity Maximum number of guides to select.
+     * @param cursor Cursor to select guides after. May be <code>null</code>.
+     */
+    GuideSelection(Comparator<Guide> comparator, int capacity, GuidePage.Cursor cursor) {
+        this.order = createOrder(comparator);
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(Math.min(capacity, 1024) + 1, Collections.reverseOrder(order));
+        this.lowerBound = cursor != null ? new Entry(cursor.sortKey, cursor.guideId, cursor.guide) : null;
+    }
+
+    /**
+     * Computes the sort key of a guide.
+     * @param comparator Comparator of the listing.
+     * @param guide Guide to compute sort key for.
+     * @param position Insertion position of the guide.
+     * @return Sort key for the guide.
+     */
+    static Object getSortKey(Comparator<Guide> comparator, Guide guide, int position) {
+        if (comparator instanceof IndexedComparator) {
+            return ((IndexedComparator) comparator).getSortKey(guide);
+        } else if (comparator == null) {
+            return position;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Selects the first guides accepted by a filter.
+     * @param candidates Guides to select from, in insertion order.
+     * @param filter Filter to apply. May be <code>null</code>.
+     * @param comparator Comparator of the listing. If <code>null</code>, the guides are ordered by insertion.
+     * @param capacity Maximum number of guides to select.
+     * @param cursor Cursor to select guides after. May be <code>null</code>.
+     * @param isParallel If set to <code>true</code>, large candidate lists are filtered in parallel. The filter and comparator have to be thread-safe.
+     * @return Selection containing the first guides of the listing.
+     */
+    static GuideSelection select(List<Guide> candidates, Filter<Guide> filter, Comparator<Guide> comparator, int capacity, GuidePage.Cursor cursor, boolean isParallel) {
+        if (isParallel && candidates.size() > PARALLEL_CHUNK_SIZE) {
+            return PoolHolder.POOL.invoke(new SelectionTask(candidates, 0, candidates.size(), filter, comparator, capacity, cursor));
+        } else {
+            return select(candidates, 0, candidates.size(), filter, comparator, capacity, cursor);
+        }
+    }
+
+    private static GuideSelection select(List<Guide> candidates, int from, int to, Filter<Guide> filter, Comparator<Guide> comparator, int capacity, GuidePage.Cursor cursor) {
+        GuideSelection selection = new GuideSelection(comparator, capacity, cursor);
+        for (int i = from; i < to; i++) {
+            Guide guide = candidates.get(i);
+            if (filter == null || filter.accept(guide)) {
+                selection.offer(new Entry(getSortKey(comparator, guide, i), guide.getId(), guide));
+            }
+        }
+        return selection;
+    }
+
+    /**
+     * Sorts a list of guides using the precomputed sort keys of an indexed comparator.
+     * The sort is stable, i.e., guides considered equal remain in their order.
+     * @param guides List of guides to sort.
+     * @param comparator Comparator providing the sort keys.
+     */
+    @SuppressWarnings("rawtypes")
+    static void sort(List<Guide> guides, final IndexedComparator comparator) {
+        List<Entry> entries = new ArrayList<>(guides.size());
+        for (Guide guide : guides) {
+            entries.add(new Entry(comparator.getSortKey(guide), guide.getId(), guide));
+        }
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry entry1, Entry entry2) {
+                return comparator.compareKeys((Comparable) entry1.sortKey, (Comparable) entry2.sortKey);
+            }
+        });
+        for (int i = 0; i < entries.size(); i++) {
+            guides.set(i, entries.get(i).guide);
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Comparator<Entry> createOrder(final Comparator<Guide> comparator) {
+        return new Comparator<Entry>() {
+            @Override
+            public int compare(Entry entry1, Entry entry2) {
+                int result;
+                if (comparator instanceof IndexedComparator) {
+                    result = ((IndexedComparator) comparator).compareKeys((Comparable) entry1.sortKey, (Comparable) entry2.sortKey);
+                } else if (comparator != null) {
+                    result = comparator.compare(entry1.guide, entry2.guide);
+                } else {
+                    result = ((Integer) entry1.sortKey).compareTo((Integer) entry2.sortKey);
+                }
+                return result != 0 ? result : entry1.guideId.compareTo(entry2.guideId);
+            }
+        };
+    }
+
+    /**
+     * Offers a guide to the selection.
+     * @param entry Entry for the guide.
+     */
+    void offer(Entry entry) {
+        if (lowerBound != null && order.compare(entry, lowerBound) <= 0) {
+            return;
+        }
+        if (capacity == 0) {
+            return;
+        } else if (heap.size() < capacity) {
+            heap.add(entry);
+        } else if (order.compare(entry, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(entry);
+        }
+    }
+
+    /**
+     * Offers all guides selected by another selection with the same comparator and cursor.
+     * @param other Selection to merge.
+     */
+    void merge(GuideSelection other) {
+        for (Entry entry : other.heap) {
+            offer(entry);
+        }
+    }
+
+    /**
+     * Returns the selected guides.
+     * @return List of entries in listing order.
+     */
+    List<Entry> getEntries() {
+        List<Entry> entries = new ArrayList<>(heap);
+        Collections.sort(entries, order);
+        return entries;
+    }
+}
@@ -0,0 +1,136 @@
+package de.glassroom.gpe;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.glassroom.gpe.annotations.MetadataAnnotation;
+
+/**
+ * Lightweight description of a guide.
+ * Summaries are used to list guides without loading their nodes.
+ */
+public class GuideSummary {
+    private final String id;
+    private final Map<String, String> titles;
+    private final Map<String, String> descriptions;
+    private Date lastUpdate;
+
+    /**
+     * Creates a new guide summary.
+     * @param id Identifier of the guide.
+     */
+    public GuideSummary(String id) {
+        this.id = id;
+        this.titles = new LinkedHashMap<>();
+        this.descriptions = new LinkedHashMap<>();
+    }
+
+    /**
+     * Creates a summary for the given guide.
+     * @param guide Guide to summarize.
+     * @return Summary containing the identifier, the titles, the descriptions and the last update of the guide.
+     */
+    public static GuideSummary of(Guide guide) {
+        GuideSummary summary = new GuideSummary(guide.getId());
+        MetadataAnnotation metadata = guide.getMetadata();
+        if (metadata != null) {
+            summary.titles.putAll(metadata.getTitles());
+            summary.descriptions.putAll(metadata.getDescriptions());
+            summary.lastUpdate = metadata.getLastUpdate();
+        }
+        return summary;
+    }
+
+    /**
+     * Returns the identifier of the guide.
+     * @return Guide identifier.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Sets the title in a specific language.
+     * @param lang ISO language code, e.g. "de_DE".
+     * @param title Title of the guide.
+     * @return This for chaining.
+     */
+    public GuideSummary setTitle(String lang, String title) {
+        titles.put(lang, title);
+        return this;
+    }
+
+    /**
+     * Returns the title in a specific language.
+     * @param lang ISO language code, e.g. "de_DE".
+     * @return Title or <code>null</code> if no title is set for the language.
+     */
+    public String getTitle(String lang) {
+        return titles.get(lang);
+    }
+
+    /**
+     * Returns the titles for all languages.
+     * @return Map with language code as key and title as value.
+     */
+    public Map<String, String> getTitles() {
+        return titles;
+    }
+
+    /**
+     * Sets the description in a specific language.
+     * @param lang ISO language code, e.g. "de_DE".
+     * @param description Description of the guide.
+     * @return This for chaining.
+     */
+    public GuideSummary setDescription(String lang, String description) {
+        descriptions.put(lang, description);
+        return this;
+    }
+
+    /**
+     * Returns the description in a specific language.
+     * @param lang ISO language code, e.g. "de_DE".
+     * @return Description or <code>null</code> if no description is set for the language.
+     */
+    public String getDescription(String lang) {
+        return descriptions.get(lang);
+    }
+
+    /**
+     * Returns the descriptions for all languages.
+     * @return Map with language code as key and description as value.
+     */
+    public Map<String, String> getDescriptions() {
+        return descriptions;
+    }
+
+    /**
+     * Returns the date time of the last update of the guide.
+     * @return Date time or <code>null</code> if not set.
+     */
+    public Date getLastUpdate() {
+        return lastUpdate;
+    }
+
+    /**
+     * Sets the date time of the last update of the guide.
+     * @param lastUpdate Date time to set. May be <code>null</code>.
+     * @return This for chaining.
+     */
+    public GuideSummary setLastUpdate(Date lastUpdate) {
+        this.lastUpdate = lastUpdate;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder()
+            .append("GuideSummary(").append(id)
+            .append("; titles: ").append(titles)
+            .append("; descriptions: ").append(descriptions)
+            .append("; lastUpdate: ").append(lastUpdate)
+            .append(")").toString();
+    }
+}
@@ -0,0 +1,127 @@
+package de.glassroom.gpe;
+
+import java.text.Collator;
+import java.util.Comparator;
+import java.util.Locale;
+
+import de.glassroom.gpe.annotations.MetadataAnnotation;
+
+/**
+ * Comparator for guides based on a sort key.
+ * The sort key of a guide can be computed once and reused for all comparisons. As the sort keys are based on indexed fields,
+ * they can also be computed from guide summaries, i.e., without loading the guides.
+ * Guides without a sort key are ordered last.
+ */
+public abstract class IndexedComparator implements Comparator<Guide> {
+    private final boolean isDescending;
+
+    /**
+     * Creates a new comparator.
+     * @param isDescending If set to <code>true</code>, the guides are ordered descending by their sort key.
+     */
+    protected IndexedComparator(boolean isDescending) {
+        this.isDescending = isDescending;
+    }
+
+    /**
+     * Returns the sort key of a guide.
+     * @param guide Guide to compute sort key for.
+     * @return Sort key or <code>null</code> if the guide has no value for the indexed field.
+     */
+    public abstract Comparable<?> getSortKey(Guide guide);
+
+    /**
+     * Returns the sort key of a guide summary.
+     * @param summary Summary of the guide to compute sort key for.
+     * @return Sort key or <code>null</code> if the guide has no value for the indexed field.
+     */
+    public abstract Comparable<?> getSortKey(GuideSummary summary);
+
+    /**
+     * Compares two sort keys computed by this comparator.
+     * @param key1 First sort key. May be <code>null</code>.
+     * @param key2 Second sort key. May be <code>null</code>.
+     * @return A negative integer, zero, or a positive integer if the first key is ordered before, equal to, or after the second key.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public int compareKeys(Comparable key1, Comparable key2) {
+        if (key1 == null) {
+            return key2 == null ? 0 : 1;
+        } else if (key2 == null) {
+            return -1;
+        }
+        int result = key1.compareTo(key2);
+        return isDescending ? -result : result;
+    }
+
+    @Override
+    public int compare(Guide guide1, Guide guide2) {
+        return compareKeys(getSortKey(guide1), getSortKey(guide2));
+    }
+
+    /**
+     * Creates a comparator ordering guides by their title in a specific language.
+     * The titles are compared using the collation rules of the language.
+     * @param lang ISO language code, e.g. "de_DE".
+     * @param isDescending If set to <code>true</code>, the guides are ordered descending.
+     * @return Comparator for guide titles.
+     */
+    public static IndexedComparator byTitle(final String lang, boolean isDescending) {
+        String[] localeParts = lang.split("_");
+        final Collator collator = Collator.getInstance(localeParts.length > 1 ? new Locale(localeParts[0], localeParts[1]) : new Locale(localeParts[0]));
+        return new IndexedComparator(isDescending) {
+            @Override
+            public Comparable<?> getSortKey(Guide guide) {
+                MetadataAnnotation metadata = guide.getMetadata();
+                return getCollationKey(metadata != null ? metadata.getTitle(lang) : null);
+            }
+
+            @Override
+            public Comparable<?> getSortKey(GuideSummary summary) {
+                return getCollationKey(summary.getTitle(lang));
+            }
+
+            private Comparable<?> getCollationKey(String title) {
+                return title != null ? collator.getCollationKey(title) : null;
+            }
+        };
+    }
+
+    /**
+     * Creates a comparator ordering guides by their last update.
+     * @param isDescending If set to <code>true</code>, the most recently updated guides are ordered first.
+     * @return Comparator for the last update of guides.
+     */
+    public static IndexedComparator byLastUpdate(boolean isDescending) {
+        return new IndexedComparator(isDescending) {
+            @Override
+            public Comparable<?> getSortKey(Guide guide) {
+                return guide.getLastUpdate();
+            }
+
+            @Override
+            public Comparable<?> getSortKey(GuideSummary summary) {
+                return summary.getLastUpdate();
+            }
+        };
+    }
+
+    /**
+     * Creates a comparator ordering guides by their identifier.
+     * @param isDescending If set to <code>true</code>, the guides are ordered descending.
+     * @return Comparator for guide identifiers.
+     */
+    public static IndexedComparator byId(boolean isDescending) {
+        return new IndexedComparator(isDescending) {
+            @Override
+            public Comparable<?> getSortKey(Guide guide) {
+                return guide.getId();
+            }
+
+            @Override
+            public Comparable<?> getSortKey(GuideSummary summary) {
+                return summary.getId();
+            }
+        };
+    }
+}
@@ -6,8 +6,10 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
+import de.glassroom.gpe.annotations.AnnotationSource;
 import de.glassroom.gpe.annotations.ContentAnnotation;
 import de.glassroom.gpe.annotations.MetadataAnnotation;
+import de.glassroom.gpe.event.GuideEvent;
 import de.glassroom.gpe.utils.IdGenerator;
 
 /**
@@ -21,6 +23,7 @@ public abstract class Node<T extends Node<T>> {
     private final Map<Node<?>, Tansition> nextNodes;
     private MetadataAnnotation metadata;
     private ContentAnnotation content;
+    private volatile AnnotationSource annotationSource;
     private String name;
     
     private Guide parentGuide;
@@ -180,9 +183,13 @@ public abstract class Node<T extends Node<T>> {
      * Existing metadata will be overwritten.
      * @param metadata Metadata annotation.
      * @return This for chaining.
+     * @throws IllegalStateException The parent guide has been detached from its manager, see {@link Guide#isDetached()}.
      */
-    public T setMetadata(MetadataAnnotation metadata) {
+    public T setMetadata(MetadataAnnotation metadata) throws IllegalStateException {
+        checkAttached();
+        materializeAnnotations();
         this.metadata = metadata;
+        fireAnnotationChanged();
         return getThis();
     }
     
@@ -191,6 +198,7 @@ public abstract class Node<T extends Node<T>> {
      * @return Metadata annotation or <code>null</code> if not set.
      */
     public MetadataAnnotation getMetadata() {
+        materializeAnnotations();
         return metadata;
     }
     
@@ -200,12 +208,16 @@ public abstract class Node<T extends Node<T>> {
      * @param languageId ISO language code.
      * @param title Localized title to set.
      * @return This for chaining.
+     * @throws IllegalStateException The parent guide has been detached from its manager, see {@link Guide#isDetached()}.
      */
-    public T setTitle(String languageId, String title) {
+    public T setTitle(String languageId, String title) throws IllegalStateException {
+        checkAttached();
+        materializeAnnotations();
         if (metadata == null) {
             metadata = new MetadataAnnotation();
         }
         metadata.setTitle(languageId, title);
+        fireAnnotationChanged();
         return getThis();
     }
     
@@ -215,12 +227,16 @@ public abstract class Node<T extends Node<T>> {
      * @param languageId ISO language code.
      * @param description Localized description to set.
      * @return This for chaining.
+     * @throws IllegalStateException The parent guide has been detached from its manager, see {@link Guide#isDetached()}.
      */
-    public T setDescription(String languageId, String description) {
+    public T setDescription(String languageId, String description) throws IllegalStateException {
+        checkAttached();
+        materializeAnnotations();
         if (metadata == null) {
             metadata = new MetadataAnnotation();
         }
         metadata.setDescription(languageId, description);
+        fireAnnotationChanged();
         return getThis();
     }
     
@@ -229,9 +245,13 @@ public abstract class Node<T extends Node<T>> {
      * Existing content will be overwritten.
      * @param content Content to set.
      * @return This for chaining.
+     * @throws IllegalStateException The parent guide has been detached from its manager, see {@link Guide#isDetached()}.
      */
-    public T setContent(ContentAnnotation content) {
+    public T setContent(ContentAnnotation content) throws IllegalStateException {
+        checkAttached();
+        materializeAnnotations();
         this.content = content;
+        fireAnnotationChanged();
         return getThis();
     }
     
@@ -240,9 +260,47 @@ public abstract class Node<T extends Node<T>> {
      * @return Content annotation or <code>null</code> if not set.
      */
     public ContentAnnotation getContent() {
+        materializeAnnotations();
         return content;
     }
 
+    /**
+     * Sets a source to decode the metadata and the content of this node from on first access.
+     * Existing annotations will be overwritten. The listeners of the parent guide are not notified.
+     * @param source Source of the annotations or <code>null</code> to keep the current annotations.
+     * @return This for chaining.
+     */
+    public T setAnnotationSource(AnnotationSource source) {
+        synchronized (this) {
+            if (source != null) {
+                metadata = null;
+                content = null;
+            }
+            annotationSource = source;
+        }
+        return getThis();
+    }
+
+    /**
+     * Returns the source of the annotations of this node if they have not been decoded yet.
+     * Serializers may use the source to write the annotations without decoding them.
+     * @return Annotation source or <code>null</code> if the annotations have been decoded or no source has been set.
+     */
+    public AnnotationSource getAnnotationSource() {
+        return annotationSource;
+    }
+
+    private void materializeAnnotations() {
+        if (annotationSource == null) return;
+        synchronized (this) {
+            AnnotationSource source = annotationSource;
+            if (source == null) return;
+            metadata = source.getMetadata();
+            content = source.getContent();
+            annotationSource = null;
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder()
@@ -267,9 +325,12 @@ public abstract class Node<T extends Node<T>> {
      * Sets the name for the process element.
      * @param name Name to set.
      * @return This for chaining.
+     * @throws IllegalStateException The parent guide has been detached from its manager, see {@link Guide#isDetached()}.
      */
-    public T setName(String name) {
+    public T setName(String name) throws IllegalStateException {
+        checkAttached();
         this.name = name;
+        fireAnnotationChanged();
         return getThis();
     }
     
@@ -297,6 +358,27 @@ public abstract class Node<T extends Node<T>> {
         return parentGuide;
     }
     
+    /**
+     * Checks if the node may be modified, i.e., if it is not part of a guide detached from its manager.
+     * @throws IllegalStateException The parent guide has been detached from its manager, see {@link Guide#isDetached()}.
+     */
+    void checkAttached() throws IllegalStateException {
+        if (parentGuide != null) {
+            parentGuide.checkAttached();
+        }
+    }
+    
+    /**
+     * Notifies the listeners of the parent guide about a change of the metadata, content or name of this node.
+     * Modifications applied directly to annotation objects are not detected, they have to be notified by calling this method.
+     * @throws IllegalStateException The parent guide has been detached from its manager, see {@link Guide#isDetached()}.
+     */
+    public void fireAnnotationChanged() throws IllegalStateException {
+        if (parentGuide != null) {
+            parentGuide.fireEvent(GuideEvent.Type.ANNOTATION_CHANGED, id);
+        }
+    }
+    
     
 
 }
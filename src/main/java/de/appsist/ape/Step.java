@@ -29,8 +29,10 @@ public class Step extends Node<Step> {
      * Sets a content package describing the assistance step.
      * @param languageId ISO language code, e.g., "de_DE".
      * @param packageId Identifier for an external content package.
+     * @throws IllegalStateException The parent guide has been detached from its manager, see {@link Guide#isDetached()}.
      */
-    public void setContentPackage(String languageId, String packageId) {
+    public void setContentPackage(String languageId, String packageId) throws IllegalStateException {
+        checkAttached();
         ContentAnnotation content = super.getContent();
         if (content == null) {
             content = new ContentAnnotation();
@@ -38,5 +40,6 @@ public class Step extends Node<Step> {
         }
         
         content.setContentPackage(languageId, packageId);
+        fireAnnotationChanged();
     }
 }
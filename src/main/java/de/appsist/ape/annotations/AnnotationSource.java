@@ -0,0 +1,21 @@
+package de.glassroom.gpe.annotations;
+
+/**
+ * Source of the annotations of a node which are decoded on first access, e.g., the raw extension elements of a BPMN node.
+ */
+public interface AnnotationSource {
+
+    /**
+     * Decodes the metadata annotation.
+     * @return Metadata annotation or <code>null</code> if the source contains none.
+     * @throws IllegalStateException Failed to decode the annotation.
+     */
+    public MetadataAnnotation getMetadata() throws IllegalStateException;
+
+    /**
+     * Decodes the content annotation.
+     * @return Content annotation or <code>null</code> if the source contains none.
+     * @throws IllegalStateException Failed to decode the annotation.
+     */
+    public ContentAnnotation getContent() throws IllegalStateException;
+}
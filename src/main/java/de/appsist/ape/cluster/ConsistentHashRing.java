@@ -0,0 +1,110 @@
+package de.glassroom.gpe.cluster;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable consistent hash ring assigning keys to shards.
+ * Each shard is placed on the ring multiple times (virtual nodes) to balance the number of keys per shard.
+ * Adding or removing a shard only reassigns the keys of the ring segments it takes over or releases.
+ */
+public class ConsistentHashRing {
+    private final int virtualNodes;
+    private final TreeMap<Long, String> ring;
+    private final Set<String> shardIds;
+
+    /**
+     * Creates an empty ring.
+     * @param virtualNodes Number of positions of each shard on the ring.
+     * @throws IllegalArgumentException The number of virtual nodes is less than one.
+     */
+    public ConsistentHashRing(int virtualNodes) throws IllegalArgumentException {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("At least one virtual node per shard is required.");
+        }
+        this.virtualNodes = virtualNodes;
+        this.ring = new TreeMap<>();
+        this.shardIds = new LinkedHashSet<>();
+    }
+
+    private ConsistentHashRing(ConsistentHashRing other) {
+        this.virtualNodes = other.virtualNodes;
+        this.ring = new TreeMap<>(other.ring);
+        this.shardIds = new LinkedHashSet<>(other.shardIds);
+    }
+
+    /**
+     * Returns a ring containing an additional shard.
+     * @param shardId Identifier of the shard to add.
+     * @return New ring. This ring is returned if it already contains the shard.
+     */
+    public ConsistentHashRing withShard(String shardId) {
+        if (shardIds.contains(shardId)) return this;
+        ConsistentHashRing newRing = new ConsistentHashRing(this);
+        newRing.shardIds.add(shardId);
+        for (int i = 0; i < virtualNodes; i++) {
+            newRing.ring.put(hash(shardId + "#" + i), shardId);
+        }
+        return newRing;
+    }
+
+    /**
+     * Returns a ring without the given shard.
+     * @param shardId Identifier of the shard to remove.
+     * @return New ring. This ring is returned if it does not contain the shard.
+     */
+    public ConsistentHashRing withoutShard(String shardId) {
+        if (!shardIds.contains(shardId)) return this;
+        ConsistentHashRing newRing = new ConsistentHashRing(this);
+        newRing.shardIds.remove(shardId);
+        for (int i = 0; i < virtualNodes; i++) {
+            long position = hash(shardId + "#" + i);
+            if (shardId.equals(newRing.ring.get(position))) {
+                newRing.ring.remove(position);
+            }
+        }
+        return newRing;
+    }
+
+    /**
+     * Returns the shard owning a key.
+     * @param key Key to look up, e.g., a guide identifier.
+     * @return Identifier of the owning shard or <code>null</code> if the ring is empty.
+     */
+    public String getShard(String key) {
+        if (ring.isEmpty()) return null;
+        SortedMap<Long, String> tail = ring.tailMap(hash(key));
+        return tail.isEmpty() ? ring.firstEntry().getValue() : tail.get(tail.firstKey());
+    }
+
+    /**
+     * Returns the identifiers of all shards of the ring.
+     * @return Unmodifiable set of shard identifiers.
+     */
+    public Set<String> getShardIds() {
+        return Collections.unmodifiableSet(shardIds);
+    }
+
+    /**
+     * Computes the ring position of a key.
+     * Uses 64 bit FNV-1a with a final avalanche step, so similar keys are spread over the ring.
+     * @param key Key to hash.
+     * @return Position on the ring.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,91 @@
+package de.glassroom.gpe.cluster;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideManager;
+
+/**
+ * Transport to shards running in the same JVM.
+ * Each shard is a guide manager registered with the transport. Guides are passed by reference.
+ * Calls to the same shard are serialized, as guide managers are not thread-safe.
+ */
+public class LocalShardTransport implements ShardTransport {
+    private final Map<String, GuideManager> shards;
+
+    /**
+     * Creates a transport without any shards.
+     */
+    public LocalShardTransport() {
+        shards = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registers a shard.
+     * @param shardId Identifier of the shard.
+     * @param manager Guide manager of the shard.
+     */
+    public void registerShard(String shardId, GuideManager manager) {
+        shards.put(shardId, manager);
+    }
+
+    /**
+     * Unregisters a shard.
+     * @param shardId Identifier of the shard.
+     * @return Guide manager of the shard or <code>null</code> if the shard was not registered.
+     */
+    public GuideManager unregisterShard(String shardId) {
+        return shards.remove(shardId);
+    }
+
+    private GuideManager getShard(String shardId) throws IllegalArgumentException {
+        GuideManager manager = shards.get(shardId);
+        if (manager == null) {
+            throw new IllegalArgumentException("Unknown shard: " + shardId);
+        }
+        return manager;
+    }
+
+    @Override
+    public Guide getGuide(String shardId, String guideId) throws IllegalArgumentException {
+        GuideManager manager = getShard(shardId);
+        synchronized (manager) {
+            return manager.getGuide(guideId);
+        }
+    }
+
+    @Override
+    public Guide createGuide(String shardId, String guideId) throws IllegalArgumentException {
+        GuideManager manager = getShard(shardId);
+        synchronized (manager) {
+            return manager.createGuide(guideId);
+        }
+    }
+
+    @Override
+    public void putGuide(String shardId, Guide guide) throws IllegalArgumentException {
+        GuideManager manager = getShard(shardId);
+        synchronized (manager) {
+            manager.addGuide(guide);
+        }
+    }
+
+    @Override
+    public void deleteGuide(String shardId, String guideId) throws IllegalArgumentException {
+        GuideManager manager = getShard(shardId);
+        synchronized (manager) {
+            manager.deleteGuide(guideId);
+        }
+    }
+
+    @Override
+    public Set<String> getGuideIds(String shardId) throws IllegalArgumentException {
+        GuideManager manager = getShard(shardId);
+        synchronized (manager) {
+            return new LinkedHashSet<>(manager.getGuideIds());
+        }
+    }
+}
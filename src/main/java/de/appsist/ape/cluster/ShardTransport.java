@@ -0,0 +1,60 @@
+package de.glassroom.gpe.cluster;
+
+import java.util.Set;
+
+import de.glassroom.gpe.Guide;
+
+/**
+ * Transport to access the guide managers of shards.
+ * Implementations may connect to shards in the same JVM or on remote machines. Remote transports return copies of guides,
+ * so modified guides have to be written back with {@link #putGuide(String, Guide)}.
+ */
+public interface ShardTransport {
+
+    /**
+     * Returns a guide of a shard.
+     * @param shardId Identifier of the shard.
+     * @param guideId Identifier of the guide.
+     * @return Guide or <code>null</code> if the shard does not manage a guide with the given identifier.
+     * @throws IllegalArgumentException The shard is unknown to the transport.
+     * @throws IllegalStateException Failed to access the shard.
+     */
+    public Guide getGuide(String shardId, String guideId) throws IllegalArgumentException, IllegalStateException;
+
+    /**
+     * Creates a guide on a shard.
+     * @param shardId Identifier of the shard.
+     * @param guideId Identifier for the guide.
+     * @return Created guide.
+     * @throws IllegalArgumentException The shard is unknown to the transport or already manages a guide with the given identifier.
+     * @throws IllegalStateException Failed to access the shard.
+     */
+    public Guide createGuide(String shardId, String guideId) throws IllegalArgumentException, IllegalStateException;
+
+    /**
+     * Adds a guide to a shard. An existing guide with the same identifier will be replaced.
+     * @param shardId Identifier of the shard.
+     * @param guide Guide to add.
+     * @throws IllegalArgumentException The shard is unknown to the transport.
+     * @throws IllegalStateException Failed to access the shard.
+     */
+    public void putGuide(String shardId, Guide guide) throws IllegalArgumentException, IllegalStateException;
+
+    /**
+     * Removes a guide from a shard.
+     * @param shardId Identifier of the shard.
+     * @param guideId Identifier of the guide to remove.
+     * @throws IllegalArgumentException The shard is unknown to the transport.
+     * @throws IllegalStateException Failed to access the shard.
+     */
+    public void deleteGuide(String shardId, String guideId) throws IllegalArgumentException, IllegalStateException;
+
+    /**
+     * Returns the identifiers of all guides of a shard.
+     * @param shardId Identifier of the shard.
+     * @return Set of guide identifiers.
+     * @throws IllegalArgumentException The shard is unknown to the transport.
+     * @throws IllegalStateException Failed to access the shard.
+     */
+    public Set<String> getGuideIds(String shardId) throws IllegalArgumentException, IllegalStateException;
+}
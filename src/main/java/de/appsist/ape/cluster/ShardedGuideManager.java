@@ -0,0 +1,271 @@
+package de.glassroom.gpe.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.glassroom.gpe.Filter;
+import de.glassroom.gpe.Guide;
+
+/**
+ * Guide manager partitioning guides over multiple shards.
+ * Each guide is owned by a single shard, determined by consistent hashing of its identifier. Shards are accessed through
+ * a transport, so they may run in the same JVM or on other machines.
+ * When shards join or leave, only the guides whose owner changes are moved. Guides can be looked up while they are moved,
+ * but should not be created, added or deleted concurrently to adding or removing shards.
+ */
+public class ShardedGuideManager {
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final ShardTransport transport;
+    private final Map<String, Guide> movingGuides;
+    private volatile Routing routing;
+
+    /**
+     * Ring of the shards, together with the ring of the previous owners while guides are moved.
+     */
+    private static class Routing {
+        private final ConsistentHashRing ring;
+        private final ConsistentHashRing previousRing;
+
+        private Routing(ConsistentHashRing ring, ConsistentHashRing previousRing) {
+            this.ring = ring;
+            this.previousRing = previousRing;
+        }
+
+        private Set<String> getShardIds() {
+            if (previousRing == null) return ring.getShardIds();
+            Set<String> shardIds = new LinkedHashSet<>(previousRing.getShardIds());
+            shardIds.addAll(ring.getShardIds());
+            return shardIds;
+        }
+    }
+
+    /**
+     * Creates a sharded guide manager without any shards.
+     * @param transport Transport to access the shards.
+     */
+    public ShardedGuideManager(ShardTransport transport) {
+        this(transport, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Creates a sharded guide manager without any shards.
+     * @param transport Transport to access the shards.
+     * @param virtualNodes Number of positions of each shard on the hash ring.
+     */
+    public ShardedGuideManager(ShardTransport transport, int virtualNodes) {
+        this.transport = transport;
+        this.movingGuides = new ConcurrentHashMap<>();
+        this.routing = new Routing(new ConsistentHashRing(virtualNodes), null);
+    }
+
+    /**
+     * Adds a shard and moves the guides it takes over from the other shards.
+     * @param shardId Identifier of the shard. The shard has to be accessible through the transport.
+     * @return Number of guides moved to the new shard.
+     * @throws IllegalStateException Failed to access a shard. Lookups keep falling back to the previous owners of the guides
+     * and the next call adding or removing a shard moves the remaining guides.
+     */
+    public synchronized int addShard(String shardId) throws IllegalStateException {
+        Routing current = routing;
+        if (current.previousRing == null && current.ring.getShardIds().contains(shardId)) return 0;
+        return rebalance(current.ring.withShard(shardId));
+    }
+
+    /**
+     * Removes a shard and moves its guides to the remaining shards.
+     * The shard has to stay accessible through the transport until this method returns.
+     * @param shardId Identifier of the shard to remove.
+     * @return Number of guides moved to other shards.
+     * @throws IllegalStateException The shard is the last one but still owns guides or failed to access a shard.
+     * See {@link #addShard(String)} for failures while moving guides.
+     */
+    public synchronized int removeShard(String shardId) throws IllegalStateException {
+        Routing current = routing;
+        if (current.previousRing == null && !current.ring.getShardIds().contains(shardId)) return 0;
+        ConsistentHashRing newRing = current.ring.withoutShard(shardId);
+        if (newRing.getShardIds().isEmpty() && !transport.getGuideIds(shardId).isEmpty()) {
+            throw new IllegalStateException("Cannot remove the last shard while it owns guides.");
+        }
+        return rebalance(newRing);
+    }
+
+    /**
+     * Moves all guides of all shards which are not owned by their shard according to the new ring.
+     * Until all guides are moved, lookups fall back to the owners of the current ring.
+     * The shards of a failed rebalance are included, so the guides it left behind are moved as well.
+     * @param newRing Ring to switch to.
+     * @return Number of guides moved.
+     */
+    private int rebalance(ConsistentHashRing newRing) {
+        Routing current = routing;
+        Set<String> shardIds = new LinkedHashSet<>(current.getShardIds());
+        shardIds.addAll(newRing.getShardIds());
+        routing = new Routing(newRing, current.ring);
+        int movedGuides = 0;
+        for (String shardId : shardIds) {
+            for (String guideId : transport.getGuideIds(shardId)) {
+                String owner = newRing.getShard(guideId);
+                if (!shardId.equals(owner) && moveGuide(guideId, shardId, owner)) {
+                    movedGuides++;
+                }
+            }
+        }
+        routing = new Routing(newRing, null);
+        return movedGuides;
+    }
+
+    private boolean moveGuide(String guideId, String sourceShardId, String targetShardId) {
+        Guide guide = transport.getGuide(sourceShardId, guideId);
+        if (guide == null) return false;
+        // The guide is deleted before it is added, as a local transport passes the same instance and the source detaches it from its event bus.
+        // Meanwhile, lookups find the guide in the moving guides.
+        movingGuides.put(guideId, guide);
+        try {
+            transport.deleteGuide(sourceShardId, guideId);
+            try {
+                transport.putGuide(targetShardId, guide);
+            } catch (RuntimeException e) {
+                transport.putGuide(sourceShardId, guide);
+                throw e;
+            }
+        } finally {
+            movingGuides.remove(guideId);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the identifiers of all shards.
+     * @return Unmodifiable set of shard identifiers.
+     */
+    public Set<String> getShardIds() {
+        return routing.ring.getShardIds();
+    }
+
+    /**
+     * Returns the shard owning a guide.
+     * @param guideId Identifier of the guide.
+     * @return Identifier of the owning shard.
+     * @throws IllegalStateException No shard is available.
+     */
+    public String getShardId(String guideId) throws IllegalStateException {
+        return getShardId(routing.ring, guideId);
+    }
+
+    private static String getShardId(ConsistentHashRing ring, String guideId) throws IllegalStateException {
+        String shardId = ring.getShard(guideId);
+        if (shardId == null) {
+            throw new IllegalStateException("No shard available.");
+        }
+        return shardId;
+    }
+
+    /**
+     * Creates a new guide on the owning shard.
+     * @param id Identifier for the guide.
+     * @return Created guide.
+     * @throws IllegalArgumentException A guide with the given identifier already exists.
+     * @throws IllegalStateException No shard is available or failed to access the shard.
+     */
+    public Guide createGuide(String id) throws IllegalArgumentException, IllegalStateException {
+        return transport.createGuide(getShardId(id), id);
+    }
+
+    /**
+     * Returns a guide from the owning shard.
+     * While shards are added or removed, the guide is also looked up on its previous owner.
+     * @param id Identifier of the guide.
+     * @return Guide or <code>null</code> if no guide with the given identifier is managed.
+     * @throws IllegalStateException No shard is available or failed to access the shard.
+     */
+    public Guide getGuide(String id) throws IllegalStateException {
+        while (true) {
+            Routing current = routing;
+            try {
+                Guide guide = lookupGuide(current, id);
+                if (guide != null || current == routing) return guide;
+            } catch (IllegalArgumentException e) {
+                // The previous owner may have been unregistered from the transport after its removal completed
+                if (current == routing) throw e;
+            }
+            // Shards have been added or removed during the lookup, the guide may have been moved to a shard already queried
+        }
+    }
+
+    private Guide lookupGuide(Routing current, String id) throws IllegalStateException {
+        String owner = getShardId(current.ring, id);
+        String previousOwner = current.previousRing != null ? current.previousRing.getShard(id) : null;
+        if (previousOwner != null && !previousOwner.equals(owner)) {
+            // Guides are deleted from the previous owner before they are added to the new owner, so a guide is always found in this order
+            Guide guide = transport.getGuide(previousOwner, id);
+            if (guide != null) return guide;
+            guide = movingGuides.get(id);
+            if (guide != null) return guide;
+        }
+        return transport.getGuide(owner, id);
+    }
+
+    /**
+     * Adds a guide to the owning shard or replaces an existing guide with the same identifier.
+     * @param guide Guide to be managed.
+     * @throws IllegalStateException No shard is available or failed to access the shard.
+     */
+    public void addGuide(Guide guide) throws IllegalStateException {
+        transport.putGuide(getShardId(guide.getId()), guide);
+    }
+
+    /**
+     * Removes a single guide from the owning shard.
+     * @param id Identifier of the guide to remove.
+     * @throws IllegalStateException No shard is available or failed to access the shard.
+     */
+    public void deleteGuide(String id) throws IllegalStateException {
+        transport.deleteGuide(getShardId(id), id);
+    }
+
+    /**
+     * Returns the identifiers of the guides of all shards.
+     * @return Set of guide identifiers.
+     * @throws IllegalStateException Failed to access a shard.
+     */
+    public Set<String> getGuideIds() throws IllegalStateException {
+        Set<String> guideIds = new LinkedHashSet<>();
+        for (String shardId : routing.getShardIds()) {
+            guideIds.addAll(transport.getGuideIds(shardId));
+        }
+        return guideIds;
+    }
+
+    /**
+     * Returns a list of guides of all shards.
+     * All guides are retrieved from the shards, this should only be used for small deployments.
+     * @param filter Filter to apply. If <code>null</code>, all available guides are returned.
+     * @param comparator Comparator to sort guides. If <code>null</code> the guides are ordered by shard.
+     * @return List of guides. May be empty.
+     * @throws IllegalStateException Failed to access a shard.
+     */
+    public List<Guide> getGuides(Filter<Guide> filter, Comparator<Guide> comparator) throws IllegalStateException {
+        List<Guide> guides = new ArrayList<>();
+        Set<String> listedIds = new HashSet<>();
+        for (String shardId : routing.getShardIds()) {
+            for (String guideId : transport.getGuideIds(shardId)) {
+                Guide guide = transport.getGuide(shardId, guideId);
+                if (guide != null && listedIds.add(guideId) && (filter == null || filter.accept(guide))) {
+                    guides.add(guide);
+                }
+            }
+        }
+        if (comparator != null) {
+            Collections.sort(guides, comparator);
+        }
+        return guides;
+    }
+}
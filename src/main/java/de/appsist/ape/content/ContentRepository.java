@@ -0,0 +1,293 @@
+package de.glassroom.gpe.content;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.Node;
+import de.glassroom.gpe.annotations.ContentAnnotation;
+
+/**
+ * Resolves the content packages referenced by the content annotations of guide nodes.
+ * <p>
+ * Loaded descriptors are cached by guide, package identifier and language, as content packages are scoped to the guide referencing them. If the number of cached descriptors exceeds the given bound,
+ * the least recently used descriptors are evicted. Cached descriptors are loaded again after the revalidation interval. If the version
+ * and the last update of the loaded descriptor match the cached one, the cached instance is kept, otherwise it is replaced.
+ * </p>
+ * <p>
+ * The repository is thread-safe. Concurrent requests for a package which is not cached share a single load.
+ * </p>
+ */
+public class ContentRepository {
+    private final ContentSource source;
+    private final int maxEntries;
+    private final long revalidationInterval;
+    private final LinkedHashMap<Key, CacheEntry> entries;
+    private final ConcurrentMap<Key, FutureTask<ContentDescriptor>> pendingLoads;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong loadFailureCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private static final class Key {
+        private final String guideId;
+        private final String packageId;
+        private final String languageId;
+
+        private Key(String guideId, String packageId, String languageId) {
+            this.guideId = guideId;
+            this.packageId = packageId;
+            this.languageId = languageId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * guideId.hashCode() + packageId.hashCode()) + languageId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return guideId.equals(other.guideId) && packageId.equals(other.packageId) && languageId.equals(other.languageId);
+        }
+
+        @Override
+        public String toString() {
+            return guideId + "/" + packageId + " (" + languageId + ")";
+        }
+    }
+
+    private static class CacheEntry {
+        private final ContentDescriptor descriptor;
+        private long validated;
+
+        private CacheEntry(ContentDescriptor descriptor, long validated) {
+            this.descriptor = descriptor;
+            this.validated = validated;
+        }
+    }
+
+    /**
+     * Creates a new content repository.
+     * @param source Source to load content descriptors from.
+     * @param maxEntries Maximum number of cached descriptors. Values less or equal zero disable the bound.
+     * @param revalidationInterval Time in milliseconds after which a cached descriptor is validated against the source. Values less or equal zero disable the revalidation.
+     */
+    public ContentRepository(ContentSource source, int maxEntries, long revalidationInterval) {
+        this.source = source;
+        this.maxEntries = maxEntries;
+        this.revalidationInterval = revalidationInterval;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.pendingLoads = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the descriptor of a content package.
+     * @param guideId Identifier of the guide referencing the content package.
+     * @param packageId Identifier of the content package.
+     * @param languageId Language of the content package.
+     * @return Content descriptor or <code>null</code> if the content package does not exist.
+     * @throws IOException Failed to load the content descriptor.
+     */
+    public ContentDescriptor get(String guideId, String packageId, String languageId) throws IOException {
+        Key key = new Key(guideId, packageId, languageId);
+        synchronized (this) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null && !isExpired(entry)) {
+                hitCount.incrementAndGet();
+                return entry.descriptor;
+            }
+        }
+        missCount.incrementAndGet();
+        return load(key);
+    }
+
+    /**
+     * Resolves the content package of a node.
+     * @param guideId Identifier of the guide containing the node.
+     * @param node Node to resolve content package for.
+     * @param languageId Language of the content package.
+     * @return Content descriptor or <code>null</code> if the node references no content package for the given language or the package does not exist.
+     * @throws IOException Failed to load the content descriptor.
+     */
+    public ContentDescriptor resolve(String guideId, Node<?> node, String languageId) throws IOException {
+        ContentAnnotation content = node.getContent();
+        if (content == null) return null;
+        String packageId = content.getContentPackages().get(languageId);
+        return packageId != null ? get(guideId, packageId, languageId) : null;
+    }
+
+    /**
+     * Resolves the content packages of all nodes of a guide.
+     * Packages referenced by multiple nodes are loaded only once.
+     * @param guide Guide to resolve content packages for.
+     * @param languageId Language of the content packages.
+     * @return Map with the identifiers of the nodes as keys and the content descriptors as values, in the order of the nodes.
+     *      Nodes without a content package for the given language or with a missing package are omitted.
+     * @throws IOException Failed to load a content descriptor.
+     */
+    public Map<String, ContentDescriptor> resolveAll(Guide guide, String languageId) throws IOException {
+        Map<String, ContentDescriptor> descriptors = new LinkedHashMap<>();
+        for (Node<?> node : guide.getNodes()) {
+            ContentDescriptor descriptor = resolve(guide.getId(), node, languageId);
+            if (descriptor != null) {
+                descriptors.put(node.getId(), descriptor);
+            }
+        }
+        return descriptors;
+    }
+
+    /**
+     * Removes a descriptor from the cache, so it is loaded again on the next request.
+     * @param guideId Identifier of the guide referencing the content package.
+     * @param packageId Identifier of the content package.
+     * @param languageId Language of the content package.
+     */
+    public synchronized void invalidate(String guideId, String packageId, String languageId) {
+        entries.remove(new Key(guideId, packageId, languageId));
+    }
+
+    /**
+     * Removes all descriptors from the cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of cached descriptors.
+     * @return Number of descriptors.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of requests served from the cache.
+     * @return Number of cache hits.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of requests which required a load, either because the descriptor was not cached or had to be revalidated.
+     * @return Number of cache misses.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of descriptors loaded from the source. Concurrent misses for the same package share a single load.
+     * @return Number of loads.
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * Returns the number of failed loads.
+     * @return Number of loads which threw an exception.
+     */
+    public long getLoadFailureCount() {
+        return loadFailureCount.get();
+    }
+
+    /**
+     * Returns the number of descriptors evicted because the cache exceeded its bound.
+     * @return Number of evictions.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private ContentDescriptor load(final Key key) throws IOException {
+        FutureTask<ContentDescriptor> task = new FutureTask<>(new Callable<ContentDescriptor>() {
+            @Override
+            public ContentDescriptor call() throws IOException {
+                return loadAndCache(key);
+            }
+        });
+        FutureTask<ContentDescriptor> pendingLoad = pendingLoads.putIfAbsent(key, task);
+        if (pendingLoad == null) {
+            pendingLoad = task;
+            try {
+                task.run();
+            } finally {
+                pendingLoads.remove(key, task);
+            }
+        }
+        try {
+            return pendingLoad.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for content package " + key + ".");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException("Failed to load content package " + key + ".", cause);
+        }
+    }
+
+    private ContentDescriptor loadAndCache(Key key) throws IOException {
+        loadCount.incrementAndGet();
+        ContentDescriptor descriptor;
+        try {
+            descriptor = source.load(key.guideId, key.packageId, key.languageId);
+        } catch (IOException | RuntimeException e) {
+            loadFailureCount.incrementAndGet();
+            throw e;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (descriptor == null) {
+                entries.remove(key);
+                return null;
+            }
+            CacheEntry entry = entries.get(key);
+            if (entry != null && isSameRevision(entry.descriptor, descriptor)) {
+                entry.validated = now;
+                return entry.descriptor;
+            }
+            entries.put(key, new CacheEntry(descriptor, now));
+            evict();
+            return descriptor;
+        }
+    }
+
+    private boolean isExpired(CacheEntry entry) {
+        return revalidationInterval > 0 && System.currentTimeMillis() - entry.validated >= revalidationInterval;
+    }
+
+    private void evict() {
+        if (maxEntries <= 0) return;
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries) {
+            iterator.next();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    private static boolean isSameRevision(ContentDescriptor cached, ContentDescriptor loaded) {
+        return isEqual(cached.getVersion(), loaded.getVersion()) && isEqual(cached.getLastUpdate(), loaded.getLastUpdate());
+    }
+
+    private static boolean isEqual(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,19 @@
+package de.glassroom.gpe.content;
+
+import java.io.IOException;
+
+/**
+ * Source of content descriptors, e.g., a directory of content packages.
+ */
+public interface ContentSource {
+
+    /**
+     * Loads and deserializes the descriptor of a content package.
+     * @param guideId Identifier of the guide the content package is referenced by.
+     * @param packageId Identifier of the content package.
+     * @param languageId Language of the content package.
+     * @return Content descriptor or <code>null</code> if the content package does not exist.
+     * @throws IOException Failed to read the content descriptor.
+     */
+    public ContentDescriptor load(String guideId, String packageId, String languageId) throws IOException;
+}
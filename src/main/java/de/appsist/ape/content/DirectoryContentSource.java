@@ -0,0 +1,58 @@
+package de.glassroom.gpe.content;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import de.glassroom.gpe.utils.ContentSerializer;
+
+/**
+ * Content source reading content packages from a guide directory.
+ * The descriptor of a package is expected in <code>&lt;directory&gt;/&lt;guideId&gt;/content/&lt;packageId&gt;/content.xml</code>.
+ * The descriptor may be encoded as XML or JSON.
+ */
+public class DirectoryContentSource implements ContentSource {
+    public static final String CONTENT_DIR = "content";
+    public static final String DESCRIPTOR_FILE = "content.xml";
+
+    private final Path directory;
+
+    /**
+     * Creates a content source for a guide directory.
+     * @param directory Directory containing a sub directory for each guide.
+     */
+    public DirectoryContentSource(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the guide directory.
+     * @return Directory containing a sub directory for each guide.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the path of a content descriptor.
+     * @param guideId Identifier of the guide.
+     * @param packageId Identifier of the content package.
+     * @return Path of the descriptor file. The file may not exist.
+     */
+    public Path getDescriptorFile(String guideId, String packageId) {
+        return directory.resolve(guideId).resolve(CONTENT_DIR).resolve(packageId).resolve(DESCRIPTOR_FILE);
+    }
+
+    @Override
+    public ContentDescriptor load(String guideId, String packageId, String languageId) throws IOException {
+        Path descriptorFile = getDescriptorFile(guideId, packageId);
+        if (!Files.isRegularFile(descriptorFile)) {
+            return null;
+        }
+        try {
+            return ContentSerializer.read(descriptorFile);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Failed to parse content package " + packageId + " of guide " + guideId + ".", e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package de.glassroom.gpe.event;
+
+/**
+ * Event notifying about a change of a guide or one of its nodes.
+ */
+public class GuideEvent {
+
+    /**
+     * Type of a change.
+     */
+    public enum Type {
+        /** A guide has been added to a guide manager. */
+        GUIDE_ADDED,
+        /** A guide has been removed from a guide manager. */
+        GUIDE_DELETED,
+        /** A node has been added to a guide. */
+        NODE_ADDED,
+        /** A node has been removed from a guide. */
+        NODE_REMOVED,
+        /** A node has been moved within a guide. */
+        NODE_MOVED,
+        /** The metadata, content or name of a guide or node has been changed. */
+        ANNOTATION_CHANGED
+    }
+
+    private final Type type;
+    private final String guideId;
+    private final String nodeId;
+
+    /**
+     * Creates a new guide event.
+     * @param type Type of the change.
+     * @param guideId Identifier of the changed guide.
+     * @param nodeId Identifier of the changed node or <code>null</code> if the guide itself has been changed.
+     */
+    public GuideEvent(Type type, String guideId, String nodeId) {
+        this.type = type;
+        this.guideId = guideId;
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Returns the type of the change.
+     * @return Change type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the identifier of the changed guide.
+     * @return Guide identifier.
+     */
+    public String getGuideId() {
+        return guideId;
+    }
+
+    /**
+     * Returns the identifier of the changed node.
+     * @return Node identifier or <code>null</code> if the guide itself has been changed.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder()
+            .append("GuideEvent(").append(type)
+            .append("; guide: ").append(guideId);
+        if (nodeId != null) {
+            builder.append("; node: ").append(nodeId);
+        }
+        return builder.append(")").toString();
+    }
+}
@@ -0,0 +1,305 @@
+package de.glassroom.gpe.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import de.glassroom.gpe.event.GuideEvent.Type;
+
+/**
+ * Bus delivering guide events to listeners.
+ * Events are delivered in batches on the configured executor. Events published while a batch is delivered, and all events
+ * published within a transaction, are coalesced and delivered as a single batch, e.g., multiple annotation changes of the same node
+ * result in a single event and a node added and removed again results in no event at all.
+ * <p>
+ * By default, events are delivered on the publishing thread as soon as they are published. Each edit outside a transaction is then
+ * delivered as a batch of its own, while edits consisting of multiple changes, e.g., moving a node, use a transaction internally.
+ * To coalesce a series of edits, enclose them in a transaction or deliver the events on an asynchronous executor.
+ * <p>
+ * If a listener fails, the remaining listeners are notified nevertheless and the failure is rethrown afterwards,
+ * i.e., by the publishing method when delivering on the publishing thread, otherwise on the thread of the executor.
+ * Publishers should check {@link #hasListeners()} before creating events, so events cause no overhead if nobody is listening.
+ */
+public class GuideEventBus {
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final List<GuideListener> listeners;
+    private final ThreadLocal<Transaction> transactions;
+    private final Object lock;
+    private final Runnable deliveryTask;
+    private volatile Executor executor;
+    private List<GuideEvent> pendingEvents;
+    private boolean isDeliveryScheduled;
+
+    private static class Transaction {
+        private final List<GuideEvent> events = new ArrayList<>();
+        private int depth;
+    }
+
+    /**
+     * Creates a new event bus delivering events on the publishing thread.
+     */
+    public GuideEventBus() {
+        this(DIRECT_EXECUTOR);
+    }
+
+    /**
+     * Creates a new event bus.
+     * @param executor Executor to deliver events on.
+     */
+    public GuideEventBus(Executor executor) {
+        this.executor = executor;
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.transactions = new ThreadLocal<>();
+        this.lock = new Object();
+        this.pendingEvents = new ArrayList<>();
+        this.deliveryTask = new Runnable() {
+            @Override
+            public void run() {
+                deliverPendingEvents();
+            }
+        };
+    }
+
+    /**
+     * Sets the executor to deliver events on.
+     * @param executor Executor. If <code>null</code>, events are delivered on the publishing thread.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor != null ? executor : DIRECT_EXECUTOR;
+    }
+
+    /**
+     * Registers a listener.
+     * @param listener Listener to notify about changes.
+     */
+    public void addListener(GuideListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     * @param listener Listener to remove.
+     */
+    public void removeListener(GuideListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Checks if any listener is registered.
+     * @return <code>true</code> if events will be delivered, otherwise <code>false</code>.
+     */
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Starts a transaction for the current thread.
+     * Events published by the thread are held back until the transaction ends. Transactions may be nested,
+     * the events are delivered when the outermost transaction ends.
+     */
+    public void beginTransaction() {
+        Transaction transaction = transactions.get();
+        if (transaction == null) {
+            transaction = new Transaction();
+            transactions.set(transaction);
+        }
+        transaction.depth++;
+    }
+
+    /**
+     * Ends a transaction of the current thread.
+     * @throws IllegalStateException No transaction has been started by the current thread.
+     * @throws RuntimeException A listener failed or the executor rejected the delivery, see {@link #publish(GuideEvent)}.
+     */
+    public void endTransaction() throws IllegalStateException {
+        Transaction transaction = transactions.get();
+        if (transaction == null) {
+            throw new IllegalStateException("No transaction active.");
+        }
+        if (--transaction.depth == 0) {
+            transactions.remove();
+            if (!transaction.events.isEmpty()) {
+                enqueue(transaction.events);
+            }
+        }
+    }
+
+    /**
+     * Publishes an event.
+     * Nothing will happen if no listener is registered.
+     * @param event Event to publish.
+     * @throws RuntimeException A listener failed while delivering on the publishing thread, or the executor rejected the delivery.
+     * If rejected, the event is kept and delivered with the next event published.
+     */
+    public void publish(GuideEvent event) {
+        if (listeners.isEmpty()) return;
+        Transaction transaction = transactions.get();
+        if (transaction != null) {
+            transaction.events.add(event);
+        } else {
+            enqueue(Collections.singletonList(event));
+        }
+    }
+
+    private void enqueue(List<GuideEvent> events) {
+        boolean isScheduling;
+        synchronized (lock) {
+            pendingEvents.addAll(events);
+            isScheduling = !isDeliveryScheduled;
+            isDeliveryScheduled = true;
+        }
+        if (isScheduling) {
+            try {
+                executor.execute(deliveryTask);
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    isDeliveryScheduled = false;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void deliverPendingEvents() {
+        RuntimeException failure = null;
+        boolean isCompleted = false;
+        try {
+            while (true) {
+                List<GuideEvent> batch;
+                synchronized (lock) {
+                    if (pendingEvents.isEmpty()) {
+                        isDeliveryScheduled = false;
+                        isCompleted = true;
+                        break;
+                    }
+                    batch = pendingEvents;
+                    pendingEvents = new ArrayList<>();
+                }
+                List<GuideEvent> events = coalesce(batch);
+                if (events.isEmpty()) continue;
+                for (GuideListener listener : listeners) {
+                    try {
+                        listener.guidesChanged(events);
+                    } catch (RuntimeException e) {
+                        if (failure == null) {
+                            failure = e;
+                        } else {
+                            failure.addSuppressed(e);
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (!isCompleted) {
+                // An error escaped a listener, the next event published schedules the delivery of the pending events again
+                synchronized (lock) {
+                    isDeliveryScheduled = false;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Coalesces a list of events.
+     * Structural changes of a guide or node are merged, e.g., a node removed and added again is reported as moved.
+     * Annotation changes are reported once per guide or node, and not at all if the guide or node has been added or removed.
+     * Events of nodes are dropped if their guide has been added or deleted.
+     * The coalesced events are ordered by the first occurrence of the events they are merged from.
+     * @param events Events in order of their occurrence.
+     * @return Unmodifiable list of coalesced events.
+     */
+    static List<GuideEvent> coalesce(List<GuideEvent> events) {
+        // Each coalesced event is kept at the position of its first occurrence
+        GuideEvent[] slots = new GuideEvent[events.size()];
+        Map<String, Integer> structuralSlots = new HashMap<>();
+        Map<String, Integer> annotationSlots = new HashMap<>();
+        Set<String> addedOrRemovedKeys = new HashSet<>();
+        Set<String> addedOrDeletedGuides = new HashSet<>();
+        for (int i = 0; i < slots.length; i++) {
+            GuideEvent event = events.get(i);
+            String key = getKey(event);
+            switch (event.getType()) {
+            case ANNOTATION_CHANGED:
+                if (!annotationSlots.containsKey(key)) {
+                    annotationSlots.put(key, i);
+                    slots[i] = event;
+                }
+                continue;
+            case GUIDE_ADDED:
+            case GUIDE_DELETED:
+                addedOrDeletedGuides.add(event.getGuideId());
+                break;
+            case NODE_ADDED:
+            case NODE_REMOVED:
+                addedOrRemovedKeys.add(key);
+                break;
+            default:
+                break;
+            }
+            Integer slot = structuralSlots.get(key);
+            if (slot == null) {
+                structuralSlots.put(key, i);
+                slots[i] = event;
+                continue;
+            }
+            GuideEvent merged = merge(slots[slot], event);
+            if (merged != null) {
+                slots[slot] = merged;
+            } else {
+                slots[slot] = null;
+                structuralSlots.remove(key);
+            }
+        }
+
+        List<GuideEvent> coalescedEvents = new ArrayList<>(structuralSlots.size() + annotationSlots.size());
+        for (GuideEvent event : slots) {
+            if (event == null) continue;
+            if (event.getType() != Type.ANNOTATION_CHANGED) {
+                if (event.getNodeId() == null || !addedOrDeletedGuides.contains(event.getGuideId())) {
+                    coalescedEvents.add(event);
+                }
+                continue;
+            }
+            if (addedOrDeletedGuides.contains(event.getGuideId())) continue;
+            String key = getKey(event);
+            Integer structuralSlot = structuralSlots.get(key);
+            if (addedOrRemovedKeys.contains(key) && (structuralSlot == null || slots[structuralSlot].getType() != Type.NODE_MOVED)) continue;
+            coalescedEvents.add(event);
+        }
+        return Collections.unmodifiableList(coalescedEvents);
+    }
+
+    private static String getKey(GuideEvent event) {
+        return event.getNodeId() != null ? event.getGuideId() + "\u0000" + event.getNodeId() : event.getGuideId();
+    }
+
+    private static GuideEvent merge(GuideEvent previous, GuideEvent next) {
+        switch (previous.getType()) {
+        case NODE_ADDED:
+            return next.getType() == Type.NODE_REMOVED ? null : previous;
+        case GUIDE_ADDED:
+            return next.getType() == Type.GUIDE_DELETED ? null : previous;
+        case NODE_REMOVED:
+            return next.getType() == Type.NODE_ADDED ? new GuideEvent(Type.NODE_MOVED, next.getGuideId(), next.getNodeId()) : previous;
+        case GUIDE_DELETED:
+            return next.getType() == Type.GUIDE_ADDED ? next : previous;
+        default:
+            return next;
+        }
+    }
+}
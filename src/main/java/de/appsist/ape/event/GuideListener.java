@@ -0,0 +1,15 @@
+package de.glassroom.gpe.event;
+
+import java.util.List;
+
+/**
+ * Listener for changes of guides.
+ */
+public interface GuideListener {
+
+    /**
+     * Called with a batch of coalesced changes.
+     * @param events Unmodifiable list of events in order of their first occurrence. Never empty.
+     */
+    public void guidesChanged(List<GuideEvent> events);
+}
@@ -0,0 +1,157 @@
+package de.glassroom.gpe.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent histogram of non-negative values with logarithmic buckets.
+ * <p>
+ * Values below 16 are counted exactly. Larger values are counted in buckets dividing each power of two into 16 linear sub-buckets,
+ * so each value is represented with a relative error of less than 6.25%. The histogram has a fixed size of 960 buckets covering
+ * all non-negative long values. Recording a value does not allocate memory.
+ * </p>
+ */
+public final class Histogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets;
+    private final StripedCounter sum;
+    private final AtomicLong max;
+
+    Histogram() {
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.sum = new StripedCounter();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Records a value.
+     * @param value Value to record. Negative values are recorded as zero.
+     */
+    void record(long value) {
+        if (value < 0L) value = 0L;
+        buckets.getAndIncrement(bucketIndex(value));
+        sum.add(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0L);
+        }
+        sum.reset();
+        max.set(0L);
+    }
+
+    /**
+     * Returns a snapshot of the recorded values.
+     * Values recorded concurrently may be included partially.
+     * @return Snapshot of the histogram.
+     */
+    public Snapshot getSnapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(counts, sum.sum(), max.get());
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    static long highestValue(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKET_COUNT) return bucketIndex;
+        int shift = bucketIndex / SUB_BUCKET_COUNT - 1;
+        long lowest = (long) (SUB_BUCKET_COUNT + bucketIndex % SUB_BUCKET_COUNT) << shift;
+        return lowest + (1L << shift) - 1L;
+    }
+
+    /**
+     * Immutable snapshot of a histogram.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long sum, long max) {
+            this.counts = counts;
+            long count = 0L;
+            for (long bucketCount : counts) {
+                count += bucketCount;
+            }
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Returns the number of recorded values.
+         * @return Number of values.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the sum of all recorded values.
+         * @return Sum of the values.
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Returns the largest recorded value.
+         * @return Maximum or zero if no value has been recorded.
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the arithmetic mean of the recorded values.
+         * @return Mean or zero if no value has been recorded.
+         */
+        public double getMean() {
+            return count > 0L ? (double) sum / count : 0d;
+        }
+
+        /**
+         * Returns the value at a percentile, i.e., the highest value of the bucket containing the percentile, limited to the maximum.
+         * @param percentile Percentile between 0 and 100.
+         * @return Value at the percentile or zero if no value has been recorded.
+         * @throws IllegalArgumentException The percentile is out of range.
+         */
+        public long getValueAtPercentile(double percentile) throws IllegalArgumentException {
+            if (!(percentile >= 0d && percentile <= 100d)) {
+                throw new IllegalArgumentException("Percentile has to be between 0 and 100.");
+            }
+            if (count == 0L) return 0L;
+            long rank = Math.max(1L, (long) Math.ceil(percentile / 100d * count));
+            long seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", mean=" + Math.round(getMean()) + ", p50=" + getValueAtPercentile(50d) + ", p99="
+                    + getValueAtPercentile(99d) + ", max=" + max;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package de.glassroom.gpe.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Recorder keeping all metrics in memory.
+ * <p>
+ * Counters are striped to avoid contention between threads, timers and sizes are recorded in {@link Histogram}s with logarithmic buckets.
+ * All counters and histograms are allocated when the recorder is created, so recording does not allocate memory.
+ * The recorder is thread-safe.
+ * </p>
+ */
+public class InMemoryMetricsRecorder implements MetricsRecorder {
+    private final StripedCounter[] counters;
+    private final Histogram[] histograms;
+
+    /**
+     * Creates a new recorder.
+     */
+    public InMemoryMetricsRecorder() {
+        Metric[] metrics = Metric.values();
+        this.counters = new StripedCounter[metrics.length];
+        this.histograms = new Histogram[metrics.length];
+        for (Metric metric : metrics) {
+            if (metric.isDistribution()) {
+                histograms[metric.ordinal()] = new Histogram();
+            } else {
+                counters[metric.ordinal()] = new StripedCounter();
+            }
+        }
+    }
+
+    /**
+     * Increments a counter. Calls for timers and sizes are ignored.
+     */
+    @Override
+    public void increment(Metric metric, long delta) {
+        StripedCounter counter = counters[metric.ordinal()];
+        if (counter != null) counter.add(delta);
+    }
+
+    /**
+     * Records a value of a timer or size. Calls for counters are ignored.
+     */
+    @Override
+    public void record(Metric metric, long value) {
+        Histogram histogram = histograms[metric.ordinal()];
+        if (histogram != null) histogram.record(value);
+    }
+
+    /**
+     * Returns the value of a counter.
+     * @param metric Counter.
+     * @return Value of the counter.
+     * @throws IllegalArgumentException The metric is no counter.
+     */
+    public long getCount(Metric metric) throws IllegalArgumentException {
+        StripedCounter counter = counters[metric.ordinal()];
+        if (counter == null) {
+            throw new IllegalArgumentException("Metric is no counter: " + metric);
+        }
+        return counter.sum();
+    }
+
+    /**
+     * Returns the histogram of a timer or size.
+     * @param metric Timer or size.
+     * @return Histogram of the recorded values.
+     * @throws IllegalArgumentException The metric is a counter.
+     */
+    public Histogram getHistogram(Metric metric) throws IllegalArgumentException {
+        Histogram histogram = histograms[metric.ordinal()];
+        if (histogram == null) {
+            throw new IllegalArgumentException("Metric is no timer or size: " + metric);
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the current values of all metrics.
+     * @return Map with the value of each counter as {@link Long} and a {@link Histogram.Snapshot} of each timer and size.
+     */
+    public Map<Metric, Object> getValues() {
+        Map<Metric, Object> values = new EnumMap<>(Metric.class);
+        for (Metric metric : Metric.values()) {
+            if (metric.isDistribution()) {
+                values.put(metric, histograms[metric.ordinal()].getSnapshot());
+            } else {
+                values.put(metric, Long.valueOf(counters[metric.ordinal()].sum()));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Resets all counters and histograms. Values recorded concurrently may be lost or kept.
+     */
+    public void reset() {
+        for (int i = 0; i < counters.length; i++) {
+            if (counters[i] != null) counters[i].reset();
+            if (histograms[i] != null) histograms[i].reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<Metric, Object> entry : getValues().entrySet()) {
+            builder.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        return builder.toString();
+    }
+}
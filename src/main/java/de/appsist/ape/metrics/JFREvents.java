@@ -0,0 +1,131 @@
+package de.glassroom.gpe.metrics;
+
+/**
+ * Java Flight Recorder events of the process engine.
+ * <p>
+ * The following events are emitted, each enabled or disabled by its own event setting of the recording, e.g.,
+ * <code>de.glassroom.gpe.GuideRead#enabled=true</code> or <code>de.glassroom.gpe.GuideRead#threshold=10 ms</code>:
+ * </p>
+ * <ul>
+ * <li><code>de.glassroom.gpe.GuideRead</code>, <code>de.glassroom.gpe.GuideWrite</code>: Reading or writing a BPMN process, with guide identifier,
+ * node count and size.</li>
+ * <li><code>de.glassroom.gpe.ContentRead</code>, <code>de.glassroom.gpe.ContentWrite</code>: Reading or writing a content descriptor, with package
+ * identifier, language and size.</li>
+ * <li><code>de.glassroom.gpe.GuideLoad</code>: Loading a guide from the store of a guide manager, with guide identifier and node count.</li>
+ * <li><code>de.glassroom.gpe.GuideQuery</code>: Listing guides of a guide manager, with the number of returned guides.</li>
+ * <li><code>de.glassroom.gpe.GuideEdit</code>: Change of a guide or one of its nodes. Disabled by default.</li>
+ * </ul>
+ * <p>
+ * Sizes are bytes for streams and characters for strings, readers and writers. Events are only committed for operations completing
+ * successfully. On JVMs without Flight Recorder, or if the system property {@value #ENABLED_PROPERTY} is set to <code>false</code>,
+ * no events are emitted and each call costs a single field read.
+ * </p>
+ * <p>
+ * The event classes are compiled from <code>src/jfr/java</code> only if the library is built with JDK 11 or later,
+ * as the Java 7 baseline of the library does not include the Flight Recorder API. Otherwise, no events are emitted either.
+ * </p>
+ */
+public final class JFREvents {
+    /** System property to disable all events if set to <code>false</code>. */
+    public static final String ENABLED_PROPERTY = "de.glassroom.gpe.jfr";
+
+    /**
+     * Types of events measuring the duration of an operation.
+     */
+    public enum Type {
+        GUIDE_READ, GUIDE_WRITE, CONTENT_READ, CONTENT_WRITE, GUIDE_LOAD, GUIDE_QUERY
+    }
+
+    /**
+     * Emitter of the events. The implementation is only loaded if Flight Recorder is available.
+     */
+    interface Emitter {
+        Object begin(Type type);
+
+        void commitGuide(Object event, String guideId, int nodeCount, long size);
+
+        void commitContent(Object event, String packageId, String languageId, long size);
+
+        void commitQuery(Object event, int resultCount);
+
+        void guideEdited(String guideId, String change, String nodeId);
+    }
+
+    private static final Emitter EMITTER = createEmitter();
+
+    private JFREvents() {
+    }
+
+    private static Emitter createEmitter() {
+        if ("false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY))) {
+            return null;
+        }
+        try {
+            Class.forName("jdk.jfr.Event", false, JFREvents.class.getClassLoader());
+            return (Emitter) Class.forName("de.glassroom.gpe.metrics.JFREmitter").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // No Flight Recorder in this JVM, or the library has been built without the emitter.
+            return null;
+        }
+    }
+
+    /**
+     * Checks if Flight Recorder is available and the events are not disabled by the system property.
+     * @return <code>true</code> if events can be emitted, otherwise <code>false</code>.
+     */
+    public static boolean isAvailable() {
+        return EMITTER != null;
+    }
+
+    /**
+     * Starts the event of an operation.
+     * @param type Type of the operation.
+     * @return Started event to be committed after the operation or <code>null</code> if the event is not enabled in any recording.
+     */
+    public static Object begin(Type type) {
+        Emitter emitter = EMITTER;
+        return emitter != null ? emitter.begin(type) : null;
+    }
+
+    /**
+     * Commits the event of a guide read, write or load.
+     * @param event Event returned by {@link #begin(Type)}. If <code>null</code>, nothing will happen.
+     * @param guideId Identifier of the guide.
+     * @param nodeCount Number of nodes of the guide.
+     * @param size Size of the document or <code>-1</code> if unknown.
+     */
+    public static void commitGuide(Object event, String guideId, int nodeCount, long size) {
+        if (event != null) EMITTER.commitGuide(event, guideId, nodeCount, size);
+    }
+
+    /**
+     * Commits the event of a content descriptor read or write.
+     * @param event Event returned by {@link #begin(Type)}. If <code>null</code>, nothing will happen.
+     * @param packageId Identifier of the content package.
+     * @param languageId Language of the content package.
+     * @param size Size of the document.
+     */
+    public static void commitContent(Object event, String packageId, String languageId, long size) {
+        if (event != null) EMITTER.commitContent(event, packageId, languageId, size);
+    }
+
+    /**
+     * Commits the event of a guide query.
+     * @param event Event returned by {@link #begin(Type)}. If <code>null</code>, nothing will happen.
+     * @param resultCount Number of returned guides.
+     */
+    public static void commitQuery(Object event, int resultCount) {
+        if (event != null) EMITTER.commitQuery(event, resultCount);
+    }
+
+    /**
+     * Emits the event of a change of a guide or one of its nodes.
+     * @param guideId Identifier of the guide.
+     * @param change Type of the change.
+     * @param nodeId Identifier of the changed node or <code>null</code> if the guide itself has been changed.
+     */
+    public static void guideEdited(String guideId, String change, String nodeId) {
+        Emitter emitter = EMITTER;
+        if (emitter != null) emitter.guideEdited(guideId, change, nodeId);
+    }
+}
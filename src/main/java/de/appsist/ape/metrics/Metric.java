@@ -0,0 +1,75 @@
+package de.glassroom.gpe.metrics;
+
+/**
+ * Metrics recorded by the process engine.
+ * Counters are incremented, timers record durations in nanoseconds and sizes record the number of bytes read or written.
+ * For strings, readers and writers the size is the number of characters.
+ */
+public enum Metric {
+    /** Duration of reading a BPMN process. */
+    BPMN_READ_TIME(Type.TIMER),
+    /** Size of a read BPMN process. */
+    BPMN_READ_SIZE(Type.SIZE),
+    /** Duration of writing a BPMN process. */
+    BPMN_WRITE_TIME(Type.TIMER),
+    /** Size of a written BPMN process. */
+    BPMN_WRITE_SIZE(Type.SIZE),
+    /** Duration of reading a content descriptor. */
+    CONTENT_READ_TIME(Type.TIMER),
+    /** Size of a read content descriptor. */
+    CONTENT_READ_SIZE(Type.SIZE),
+    /** Duration of writing a content descriptor. */
+    CONTENT_WRITE_TIME(Type.TIMER),
+    /** Size of a written content descriptor. */
+    CONTENT_WRITE_SIZE(Type.SIZE),
+    /** Number of guides created or added by guide managers. */
+    GUIDES_ADDED(Type.COUNTER),
+    /** Number of guides loaded from guide stores by guide managers. */
+    GUIDES_LOADED(Type.COUNTER),
+    /** Number of guides deleted by guide managers. */
+    GUIDES_DELETED(Type.COUNTER),
+    /** Duration of a guide lookup by identifier, including loading the guide from a store. */
+    GUIDE_LOOKUP_TIME(Type.TIMER),
+    /** Duration of a filtered or sorted guide listing. */
+    GUIDE_QUERY_TIME(Type.TIMER),
+    /** Number of nodes added to guides. */
+    NODES_ADDED(Type.COUNTER),
+    /** Number of nodes removed from guides. */
+    NODES_REMOVED(Type.COUNTER),
+    /** Number of nodes moved within guides. */
+    NODES_MOVED(Type.COUNTER);
+
+    /**
+     * Types of metrics.
+     */
+    public enum Type {
+        /** Monotonic count of events. */
+        COUNTER,
+        /** Distribution of durations in nanoseconds. */
+        TIMER,
+        /** Distribution of sizes in bytes or characters. */
+        SIZE
+    }
+
+    private final Type type;
+
+    private Metric(Type type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns the type of the metric.
+     * @return Metric type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Checks if the metric records a distribution of values.
+     * @return <code>true</code> for timers and sizes, <code>false</code> for counters.
+     */
+    public boolean isDistribution() {
+        return type != Type.COUNTER;
+    }
+}
@@ -0,0 +1,90 @@
+package de.glassroom.gpe.metrics;
+
+/**
+ * Entry point for recording metrics of the process engine.
+ * <p>
+ * By default, metrics are disabled and each call costs a single field read. Metrics are enabled by setting a recorder, e.g., an
+ * {@link InMemoryMetricsRecorder}. Operations are only measured if they complete successfully.
+ * </p>
+ */
+public final class Metrics {
+    /** Start time returned by {@link #startTime()} if metrics are disabled. */
+    public static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private static volatile MetricsRecorder recorder;
+
+    private Metrics() {
+    }
+
+    /**
+     * Sets the recorder for all metrics of the process engine.
+     * @param metricsRecorder Recorder to use or <code>null</code> to disable metrics.
+     */
+    public static void setRecorder(MetricsRecorder metricsRecorder) {
+        recorder = metricsRecorder;
+    }
+
+    /**
+     * Returns the recorder for all metrics of the process engine.
+     * @return Recorder or <code>null</code> if metrics are disabled.
+     */
+    public static MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Checks if metrics are recorded.
+     * @return <code>true</code> if a recorder is set, otherwise <code>false</code>.
+     */
+    public static boolean isEnabled() {
+        return recorder != null;
+    }
+
+    /**
+     * Increments a counter by one.
+     * @param metric Counter to increment.
+     */
+    public static void increment(Metric metric) {
+        MetricsRecorder r = recorder;
+        if (r != null) r.increment(metric, 1L);
+    }
+
+    /**
+     * Increments a counter.
+     * @param metric Counter to increment.
+     * @param delta Value to add.
+     */
+    public static void increment(Metric metric, long delta) {
+        MetricsRecorder r = recorder;
+        if (r != null) r.increment(metric, delta);
+    }
+
+    /**
+     * Records a value of a timer or size.
+     * @param metric Timer or size to record the value for.
+     * @param value Duration in nanoseconds or size in bytes or characters.
+     */
+    public static void record(Metric metric, long value) {
+        MetricsRecorder r = recorder;
+        if (r != null) r.record(metric, value);
+    }
+
+    /**
+     * Returns the start time of an operation to be passed to {@link #recordTime(Metric, long)}.
+     * @return Current value of {@link System#nanoTime()} or {@link #NOT_STARTED} if metrics are disabled.
+     */
+    public static long startTime() {
+        return recorder != null ? System.nanoTime() : NOT_STARTED;
+    }
+
+    /**
+     * Records the duration of an operation. Nothing is recorded if the operation has not been started while metrics were enabled.
+     * @param metric Timer to record the duration for.
+     * @param startTime Start time returned by {@link #startTime()}.
+     */
+    public static void recordTime(Metric metric, long startTime) {
+        if (startTime == NOT_STARTED) return;
+        MetricsRecorder r = recorder;
+        if (r != null) r.record(metric, Math.max(0L, System.nanoTime() - startTime));
+    }
+}
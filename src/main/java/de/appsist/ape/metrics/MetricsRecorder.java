@@ -0,0 +1,25 @@
+package de.glassroom.gpe.metrics;
+
+/**
+ * Service provider interface for recording metrics, see {@link Metrics#setRecorder(MetricsRecorder)}.
+ * <p>
+ * Recorders are called on the threads performing the measured operations, so implementations have to be thread-safe and should
+ * not block.
+ * </p>
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Increments a counter.
+     * @param metric Counter to increment.
+     * @param delta Value to add. Not negative.
+     */
+    public void increment(Metric metric, long delta);
+
+    /**
+     * Records a value of a timer or size.
+     * @param metric Timer or size to record the value for.
+     * @param value Duration in nanoseconds or size in bytes or characters. Not negative.
+     */
+    public void record(Metric metric, long value);
+}
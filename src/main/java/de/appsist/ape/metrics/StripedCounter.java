@@ -0,0 +1,53 @@
+package de.glassroom.gpe.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter spreading concurrent updates over multiple cells to avoid contention.
+ * Each thread updates the cell selected by its identifier, the cells are summed up when the counter is read.
+ * Cells are placed on separate cache lines.
+ */
+final class StripedCounter {
+    /** Number of array elements between two cells, i.e., 64 bytes. */
+    private static final int PADDING = 8;
+    private static final int STRIPES;
+
+    static {
+        int stripes = 1;
+        int processors = Runtime.getRuntime().availableProcessors();
+        while (stripes < processors && stripes < 64) {
+            stripes <<= 1;
+        }
+        STRIPES = stripes;
+    }
+
+    private final AtomicLongArray cells;
+
+    StripedCounter() {
+        this.cells = new AtomicLongArray(STRIPES * PADDING);
+    }
+
+    void add(long delta) {
+        cells.getAndAdd(index(), delta);
+    }
+
+    long sum() {
+        long sum = 0L;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0L);
+        }
+    }
+
+    private static int index() {
+        long threadId = Thread.currentThread().getId();
+        int hash = (int) (threadId * 0x9E3779B97F4A7C15L >>> 32);
+        return (hash & (STRIPES - 1)) * PADDING;
+    }
+}
@@ -13,4 +13,5 @@ public interface Namespaces {
     public Namespace CONTENT = Namespace.getNamespace("glassroom:bpmn:content");
     public Namespace CONDITION = Namespace.getNamespace("glassroom:bpmn:condition");
     public Namespace CONTENTPACKAGE = Namespace.getNamespace("glassroom:content");
+    public Namespace INDEX = Namespace.getNamespace("glassroom:index");
 }
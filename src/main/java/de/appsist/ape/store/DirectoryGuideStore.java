@@ -0,0 +1,234 @@
+package de.glassroom.gpe.store;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jdom2.Element;
+import org.jdom2.output.Format;
+import org.joda.time.DateTime;
+import org.joda.time.format.ISODateTimeFormat;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideSummary;
+import de.glassroom.gpe.misc.Namespaces;
+import de.glassroom.gpe.utils.GuideSerializer;
+import de.glassroom.gpe.utils.XMLUtils;
+
+/**
+ * Guide store backed by a directory.
+ * Each guide is stored as BPMN file in a sub directory named after the guide, i.e. <code>&lt;directory&gt;/&lt;guideId&gt;/guide.bpmn</code>.
+ * The summaries of all guides are kept in an index file, so the store can be opened without parsing the guides.
+ * Guides added or modified after the index has been written are detected and indexed when the store is opened.
+ * As guide identifiers are used as directory names, identifiers which are no plain file names, e.g., containing path separators, are rejected.
+ */
+public class DirectoryGuideStore implements GuideStore {
+    public static final String GUIDE_FILE = "guide.bpmn";
+    public static final String INDEX_FILE = "index.xml";
+    private static final Charset UTF8 = StandardCharsets.UTF_8;
+
+    private final Path directory;
+    private final Map<String, GuideSummary> index;
+    private boolean isIndexModified;
+
+    /**
+     * Opens a directory as guide store.
+     * The directory will be created if it does not exist. Guides which cannot be parsed are not indexed.
+     * @param directory Directory containing the guides.
+     * @throws IOException Failed to read the directory.
+     */
+    public DirectoryGuideStore(Path directory) throws IOException {
+        this.directory = directory;
+        this.index = new LinkedHashMap<>();
+        Files.createDirectories(directory);
+        readIndex();
+    }
+
+    /**
+     * Returns the directory of this store.
+     * @return Directory containing the guides.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private void readIndex() throws IOException {
+        Path indexFile = directory.resolve(INDEX_FILE);
+        FileTime indexTime = null;
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                Element indexElement = XMLUtils.importFromString(new String(Files.readAllBytes(indexFile), UTF8));
+                for (Element guideElement : indexElement.getChildren("guide", Namespaces.INDEX)) {
+                    GuideSummary summary = parseSummary(guideElement);
+                    index.put(summary.getId(), summary);
+                }
+                indexTime = Files.getLastModifiedTime(indexFile);
+            } catch (IllegalArgumentException e) {
+                // Corrupted index, rebuild it from the guide files.
+                index.clear();
+            }
+        }
+
+        Set<String> storedIds = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path guideDir : stream) {
+                Path guideFile = guideDir.resolve(GUIDE_FILE);
+                if (!Files.isRegularFile(guideFile)) continue;
+                String id = guideDir.getFileName().toString();
+                if (index.containsKey(id) && indexTime != null && Files.getLastModifiedTime(guideFile).compareTo(indexTime) <= 0) {
+                    storedIds.add(id);
+                    continue;
+                }
+                try {
+                    index.put(id, GuideSerializer.readSummaryFromBPMN(guideFile));
+                    storedIds.add(id);
+                    isIndexModified = true;
+                } catch (IllegalArgumentException e) {
+                    // Not a valid guide, skip it.
+                }
+            }
+        }
+        if (index.keySet().retainAll(storedIds)) {
+            isIndexModified = true;
+        }
+    }
+
+    private static GuideSummary parseSummary(Element element) throws IllegalArgumentException {
+        GuideSummary summary = new GuideSummary(XMLUtils.getRequiredAttribute(element, "id"));
+        String lastUpdateString = element.getAttributeValue("lastUpdate");
+        if (lastUpdateString != null) {
+            summary.setLastUpdate(ISODateTimeFormat.dateTime().parseDateTime(lastUpdateString).toDate());
+        }
+        for (Element titleElement : element.getChildren("title", Namespaces.INDEX)) {
+            summary.setTitle(XMLUtils.getRequiredAttribute(titleElement, "lang"), titleElement.getText());
+        }
+        for (Element descriptionElement : element.getChildren("description", Namespaces.INDEX)) {
+            summary.setDescription(XMLUtils.getRequiredAttribute(descriptionElement, "lang"), descriptionElement.getText());
+        }
+        return summary;
+    }
+
+    private static Element serializeSummary(GuideSummary summary) {
+        Element element = new Element("guide", Namespaces.INDEX);
+        element.setAttribute("id", summary.getId());
+        Date lastUpdate = summary.getLastUpdate();
+        if (lastUpdate != null) {
+            element.setAttribute("lastUpdate", ISODateTimeFormat.dateTime().print(new DateTime(lastUpdate)));
+        }
+        for (Entry<String, String> entry : summary.getTitles().entrySet()) {
+            element.addContent(new Element("title", Namespaces.INDEX)
+                    .setAttribute("lang", entry.getKey())
+                    .setText(entry.getValue()));
+        }
+        for (Entry<String, String> entry : summary.getDescriptions().entrySet()) {
+            element.addContent(new Element("description", Namespaces.INDEX)
+                    .setAttribute("lang", entry.getKey())
+                    .setText(entry.getValue()));
+        }
+        return element;
+    }
+
+    private static Guide readGuide(Path guideFile) throws IOException, IllegalArgumentException {
+        return GuideSerializer.readFromBPMN(new String(Files.readAllBytes(guideFile), UTF8));
+    }
+
+    private static void writeAtomically(Path file, byte[] bytes) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tempFile, bytes);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Resolves the directory of a guide.
+     * @param id Identifier of the guide.
+     * @return Sub directory of the store directory.
+     * @throws IllegalArgumentException The identifier is no plain file name, i.e., it is empty, a relative path reference, contains path separators
+     *  or conflicts with the index file.
+     */
+    private Path getGuideDirectory(String id) throws IllegalArgumentException {
+        if (id == null || id.isEmpty() || ".".equals(id) || "..".equals(id) || id.indexOf('/') >= 0 || id.indexOf('\\') >= 0
+                || id.indexOf('\0') >= 0 || INDEX_FILE.equals(id) || (INDEX_FILE + ".tmp").equals(id)) {
+            throw new IllegalArgumentException("Invalid guide id for a directory store: " + id);
+        }
+        Path guideDir = directory.resolve(id);
+        if (!directory.equals(guideDir.getParent()) || !guideDir.getFileName().toString().equals(id)) {
+            throw new IllegalArgumentException("Invalid guide id for a directory store: " + id);
+        }
+        return guideDir;
+    }
+
+    @Override
+    public synchronized boolean contains(String id) {
+        return index.containsKey(id);
+    }
+
+    @Override
+    public synchronized Collection<GuideSummary> getSummaries() {
+        return new ArrayList<>(index.values());
+    }
+
+    @Override
+    public synchronized GuideSummary getSummary(String id) {
+        return index.get(id);
+    }
+
+    @Override
+    public Guide load(String id) throws IOException {
+        if (!contains(id)) {
+            return null;
+        }
+        try {
+            return readGuide(getGuideDirectory(id).resolve(GUIDE_FILE));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Failed to parse guide " + id + ".", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws IllegalArgumentException The identifier of the guide is no plain file name.
+     */
+    @Override
+    public void save(Guide guide) throws IOException, IllegalArgumentException {
+        Path guideDir = getGuideDirectory(guide.getId());
+        Files.createDirectories(guideDir);
+        writeAtomically(guideDir.resolve(GUIDE_FILE), GuideSerializer.writeAsBPMN(guide, true).getBytes(UTF8));
+        synchronized (this) {
+            index.put(guide.getId(), GuideSummary.of(guide));
+            isIndexModified = true;
+        }
+    }
+
+    @Override
+    public void delete(String id) throws IOException {
+        synchronized (this) {
+            if (index.remove(id) == null) return;
+            isIndexModified = true;
+        }
+        Files.deleteIfExists(getGuideDirectory(id).resolve(GUIDE_FILE));
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (!isIndexModified) return;
+        Element indexElement = new Element("index", Namespaces.INDEX);
+        for (GuideSummary summary : index.values()) {
+            indexElement.addContent(serializeSummary(summary));
+        }
+        writeAtomically(directory.resolve(INDEX_FILE), XMLUtils.exportAsString(indexElement, Format.getCompactFormat()).getBytes(UTF8));
+        isIndexModified = false;
+    }
+}
@@ -0,0 +1,498 @@
+package de.glassroom.gpe.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideSummary;
+import de.glassroom.gpe.utils.GuideBinarySerializer;
+
+/**
+ * Read-only guide store backed by a single archive file.
+ * <p>
+ * The archive contains the guides in binary representation (see {@link GuideBinarySerializer}), followed by an index of fixed size
+ * slots sorted by guide identifier. Each slot holds the position and CRC-32 checksum of the guide and its summary.
+ * Summaries contain the titles, descriptions and last update of the guides. Archives of version 1 contain no descriptions.
+ * The file is memory mapped when opened, so opening the archive takes constant time regardless of the number of guides.
+ * Guides are located by a binary search in the index and only decoded when loaded.
+ * </p>
+ * Archives are limited to 2 GB. They are created with {@link #write(Path, Collection)}.
+ */
+public class GuideArchive implements GuideStore, Closeable {
+    public static final String FILE_EXTENSION = ".gpa";
+    /** Archive format version written by this class. */
+    public static final int VERSION = 2;
+    private static final int MIN_VERSION = 1;
+    private static final int MAGIC = 0x47504541; // "GPEA"
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 32;
+    private static final long NO_LAST_UPDATE = Long.MIN_VALUE;
+    private static final int CHECKSUM_CHUNK_SIZE = 8192;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int version;
+    private final int entryCount;
+    private final int indexOffset;
+    private final int indexLength;
+    private final int indexChecksum;
+
+    /**
+     * Opens an archive.
+     * Only the header is validated, use {@link #verify()} to check the checksums of all entries.
+     * @param file Archive file.
+     * @throws IOException Failed to read the file or the file is no valid archive.
+     */
+    public GuideArchive(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid guide archive: Illegal file size " + size + ".");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Invalid guide archive: Magic bytes do not match.");
+            }
+            version = buffer.getInt(4);
+            if (version < MIN_VERSION || version > VERSION) {
+                throw new IOException("Unsupported guide archive version: " + version);
+            }
+            entryCount = buffer.getInt(8);
+            long offset = buffer.getLong(12);
+            indexLength = buffer.getInt(20);
+            indexChecksum = buffer.getInt(24);
+            if (entryCount < 0 || offset < HEADER_SIZE || indexLength < 0 || offset + indexLength > size
+                    || (long) entryCount * SLOT_SIZE > indexLength) {
+                throw new IOException("Invalid guide archive: Corrupted header.");
+            }
+            indexOffset = (int) offset;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the archive file.
+     * @return Path of the archive file.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of guides in the archive.
+     * @return Number of guides.
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return find(id) >= 0;
+    }
+
+    @Override
+    public Collection<GuideSummary> getSummaries() {
+        return new AbstractList<GuideSummary>() {
+            @Override
+            public GuideSummary get(int index) {
+                if (index < 0 || index >= entryCount) throw new IndexOutOfBoundsException();
+                return readSummary(index);
+            }
+
+            @Override
+            public int size() {
+                return entryCount;
+            }
+        };
+    }
+
+    @Override
+    public GuideSummary getSummary(String id) {
+        int index = find(id);
+        return index >= 0 ? readSummary(index) : null;
+    }
+
+    /**
+     * Returns the binary representation of a guide without copying it.
+     * The checksum of the guide is not verified.
+     * @param id Identifier of the guide.
+     * @return Read-only buffer containing the guide between its position and limit or <code>null</code> if the archive contains no such guide.
+     * @throws IOException The index entry of the guide is corrupted.
+     */
+    public ByteBuffer getGuideBytes(String id) throws IOException {
+        int index = find(id);
+        return index >= 0 ? slice(index) : null;
+    }
+
+    @Override
+    public Guide load(String id) throws IOException {
+        int index = find(id);
+        if (index < 0) {
+            return null;
+        }
+        ByteBuffer bytes = slice(index);
+        if (checksum(bytes.duplicate()) != buffer.getInt(slotOffset(index) + 12)) {
+            throw new IOException("Checksum mismatch for guide " + id + ".");
+        }
+        try {
+            return GuideBinarySerializer.readFromBinary(bytes);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Failed to decode guide " + id + ".", e);
+        }
+    }
+
+    /**
+     * Verifies the checksums of the index and all guides.
+     * @throws IOException The archive is corrupted.
+     */
+    public void verify() throws IOException {
+        ByteBuffer index = buffer.duplicate();
+        ((Buffer) index).limit(indexOffset + indexLength).position(indexOffset);
+        if (checksum(index) != indexChecksum) {
+            throw new IOException("Checksum mismatch for archive index.");
+        }
+        for (int i = 0; i < entryCount; i++) {
+            if (checksum(slice(i)) != buffer.getInt(slotOffset(i) + 12)) {
+                throw new IOException("Checksum mismatch for guide " + readKey(i) + ".");
+            }
+        }
+    }
+
+    /**
+     * Always fails, as archives are read-only.
+     * @throws UnsupportedOperationException Archives cannot be modified.
+     */
+    @Override
+    public void save(Guide guide) {
+        throw new UnsupportedOperationException("Guide archives are read-only.");
+    }
+
+    /**
+     * Always fails, as archives are read-only.
+     * @throws UnsupportedOperationException Archives cannot be modified.
+     */
+    @Override
+    public void delete(String id) {
+        throw new UnsupportedOperationException("Guide archives are read-only.");
+    }
+
+    @Override
+    public void flush() {
+        // Nothing to do.
+    }
+
+    /**
+     * Closes the archive file. The memory mapping is released when it is garbage collected.
+     * @throws IOException Failed to close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int slotOffset(int index) {
+        return indexOffset + index * SLOT_SIZE;
+    }
+
+    private ByteBuffer slice(int index) throws IOException {
+        int slot = slotOffset(index);
+        long offset = buffer.getLong(slot);
+        int length = buffer.getInt(slot + 8);
+        if (offset < HEADER_SIZE || length < 0 || offset + length > indexOffset) {
+            throw new IOException("Invalid guide archive: Corrupted index entry " + index + ".");
+        }
+        ByteBuffer bytes = buffer.asReadOnlyBuffer();
+        ((Buffer) bytes).limit((int) offset + length).position((int) offset);
+        return bytes;
+    }
+
+    /**
+     * Computes the CRC-32 checksum of the remaining bytes, consuming them.
+     * The bytes are copied in chunks, as {@link CRC32} cannot read buffers in Java 7.
+     */
+    private static int checksum(ByteBuffer bytes) {
+        CRC32 crc = new CRC32();
+        if (bytes.hasArray()) {
+            crc.update(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+            ((Buffer) bytes).position(bytes.limit());
+        } else {
+            byte[] chunk = new byte[Math.min(bytes.remaining(), CHECKSUM_CHUNK_SIZE)];
+            while (bytes.hasRemaining()) {
+                int length = Math.min(bytes.remaining(), chunk.length);
+                bytes.get(chunk, 0, length);
+                crc.update(chunk, 0, length);
+            }
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Returns the position of the key or summary bytes referenced by a slot, checked against the index bounds.
+     */
+    private int regionOffset(int slot, int field) {
+        int offset = buffer.getInt(slot + field);
+        int length = buffer.getInt(slot + field + 4);
+        if (offset < 0 || length < 0 || (long) offset + length > indexLength) {
+            throw new IllegalStateException("Invalid guide archive: Corrupted index entry.");
+        }
+        return indexOffset + offset;
+    }
+
+    private String readKey(int index) {
+        int slot = slotOffset(index);
+        return readUTF8(regionOffset(slot, 16), buffer.getInt(slot + 20));
+    }
+
+    private String readUTF8(int offset, int length) {
+        if (length < 0 || offset < indexOffset || (long) offset + length > (long) indexOffset + indexLength) {
+            throw new IllegalStateException("Invalid guide archive: Corrupted index entry.");
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        ((Buffer) source).position(offset);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private GuideSummary readSummary(int index) {
+        int slot = slotOffset(index);
+        int position = regionOffset(slot, 24);
+        int end = position + buffer.getInt(slot + 28);
+        try {
+            GuideSummary summary = new GuideSummary(readKey(index));
+            position = readTexts(position, summary, false);
+            if (version > 1) {
+                position = readTexts(position, summary, true);
+            }
+            long lastUpdate = buffer.getLong(position);
+            position += 8;
+            if (position > end) {
+                throw new IllegalStateException("Invalid guide archive: Corrupted summary of entry " + index + ".");
+            }
+            if (lastUpdate != NO_LAST_UPDATE) {
+                summary.setLastUpdate(new Date(lastUpdate));
+            }
+            return summary;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalStateException("Invalid guide archive: Corrupted summary of entry " + index + ".", e);
+        }
+    }
+
+    private int readTexts(int position, GuideSummary summary, boolean isDescription) {
+        int textCount = buffer.getInt(position);
+        position += 4;
+        for (int i = 0; i < textCount; i++) {
+            int langLength = buffer.getInt(position);
+            String lang = readUTF8(position + 4, langLength);
+            position += 4 + langLength;
+            int textLength = buffer.getInt(position);
+            String text = textLength >= 0 ? readUTF8(position + 4, textLength) : null;
+            position += 4 + Math.max(textLength, 0);
+            if (isDescription) {
+                summary.setDescription(lang, text);
+            } else {
+                summary.setTitle(lang, text);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Searches the index for a guide.
+     * Keys are compared as UTF-8 bytes directly in the mapped index, so no strings are created during the search.
+     * @param id Identifier of the guide.
+     * @return Index of the guide or a negative number if the archive contains no such guide.
+     */
+    private int find(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int slot = slotOffset(middle);
+            int result = compareKey(regionOffset(slot, 16), buffer.getInt(slot + 20), key);
+            if (result < 0) {
+                low = middle + 1;
+            } else if (result > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int compareKey(int offset, int length, byte[] key) {
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int result = (buffer.get(offset + i) & 0xFF) - (key[i] & 0xFF);
+            if (result != 0) return result;
+        }
+        return length - key.length;
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int result = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (result != 0) return result;
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Guide written to an archive, remembered until the index is written.
+     */
+    private static class IndexEntry {
+        private final byte[] key;
+        private final byte[] summary;
+        private long offset;
+        private int length;
+        private int checksum;
+
+        private IndexEntry(byte[] key, byte[] summary) {
+            this.key = key;
+            this.summary = summary;
+        }
+    }
+
+    /**
+     * Writes guides to an archive file.
+     * The archive is written to a temporary file first, which replaces an existing archive when complete.
+     * @param file Archive file to write.
+     * @param guides Guides to store in the archive.
+     * @throws IOException Failed to write the archive.
+     * @throws IllegalArgumentException Multiple guides have the same identifier or a guide cannot be serialized.
+     */
+    public static void write(Path file, Collection<Guide> guides) throws IOException, IllegalArgumentException {
+        List<Guide> sortedGuides = new ArrayList<>(guides.size());
+        final List<byte[]> keys = new ArrayList<>(guides.size());
+        for (Guide guide : guides) {
+            sortedGuides.add(guide);
+        }
+        Collections.sort(sortedGuides, new Comparator<Guide>() {
+            @Override
+            public int compare(Guide guide1, Guide guide2) {
+                return compareBytes(guide1.getId().getBytes(StandardCharsets.UTF_8), guide2.getId().getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        for (int i = 0; i < sortedGuides.size(); i++) {
+            keys.add(sortedGuides.get(i).getId().getBytes(StandardCharsets.UTF_8));
+            if (i > 0 && compareBytes(keys.get(i - 1), keys.get(i)) == 0) {
+                throw new IllegalArgumentException("Duplicate guide identifier: " + sortedGuides.get(i).getId());
+            }
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        Path tmpFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (FileChannel out = FileChannel.open(tmpFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.position(HEADER_SIZE);
+            List<IndexEntry> entries = new ArrayList<>(sortedGuides.size());
+            for (int i = 0; i < sortedGuides.size(); i++) {
+                Guide guide = sortedGuides.get(i);
+                IndexEntry entry = new IndexEntry(keys.get(i), encodeSummary(GuideSummary.of(guide)));
+                ByteBuffer bytes = ByteBuffer.wrap(GuideBinarySerializer.writeAsBinary(guide));
+                entry.offset = out.position();
+                entry.length = bytes.remaining();
+                entry.checksum = checksum(bytes.duplicate());
+                writeFully(out, bytes);
+                entries.add(entry);
+            }
+
+            long indexOffset = out.position();
+            int regionOffset = entries.size() * SLOT_SIZE;
+            int indexLength = regionOffset;
+            for (IndexEntry entry : entries) {
+                indexLength += entry.key.length + entry.summary.length;
+            }
+            if (indexOffset + indexLength > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Guide archives are limited to 2 GB.");
+            }
+            ByteBuffer index = ByteBuffer.allocate(indexLength);
+            for (IndexEntry entry : entries) {
+                index.putLong(entry.offset).putInt(entry.length).putInt(entry.checksum);
+                index.putInt(regionOffset).putInt(entry.key.length);
+                regionOffset += entry.key.length;
+                index.putInt(regionOffset).putInt(entry.summary.length);
+                regionOffset += entry.summary.length;
+            }
+            for (IndexEntry entry : entries) {
+                index.put(entry.key).put(entry.summary);
+            }
+            ((Buffer) index).flip();
+            int indexChecksum = checksum(index.duplicate());
+            writeFully(out, index);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(entries.size()).putLong(indexOffset).putInt(indexLength).putInt(indexChecksum).putInt(0);
+            ((Buffer) header).flip();
+            out.position(0);
+            writeFully(out, header);
+            out.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmpFile);
+            throw e;
+        }
+        Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] encodeSummary(GuideSummary summary) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeTexts(out, summary.getTitles());
+        writeTexts(out, summary.getDescriptions());
+        Date lastUpdate = summary.getLastUpdate();
+        out.writeLong(lastUpdate != null ? lastUpdate.getTime() : NO_LAST_UPDATE);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeTexts(DataOutputStream out, Map<String, String> texts) throws IOException {
+        out.writeInt(texts.size());
+        for (Entry<String, String> entry : texts.entrySet()) {
+            byte[] lang = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(lang.length);
+            out.write(lang);
+            if (entry.getValue() != null) {
+                byte[] text = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(text.length);
+                out.write(text);
+            } else {
+                out.writeInt(-1);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package de.glassroom.gpe.store;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.Node;
+import de.glassroom.gpe.annotations.MetadataAnnotation;
+
+/**
+ * Cache for guides loaded from a guide store.
+ * The cache is bounded by the number of entries and by the estimated memory consumption of the cached guides.
+ * If a bound is exceeded, the least recently used guides are evicted. Modified guides are written back to the store before they are evicted.
+ * A guide is considered as modified if it or one of its nodes has been changed since it was cached, see {@link Guide#getModificationCount()},
+ * if its last update changed or if it has been marked as modified explicitly.
+ * Evicted and replaced guides are returned by {@link #put(Guide)}, so the owner of the cache can invalidate references to them.
+ */
+public class GuideCache {
+    private static final long BYTES_PER_GUIDE = 256;
+    private static final long BYTES_PER_NODE = 512;
+    private static final long BYTES_PER_CHAR = 2;
+
+    private final GuideStore store;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<String, CacheEntry> entries;
+    private long estimatedBytes;
+
+    private static class CacheEntry {
+        private final Guide guide;
+        private final long size;
+        private Date lastUpdate;
+        private long modificationCount;
+        private boolean isModified;
+
+        private CacheEntry(Guide guide, long size) {
+            this.guide = guide;
+            this.size = size;
+            markWritten();
+        }
+
+        private boolean isModified() {
+            // Each update sets a new date instance. Comparing the instances detects updates within the same millisecond.
+            return isModified || guide.getModificationCount() != modificationCount || guide.getLastUpdate() != lastUpdate;
+        }
+
+        private void markWritten() {
+            lastUpdate = guide.getLastUpdate();
+            modificationCount = guide.getModificationCount();
+            isModified = false;
+        }
+    }
+
+    /**
+     * Creates a new guide cache.
+     * @param store Store to write modified guides back to.
+     * @param maxEntries Maximum number of cached guides. Values less or equal zero disable the bound.
+     * @param maxBytes Maximum estimated number of bytes occupied by the cached guides. Values less or equal zero disable the bound.
+     */
+    public GuideCache(GuideStore store, int maxEntries, long maxBytes) {
+        this.store = store;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns a cached guide and marks it as recently used.
+     * @param id Identifier of the guide.
+     * @return Guide or <code>null</code> if the guide is not cached.
+     */
+    public Guide get(String id) {
+        CacheEntry entry = entries.get(id);
+        return entry != null ? entry.guide : null;
+    }
+
+    /**
+     * Adds a guide to the cache. Other guides may be evicted.
+     * @param guide Guide to cache.
+     * @return List of evicted guides in order of their last use, preceded by a different instance cached for the same identifier. May be empty.
+     * @throws IllegalStateException Failed to write back an evicted guide.
+     */
+    public List<Guide> put(Guide guide) throws IllegalStateException {
+        CacheEntry entry = new CacheEntry(guide, estimateSize(guide));
+        CacheEntry replacedEntry = entries.put(guide.getId(), entry);
+        estimatedBytes += entry.size;
+        if (replacedEntry == null) return evict();
+        estimatedBytes -= replacedEntry.size;
+        List<Guide> evictedGuides = evict();
+        if (replacedEntry.guide == guide) return evictedGuides;
+        List<Guide> invalidGuides = new ArrayList<>(evictedGuides.size() + 1);
+        invalidGuides.add(replacedEntry.guide);
+        invalidGuides.addAll(evictedGuides);
+        return invalidGuides;
+    }
+
+    /**
+     * Removes a guide from the cache without writing it back.
+     * @param id Identifier of the guide to remove.
+     */
+    public void remove(String id) {
+        CacheEntry entry = entries.remove(id);
+        if (entry != null) {
+            estimatedBytes -= entry.size;
+        }
+    }
+
+    /**
+     * Marks a cached guide as modified, e.g., if annotation objects have been modified directly without notifying the change.
+     * Nothing will happen if the guide is not cached.
+     * @param id Identifier of the guide.
+     */
+    public void markModified(String id) {
+        CacheEntry entry = entries.get(id);
+        if (entry != null) {
+            entry.isModified = true;
+        }
+    }
+
+    /**
+     * Writes all modified guides back to the store.
+     * @return List of guides written.
+     * @throws IOException Failed to write a guide.
+     */
+    public List<Guide> flush() throws IOException {
+        List<Guide> writtenGuides = new ArrayList<>();
+        for (CacheEntry entry : entries.values()) {
+            if (entry.isModified()) {
+                store.save(entry.guide);
+                entry.markWritten();
+                writtenGuides.add(entry.guide);
+            }
+        }
+        return writtenGuides;
+    }
+
+    /**
+     * Removes all guides from the cache without writing them back.
+     */
+    public void clear() {
+        entries.clear();
+        estimatedBytes = 0;
+    }
+
+    /**
+     * Returns the number of cached guides.
+     * @return Number of guides.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the estimated number of bytes occupied by the cached guides.
+     * @return Estimated number of bytes.
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    private List<Guide> evict() throws IllegalStateException {
+        if (!isOverBounds()) return Collections.emptyList();
+        List<Guide> evictedGuides = new ArrayList<>();
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        // The most recently used guide is never evicted, even if it exceeds the bounds on its own.
+        while (entries.size() > 1 && isOverBounds()) {
+            CacheEntry eldest = iterator.next();
+            if (eldest.isModified()) {
+                try {
+                    store.save(eldest.guide);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to write back guide " + eldest.guide.getId() + ".", e);
+                }
+            }
+            iterator.remove();
+            estimatedBytes -= eldest.size;
+            evictedGuides.add(eldest.guide);
+        }
+        return evictedGuides;
+    }
+
+    private boolean isOverBounds() {
+        return (maxEntries > 0 && entries.size() > maxEntries) || (maxBytes > 0 && estimatedBytes > maxBytes);
+    }
+
+    /**
+     * Estimates the memory consumption of a guide.
+     * The estimation is based on the number of nodes and the length of the texts of the guide and node metadata.
+     * @param guide Guide to estimate size for.
+     * @return Estimated number of bytes.
+     */
+    public static long estimateSize(Guide guide) {
+        long size = BYTES_PER_GUIDE + estimateSize(guide.getMetadata());
+        for (Node<?> node : guide.getNodes()) {
+            size += BYTES_PER_NODE + estimateSize(node.getMetadata());
+        }
+        return size;
+    }
+
+    private static long estimateSize(MetadataAnnotation metadata) {
+        if (metadata == null) return 0;
+        long chars = 0;
+        for (String title : metadata.getTitles().values()) {
+            if (title != null) chars += title.length();
+        }
+        for (String description : metadata.getDescriptions().values()) {
+            if (description != null) chars += description.length();
+        }
+        return chars * BYTES_PER_CHAR;
+    }
+}
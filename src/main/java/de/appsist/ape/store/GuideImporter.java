@@ -0,0 +1,327 @@
+package de.glassroom.gpe.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideManager;
+import de.glassroom.gpe.GuideSummary;
+import de.glassroom.gpe.utils.BPMNDefinitions;
+import de.glassroom.gpe.utils.GuideSerializer;
+
+/**
+ * Bulk importer for BPMN guide files.
+ * Files are read and parsed in parallel on a fork join pool, each worker thread using its own parser.
+ * Parsed guides are registered in batches by the calling thread, so the guide manager does not need to be thread-safe.
+ * Only a limited number of parsed files per thread is held in memory, workers wait while the calling thread falls behind.
+ * A file which cannot be read or parsed is reported in the import result and does not abort the import.
+ * Files may either contain a single process or BPMN definitions with multiple processes.
+ * To list guides without importing them, only their summaries may be read.
+ */
+public class GuideImporter {
+    public static final String FILE_EXTENSION = ".bpmn";
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    private static final int FILES_PER_TASK = 16;
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final ForkJoinPool pool;
+    private final int batchSize;
+
+    /**
+     * Result of an import.
+     */
+    public static class ImportResult {
+        private int importedGuides;
+        private final Map<Path, Exception> errors;
+
+        private ImportResult() {
+            errors = new LinkedHashMap<>();
+        }
+
+        /**
+         * Returns the number of guides successfully imported.
+         * @return Number of imported guides.
+         */
+        public int getImportedGuides() {
+            return importedGuides;
+        }
+
+        /**
+         * Returns the files which failed to import.
+         * @return Map with the file as key and the cause of the failure as value. May be empty.
+         */
+        public Map<Path, Exception> getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * Result of reading the summaries of guide files.
+     */
+    public static class SummaryResult {
+        private final Map<Path, GuideSummary> summaries;
+        private final Map<Path, Exception> errors;
+
+        private SummaryResult() {
+            summaries = new LinkedHashMap<>();
+            errors = new LinkedHashMap<>();
+        }
+
+        /**
+         * Returns the summaries read.
+         * @return Map with the file as key and the summary of the guide as value, in the order of the files. May be empty.
+         */
+        public Map<Path, GuideSummary> getSummaries() {
+            return summaries;
+        }
+
+        /**
+         * Returns the files which failed to read.
+         * @return Map with the file as key and the cause of the failure as value. May be empty.
+         */
+        public Map<Path, Exception> getErrors() {
+            return errors;
+        }
+    }
+
+    private static class ParseResult {
+        private final Path file;
+        private final List<Guide> guides;
+        private final Exception error;
+
+        private ParseResult(Path file, List<Guide> guides, Exception error) {
+            this.file = file;
+            this.guides = guides;
+            this.error = error;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class ParseTask extends RecursiveAction {
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+        private final BlockingQueue<ParseResult> results;
+        private final AtomicBoolean isCancelled;
+
+        private ParseTask(List<Path> files, int from, int to, BlockingQueue<ParseResult> results, AtomicBoolean isCancelled) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+            this.isCancelled = isCancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > FILES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(files, from, middle, results, isCancelled), new ParseTask(files, middle, to, results, isCancelled));
+            } else {
+                try {
+                    for (int i = from; i < to && !isCancelled.get(); i++) {
+                        ParseResult result = parse(files.get(i));
+                        while (!results.offer(result, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                            // The calling thread may have given up on the import, so the queue is never drained
+                            if (isCancelled.get()) return;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private static ParseResult parse(Path file) {
+            try {
+                byte[] bytes = Files.readAllBytes(file);
+                BPMNDefinitions definitions = GuideSerializer.readDefinitionsFromBPMN(new ByteArrayInputStream(bytes));
+                return new ParseResult(file, definitions.getGuidesInCallOrder(), null);
+            } catch (Exception e) {
+                return new ParseResult(file, null, e);
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class SummaryTask extends RecursiveAction {
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+        private final Object[] results;
+
+        private SummaryTask(List<Path> files, int from, int to, Object[] results) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > FILES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SummaryTask(files, from, middle, results), new SummaryTask(files, middle, to, results));
+            } else {
+                for (int i = from; i < to; i++) {
+                    try {
+                        results[i] = GuideSerializer.readSummaryFromBPMN(files.get(i));
+                    } catch (Exception e) {
+                        results[i] = e;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a guide importer using all available processors.
+     */
+    public GuideImporter() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a guide importer.
+     * @param parallelism Number of threads parsing guides.
+     * @param batchSize Number of guides to register at once.
+     */
+    public GuideImporter(int parallelism, int batchSize) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Imports all BPMN files of a directory and its sub directories.
+     * @param directory Directory to search for files ending with ".bpmn".
+     * @param manager Manager to register the imported guides with.
+     * @return Import result.
+     * @throws IOException Failed to list the directory.
+     * @throws InterruptedException The calling thread has been interrupted while waiting for parsed guides.
+     */
+    public ImportResult importDirectory(Path directory, GuideManager manager) throws IOException, InterruptedException {
+        return importFiles(listFiles(directory), manager);
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && file.getFileName().toString().endsWith(FILE_EXTENSION)) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Imports the given BPMN files.
+     * @param files Files to import.
+     * @param manager Manager to register the imported guides with.
+     * @return Import result.
+     * @throws InterruptedException The calling thread has been interrupted while waiting for parsed guides. Pending files are not parsed anymore.
+     * @throws IllegalStateException The parsing failed unexpectedly or a guide could not be registered. Pending files are not parsed anymore.
+     */
+    public ImportResult importFiles(List<Path> files, GuideManager manager) throws InterruptedException, IllegalStateException {
+        ImportResult result = new ImportResult();
+        BlockingQueue<ParseResult> results = new ArrayBlockingQueue<>(pool.getParallelism() * FILES_PER_TASK);
+        AtomicBoolean isCancelled = new AtomicBoolean();
+        ForkJoinTask<Void> task = pool.submit(new ParseTask(files, 0, files.size(), results, isCancelled));
+
+        try {
+            List<Guide> batch = new ArrayList<>(batchSize);
+            int remaining = files.size();
+            while (remaining > 0) {
+                ParseResult parseResult = results.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (parseResult == null) {
+                    if (task.isCompletedAbnormally()) {
+                        throw new IllegalStateException("Failed to parse guides.", task.getException());
+                    }
+                    continue;
+                }
+                remaining--;
+                if (parseResult.guides != null) {
+                    batch.addAll(parseResult.guides);
+                    if (batch.size() >= batchSize) {
+                        manager.addGuides(batch);
+                        result.importedGuides += batch.size();
+                        batch.clear();
+                    }
+                } else {
+                    result.errors.put(parseResult.file, parseResult.error);
+                }
+            }
+            manager.addGuides(batch);
+            result.importedGuides += batch.size();
+            return result;
+        } finally {
+            // Releases workers waiting for queue space and skips files not parsed yet
+            isCancelled.set(true);
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Reads the summaries of all BPMN files of a directory and its sub directories.
+     * @param directory Directory to search for files ending with ".bpmn".
+     * @return Summary result.
+     * @throws IOException Failed to list the directory.
+     * @see #readSummaries(List)
+     */
+    public SummaryResult readSummaries(Path directory) throws IOException {
+        return readSummaries(listFiles(directory));
+    }
+
+    /**
+     * Reads the summaries of the given BPMN files.
+     * The files are read in parallel, but only up to the first node of each process. Nodes and flows are not created.
+     * @param files Files to read.
+     * @return Summary result.
+     * @throws IllegalStateException The reading failed unexpectedly.
+     */
+    public SummaryResult readSummaries(List<Path> files) throws IllegalStateException {
+        Object[] results = new Object[files.size()];
+        try {
+            pool.invoke(new SummaryTask(files, 0, files.size(), results));
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Failed to read guide summaries.", e);
+        }
+        SummaryResult result = new SummaryResult();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] instanceof GuideSummary) {
+                result.summaries.put(files.get(i), (GuideSummary) results[i]);
+            } else {
+                result.errors.put(files.get(i), (Exception) results[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Shuts down the threads of this importer.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
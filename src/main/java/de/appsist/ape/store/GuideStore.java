@@ -0,0 +1,63 @@
+package de.glassroom.gpe.store;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideSummary;
+
+/**
+ * Persistent storage for guides.
+ * A store keeps a lightweight index of all guides it contains, so guides can be listed without loading them.
+ */
+public interface GuideStore {
+
+    /**
+     * Checks if the store contains a guide.
+     * @param id Identifier of the guide.
+     * @return <code>true</code> if a guide with the given identifier is stored, otherwise <code>false</code>.
+     */
+    public boolean contains(String id);
+
+    /**
+     * Returns the summaries of all stored guides.
+     * @return Collection of guide summaries in index order. May be empty.
+     */
+    public Collection<GuideSummary> getSummaries();
+
+    /**
+     * Returns the summary of a stored guide.
+     * @param id Identifier of the guide.
+     * @return Guide summary or <code>null</code> if no guide with the given identifier is stored.
+     */
+    public GuideSummary getSummary(String id);
+
+    /**
+     * Loads and deserializes a stored guide.
+     * @param id Identifier of the guide to load.
+     * @return Guide or <code>null</code> if no guide with the given identifier is stored.
+     * @throws IOException Failed to read the guide.
+     */
+    public Guide load(String id) throws IOException;
+
+    /**
+     * Stores a guide. An existing guide with the same identifier will be overwritten.
+     * @param guide Guide to store.
+     * @throws IOException Failed to write the guide.
+     */
+    public void save(Guide guide) throws IOException;
+
+    /**
+     * Removes a guide from the store.
+     * Nothing will happen if no guide with the given identifier is stored.
+     * @param id Identifier of the guide to remove.
+     * @throws IOException Failed to remove the guide.
+     */
+    public void delete(String id) throws IOException;
+
+    /**
+     * Persists pending changes of the index.
+     * @throws IOException Failed to write the index.
+     */
+    public void flush() throws IOException;
+}
@@ -0,0 +1,215 @@
+package de.glassroom.gpe.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.glassroom.gpe.Chapter;
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideManager;
+import de.glassroom.gpe.Node;
+
+/**
+ * Guides of a BPMN <code>definitions</code> document, e.g., a main guide together with the guides called by its chapters.
+ * Chapters reference their called guide by identifier. References are resolved against the guides of the definitions
+ * and, when the definitions are registered, against the guides of the guide manager.
+ */
+public final class BPMNDefinitions {
+    /** Target namespace written if none is set. */
+    public static final String DEFAULT_TARGET_NAMESPACE = "glassroom:bpmn";
+
+    private final String id;
+    private final Map<String, Guide> guides;
+    private String targetNamespace;
+
+    /**
+     * Creates empty definitions.
+     * @param id Identifier of the definitions. May be <code>null</code>.
+     */
+    public BPMNDefinitions(String id) {
+        this.id = id;
+        this.guides = new LinkedHashMap<>();
+        this.targetNamespace = DEFAULT_TARGET_NAMESPACE;
+    }
+
+    /**
+     * Creates definitions containing the given guides.
+     * @param id Identifier of the definitions. May be <code>null</code>.
+     * @param guides Guides to add.
+     * @throws IllegalArgumentException Multiple guides share the same identifier.
+     */
+    public BPMNDefinitions(String id, Iterable<Guide> guides) throws IllegalArgumentException {
+        this(id);
+        for (Guide guide : guides) {
+            addGuide(guide);
+        }
+    }
+
+    /**
+     * Returns the identifier of the definitions.
+     * @return Identifier or <code>null</code> if not set.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the target namespace of the definitions.
+     * @return Target namespace.
+     */
+    public String getTargetNamespace() {
+        return targetNamespace;
+    }
+
+    /**
+     * Sets the target namespace of the definitions.
+     * @param targetNamespace Target namespace to set.
+     * @return This for chaining.
+     * @throws IllegalArgumentException The namespace is <code>null</code>.
+     */
+    public BPMNDefinitions setTargetNamespace(String targetNamespace) throws IllegalArgumentException {
+        if (targetNamespace == null) {
+            throw new IllegalArgumentException("Target namespace must not be null.");
+        }
+        this.targetNamespace = targetNamespace;
+        return this;
+    }
+
+    /**
+     * Adds a guide.
+     * @param guide Guide to add.
+     * @return This for chaining.
+     * @throws IllegalArgumentException A guide with the same identifier has already been added.
+     */
+    public BPMNDefinitions addGuide(Guide guide) throws IllegalArgumentException {
+        if (guides.containsKey(guide.getId())) {
+            throw new IllegalArgumentException("Duplicate guide: " + guide.getId());
+        }
+        guides.put(guide.getId(), guide);
+        return this;
+    }
+
+    /**
+     * Returns all guides in the order of the document.
+     * @return Unmodifiable list of guides. May be empty.
+     */
+    public List<Guide> getGuides() {
+        return Collections.unmodifiableList(new ArrayList<>(guides.values()));
+    }
+
+    /**
+     * Returns a guide.
+     * @param guideId Identifier of the guide.
+     * @return Guide or <code>null</code> if the definitions contain no guide with the given identifier.
+     */
+    public Guide getGuide(String guideId) {
+        return guides.get(guideId);
+    }
+
+    /**
+     * Returns the guide called by a chapter.
+     * @param chapter Chapter to resolve.
+     * @return Called guide or <code>null</code> if the definitions do not contain it.
+     */
+    public Guide getCalledGuide(Chapter chapter) {
+        return guides.get(chapter.getCalledProcessId());
+    }
+
+    /**
+     * Returns the guides which are not called by a chapter of another guide of the definitions.
+     * @return List of main guides in the order of the document. May be empty if all guides call each other.
+     */
+    public List<Guide> getMainGuides() {
+        Set<String> calledIds = new HashSet<>();
+        for (Guide guide : guides.values()) {
+            for (Chapter chapter : getChapters(guide)) {
+                if (!guide.getId().equals(chapter.getCalledProcessId())) {
+                    calledIds.add(chapter.getCalledProcessId());
+                }
+            }
+        }
+        List<Guide> mainGuides = new ArrayList<>();
+        for (Guide guide : guides.values()) {
+            if (!calledIds.contains(guide.getId())) {
+                mainGuides.add(guide);
+            }
+        }
+        return mainGuides;
+    }
+
+    /**
+     * Returns the chapters calling guides which are not contained in the definitions.
+     * @return List of chapters. May be empty.
+     */
+    public List<Chapter> getUnresolvedChapters() {
+        List<Chapter> unresolved = new ArrayList<>();
+        for (Guide guide : guides.values()) {
+            for (Chapter chapter : getChapters(guide)) {
+                if (!guides.containsKey(chapter.getCalledProcessId())) {
+                    unresolved.add(chapter);
+                }
+            }
+        }
+        return unresolved;
+    }
+
+    /**
+     * Returns the guides ordered so that called guides precede the guides calling them.
+     * Guides calling each other are returned in the order of the document.
+     * @return List of all guides.
+     */
+    public List<Guide> getGuidesInCallOrder() {
+        List<Guide> ordered = new ArrayList<>(guides.size());
+        Set<String> visited = new HashSet<>();
+        for (Guide guide : guides.values()) {
+            addInCallOrder(guide, visited, ordered);
+        }
+        return ordered;
+    }
+
+    /**
+     * Registers all guides with a guide manager in a single transaction.
+     * Called guides are added before the guides calling them. Guides already managed with the same identifier are replaced.
+     * @param manager Manager to add the guides to.
+     * @return Chapters calling guides which are neither contained in the definitions nor managed by the manager. May be empty.
+     * @throws IllegalStateException Failed to write a guide to the store of the manager.
+     */
+    public List<Chapter> register(GuideManager manager) throws IllegalStateException {
+        List<Chapter> unresolved = getUnresolvedChapters();
+        if (!unresolved.isEmpty()) {
+            Set<String> managedIds = manager.getGuideIds();
+            for (int i = unresolved.size() - 1; i >= 0; i--) {
+                if (managedIds.contains(unresolved.get(i).getCalledProcessId())) {
+                    unresolved.remove(i);
+                }
+            }
+        }
+        manager.addGuides(getGuidesInCallOrder());
+        return unresolved;
+    }
+
+    private void addInCallOrder(Guide guide, Set<String> visited, List<Guide> ordered) {
+        if (!visited.add(guide.getId())) return;
+        for (Chapter chapter : getChapters(guide)) {
+            Guide called = guides.get(chapter.getCalledProcessId());
+            if (called != null) {
+                addInCallOrder(called, visited, ordered);
+            }
+        }
+        ordered.add(guide);
+    }
+
+    private static List<Chapter> getChapters(Guide guide) {
+        List<Chapter> chapters = new ArrayList<>();
+        for (Node<?> node : guide.getNodes()) {
+            if (node instanceof Chapter) {
+                chapters.add((Chapter) node);
+            }
+        }
+        return chapters;
+    }
+}
@@ -0,0 +1,142 @@
+package de.glassroom.gpe.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+import javax.xml.validation.ValidatorHandler;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+
+/**
+ * Schema of BPMN 2.0 documents with glassroom extensions.
+ * <p>
+ * The schema is compiled from the bundled XSD files on first use and shared by all threads. Validators are not thread-safe,
+ * each thread uses its own. Neither the schema nor the validated documents may load external resources, so validation works offline.
+ * </p>
+ */
+public final class BPMNSchema {
+    /** Class path locations of the schema files. The BPMN schema includes and imports the remaining BPMN files. */
+    private static final String[] SCHEMA_RESOURCES = {
+        "/schema/bpmn/BPMN20.xsd",
+        "/schema/glassroom/metadata.xsd",
+        "/schema/glassroom/content.xsd",
+        "/schema/glassroom/condition.xsd"
+    };
+
+    private static class SchemaHolder {
+        private static final Schema SCHEMA = compile();
+    }
+
+    private static final ThreadLocal<Validator> VALIDATORS = new ThreadLocal<Validator>() {
+        @Override
+        protected Validator initialValue() {
+            Validator validator = getSchema().newValidator();
+            disableExternalAccess(validator);
+            return validator;
+        }
+    };
+
+    private static final ThreadLocal<ValidatorHandler> VALIDATOR_HANDLERS = new ThreadLocal<ValidatorHandler>() {
+        @Override
+        protected ValidatorHandler initialValue() {
+            ValidatorHandler handler = getSchema().newValidatorHandler();
+            try {
+                handler.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+                handler.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+            } catch (SAXNotRecognizedException | SAXNotSupportedException e) {
+                // Implementation does not support the restriction.
+            }
+            return handler;
+        }
+    };
+
+    private BPMNSchema() {
+    }
+
+    /**
+     * Returns the compiled schema.
+     * @return Thread-safe schema.
+     * @throws IllegalStateException Failed to load or compile the bundled schema files.
+     */
+    public static Schema getSchema() throws IllegalStateException {
+        return SchemaHolder.SCHEMA;
+    }
+
+    /**
+     * Validates a BPMN process or definitions document without deserializing it.
+     * The stream is not closed.
+     * @param in Stream providing the document.
+     * @throws IOException Failed to read the stream.
+     * @throws IllegalArgumentException The document is not valid.
+     */
+    public static void validate(InputStream in) throws IOException, IllegalArgumentException {
+        Validator validator = VALIDATORS.get();
+        try {
+            validator.validate(new StreamSource(in));
+        } catch (SAXException e) {
+            throw new IllegalArgumentException("Invalid BPMN document: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Wraps a StAX reader, so every event read is validated against the schema.
+     * Validation errors are thrown as {@link XMLStreamException} by the read methods of the wrapper.
+     * @param reader StAX reader positioned at the start of the document.
+     * @return Validating reader.
+     * @throws XMLStreamException Failed to start the validation.
+     */
+    static XMLStreamReader createValidatingReader(XMLStreamReader reader) throws XMLStreamException {
+        return new ValidatingStreamReader(reader, VALIDATOR_HANDLERS.get());
+    }
+
+    /**
+     * Drops the validator handler of the current thread, e.g., after a document has not been read completely.
+     */
+    static void discardValidatorHandler() {
+        VALIDATOR_HANDLERS.remove();
+    }
+
+    private static Schema compile() throws IllegalStateException {
+        SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        try {
+            factory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            factory.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "file,jar");
+        } catch (SAXNotRecognizedException | SAXNotSupportedException e) {
+            // Implementation does not support the restriction.
+        }
+        Source[] sources = new Source[SCHEMA_RESOURCES.length];
+        for (int i = 0; i < SCHEMA_RESOURCES.length; i++) {
+            URL url = BPMNSchema.class.getResource(SCHEMA_RESOURCES[i]);
+            if (url == null) {
+                throw new IllegalStateException("Missing schema resource: " + SCHEMA_RESOURCES[i]);
+            }
+            // The system identifier is required to resolve the includes and imports of the schema.
+            sources[i] = new StreamSource(url.toExternalForm());
+        }
+        try {
+            return factory.newSchema(sources);
+        } catch (SAXException e) {
+            throw new IllegalStateException("Failed to compile BPMN schema.", e);
+        }
+    }
+
+    private static void disableExternalAccess(Validator validator) {
+        try {
+            validator.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            validator.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        } catch (SAXNotRecognizedException | SAXNotSupportedException e) {
+            // Implementation does not support the restriction.
+        }
+    }
+}
@@ -0,0 +1,671 @@
+package de.glassroom.gpe.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.joda.time.format.ISODateTimeFormat;
+
+import de.glassroom.gpe.Branch;
+import de.glassroom.gpe.Chapter;
+import de.glassroom.gpe.Condition;
+import de.glassroom.gpe.Decision;
+import de.glassroom.gpe.EqualsCondition;
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideEnd;
+import de.glassroom.gpe.GuideStart;
+import de.glassroom.gpe.GuideSummary;
+import de.glassroom.gpe.Node;
+import de.glassroom.gpe.Step;
+import de.glassroom.gpe.Tansition;
+import de.glassroom.gpe.annotations.ContentAnnotation;
+import de.glassroom.gpe.annotations.MetadataAnnotation;
+import de.glassroom.gpe.annotations.SceneAnnotation;
+import de.glassroom.gpe.annotations.ToolAnnotation;
+import de.glassroom.gpe.misc.Namespaces;
+
+/**
+ * Single pass BPMN reader based on a StAX pull parser.
+ * Nodes are created while the document is read, flows are collected and wired when all nodes are known.
+ * The reader follows the rules of the JDOM based deserialization of the {@link GuideSerializer}, e.g., only the first
+ * of multiple single valued elements is considered.
+ */
+final class BPMNStreamReader {
+    private static final String BPMN_NS = Namespaces.BPMN.getURI();
+    private static final String METADATA_NS = Namespaces.METADATA.getURI();
+    private static final String CONTENT_NS = Namespaces.CONTENT.getURI();
+    private static final String CONDITION_NS = Namespaces.CONDITION.getURI();
+
+    /**
+     * Flow read from the document, to be wired when all nodes are known.
+     */
+    private static class FlowRecord {
+        private String id;
+        private String sourceRef;
+        private String targetRef;
+        private MetadataAnnotation metadata;
+        private Condition condition;
+        private boolean isDecision;
+    }
+
+    /**
+     * Annotations read from an <code>extensionElements</code> element.
+     */
+    static class Extensions {
+        MetadataAnnotation metadata;
+        ContentAnnotation content;
+        Condition condition;
+        boolean hasCondition;
+    }
+
+    private BPMNStreamReader() {
+    }
+
+    /**
+     * Reads a BPMN process document.
+     * @param reader StAX reader positioned before the root element. The reader will be closed.
+     * @param isLazy If set to <code>true</code>, the annotations of nodes are kept undecoded until they are requested.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException Failed to read the document or the document is no valid BPMN process.
+     */
+    static Guide readDocument(XMLStreamReader reader, boolean isLazy) throws IllegalArgumentException {
+        try {
+            moveToRootElement(reader);
+            if (!"process".equals(reader.getLocalName())) {
+                throw new IllegalArgumentException("Invalid process string: Route element does not match \"process\".");
+            }
+            Guide guide = readProcess(reader, isLazy);
+            finishDocument(reader);
+            return guide;
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse process string.", e);
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // Ignore.
+            }
+        }
+    }
+
+    /**
+     * Reads a BPMN definitions document containing multiple processes.
+     * A document with a process as root element is read as definitions containing this process.
+     * @param reader StAX reader positioned before the root element. The reader will be closed.
+     * @return Definitions with the deserialized processes in the order of the document.
+     * @throws IllegalArgumentException Failed to read the document, the document contains no valid BPMN processes or multiple processes share an identifier.
+     */
+    static BPMNDefinitions readDefinitionsDocument(XMLStreamReader reader) throws IllegalArgumentException {
+        try {
+            moveToRootElement(reader);
+            switch (reader.getLocalName()) {
+            case "process":
+                Guide guide = readProcess(reader, false);
+                finishDocument(reader);
+                return new BPMNDefinitions(guide.getId()).addGuide(guide);
+            case "definitions":
+                BPMNDefinitions definitions = readDefinitions(reader);
+                finishDocument(reader);
+                return definitions;
+            default:
+                throw new IllegalArgumentException("Invalid definitions string: Route element does not match \"definitions\" or \"process\".");
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse definitions string.", e);
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // Ignore.
+            }
+        }
+    }
+
+    private static BPMNDefinitions readDefinitions(XMLStreamReader reader) throws XMLStreamException, IllegalArgumentException {
+        BPMNDefinitions definitions = new BPMNDefinitions(getAttribute(reader, "id"));
+        String targetNamespace = getAttribute(reader, "targetNamespace");
+        if (targetNamespace != null) {
+            definitions.setTargetNamespace(targetNamespace);
+        }
+        while (nextChild(reader)) {
+            if ("process".equals(reader.getLocalName()) && BPMN_NS.equals(reader.getNamespaceURI())) {
+                definitions.addGuide(readProcess(reader, false));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return definitions;
+    }
+
+    /**
+     * Reads the summary of a BPMN process document.
+     * Only the attributes and the extension elements of the process element are read. The reader stops at the first node or flow,
+     * as the extension elements of the process precede them. Extension elements following a node are not considered.
+     * @param reader StAX reader positioned before the root element. The reader will be closed.
+     * @return Summary of the process.
+     * @throws IllegalArgumentException Failed to read the document or the document is no valid BPMN process.
+     */
+    static GuideSummary readSummaryDocument(XMLStreamReader reader) throws IllegalArgumentException {
+        try {
+            moveToRootElement(reader);
+            if (!"process".equals(reader.getLocalName())) {
+                throw new IllegalArgumentException("Invalid process string: Route element does not match \"process\".");
+            }
+            return readSummary(reader);
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse process string.", e);
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // Ignore.
+            }
+        }
+    }
+
+    private static GuideSummary readSummary(XMLStreamReader reader) throws XMLStreamException, IllegalArgumentException {
+        GuideSummary summary = new GuideSummary(getRequiredAttribute(reader, "id"));
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+            case "startEvent":
+            case "endEvent":
+            case "userTask":
+            case "callActivity":
+            case "exclusiveGateway":
+            case "sequenceFlow":
+                return summary;
+            case "extensionElements":
+                if (BPMN_NS.equals(reader.getNamespaceURI())) {
+                    MetadataAnnotation metadata = readExtensionElements(reader, false, false).metadata;
+                    if (metadata != null) {
+                        summary.getTitles().putAll(metadata.getTitles());
+                        summary.getDescriptions().putAll(metadata.getDescriptions());
+                        summary.setLastUpdate(metadata.getLastUpdate());
+                    }
+                    return summary;
+                }
+                skipElement(reader);
+                break;
+            default:
+                skipElement(reader);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Completes the validation of a document read by a validating reader.
+     * @param reader StAX reader positioned at the end of the root element.
+     * @throws XMLStreamException Failed to read the document or the document is invalid.
+     */
+    private static void finishDocument(XMLStreamReader reader) throws XMLStreamException {
+        if (reader instanceof ValidatingStreamReader) {
+            ((ValidatingStreamReader) reader).finish();
+        }
+    }
+
+    /**
+     * Moves the reader to the root element of the document.
+     * @param reader StAX reader positioned before the root element.
+     * @throws XMLStreamException Failed to read the document or the document contains no element.
+     */
+    static void moveToRootElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+            if (!reader.hasNext()) {
+                throw new XMLStreamException("Document contains no root element.");
+            }
+            reader.next();
+        }
+    }
+
+    /**
+     * Reads a process element.
+     * @param reader StAX reader positioned at the start of the process element. The reader is left at the end of the element.
+     * @param isLazy If set to <code>true</code>, the annotations of nodes are kept undecoded until they are requested.
+     * @return Deserialized process.
+     * @throws XMLStreamException Failed to read the document.
+     * @throws IllegalArgumentException The element is no valid BPMN process.
+     */
+    static Guide readProcess(XMLStreamReader reader, boolean isLazy) throws XMLStreamException, IllegalArgumentException {
+        String id = getRequiredAttribute(reader, "id");
+        Map<String, Node<?>> nodes = new LinkedHashMap<>();
+        List<FlowRecord> flows = new ArrayList<>();
+        MetadataAnnotation metadata = null;
+        boolean hasExtensionElements = false;
+
+        while (nextChild(reader)) {
+            Node<?> node = null;
+            switch (reader.getLocalName()) {
+            case "startEvent":
+                node = readAnnotatedNode(reader, new GuideStart(getRequiredAttribute(reader, "id")), isLazy);
+                break;
+            case "endEvent":
+                node = readAnnotatedNode(reader, new GuideEnd(getRequiredAttribute(reader, "id")), isLazy);
+                break;
+            case "userTask":
+                node = readAnnotatedNode(reader, new Step(getRequiredAttribute(reader, "id")), isLazy);
+                break;
+            case "callActivity":
+                node = readAnnotatedNode(reader, new Chapter(getRequiredAttribute(reader, "id"), getRequiredAttribute(reader, "calledElement")), isLazy);
+                break;
+            case "exclusiveGateway":
+                Branch gateway = new Branch(getRequiredAttribute(reader, "id"));
+                gateway.setName(getAttribute(reader, "name"));
+                skipElement(reader);
+                node = gateway;
+                break;
+            case "sequenceFlow":
+                flows.add(readFlow(reader));
+                break;
+            case "extensionElements":
+                if (!hasExtensionElements && BPMN_NS.equals(reader.getNamespaceURI())) {
+                    hasExtensionElements = true;
+                    metadata = readExtensionElements(reader, false, false).metadata;
+                } else {
+                    skipElement(reader);
+                }
+                break;
+            default:
+                skipElement(reader);
+            }
+            if (node != null) {
+                nodes.put(node.getId(), node);
+            }
+        }
+
+        for (FlowRecord record : flows) {
+            Node<?> source = nodes.get(record.sourceRef);
+            Node<?> target = nodes.get(record.targetRef);
+            if (source == null || target == null) {
+                throw new IllegalArgumentException("Flow " + record.id + " references an unknown node.");
+            }
+            Tansition flow;
+            if (record.isDecision) {
+                flow = new Decision(record.id, source, target, record.metadata.getTitles(), record.condition);
+            } else {
+                flow = new Tansition(record.id, source, target);
+            }
+            source.addOutgoing(flow);
+            target.addIncoming(flow);
+        }
+
+        Guide guide = new Guide(id, nodes);
+        if (metadata != null) {
+            guide.setMetadataWithoutUpdate(metadata);
+        }
+        return guide;
+    }
+
+    private static Node<?> readAnnotatedNode(XMLStreamReader reader, Node<?> node, boolean isLazy) throws XMLStreamException, IllegalArgumentException {
+        node.setName(getAttribute(reader, "name"));
+        boolean hasExtensionElements = false;
+        while (nextChild(reader)) {
+            if (!hasExtensionElements && "extensionElements".equals(reader.getLocalName()) && BPMN_NS.equals(reader.getNamespaceURI())) {
+                hasExtensionElements = true;
+                if (isLazy) {
+                    node.setAnnotationSource(RawExtensions.read(reader));
+                    continue;
+                }
+                Extensions extensions = readExtensionElements(reader, true, false);
+                if (extensions.metadata != null) node.setMetadata(extensions.metadata);
+                if (extensions.content != null) node.setContent(extensions.content);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return node;
+    }
+
+    private static FlowRecord readFlow(XMLStreamReader reader) throws XMLStreamException, IllegalArgumentException {
+        FlowRecord record = new FlowRecord();
+        record.id = getRequiredAttribute(reader, "id");
+        record.sourceRef = getAttribute(reader, "sourceRef");
+        record.targetRef = getAttribute(reader, "targetRef");
+        boolean hasExtensionElements = false;
+        while (nextChild(reader)) {
+            if (!hasExtensionElements && "extensionElements".equals(reader.getLocalName()) && BPMN_NS.equals(reader.getNamespaceURI())) {
+                hasExtensionElements = true;
+                Extensions extensions = readExtensionElements(reader, false, true);
+                if (extensions.hasCondition) {
+                    if (extensions.metadata == null) {
+                        throw new IllegalArgumentException("Missig display for decision.");
+                    }
+                    record.isDecision = true;
+                    record.metadata = extensions.metadata;
+                    record.condition = extensions.condition;
+                }
+            } else {
+                skipElement(reader);
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Reads the annotations of an <code>extensionElements</code> element.
+     * @param reader StAX reader positioned at the start of the element. The reader is left at the end of the element.
+     * @param readContent If set to <code>true</code>, a content annotation is read.
+     * @param readCondition If set to <code>true</code>, a condition is read.
+     * @return Annotations read.
+     * @throws XMLStreamException Failed to read the document.
+     * @throws IllegalArgumentException The element contains invalid annotations.
+     */
+    static Extensions readExtensionElements(XMLStreamReader reader, boolean readContent, boolean readCondition) throws XMLStreamException, IllegalArgumentException {
+        Extensions extensions = new Extensions();
+        while (nextChild(reader)) {
+            String ns = reader.getNamespaceURI();
+            String name = reader.getLocalName();
+            if (extensions.metadata == null && "metadata".equals(name) && METADATA_NS.equals(ns)) {
+                extensions.metadata = readMetadata(reader);
+            } else if (readContent && extensions.content == null && "content".equals(name) && CONTENT_NS.equals(ns)) {
+                extensions.content = readContent(reader);
+            } else if (readCondition && !extensions.hasCondition && "condition".equals(name) && CONDITION_NS.equals(ns)) {
+                extensions.hasCondition = true;
+                extensions.condition = readCondition(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return extensions;
+    }
+
+    /**
+     * Reads a metadata annotation.
+     * @param reader StAX reader positioned at the start of a metadata element. The reader is left at the end of the element.
+     * @return Metadata annotation.
+     * @throws XMLStreamException Failed to read the document.
+     * @throws IllegalArgumentException The element is no valid metadata annotation.
+     */
+    static MetadataAnnotation readMetadata(XMLStreamReader reader) throws XMLStreamException, IllegalArgumentException {
+        MetadataAnnotation metadata = new MetadataAnnotation();
+        // Titles are applied before descriptions, as the last language set is used as default language.
+        List<String[]> descriptions = new ArrayList<>();
+        boolean hasLastUpdate = false;
+        boolean hasVRScene = false;
+        while (nextChild(reader)) {
+            if (!METADATA_NS.equals(reader.getNamespaceURI())) {
+                skipElement(reader);
+                continue;
+            }
+            switch (reader.getLocalName()) {
+            case "title":
+                String titleLang = getRequiredAttribute(reader, "lang");
+                metadata.setTitle(titleLang, readText(reader));
+                break;
+            case "description":
+                String descriptionLang = getRequiredAttribute(reader, "lang");
+                descriptions.add(new String[] { descriptionLang, readText(reader) });
+                break;
+            case "lastUpdate":
+                if (!hasLastUpdate) {
+                    hasLastUpdate = true;
+                    metadata.setLastUpdate(ISODateTimeFormat.dateTime().parseDateTime(readText(reader)).toDate());
+                } else {
+                    skipElement(reader);
+                }
+                break;
+            case "vrScene":
+                if (!hasVRScene) {
+                    hasVRScene = true;
+                    metadata.setVRScene(getRequiredAttribute(reader, "id"));
+                    metadata.getVRSceneParameters().putAll(readParams(reader, METADATA_NS, "param"));
+                } else {
+                    skipElement(reader);
+                }
+                break;
+            default:
+                skipElement(reader);
+            }
+        }
+        for (String[] description : descriptions) {
+            metadata.setDescription(description[0], description[1]);
+        }
+        return metadata;
+    }
+
+    /**
+     * Reads a content annotation.
+     * @param reader StAX reader positioned at the start of a content element. The reader is left at the end of the element.
+     * @return Content annotation.
+     * @throws XMLStreamException Failed to read the document.
+     * @throws IllegalArgumentException The element is no valid content annotation.
+     */
+    static ContentAnnotation readContent(XMLStreamReader reader) throws XMLStreamException, IllegalArgumentException {
+        ContentAnnotation content = new ContentAnnotation();
+        boolean hasAssistance = false;
+        boolean hasWarnings = false;
+        boolean hasTools = false;
+        boolean hasScene = false;
+        while (nextChild(reader)) {
+            if (!CONTENT_NS.equals(reader.getNamespaceURI())) {
+                skipElement(reader);
+                continue;
+            }
+            String name = reader.getLocalName();
+            if (!hasAssistance && "assistance".equals(name)) {
+                hasAssistance = true;
+                while (nextChild(reader)) {
+                    if ("package".equals(reader.getLocalName()) && CONTENT_NS.equals(reader.getNamespaceURI())) {
+                        String lang = getRequiredAttribute(reader, "lang");
+                        content.setContentPackage(lang, readText(reader));
+                    } else {
+                        skipElement(reader);
+                    }
+                }
+            } else if (!hasWarnings && "warnings".equals(name)) {
+                hasWarnings = true;
+                while (nextChild(reader)) {
+                    if ("warning".equals(reader.getLocalName()) && CONTENT_NS.equals(reader.getNamespaceURI())) {
+                        String lang = getRequiredAttribute(reader, "lang");
+                        content.addWarning(lang, readText(reader));
+                    } else {
+                        skipElement(reader);
+                    }
+                }
+            } else if (!hasTools && "tools".equals(name)) {
+                hasTools = true;
+                while (nextChild(reader)) {
+                    if ("tool".equals(reader.getLocalName()) && CONTENT_NS.equals(reader.getNamespaceURI())) {
+                        ToolAnnotation tool = new ToolAnnotation(getRequiredAttribute(reader, "id"));
+                        tool.getParameteres().putAll(readParams(reader, CONTENT_NS, "param"));
+                        content.addTool(tool);
+                    } else {
+                        skipElement(reader);
+                    }
+                }
+            } else if (!hasScene && "scene".equals(name)) {
+                hasScene = true;
+                content.setScene(readScene(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return content;
+    }
+
+    private static SceneAnnotation readScene(XMLStreamReader reader) throws XMLStreamException, IllegalArgumentException {
+        String nodeId = null;
+        Map<String, String> nodeParameters = null;
+        String methodId = null;
+        Map<String, String> methodParameters = null;
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if (!CONTENT_NS.equals(reader.getNamespaceURI())) {
+                skipElement(reader);
+            } else if (nodeId == null && "node".equals(name)) {
+                nodeId = getRequiredAttribute(reader, "id");
+                nodeParameters = readParams(reader, CONTENT_NS, "param");
+            } else if (methodId == null && "method".equals(name)) {
+                methodId = getRequiredAttribute(reader, "id");
+                methodParameters = readParams(reader, CONTENT_NS, "param");
+            } else {
+                skipElement(reader);
+            }
+        }
+        if (nodeId == null) {
+            throw new IllegalArgumentException("Missing required child element \"node\" of element \"scene\".");
+        }
+        SceneAnnotation scene = new SceneAnnotation(nodeId);
+        scene.setNodeParameters(nodeParameters);
+        if (methodId != null) {
+            scene.setMethod(methodId, methodParameters);
+        }
+        return scene;
+    }
+
+    /**
+     * Reads the parameters of the first <code>params</code> child of the current element.
+     * @param reader StAX reader positioned at the start of the element containing the parameters. The reader is left at the end of the element.
+     * @param ns Namespace of the parameter elements.
+     * @param paramName Name of the parameter elements.
+     * @return Map of parameter identifiers and values. May be empty.
+     * @throws XMLStreamException Failed to read the document.
+     * @throws IllegalArgumentException A parameter misses its identifier or value.
+     */
+    private static Map<String, String> readParams(XMLStreamReader reader, String ns, String paramName) throws XMLStreamException, IllegalArgumentException {
+        Map<String, String> params = new LinkedHashMap<>();
+        boolean hasParams = false;
+        while (nextChild(reader)) {
+            if (!hasParams && "params".equals(reader.getLocalName()) && ns.equals(reader.getNamespaceURI())) {
+                hasParams = true;
+                while (nextChild(reader)) {
+                    if (paramName.equals(reader.getLocalName()) && ns.equals(reader.getNamespaceURI())) {
+                        String paramId = getRequiredAttribute(reader, "id");
+                        String paramValue = getRequiredAttribute(reader, "value");
+                        params.put(paramId, paramValue);
+                    }
+                    skipElement(reader);
+                }
+            } else {
+                skipElement(reader);
+            }
+        }
+        return params;
+    }
+
+    private static Condition readCondition(XMLStreamReader reader) throws XMLStreamException, IllegalArgumentException {
+        String type = getRequiredAttribute(reader, "type");
+        String key = getRequiredAttribute(reader, "key");
+        Condition condition;
+        switch (type) {
+        case EqualsCondition.TYPE:
+            condition = new EqualsCondition(key, getRequiredAttribute(reader, "value"));
+            break;
+        default:
+            throw new IllegalArgumentException("Unsupported condition type: " + type);
+        }
+        skipElement(reader);
+        return condition;
+    }
+
+    /**
+     * Moves the reader to the start of the next child element of the current element.
+     * @param reader StAX reader positioned at the start of the parent element or at the end of a child element.
+     * @return <code>true</code> if the reader is positioned at the start of a child element, <code>false</code> if it is positioned at the end of the parent element.
+     * @throws XMLStreamException Failed to read the document.
+     */
+    static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Skips the current element including all its descendants.
+     * @param reader StAX reader positioned at the start of an element. The reader is left at the end of the element.
+     * @throws XMLStreamException Failed to read the document.
+     */
+    static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Reads the text of the current element. Text of child elements is ignored.
+     * @param reader StAX reader positioned at the start of an element. The reader is left at the end of the element.
+     * @return Text content. May be empty.
+     * @throws XMLStreamException Failed to read the document.
+     */
+    static String readText(XMLStreamReader reader) throws XMLStreamException {
+        String text = null;
+        StringBuilder builder = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                if (text == null) {
+                    text = reader.getText();
+                } else {
+                    if (builder == null) builder = new StringBuilder(text);
+                    builder.append(reader.getText());
+                }
+                break;
+            case XMLStreamConstants.START_ELEMENT:
+                skipElement(reader);
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                return builder != null ? builder.toString() : (text != null ? text : "");
+            default:
+                break;
+            }
+        }
+        throw new XMLStreamException("Unexpected end of document.");
+    }
+
+    /**
+     * Returns the value of an attribute without namespace.
+     * @param reader StAX reader positioned at the start of an element.
+     * @param name Name of the attribute.
+     * @return Attribute value or <code>null</code> if the element has no such attribute.
+     */
+    static String getAttribute(XMLStreamReader reader, String name) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String ns = reader.getAttributeNamespace(i);
+            if ((ns == null || ns.isEmpty()) && name.equals(reader.getAttributeLocalName(i))) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a attribute value or throws an exception if the attribute is not available.
+     * @param reader StAX reader positioned at the start of an element.
+     * @param name Name of the attribute.
+     * @return Attribute value.
+     * @throws IllegalArgumentException The given attribute does not exist.
+     */
+    static String getRequiredAttribute(XMLStreamReader reader, String name) throws IllegalArgumentException {
+        String value = getAttribute(reader, name);
+        if (value == null) {
+            StringBuilder builder = new StringBuilder()
+                .append("Missing required attribute \"")
+                .append(name)
+                .append("\" of element \"")
+                .append(reader.getLocalName())
+                .append("\".");
+            throw new IllegalArgumentException(builder.toString());
+        }
+        return value;
+    }
+}
@@ -0,0 +1,550 @@
+package de.glassroom.gpe.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.joda.time.DateTime;
+import org.joda.time.format.ISODateTimeFormat;
+
+import de.glassroom.gpe.Branch;
+import de.glassroom.gpe.Chapter;
+import de.glassroom.gpe.Condition;
+import de.glassroom.gpe.Decision;
+import de.glassroom.gpe.EqualsCondition;
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideEnd;
+import de.glassroom.gpe.GuideStart;
+import de.glassroom.gpe.Node;
+import de.glassroom.gpe.Step;
+import de.glassroom.gpe.Tansition;
+import de.glassroom.gpe.annotations.AnnotationSource;
+import de.glassroom.gpe.annotations.ContentAnnotation;
+import de.glassroom.gpe.annotations.MetadataAnnotation;
+import de.glassroom.gpe.annotations.SceneAnnotation;
+import de.glassroom.gpe.annotations.ToolAnnotation;
+import de.glassroom.gpe.misc.Namespaces;
+
+/**
+ * BPMN writer emitting a process directly to a character stream.
+ * No element tree and no string of the complete document is created. The output is identical to the one of
+ * {@link GuideSerializer#writeAsBPMN(Guide, boolean)}, i.e., it follows the compact and pretty formats of JDOM.
+ */
+final class BPMNStreamWriter {
+    private static final String BPMN_NS = Namespaces.BPMN.getURI();
+    private static final String METADATA_NS = Namespaces.METADATA.getURI();
+    private static final String CONTENT_NS = Namespaces.CONTENT.getURI();
+    private static final String CONDITION_NS = Namespaces.CONDITION.getURI();
+    private static final String INDENT = "  ";
+    private static final String LINE_SEPARATOR = "\r\n";
+
+    /**
+     * Element which has been started but not yet ended.
+     */
+    private static class Frame {
+        private final String name;
+        private final String namespace;
+        private boolean hasChildElements;
+        private boolean hasText;
+
+        private Frame(String name, String namespace) {
+            this.name = name;
+            this.namespace = namespace;
+        }
+    }
+
+    private final Writer out;
+    private final boolean compact;
+    private final List<Frame> frames;
+    private boolean isStartTagOpen;
+
+    /**
+     * Creates a new writer.
+     * @param out Character stream to write to.
+     * @param compact If set to <code>true</code>, the XML will be encoded without unnecessary whitespaces.
+     */
+    BPMNStreamWriter(Writer out, boolean compact) {
+        this.out = out;
+        this.compact = compact;
+        this.frames = new ArrayList<>();
+    }
+
+    /**
+     * Writes a process.
+     * The stream is neither flushed nor closed.
+     * @param process Process to write.
+     * @throws IOException Failed to write to the stream.
+     * @throws IllegalArgumentException The process contains unsupported nodes or conditions.
+     */
+    void writeProcess(Guide process) throws IOException, IllegalArgumentException {
+        startProcess(process);
+        for (Node<?> node : process.getNodes()) {
+            writeNode(node);
+        }
+        endElement();
+    }
+
+    /**
+     * Writes definitions containing multiple processes.
+     * The stream is neither flushed nor closed.
+     * @param definitions Definitions to write.
+     * @throws IOException Failed to write to the stream.
+     * @throws IllegalArgumentException A process contains unsupported nodes or conditions.
+     */
+    void writeDefinitions(BPMNDefinitions definitions) throws IOException, IllegalArgumentException {
+        startElement("definitions", BPMN_NS);
+        if (definitions.getId() != null) attribute("id", definitions.getId());
+        attribute("targetNamespace", definitions.getTargetNamespace());
+        for (Guide process : definitions.getGuides()) {
+            writeProcess(process);
+        }
+        endElement();
+    }
+
+    /**
+     * Writes the start tag of a process including the process metadata and closes it, so nodes can be written as fragments.
+     * The process must be completed with at least one node and {@link #endProcess()} to match the output of {@link #writeProcess(Guide)}.
+     * @param process Process to write the start tag for.
+     * @throws IOException Failed to write to the stream.
+     */
+    void writeProcessStart(Guide process) throws IOException {
+        startProcess(process);
+        closeStartTag();
+    }
+
+    /**
+     * Continues a process which has been started by another writer, e.g., to write the fragment of a single node.
+     */
+    void resumeProcess() {
+        Frame frame = new Frame("process", BPMN_NS);
+        frame.hasChildElements = true;
+        frames.add(frame);
+        isStartTagOpen = false;
+    }
+
+    /**
+     * Writes the end tag of a process started or resumed by this writer.
+     * @throws IOException Failed to write to the stream.
+     */
+    void endProcess() throws IOException {
+        endElement();
+    }
+
+    private void startProcess(Guide process) throws IOException {
+        startElement("process", BPMN_NS);
+        writeAttributes(GuideSerializer.PROCESS_ATTRIBUTES);
+        attribute("id", process.getId());
+
+        MetadataAnnotation metadata = process.getMetadata();
+        if (metadata != null) {
+            startElement("extensionElements", BPMN_NS);
+            writeMetadataAnnotation(metadata);
+            endElement();
+        }
+    }
+
+    /**
+     * Writes a node of a process followed by its outgoing flows.
+     * @param node Node to write.
+     * @throws IOException Failed to write to the stream.
+     * @throws IllegalArgumentException The node type or the condition of a flow is not supported.
+     */
+    void writeNode(Node<?> node) throws IOException, IllegalArgumentException {
+        if (node instanceof GuideStart) {
+            startElement("startEvent", BPMN_NS);
+            writeAttributes(GuideSerializer.START_EVENT_ATTRIBUTES);
+            writeIdAndName(node);
+        } else if (node instanceof GuideEnd) {
+            startElement("endEvent", BPMN_NS);
+            writeIdAndName(node);
+        } else if (node instanceof Step) {
+            startElement("userTask", BPMN_NS);
+            writeAttributes(GuideSerializer.USER_TASK_ATTRIBUTES);
+            writeIdAndName(node);
+        } else if (node instanceof Chapter) {
+            startElement("callActivity", BPMN_NS);
+            writeAttributes(GuideSerializer.CALL_ACTIVITY_ATTRIBUTES);
+            writeIdAndName(node);
+            attribute("calledElement", ((Chapter) node).getCalledProcessId());
+        } else if (node instanceof Branch) {
+            startElement("exclusiveGateway", BPMN_NS);
+            writeAttributes(GuideSerializer.GATEWAY_ATTRIBUTES);
+            writeIdAndName(node);
+        } else {
+            throw new IllegalArgumentException("Unsupported node type: " + node);
+        }
+        writeExtensionElements(node);
+        writeIncomingAndOutgoing(node);
+        endElement();
+        for (Tansition flow : node.getOutgoing()) {
+            writeFlow(flow);
+        }
+    }
+
+    private void writeIdAndName(Node<?> node) throws IOException {
+        attribute("id", node.getId());
+        if (node.getName() != null) attribute("name", node.getName());
+    }
+
+    private void writeAttributes(Map<String, String> attributes) throws IOException {
+        for (Entry<String, String> entry : attributes.entrySet()) {
+            attribute(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void writeExtensionElements(Node<?> node) throws IOException {
+        AnnotationSource source = node.getAnnotationSource();
+        if (source instanceof RawExtensions) {
+            writeRawExtensions((RawExtensions) source);
+            return;
+        }
+        MetadataAnnotation metadata = node.getMetadata();
+        ContentAnnotation content = node.getContent();
+        if (metadata == null && content == null) return;
+        startElement("extensionElements", BPMN_NS);
+        if (metadata != null) writeMetadataAnnotation(metadata);
+        if (content != null) writeContentAnnotation(content);
+        endElement();
+    }
+
+    /**
+     * Writes undecoded extension elements as they have been read.
+     * @param raw Extension elements to write. Nothing is written if empty.
+     * @throws IOException Failed to write to the stream.
+     */
+    private void writeRawExtensions(RawExtensions raw) throws IOException {
+        if (raw.types.length == 0) return;
+        startElement("extensionElements", BPMN_NS);
+        int v = 0;
+        for (byte type : raw.types) {
+            switch (type) {
+            case RawExtensions.START:
+                String namespace = raw.values[v++];
+                startElement(raw.values[v++], namespace);
+                break;
+            case RawExtensions.ATTRIBUTE:
+                String name = raw.values[v++];
+                attribute(name, raw.values[v++]);
+                break;
+            case RawExtensions.TEXT:
+                text(raw.values[v++]);
+                break;
+            case RawExtensions.END:
+                endElement();
+                break;
+            default:
+                throw new IllegalStateException("Unknown token type: " + type);
+            }
+        }
+        endElement();
+    }
+
+    private void writeIncomingAndOutgoing(Node<?> node) throws IOException {
+        for (Tansition incoming : node.getIncoming()) {
+            textElement("incoming", BPMN_NS, incoming.getId());
+        }
+        for (Tansition outgoing : node.getOutgoing()) {
+            textElement("outgoing", BPMN_NS, outgoing.getId());
+        }
+    }
+
+    private void writeFlow(Tansition flow) throws IOException, IllegalArgumentException {
+        startElement("sequenceFlow", BPMN_NS);
+        attribute("id", flow.getId());
+        attribute("sourceRef", flow.getSource().getId());
+        attribute("targetRef", flow.getTarget().getId());
+        if (flow instanceof Decision) {
+            Decision decision = (Decision) flow;
+            startElement("extensionElements", BPMN_NS);
+            startElement("metadata", METADATA_NS);
+            for (Entry<String, String> entry : decision.getDisplays().entrySet()) {
+                startElement("title", METADATA_NS);
+                attribute("lang", entry.getKey());
+                text(entry.getValue());
+                endElement();
+            }
+            endElement();
+
+            Condition condition = decision.getCondition();
+            startElement("condition", CONDITION_NS);
+            attribute("type", condition.getType());
+            attribute("key", condition.getKey());
+            switch (condition.getType()) {
+            case EqualsCondition.TYPE:
+                attribute("value", ((EqualsCondition) condition).getValue());
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported condition type: " + condition);
+            }
+            endElement();
+            endElement();
+        }
+        endElement();
+    }
+
+    private void writeMetadataAnnotation(MetadataAnnotation metadata) throws IOException {
+        startElement("metadata", METADATA_NS);
+        for (Entry<String, String> entry : metadata.getTitles().entrySet()) {
+            startElement("title", METADATA_NS);
+            attribute("lang", entry.getKey());
+            text(entry.getValue());
+            endElement();
+        }
+        for (Entry<String, String> entry : metadata.getDescriptions().entrySet()) {
+            startElement("description", METADATA_NS);
+            attribute("lang", entry.getKey());
+            text(entry.getValue());
+            endElement();
+        }
+        Date lastUpdate = metadata.getLastUpdate();
+        if (lastUpdate != null) {
+            textElement("lastUpdate", METADATA_NS, ISODateTimeFormat.dateTime().print(new DateTime(lastUpdate)));
+        }
+        String vrSceneId = metadata.getVRScene();
+        if (vrSceneId != null) {
+            startElement("vrScene", METADATA_NS);
+            attribute("id", vrSceneId);
+            writeParams(metadata.getVRSceneParameters(), METADATA_NS);
+            endElement();
+        }
+        endElement();
+    }
+
+    private void writeContentAnnotation(ContentAnnotation content) throws IOException {
+        startElement("content", CONTENT_NS);
+
+        if (!content.getContentPackages().isEmpty()) {
+            startElement("assistance", CONTENT_NS);
+            for (Entry<String, String> entry : content.getContentPackages().entrySet()) {
+                startElement("package", CONTENT_NS);
+                attribute("lang", entry.getKey());
+                text(entry.getValue());
+                endElement();
+            }
+            endElement();
+        }
+
+        if (!content.getWarnings().isEmpty()) {
+            startElement("warnings", CONTENT_NS);
+            for (Entry<String, List<String>> entry : content.getWarnings().entrySet()) {
+                for (String warningText : entry.getValue()) {
+                    startElement("warning", CONTENT_NS);
+                    attribute("lang", entry.getKey());
+                    text(warningText);
+                    endElement();
+                }
+            }
+            endElement();
+        }
+
+        if (!content.getTools().isEmpty()) {
+            startElement("tools", CONTENT_NS);
+            for (ToolAnnotation tool : content.getTools()) {
+                startElement("tool", CONTENT_NS);
+                attribute("id", tool.getId());
+                writeParams(tool.getParameteres(), CONTENT_NS);
+                endElement();
+            }
+            endElement();
+        }
+
+        SceneAnnotation scene = content.getScene();
+        if (scene != null) {
+            startElement("scene", CONTENT_NS);
+            startElement("node", CONTENT_NS);
+            attribute("id", scene.getNodeId());
+            writeParams(scene.getNodeParameters(), CONTENT_NS);
+            endElement();
+            if (scene.getMethodId() != null) {
+                startElement("method", CONTENT_NS);
+                attribute("id", scene.getMethodId());
+                writeParams(scene.getMethodParameters(), CONTENT_NS);
+                endElement();
+            }
+            endElement();
+        }
+
+        endElement();
+    }
+
+    private void writeParams(Map<String, String> params, String namespace) throws IOException {
+        if (params.isEmpty()) return;
+        startElement("params", namespace);
+        for (Entry<String, String> param : params.entrySet()) {
+            startElement("param", namespace);
+            attribute("id", param.getKey());
+            attribute("value", param.getValue());
+            endElement();
+        }
+        endElement();
+    }
+
+    private void textElement(String name, String namespace, String text) throws IOException {
+        startElement(name, namespace);
+        text(text);
+        endElement();
+    }
+
+    private void startElement(String name, String namespace) throws IOException {
+        Frame parent = frames.isEmpty() ? null : frames.get(frames.size() - 1);
+        if (parent != null) {
+            closeStartTag();
+            parent.hasChildElements = true;
+            if (!compact) newLine(frames.size());
+        }
+        out.write('<');
+        out.write(name);
+        if (parent == null || !namespace.equals(parent.namespace)) {
+            out.write(" xmlns=\"");
+            escapeAttribute(namespace);
+            out.write('"');
+        }
+        frames.add(new Frame(name, namespace));
+        isStartTagOpen = true;
+    }
+
+    private void attribute(String name, String value) throws IOException, IllegalArgumentException {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing value for attribute \"" + name + "\".");
+        }
+        out.write(' ');
+        out.write(name);
+        out.write("=\"");
+        escapeAttribute(value);
+        out.write('"');
+    }
+
+    /**
+     * Writes the text of an element. Elements may either contain text or child elements.
+     * @param text Text to write. Whitespaces are normalized in compact mode and trimmed otherwise.
+     * @throws IOException Failed to write to the stream.
+     */
+    private void text(String text) throws IOException {
+        if (text == null) return;
+        int start = 0;
+        int end = text.length();
+        while (start < end && isWhitespace(text.charAt(start))) start++;
+        while (end > start && isWhitespace(text.charAt(end - 1))) end--;
+        if (start == end) return;
+        closeStartTag();
+        frames.get(frames.size() - 1).hasText = true;
+        boolean isInWhitespace = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (compact && isWhitespace(c)) {
+                isInWhitespace = true;
+                continue;
+            }
+            if (isInWhitespace) {
+                out.write(' ');
+                isInWhitespace = false;
+            }
+            switch (c) {
+            case '<':
+                out.write("&lt;");
+                break;
+            case '>':
+                out.write("&gt;");
+                break;
+            case '&':
+                out.write("&amp;");
+                break;
+            case '\r':
+                out.write("&#xD;");
+                break;
+            case '\n':
+                out.write(LINE_SEPARATOR);
+                break;
+            default:
+                i = writeCharacter(text, i, end);
+            }
+        }
+    }
+
+    private void endElement() throws IOException {
+        Frame frame = frames.remove(frames.size() - 1);
+        if (isStartTagOpen) {
+            out.write(" />");
+            isStartTagOpen = false;
+            return;
+        }
+        if (!compact && frame.hasChildElements && !frame.hasText) newLine(frames.size());
+        out.write("</");
+        out.write(frame.name);
+        out.write('>');
+    }
+
+    private void closeStartTag() throws IOException {
+        if (isStartTagOpen) {
+            out.write('>');
+            isStartTagOpen = false;
+        }
+    }
+
+    private void newLine(int depth) throws IOException {
+        out.write(LINE_SEPARATOR);
+        for (int i = 0; i < depth; i++) {
+            out.write(INDENT);
+        }
+    }
+
+    private void escapeAttribute(String value) throws IOException {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '<':
+                out.write("&lt;");
+                break;
+            case '>':
+                out.write("&gt;");
+                break;
+            case '"':
+                out.write("&quot;");
+                break;
+            case '&':
+                out.write("&amp;");
+                break;
+            case '\r':
+                out.write("&#xD;");
+                break;
+            case '\t':
+                out.write("&#x9;");
+                break;
+            case '\n':
+                out.write("&#xA;");
+                break;
+            default:
+                i = writeCharacter(value, i, length);
+            }
+        }
+    }
+
+    /**
+     * Writes a character. Characters outside of the basic multilingual plane are written as character references.
+     * @param value String containing the character.
+     * @param index Index of the character.
+     * @param end End index of the string to write.
+     * @return Index of the last char written.
+     * @throws IOException Failed to write to the stream.
+     */
+    private int writeCharacter(String value, int index, int end) throws IOException {
+        char c = value.charAt(index);
+        if (Character.isHighSurrogate(c) && index + 1 < end && Character.isLowSurrogate(value.charAt(index + 1))) {
+            out.write("&#x");
+            out.write(Integer.toHexString(Character.toCodePoint(c, value.charAt(index + 1))));
+            out.write(';');
+            return index + 1;
+        }
+        out.write(c);
+        return index;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
@@ -0,0 +1,212 @@
+package de.glassroom.gpe.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.format.ISODateTimeFormat;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import de.glassroom.gpe.content.ContentDescriptor;
+import de.glassroom.gpe.content.Hint;
+import de.glassroom.gpe.content.Warning;
+
+/**
+ * Reads content descriptors from a stream of JSON objects, e.g. newline delimited JSON.
+ * The fields of the descriptors are read directly from the parser without building intermediate maps. Unknown fields are skipped.
+ * The reader keeps its parser and buffers, so it should be reused to read all descriptors of a stream.
+ * Instances are not thread-safe.
+ */
+public final class ContentJSONReader implements Closeable {
+    private final JsonParser parser;
+
+    /**
+     * Creates a reader for a character stream.
+     * @param in Reader providing the descriptors. It is closed when this reader is closed.
+     * @throws IOException Failed to create the parser.
+     */
+    public ContentJSONReader(Reader in) throws IOException {
+        this(JSONUtils.FACTORY.createParser(in));
+    }
+
+    /**
+     * Creates a reader for a byte stream.
+     * @param in Stream providing the descriptors. The encoding is detected from the first bytes. It is closed when this reader is closed.
+     * @throws IOException Failed to create the parser.
+     */
+    public ContentJSONReader(InputStream in) throws IOException {
+        this(JSONUtils.FACTORY.createParser(in));
+    }
+
+    private ContentJSONReader(JsonParser parser) {
+        this.parser = parser;
+        this.parser.enable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    }
+
+    /**
+     * Reads the next content descriptor.
+     * @return Content descriptor or <code>null</code> if the end of the stream is reached.
+     * @throws IOException Failed to read from the stream or the stream contains no valid JSON.
+     * @throws IllegalArgumentException The next object is no valid representation of a content descriptor.
+     */
+    public ContentDescriptor read() throws IOException, IllegalArgumentException {
+        JsonToken token = parser.nextToken();
+        if (token == null) return null;
+        return readDescriptor(parser);
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    /**
+     * Reads a content descriptor from a parser positioned at the start of a JSON object.
+     * @param parser Parser to read from. On return, the parser is positioned at the end of the object.
+     * @return Content descriptor.
+     * @throws IOException Failed to read from the parser.
+     * @throws IllegalArgumentException The object is no valid representation of a content descriptor.
+     */
+    static ContentDescriptor readDescriptor(JsonParser parser) throws IOException, IllegalArgumentException {
+        expect(parser, JsonToken.START_OBJECT);
+        String id = null;
+        String languageId = null;
+        String version = null;
+        String lastUpdateString = null;
+        String title = null;
+        String info = null;
+        String mimeType = null;
+        String media = null;
+        boolean isRoutine = false;
+        List<Hint> hints = null;
+        List<Warning> warnings = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+            case "id":
+                id = readString(parser);
+                break;
+            case "lang":
+                languageId = readString(parser);
+                break;
+            case "version":
+                version = readString(parser);
+                break;
+            case "lastUpdate":
+                lastUpdateString = readString(parser);
+                break;
+            case "title":
+                title = readString(parser);
+                break;
+            case "info":
+                info = readString(parser);
+                break;
+            case "mimeType":
+                mimeType = readString(parser);
+                break;
+            case "media":
+                media = readString(parser);
+                break;
+            case "isRoutine":
+                if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+                    isRoutine = parser.getBooleanValue();
+                } else if (token != JsonToken.VALUE_NULL) {
+                    throw new IllegalArgumentException("Failed to parse field [isRoutine].");
+                }
+                break;
+            case "hints":
+                hints = new ArrayList<>();
+                expect(parser, JsonToken.START_ARRAY);
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    hints.add(readHint(parser));
+                }
+                break;
+            case "warnings":
+                warnings = new ArrayList<>();
+                expect(parser, JsonToken.START_ARRAY);
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    warnings.add(readWarning(parser));
+                }
+                break;
+            default:
+                if (token.isStructStart()) parser.skipChildren();
+            }
+        }
+
+        if (id == null || id.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing required [id].");
+        }
+        if (languageId == null || languageId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing language identifier [lang].");
+        }
+        ContentDescriptor descriptor = new ContentDescriptor(id, languageId);
+        descriptor.setVersion(version);
+        if (lastUpdateString != null) {
+            descriptor.setLastUpdate(ISODateTimeFormat.dateTime().parseDateTime(lastUpdateString).toDate());
+        }
+        descriptor.setTitle(title);
+        descriptor.setInfo(info);
+        if (media != null) descriptor.setMedia(mimeType, media);
+        if (hints != null) for (Hint hint : hints) descriptor.addHint(hint);
+        if (warnings != null) for (Warning warning : warnings) descriptor.addWarning(warning);
+        descriptor.setRoutineTask(isRoutine);
+        return descriptor;
+    }
+
+    private static void expect(JsonParser parser, JsonToken expected) throws IOException {
+        if (parser.getCurrentToken() != expected) {
+            throw new IllegalArgumentException("Failed to parse field [" + parser.getCurrentName() + "].");
+        }
+    }
+
+    private static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (token != JsonToken.VALUE_STRING) {
+            throw new IllegalArgumentException("Failed to parse field [" + parser.getCurrentName() + "].");
+        }
+        return parser.getText();
+    }
+
+    private static Hint readHint(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        String text = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("text".equals(fieldName)) {
+                text = readString(parser);
+            } else if (token.isStructStart()) {
+                parser.skipChildren();
+            }
+        }
+        return new Hint(text);
+    }
+
+    private static Warning readWarning(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        String text = null;
+        String icon = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+            case "text":
+                text = readString(parser);
+                break;
+            case "icon":
+                icon = readString(parser);
+                break;
+            default:
+                if (token.isStructStart()) parser.skipChildren();
+            }
+        }
+        return new Warning(text, icon);
+    }
+}
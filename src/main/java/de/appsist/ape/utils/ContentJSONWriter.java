@@ -0,0 +1,123 @@
+package de.glassroom.gpe.utils;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Date;
+
+import org.joda.time.DateTime;
+import org.joda.time.format.ISODateTimeFormat;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import de.glassroom.gpe.content.ContentDescriptor;
+import de.glassroom.gpe.content.Hint;
+import de.glassroom.gpe.content.Warning;
+
+/**
+ * Writes content descriptors as newline delimited JSON.
+ * Every descriptor is written as compact JSON object on a single line. The writer keeps its generator and buffers,
+ * so it should be reused to write any number of descriptors to the same stream.
+ * Instances are not thread-safe.
+ */
+public final class ContentJSONWriter implements Closeable, Flushable {
+    private final JsonGenerator generator;
+
+    /**
+     * Creates a writer for a character stream.
+     * @param out Writer to write the descriptors to. It is closed when this writer is closed.
+     * @throws IOException Failed to create the generator.
+     */
+    public ContentJSONWriter(Writer out) throws IOException {
+        this(JSONUtils.FACTORY.createGenerator(out));
+    }
+
+    /**
+     * Creates a writer for UTF-8 encoded output.
+     * @param out Stream to write the descriptors to. It is closed when this writer is closed.
+     * @throws IOException Failed to create the generator.
+     */
+    public ContentJSONWriter(OutputStream out) throws IOException {
+        this(JSONUtils.FACTORY.createGenerator(out, JsonEncoding.UTF8));
+    }
+
+    private ContentJSONWriter(JsonGenerator generator) {
+        this.generator = generator;
+        this.generator.enable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.generator.setRootValueSeparator(null);
+    }
+
+    /**
+     * Writes a content descriptor followed by a line break.
+     * @param descriptor Content descriptor to write.
+     * @return This for chaining.
+     * @throws IOException Failed to write to the stream.
+     */
+    public ContentJSONWriter write(ContentDescriptor descriptor) throws IOException {
+        writeDescriptor(generator, descriptor);
+        generator.writeRaw('\n');
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+
+    /**
+     * Writes a content descriptor as JSON object.
+     * @param generator Generator to write the object with.
+     * @param descriptor Content descriptor to write.
+     * @throws IOException Failed to write to the generator.
+     */
+    static void writeDescriptor(JsonGenerator generator, ContentDescriptor descriptor) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", descriptor.getId());
+        generator.writeStringField("lang", descriptor.getLanguageId());
+        String version = descriptor.getVersion();
+        if (version != null) generator.writeStringField("version", version);
+        Date lastUpdate = descriptor.getLastUpdate();
+        if (lastUpdate != null) {
+            generator.writeStringField("lastUpdate", ISODateTimeFormat.dateTime().print(new DateTime(lastUpdate)));
+        }
+        String title = descriptor.getTitle();
+        if (title != null) generator.writeStringField("title", title);
+        String info = descriptor.getInfo();
+        if (info != null) generator.writeStringField("info", info);
+        String mediaPath = descriptor.getMediaPath();
+        if (mediaPath != null) {
+            generator.writeStringField("mimeType", descriptor.getMimeType());
+            generator.writeStringField("media", mediaPath);
+        }
+        generator.writeBooleanField("isRoutine", descriptor.isRoutineTask());
+        if (descriptor.getHints().size() > 0) {
+            generator.writeArrayFieldStart("hints");
+            for (Hint hint : descriptor.getHints()) {
+                generator.writeStartObject();
+                generator.writeStringField("text", hint.getText());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        if (descriptor.getWarnings().size() > 0) {
+            generator.writeArrayFieldStart("warnings");
+            for (Warning warning : descriptor.getWarnings()) {
+                generator.writeStartObject();
+                String icon = warning.getIconPath();
+                if (icon != null) generator.writeStringField("icon", icon);
+                generator.writeStringField("text", warning.getText());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+}
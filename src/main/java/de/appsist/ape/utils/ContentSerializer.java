@@ -1,43 +1,46 @@
 package de.glassroom.gpe.utils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 
-import org.jdom2.Document;
+import javax.xml.stream.XMLStreamException;
+
 import org.jdom2.Element;
-import org.jdom2.JDOMException;
 import org.jdom2.Namespace;
-import org.jdom2.input.SAXBuilder;
 import org.jdom2.output.Format;
 import org.joda.time.DateTime;
 import org.joda.time.format.ISODateTimeFormat;
 
-import com.fasterxml.jackson.jr.ob.JSON;
-import com.fasterxml.jackson.jr.ob.JSON.Feature;
-import com.fasterxml.jackson.jr.ob.JSONComposer;
-import com.fasterxml.jackson.jr.ob.JSONObjectException;
-import com.fasterxml.jackson.jr.ob.comp.ArrayComposer;
-import com.fasterxml.jackson.jr.ob.comp.ObjectComposer;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
 
 import de.glassroom.gpe.content.ContentDescriptor;
 import de.glassroom.gpe.content.Hint;
 import de.glassroom.gpe.content.Warning;
+import de.glassroom.gpe.metrics.JFREvents;
+import de.glassroom.gpe.metrics.Metric;
+import de.glassroom.gpe.metrics.Metrics;
 import de.glassroom.gpe.misc.Namespaces;
+import de.glassroom.gpe.utils.CountingStreams.CountingInputStream;
 
 /**
  * Serializer and deserializer for contest descriptors. 
  * @author simon.schwantzer(at)im-c.de
  */
 public final class ContentSerializer {
-    private static SAXBuilder saxBuilder;
-    
-    static {
-        saxBuilder = new SAXBuilder();
-    }
-    
     /**
      * Tries to deserializes a content descriptor.
      * @param content Serialized content descriptor. 
@@ -45,86 +48,174 @@ public final class ContentSerializer {
      * @throws IllegalArgumentException Failed to de-serialize the given string.
      */
     public static ContentDescriptor readFromString(String content) throws IllegalArgumentException {
-        String trimmedContent = content.trim();
-        if (trimmedContent.startsWith("<")) {
-            return readFromXML(trimmedContent);
-        } else if (trimmedContent.startsWith("{")) {
-            return readFromJSON(trimmedContent);
+        int start = 0;
+        while (start < content.length() && Character.isWhitespace(content.charAt(start))) {
+            start++;
+        }
+        char first = start < content.length() ? content.charAt(start) : 0;
+        if (first == '<') {
+            long startTime = Metrics.startTime();
+            Object event = JFREvents.begin(JFREvents.Type.CONTENT_READ);
+            StringReader reader = new StringReader(content);
+            try {
+                reader.skip(start);
+                ContentDescriptor descriptor = ContentStreamReader.readDocument(XMLUtils.createStreamReader(reader));
+                if (startTime != Metrics.NOT_STARTED || event != null) recordRead(startTime, event, descriptor, content.length());
+                return descriptor;
+            } catch (IOException|XMLStreamException e) {
+                throw new IllegalArgumentException("Failed to parse content descriptor.", e);
+            }
+        } else if (first == '{') {
+            return readFromJSON(content);
         } else {
             throw new IllegalArgumentException("Unknown content format.");
         }
     }
     
     /**
-     * Deserializes a content descriptor from a XML string.
-     * @param xmlString XML string encoding a content descriptor. 
-     * @return Content descriptor.
-     * @throws IllegalArgumentException The given XML string is no valid encoding of a content descriptor.
+     * Reads a content descriptor from a file.
+     * The format is detected as described for {@link #read(InputStream)}.
+     * @param path Path of the file containing an XML or JSON content descriptor.
+     * @return Deserialized content descriptor.
+     * @throws IOException Failed to read the file.
+     * @throws IllegalArgumentException The file contains no valid content descriptor.
+     */
+    public static ContentDescriptor read(Path path) throws IOException, IllegalArgumentException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in);
+        }
+    }
+    
+    /**
+     * Reads a content descriptor from a stream.
+     * The format is detected from the first character which is not a whitespace. Only this character is decoded to detect the format,
+     * the document itself is parsed directly from the stream, either as XML or as JSON. UTF-8 and UTF-16 with or without byte order mark are supported.
+     * The stream is not closed.
+     * @param in Stream providing an XML or JSON content descriptor.
+     * @return Deserialized content descriptor.
+     * @throws IOException Failed to read from the stream.
+     * @throws IllegalArgumentException The stream provides no valid content descriptor.
      */
-    public static ContentDescriptor readFromXML(String xmlString) throws IllegalArgumentException{
-        Element contentElement;
+    public static ContentDescriptor read(InputStream in) throws IOException, IllegalArgumentException {
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.CONTENT_READ);
+        CountingInputStream counter = startTime != Metrics.NOT_STARTED || event != null ? new CountingInputStream(in) : null;
+        PushbackInputStream pushbackIn = new PushbackInputStream(counter != null ? counter : in, 8);
+        DocumentStart start = sniffDocumentStart(pushbackIn);
         ContentDescriptor descriptor;
-        try {
-            Document doc = saxBuilder.build(new StringReader(xmlString));
-            contentElement = doc.getRootElement();
-            if (!"content".equals(contentElement.getName())) {
-                throw new IllegalArgumentException("Invalid content manifest: Route element does not match \"content\".");
+        switch (start.firstCharacter) {
+        case '<':
+            try {
+                descriptor = ContentStreamReader.readDocument(start.encoding != null
+                        ? XMLUtils.createStreamReader(pushbackIn, start.encoding) : XMLUtils.createStreamReader(pushbackIn));
+            } catch (XMLStreamException e) {
+                throw new IllegalArgumentException("Failed to parse content descriptor.", e);
             }
-        } catch (JDOMException|IOException e) {
-            throw new IllegalArgumentException("Failed to parse content descriptor.", e);
+            break;
+        case '{':
+            try (JsonParser parser = JSONUtils.FACTORY.createParser(pushbackIn)) {
+                parser.nextToken();
+                descriptor = ContentJSONReader.readDescriptor(parser);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("The given stream is no valid JSON.", e);
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown content format.");
         }
-        Namespace ns = contentElement.getNamespace();
+        if (counter != null) recordRead(startTime, event, descriptor, counter.count);
+        return descriptor;
+    }
+    
+    /**
+     * Start of a document as detected by {@link ContentSerializer#sniffDocumentStart(PushbackInputStream)}.
+     */
+    private static final class DocumentStart {
+        /** First character which is not a whitespace or <code>-1</code> if the stream contains no such character. */
+        private final int firstCharacter;
+        /** Detected UTF-16 encoding of a document without byte order mark, otherwise <code>null</code>. */
+        private final String encoding;
         
-        String id = contentElement.getAttributeValue("id");
-        if (id == null || id.trim().isEmpty()) {
-            throw new IllegalArgumentException("Missing required [id].");
+        private DocumentStart(int firstCharacter, String encoding) {
+            this.firstCharacter = firstCharacter;
+            this.encoding = encoding;
         }
-        String languageId = contentElement.getAttributeValue("lang");
-        if (languageId == null || languageId.trim().isEmpty()) {
-            throw new IllegalArgumentException("Missing language identifier [lang].");
-        }
-        
-        descriptor = new ContentDescriptor(id, languageId);
-        
-        descriptor.setVersion(contentElement.getAttributeValue("version"));
-        String lastUpdateString = contentElement.getAttributeValue("lastUpdate");
-        
-        if (lastUpdateString != null) {
-            Date lastUpdate = ISODateTimeFormat.dateTime().parseDateTime(lastUpdateString).toDate();
-            descriptor.setLastUpdate(lastUpdate);
+    }
+    
+    /**
+     * Skips leading whitespaces and returns the first character of a document.
+     * The byte order mark and the bytes of the returned character are pushed back, so the parsers can detect the encoding on their own.
+     * XML parsers cannot detect UTF-16 without byte order mark and XML declaration, so this encoding is returned to be passed to them.
+     * XML documents must not have whitespaces in front of the XML declaration, so the whitespaces are not pushed back.
+     * @param in Stream to read from, with a pushback buffer of at least 8 bytes.
+     * @return First character and encoding of the document.
+     * @throws IOException Failed to read from the stream.
+     */
+    private static DocumentStart sniffDocumentStart(PushbackInputStream in) throws IOException {
+        byte[] head = new byte[4];
+        int headLength = 0;
+        int read;
+        while (headLength < head.length && (read = in.read(head, headLength, head.length - headLength)) > 0) {
+            headLength += read;
         }
-        descriptor.setTitle(contentElement.getChildText("title", ns));
-        descriptor.setInfo(contentElement.getChildText("info", ns));
-        
-        Element mediaElement = contentElement.getChild("media", ns);
-        if (mediaElement != null) {
-            String mimeType = mediaElement.getAttributeValue("mimeType", "unknown");
-            descriptor.setMedia(mimeType, mediaElement.getText());
+        int bomLength = 0;
+        int unitSize = 1;
+        boolean isBigEndian = true;
+        if (headLength >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+            bomLength = 3;
+        } else if (headLength >= 2 && (head[0] & 0xFF) == 0xFE && (head[1] & 0xFF) == 0xFF) {
+            bomLength = 2;
+            unitSize = 2;
+        } else if (headLength >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE) {
+            bomLength = 2;
+            unitSize = 2;
+            isBigEndian = false;
+        } else if (headLength >= 2 && head[0] == 0 && head[1] != 0) {
+            unitSize = 2;
+        } else if (headLength >= 2 && head[0] != 0 && head[1] == 0) {
+            unitSize = 2;
+            isBigEndian = false;
         }
+        in.unread(head, bomLength, headLength - bomLength);
+        String encoding = bomLength == 0 && unitSize == 2 ? (isBigEndian ? "UTF-16BE" : "UTF-16LE") : null;
         
-        Element hintsElement = contentElement.getChild("hints", ns);
-        if (hintsElement != null) {
-            for (Element hintElement : hintsElement.getChildren("hint", ns)) {
-                String text = hintElement.getText();
-                descriptor.addHint(new Hint(text));
+        byte[] unit = new byte[unitSize];
+        int character;
+        do {
+            for (int i = 0; i < unitSize; i++) {
+                read = in.read();
+                if (read < 0) return new DocumentStart(-1, encoding);
+                unit[i] = (byte) read;
             }
-        }
-        
-        Element warningsElement = contentElement.getChild("warnings", ns);
-        if (warningsElement != null) {
-            for (Element warningElement : warningsElement.getChildren("warning", ns)) {
-                String text = warningElement.getText();
-                String iconPath = warningElement.getAttributeValue("icon");
-                descriptor.addWarning(new Warning(text, iconPath));
+            if (unitSize == 1) {
+                character = unit[0] & 0xFF;
+            } else if (isBigEndian) {
+                character = (unit[0] & 0xFF) << 8 | (unit[1] & 0xFF);
+            } else {
+                character = (unit[1] & 0xFF) << 8 | (unit[0] & 0xFF);
             }
+        } while (character == ' ' || character == '\t' || character == '\r' || character == '\n');
+        in.unread(unit);
+        in.unread(head, 0, bomLength);
+        return new DocumentStart(character, encoding);
+    }
+    
+    /**
+     * Deserializes a content descriptor from a XML string.
+     * @param xmlString XML string encoding a content descriptor. 
+     * @return Content descriptor.
+     * @throws IllegalArgumentException The given XML string is no valid encoding of a content descriptor.
+     */
+    public static ContentDescriptor readFromXML(String xmlString) throws IllegalArgumentException {
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.CONTENT_READ);
+        try {
+            ContentDescriptor descriptor = ContentStreamReader.readDocument(XMLUtils.createStreamReader(new StringReader(xmlString)));
+            if (startTime != Metrics.NOT_STARTED || event != null) recordRead(startTime, event, descriptor, xmlString.length());
+            return descriptor;
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse content descriptor.", e);
         }
-        
-        String isRoutineString = contentElement.getChildText("isRoutine", ns);
-        if (isRoutineString != null) {
-            descriptor.setRoutineTask(Boolean.valueOf(isRoutineString));
-        }
-        
-        return descriptor;
     }
     
     /**
@@ -133,59 +224,59 @@ public final class ContentSerializer {
      * @return Content descriptor.
      * @throws IllegalArgumentException The given string is no valid representation of a content descriptor.
      */
-    @SuppressWarnings("unchecked")
     public static ContentDescriptor readFromJSON(String jsonString) throws IllegalArgumentException {
-        try {
-            Map<String, Object> descriptorMap = JSON.std.mapFrom(jsonString);
-            
-            String id = (String) descriptorMap.get("id");
-            if (id == null || id.trim().isEmpty()) {
-                throw new IllegalArgumentException("Missing required [id].");
-            }
-            String languageId =(String) descriptorMap.get("lang");
-            if (languageId == null || languageId.trim().isEmpty()) {
-                throw new IllegalArgumentException("Missing language identifier [lang].");
-            }
-            
-            ContentDescriptor descriptor = new ContentDescriptor(id, languageId);
-            descriptor.setVersion((String) descriptorMap.get("version"));
-            String lastUpdateString = (String) descriptorMap.get("lastUpdate");
-            if (lastUpdateString != null) {
-                Date lastUpdate = ISODateTimeFormat.dateTime().parseDateTime(lastUpdateString).toDate();
-                descriptor.setLastUpdate(lastUpdate);
-            }
-            descriptor.setTitle((String) descriptorMap.get("title"));
-            descriptor.setInfo((String) descriptorMap.get("info"));
-            
-            String media = (String) descriptorMap.get("media");
-            if (media != null) {
-                String mimeType = (String) descriptorMap.get("mimeType");
-                descriptor.setMedia(mimeType, media);
-            }
-            
-            List<Map<String, Object>> hintsArr = (List<Map<String, Object>>) descriptorMap.get("hints");
-            if (hintsArr != null) for (Map<String, Object> hintObj : hintsArr) {
-                descriptor.addHint(new Hint((String) hintObj.get("text")));
-            }
-            
-            List<Map<String, Object>> warningsArr = (List<Map<String, Object>>) descriptorMap.get("warnings");
-            if (warningsArr != null) for (Map<String, Object> warningObj : warningsArr) {
-                String icon = (String) warningObj.get("icon");
-                String text = (String) warningObj.get("text");
-                descriptor.addWarning(new Warning(text, icon));
-            }
-            Boolean isRoutine = (Boolean) descriptorMap.get("isRoutine");
-            if (isRoutine) descriptor.setRoutineTask(isRoutine);
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.CONTENT_READ);
+        try (JsonParser parser = JSONUtils.FACTORY.createParser(jsonString)) {
+            parser.nextToken();
+            ContentDescriptor descriptor = ContentJSONReader.readDescriptor(parser);
+            if (startTime != Metrics.NOT_STARTED || event != null) recordRead(startTime, event, descriptor, jsonString.length());
             return descriptor;
-        } catch (JSONObjectException e) {
+        } catch (JsonProcessingException e) {
             throw new IllegalArgumentException("The given string is no valid JSON.", e);
         } catch (IOException e) {
             throw new IllegalArgumentException("Failed to access string.", e);
-        } catch (ClassCastException e) {
-            throw new IllegalArgumentException("Failed to parse field.", e);
         }
     }
     
+    /**
+     * Reads all content descriptors of a newline delimited JSON stream.
+     * The descriptors are parsed one after another with a single parser. The stream is not closed.
+     * @param in Stream providing one JSON object per content descriptor. The encoding is detected from the first bytes.
+     * @return List of the content descriptors in the order of the stream.
+     * @throws IOException Failed to read from the stream.
+     * @throws IllegalArgumentException The stream contains invalid JSON or an invalid representation of a content descriptor.
+     */
+    public static List<ContentDescriptor> readFromNDJSON(InputStream in) throws IOException, IllegalArgumentException {
+        return readAll(JSONUtils.FACTORY.createParser(in));
+    }
+    
+    /**
+     * Reads all content descriptors of a newline delimited JSON character stream.
+     * The descriptors are parsed one after another with a single parser. The reader is not closed.
+     * @param in Reader providing one JSON object per content descriptor.
+     * @return List of the content descriptors in the order of the stream.
+     * @throws IOException Failed to read from the stream.
+     * @throws IllegalArgumentException The stream contains invalid JSON or an invalid representation of a content descriptor.
+     */
+    public static List<ContentDescriptor> readFromNDJSON(Reader in) throws IOException, IllegalArgumentException {
+        return readAll(JSONUtils.FACTORY.createParser(in));
+    }
+    
+    private static List<ContentDescriptor> readAll(JsonParser parser) throws IOException {
+        List<ContentDescriptor> descriptors = new ArrayList<>();
+        try {
+            while (parser.nextToken() != null) {
+                descriptors.add(ContentJSONReader.readDescriptor(parser));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to parse content descriptor " + descriptors.size() + ".", e);
+        } finally {
+            parser.close();
+        }
+        return descriptors;
+    }
+    
     /**
      * Serializes a content descriptor as XML string.
      * @param descriptor Content descriptor to serialize.
@@ -193,6 +284,8 @@ public final class ContentSerializer {
      * @return XML string representing the content descriptor.
      */
     public static String writeAsXML(ContentDescriptor descriptor, boolean compact) {
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.CONTENT_WRITE);
         Namespace ns = Namespaces.CONTENTPACKAGE;
         Element contentElement = new Element("content", ns);
         contentElement.setAttribute("id", descriptor.getId());
@@ -237,7 +330,9 @@ public final class ContentSerializer {
             contentElement.addContent(warningsElement);
         }
         
-        return XMLUtils.exportAsString(contentElement, compact ? Format.getCompactFormat() : Format.getPrettyFormat());
+        String xml = XMLUtils.exportAsString(contentElement, compact ? Format.getCompactFormat() : Format.getPrettyFormat());
+        if (startTime != Metrics.NOT_STARTED || event != null) recordWrite(startTime, event, descriptor, xml.length());
+        return xml;
     }
     
     /**
@@ -246,49 +341,82 @@ public final class ContentSerializer {
      * @return JSON string representing the content descriptor. 
      */
     public static String writeAsJSON(ContentDescriptor descriptor) {
+        return writeAsJSON(descriptor, false);
+    }
+    
+    /**
+     * Serializes a content descriptor as JSON string.
+     * @param descriptor Content descriptor.
+     * @param compact If set to <code>true</code>, the JSON will be encoded without unnecessary whitespaces.
+     * @return JSON string representing the content descriptor. 
+     */
+    public static String writeAsJSON(ContentDescriptor descriptor, boolean compact) {
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.CONTENT_WRITE);
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSONUtils.FACTORY.createGenerator(writer)) {
+            if (!compact) generator.useDefaultPrettyPrinter();
+            ContentJSONWriter.writeDescriptor(generator, descriptor);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write to memory.", e);
+        }
+        String json = writer.toString();
+        if (startTime != Metrics.NOT_STARTED || event != null) recordWrite(startTime, event, descriptor, json.length());
+        return json;
+    }
+    
+    /**
+     * Writes content descriptors as newline delimited JSON, i.e. one compact JSON object per line.
+     * All descriptors are written with a single generator. The stream is flushed but not closed.
+     * @param descriptors Content descriptors to write.
+     * @param out Stream to write the UTF-8 encoded descriptors to.
+     * @return Number of descriptors written.
+     * @throws IOException Failed to write to the stream.
+     */
+    public static int writeAsNDJSON(Iterable<ContentDescriptor> descriptors, OutputStream out) throws IOException {
+        return writeAll(descriptors, JSONUtils.FACTORY.createGenerator(out, JsonEncoding.UTF8));
+    }
+    
+    /**
+     * Writes content descriptors as newline delimited JSON, i.e. one compact JSON object per line.
+     * All descriptors are written with a single generator. The writer is flushed but not closed.
+     * @param descriptors Content descriptors to write.
+     * @param out Writer to write the descriptors to.
+     * @return Number of descriptors written.
+     * @throws IOException Failed to write to the stream.
+     */
+    public static int writeAsNDJSON(Iterable<ContentDescriptor> descriptors, Writer out) throws IOException {
+        return writeAll(descriptors, JSONUtils.FACTORY.createGenerator(out));
+    }
+    
+    private static void recordRead(long startTime, Object event, ContentDescriptor descriptor, long size) {
+        if (startTime != Metrics.NOT_STARTED) {
+            Metrics.recordTime(Metric.CONTENT_READ_TIME, startTime);
+            Metrics.record(Metric.CONTENT_READ_SIZE, size);
+        }
+        JFREvents.commitContent(event, descriptor.getId(), descriptor.getLanguageId(), size);
+    }
+    
+    private static void recordWrite(long startTime, Object event, ContentDescriptor descriptor, long size) {
+        if (startTime != Metrics.NOT_STARTED) {
+            Metrics.recordTime(Metric.CONTENT_WRITE_TIME, startTime);
+            Metrics.record(Metric.CONTENT_WRITE_SIZE, size);
+        }
+        JFREvents.commitContent(event, descriptor.getId(), descriptor.getLanguageId(), size);
+    }
+    
+    private static int writeAll(Iterable<ContentDescriptor> descriptors, JsonGenerator generator) throws IOException {
+        int count = 0;
         try {
-            JSONComposer<String> composer = new JSON().with(Feature.PRETTY_PRINT_OUTPUT).composeString();
-            ObjectComposer<?> content = composer.startObject();
-            content.put("id", descriptor.getId());
-            content.put("lang", descriptor.getLanguageId());
-            String version = descriptor.getVersion();
-            if (version != null) content.put("version", version);
-            Date lastUpdate = descriptor.getLastUpdate();
-            if (lastUpdate != null) {
-                String lastUpdateString = ISODateTimeFormat.dateTime().print(new DateTime(lastUpdate));
-                content.put("lastUpdate", lastUpdateString);
+            generator.setRootValueSeparator(null);
+            for (ContentDescriptor descriptor : descriptors) {
+                ContentJSONWriter.writeDescriptor(generator, descriptor);
+                generator.writeRaw('\n');
+                count++;
             }
-            String title = descriptor.getTitle();
-            if (title != null) content.put("title", title);
-            String info = descriptor.getInfo();
-            if (info != null) content.put("info", info);
-            String mediaPath = descriptor.getMediaPath();
-            if (mediaPath != null) {
-                String mimeType = descriptor.getMimeType();
-                content.put("mimeType", mimeType);
-                content.put("media", mediaPath);
-            }
-            content.put("isRoutine", descriptor.isRoutineTask());
-            if (descriptor.getHints().size() > 0) {
-                content.putObject("hints", descriptor.getHints());
-            }
-            if (descriptor.getWarnings().size() > 0) {
-                ArrayComposer<?> warningsArr = content.startArrayField("warnings");
-                for (Warning warning : descriptor.getWarnings()) {
-                    ObjectComposer<?> warningObj = warningsArr.startObject();
-                    String icon = warning.getIconPath();
-                    if (icon != null) warningObj.put("icon", icon);
-                    warningObj.put("text", warning.getText());
-                    warningObj.end();
-                }
-                warningsArr.end();
-            }
-            content.end();
-            return composer.finish();
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
+        } finally {
+            generator.close();
         }
-        
+        return count;
     }
 }
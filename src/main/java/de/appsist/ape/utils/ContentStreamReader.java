@@ -0,0 +1,130 @@
+package de.glassroom.gpe.utils;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.joda.time.format.ISODateTimeFormat;
+
+import de.glassroom.gpe.content.ContentDescriptor;
+import de.glassroom.gpe.content.Hint;
+import de.glassroom.gpe.content.Warning;
+
+/**
+ * Single pass reader for XML content descriptors based on a StAX pull parser.
+ * The reader follows the rules of the JDOM based deserialization, i.e., child elements are expected in the namespace of the
+ * root element and only the first of multiple single valued elements is considered.
+ */
+final class ContentStreamReader {
+
+    private ContentStreamReader() {
+    }
+
+    /**
+     * Reads a content descriptor document.
+     * @param reader StAX reader positioned before the root element. The reader will be closed.
+     * @return Deserialized content descriptor.
+     * @throws IllegalArgumentException Failed to read the document or the document is no valid content descriptor.
+     */
+    static ContentDescriptor readDocument(XMLStreamReader reader) throws IllegalArgumentException {
+        try {
+            BPMNStreamReader.moveToRootElement(reader);
+            if (!"content".equals(reader.getLocalName())) {
+                throw new IllegalArgumentException("Invalid content manifest: Route element does not match \"content\".");
+            }
+            return readContent(reader);
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse content descriptor.", e);
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // Ignore.
+            }
+        }
+    }
+
+    private static ContentDescriptor readContent(XMLStreamReader reader) throws XMLStreamException, IllegalArgumentException {
+        String ns = reader.getNamespaceURI();
+        String id = BPMNStreamReader.getAttribute(reader, "id");
+        if (id == null || id.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing required [id].");
+        }
+        String languageId = BPMNStreamReader.getAttribute(reader, "lang");
+        if (languageId == null || languageId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing language identifier [lang].");
+        }
+
+        ContentDescriptor descriptor = new ContentDescriptor(id, languageId);
+        descriptor.setVersion(BPMNStreamReader.getAttribute(reader, "version"));
+        String lastUpdateString = BPMNStreamReader.getAttribute(reader, "lastUpdate");
+        if (lastUpdateString != null) {
+            descriptor.setLastUpdate(ISODateTimeFormat.dateTime().parseDateTime(lastUpdateString).toDate());
+        }
+
+        boolean hasTitle = false, hasInfo = false, hasMedia = false, hasHints = false, hasWarnings = false, hasRoutine = false;
+        while (BPMNStreamReader.nextChild(reader)) {
+            if (!isInNamespace(reader, ns)) {
+                BPMNStreamReader.skipElement(reader);
+                continue;
+            }
+            switch (reader.getLocalName()) {
+            case "title":
+                if (hasTitle) break;
+                hasTitle = true;
+                descriptor.setTitle(BPMNStreamReader.readText(reader));
+                continue;
+            case "info":
+                if (hasInfo) break;
+                hasInfo = true;
+                descriptor.setInfo(BPMNStreamReader.readText(reader));
+                continue;
+            case "media":
+                if (hasMedia) break;
+                hasMedia = true;
+                String mimeType = BPMNStreamReader.getAttribute(reader, "mimeType");
+                descriptor.setMedia(mimeType != null ? mimeType : "unknown", BPMNStreamReader.readText(reader));
+                continue;
+            case "hints":
+                if (hasHints) break;
+                hasHints = true;
+                while (BPMNStreamReader.nextChild(reader)) {
+                    if (isInNamespace(reader, ns) && "hint".equals(reader.getLocalName())) {
+                        descriptor.addHint(new Hint(BPMNStreamReader.readText(reader)));
+                    } else {
+                        BPMNStreamReader.skipElement(reader);
+                    }
+                }
+                continue;
+            case "warnings":
+                if (hasWarnings) break;
+                hasWarnings = true;
+                while (BPMNStreamReader.nextChild(reader)) {
+                    if (isInNamespace(reader, ns) && "warning".equals(reader.getLocalName())) {
+                        String iconPath = BPMNStreamReader.getAttribute(reader, "icon");
+                        descriptor.addWarning(new Warning(BPMNStreamReader.readText(reader), iconPath));
+                    } else {
+                        BPMNStreamReader.skipElement(reader);
+                    }
+                }
+                continue;
+            case "isRoutine":
+                if (hasRoutine) break;
+                hasRoutine = true;
+                descriptor.setRoutineTask(Boolean.valueOf(BPMNStreamReader.readText(reader)));
+                continue;
+            default:
+                break;
+            }
+            BPMNStreamReader.skipElement(reader);
+        }
+        return descriptor;
+    }
+
+    private static boolean isInNamespace(XMLStreamReader reader, String ns) {
+        String elementNs = reader.getNamespaceURI();
+        if (ns == null || ns.isEmpty()) {
+            return elementNs == null || elementNs.isEmpty();
+        }
+        return ns.equals(elementNs);
+    }
+}
@@ -0,0 +1,649 @@
+package de.glassroom.gpe.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import de.glassroom.gpe.Branch;
+import de.glassroom.gpe.Chapter;
+import de.glassroom.gpe.Condition;
+import de.glassroom.gpe.Decision;
+import de.glassroom.gpe.EqualsCondition;
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideEnd;
+import de.glassroom.gpe.GuideStart;
+import de.glassroom.gpe.Node;
+import de.glassroom.gpe.Step;
+import de.glassroom.gpe.Tansition;
+import de.glassroom.gpe.annotations.ContentAnnotation;
+import de.glassroom.gpe.annotations.MetadataAnnotation;
+import de.glassroom.gpe.annotations.SceneAnnotation;
+import de.glassroom.gpe.annotations.ToolAnnotation;
+
+/**
+ * Serializes and deserializes a process in a compact binary representation.
+ * <p>
+ * An encoded guide starts with the magic bytes <code>GPEB</code>, the format version and the length of the payload.
+ * The payload consists of a table of all distinct strings of the guide, followed by the nodes, flows and annotations.
+ * Strings are referenced by their position in the table, all numbers are encoded as variable length integers.
+ * As the payload length is part of the header, multiple guides can be written to the same stream.
+ * Like the BPMN representation, the flows are stored once with their source node and registered at both nodes when read.
+ * </p>
+ */
+public final class GuideBinarySerializer {
+    /** Format version written by this serializer. */
+    public static final int VERSION = 1;
+    private static final byte[] MAGIC = { 'G', 'P', 'E', 'B' };
+
+    private static final int NODE_START = 0;
+    private static final int NODE_END = 1;
+    private static final int NODE_STEP = 2;
+    private static final int NODE_CHAPTER = 3;
+    private static final int NODE_BRANCH = 4;
+    private static final int FLOW_TRANSITION = 0;
+    private static final int FLOW_DECISION = 1;
+
+    private GuideBinarySerializer() {
+    }
+
+    /**
+     * Serializes the given process.
+     * @param process Process to serialize.
+     * @return Binary representation of the process.
+     * @throws IllegalArgumentException The process contains unsupported nodes or conditions.
+     */
+    public static byte[] writeAsBinary(Guide process) throws IllegalArgumentException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeAsBinary(process, out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write to memory.", e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the given process to a stream.
+     * The stream is neither flushed nor closed.
+     * @param process Process to serialize.
+     * @param out Stream to write the binary representation to.
+     * @throws IOException Failed to write to the stream.
+     * @throws IllegalArgumentException The process contains unsupported nodes or conditions.
+     */
+    public static void writeAsBinary(Guide process, OutputStream out) throws IOException, IllegalArgumentException {
+        Encoder body = new Encoder();
+        body.writeGuide(process);
+
+        Encoder payload = new Encoder();
+        payload.writeVarInt(body.strings.size());
+        for (String string : body.strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            payload.writeVarInt(bytes.length);
+            payload.write(bytes, 0, bytes.length);
+        }
+
+        Encoder header = new Encoder();
+        header.write(MAGIC, 0, MAGIC.length);
+        header.writeVarInt(VERSION);
+        header.writeVarInt(payload.size + body.size);
+
+        out.write(header.buffer, 0, header.size);
+        out.write(payload.buffer, 0, payload.size);
+        out.write(body.buffer, 0, body.size);
+    }
+
+    /**
+     * Deserializes a process.
+     * @param bytes Binary representation of a process.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException The given bytes are no valid binary representation of a process.
+     */
+    public static Guide readFromBinary(byte[] bytes) throws IllegalArgumentException {
+        return readFromBinary(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Deserializes a process.
+     * @param bytes Buffer containing the binary representation of a process.
+     * @param offset Offset of the process in the buffer.
+     * @param length Number of bytes available for the process.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException The given bytes are no valid binary representation of a process.
+     */
+    public static Guide readFromBinary(byte[] bytes, int offset, int length) throws IllegalArgumentException {
+        return readFromBinary(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Deserializes a process from a buffer.
+     * The process is read directly from the buffer, so memory mapped files can be read without copying them.
+     * @param buffer Buffer containing the binary representation of a process between its position and limit.
+     *      On success, the position of the buffer is set to the first byte after the process.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException The buffer contains no valid binary representation of a process.
+     */
+    public static Guide readFromBinary(ByteBuffer buffer) throws IllegalArgumentException {
+        Decoder decoder = new Decoder(buffer);
+        int payloadLength = decoder.readHeader();
+        if (payloadLength < 0 || payloadLength > decoder.end - decoder.position) {
+            throw new IllegalArgumentException("Invalid binary guide: Truncated payload.");
+        }
+        decoder.end = decoder.position + payloadLength;
+        Guide guide = decoder.readPayload();
+        ((Buffer) buffer).position(decoder.end);
+        return guide;
+    }
+
+    /**
+     * Reads a process from a stream.
+     * Exactly the bytes of the process are consumed, so multiple processes can be read from the same stream. The stream is not closed.
+     * @param in Stream to read binary representation from.
+     * @return Deserialized process.
+     * @throws IOException Failed to read from the stream.
+     * @throws IllegalArgumentException The stream provides no valid binary representation of a process.
+     */
+    public static Guide readFromBinary(InputStream in) throws IOException, IllegalArgumentException {
+        byte[] magic = new byte[MAGIC.length];
+        readFully(in, magic, 0, magic.length);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IllegalArgumentException("Invalid binary guide: Magic bytes do not match.");
+        }
+        int version = readVarInt(in);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary guide version: " + version);
+        }
+        int payloadLength = readVarInt(in);
+        byte[] payload = new byte[payloadLength];
+        readFully(in, payload, 0, payloadLength);
+        return new Decoder(ByteBuffer.wrap(payload)).readPayload();
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            int read = in.read(buffer, offset, length);
+            if (read < 0) throw new EOFException("Unexpected end of binary guide.");
+            offset += read;
+            length -= read;
+        }
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Unexpected end of binary guide.");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) throw new IllegalArgumentException("Invalid binary guide: Negative length.");
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid binary guide: Malformed variable length integer.");
+    }
+
+    /**
+     * Growable buffer writing guide elements. Strings are collected in a table and written as references.
+     */
+    private static class Encoder {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private byte[] buffer = new byte[256];
+        private int size;
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+            }
+        }
+
+        private void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        private void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        /**
+         * Writes a reference to a string. <code>0</code> encodes <code>null</code>, other values the position in the string table plus one.
+         */
+        private void writeString(String string) {
+            if (string == null) {
+                writeVarInt(0);
+                return;
+            }
+            Integer index = strings.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.put(string, index);
+            }
+            writeVarInt(index + 1);
+        }
+
+        private void writeMap(Map<String, String> map) {
+            writeVarInt(map.size());
+            for (Entry<String, String> entry : map.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+
+        private void writeGuide(Guide guide) {
+            writeString(guide.getId());
+            writeMetadata(guide.getMetadata());
+
+            List<Node<?>> nodes = guide.getNodes();
+            Map<Node<?>, Integer> nodeIndexes = new IdentityHashMap<>();
+            List<Tansition> flows = new ArrayList<>();
+            for (Node<?> node : nodes) {
+                nodeIndexes.put(node, nodeIndexes.size());
+                flows.addAll(node.getOutgoing());
+            }
+
+            writeVarInt(nodes.size());
+            for (Node<?> node : nodes) {
+                if (node instanceof GuideStart) {
+                    writeVarInt(NODE_START);
+                } else if (node instanceof GuideEnd) {
+                    writeVarInt(NODE_END);
+                } else if (node instanceof Step) {
+                    writeVarInt(NODE_STEP);
+                } else if (node instanceof Chapter) {
+                    writeVarInt(NODE_CHAPTER);
+                } else if (node instanceof Branch) {
+                    writeVarInt(NODE_BRANCH);
+                } else {
+                    throw new IllegalArgumentException("Unsupported node type: " + node);
+                }
+                writeString(node.getId());
+                writeString(node.getName());
+                if (node instanceof Chapter) {
+                    writeString(((Chapter) node).getCalledProcessId());
+                }
+                writeMetadata(node.getMetadata());
+                writeContent(node.getContent());
+            }
+
+            writeVarInt(flows.size());
+            for (Tansition flow : flows) {
+                writeString(flow.getId());
+                writeVarInt(nodeIndexes.get(flow.getSource()));
+                Integer targetIndex = nodeIndexes.get(flow.getTarget());
+                if (targetIndex == null) {
+                    throw new IllegalArgumentException("Flow " + flow.getId() + " leads to a node outside of the guide.");
+                }
+                writeVarInt(targetIndex);
+                if (flow instanceof Decision) {
+                    Decision decision = (Decision) flow;
+                    writeVarInt(FLOW_DECISION);
+                    writeMap(decision.getDisplays());
+                    writeCondition(decision.getCondition());
+                } else {
+                    writeVarInt(FLOW_TRANSITION);
+                }
+            }
+        }
+
+        private void writeCondition(Condition condition) {
+            writeString(condition.getType());
+            writeString(condition.getKey());
+            switch (condition.getType()) {
+            case EqualsCondition.TYPE:
+                writeString(((EqualsCondition) condition).getValue());
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported condition type: " + condition);
+            }
+        }
+
+        private void writeMetadata(MetadataAnnotation metadata) {
+            if (metadata == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(1);
+            writeMap(metadata.getTitles());
+            writeMap(metadata.getDescriptions());
+            Date lastUpdate = metadata.getLastUpdate();
+            if (lastUpdate != null) {
+                long time = lastUpdate.getTime();
+                writeVarInt(1);
+                writeVarLong((time << 1) ^ (time >> 63));
+            } else {
+                writeVarInt(0);
+            }
+            writeString(metadata.getVRScene());
+            writeMap(metadata.getVRSceneParameters());
+        }
+
+        private void writeContent(ContentAnnotation content) {
+            if (content == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(1);
+            writeMap(content.getContentPackages());
+            Map<String, List<String>> warnings = content.getWarnings();
+            writeVarInt(warnings.size());
+            for (Entry<String, List<String>> entry : warnings.entrySet()) {
+                writeString(entry.getKey());
+                writeVarInt(entry.getValue().size());
+                for (String warning : entry.getValue()) {
+                    writeString(warning);
+                }
+            }
+            writeVarInt(content.getTools().size());
+            for (ToolAnnotation tool : content.getTools()) {
+                writeString(tool.getId());
+                writeMap(tool.getParameteres());
+            }
+            SceneAnnotation scene = content.getScene();
+            if (scene != null) {
+                writeVarInt(1);
+                writeString(scene.getNodeId());
+                writeMap(scene.getNodeParameters());
+                writeString(scene.getMethodId());
+                writeMap(scene.getMethodParameters());
+            } else {
+                writeVarInt(0);
+            }
+        }
+    }
+
+    /**
+     * Reader for guide elements of a buffer. All reads are checked against the end of the buffer.
+     */
+    private static class Decoder {
+        private final ByteBuffer buffer;
+        private int position;
+        private int end;
+        private String[] strings;
+        private byte[] stringBuffer;
+
+        private Decoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.position = buffer.position();
+            this.end = buffer.limit();
+        }
+
+        private IllegalArgumentException invalid(String message) {
+            return new IllegalArgumentException("Invalid binary guide: " + message);
+        }
+
+        private int readHeader() {
+            if (end - position < MAGIC.length) {
+                throw invalid("Truncated header.");
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (buffer.get(position++) != MAGIC[i]) {
+                    throw invalid("Magic bytes do not match.");
+                }
+            }
+            int version = readVarInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported binary guide version: " + version);
+            }
+            return readVarInt();
+        }
+
+        private int readByte() {
+            if (position >= end) {
+                throw invalid("Unexpected end of data.");
+            }
+            return buffer.get(position++) & 0xFF;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw invalid("Malformed variable length integer.");
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw invalid("Malformed variable length integer.");
+        }
+
+        /**
+         * Reads a count. As every counted element takes at least one byte, larger counts are rejected before allocating memory.
+         */
+        private int readCount() {
+            int count = readVarInt();
+            if (count < 0 || count > end - position) {
+                throw invalid("Illegal element count " + count + ".");
+            }
+            return count;
+        }
+
+        private int readIndex(int size) {
+            int index = readVarInt();
+            if (index < 0 || index >= size) {
+                throw invalid("Illegal reference " + index + ".");
+            }
+            return index;
+        }
+
+        private String readUTF8(int length) {
+            String string;
+            if (buffer.hasArray()) {
+                string = new String(buffer.array(), buffer.arrayOffset() + position, length, StandardCharsets.UTF_8);
+            } else {
+                if (stringBuffer == null || stringBuffer.length < length) {
+                    stringBuffer = new byte[Math.max(length, 256)];
+                }
+                ByteBuffer source = buffer.duplicate();
+                ((Buffer) source).position(position);
+                source.get(stringBuffer, 0, length);
+                string = new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
+            }
+            position += length;
+            return string;
+        }
+
+        private String readString() {
+            int index = readVarInt();
+            if (index == 0) return null;
+            if (index < 0 || index > strings.length) {
+                throw invalid("Illegal string reference " + index + ".");
+            }
+            return strings[index - 1];
+        }
+
+        private String readRequiredString() {
+            String string = readString();
+            if (string == null) {
+                throw invalid("Missing required string.");
+            }
+            return string;
+        }
+
+        private Map<String, String> readMap() {
+            int count = readCount();
+            Map<String, String> map = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String key = readString();
+                map.put(key, readString());
+            }
+            return map;
+        }
+
+        private Guide readPayload() {
+            int stringCount = readCount();
+            strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                int length = readCount();
+                strings[i] = readUTF8(length);
+            }
+
+            String id = readRequiredString();
+            MetadataAnnotation metadata = readMetadata();
+
+            int nodeCount = readCount();
+            Node<?>[] nodes = new Node<?>[nodeCount];
+            Map<String, Node<?>> nodeMap = new LinkedHashMap<>(nodeCount * 2);
+            for (int i = 0; i < nodeCount; i++) {
+                int type = readVarInt();
+                String nodeId = readRequiredString();
+                String name = readString();
+                Node<?> node;
+                switch (type) {
+                case NODE_START:
+                    node = new GuideStart(nodeId);
+                    break;
+                case NODE_END:
+                    node = new GuideEnd(nodeId);
+                    break;
+                case NODE_STEP:
+                    node = new Step(nodeId);
+                    break;
+                case NODE_CHAPTER:
+                    node = new Chapter(nodeId, readRequiredString());
+                    break;
+                case NODE_BRANCH:
+                    node = new Branch(nodeId);
+                    break;
+                default:
+                    throw invalid("Unsupported node type " + type + ".");
+                }
+                node.setName(name);
+                MetadataAnnotation nodeMetadata = readMetadata();
+                if (nodeMetadata != null) node.setMetadata(nodeMetadata);
+                ContentAnnotation content = readContent();
+                if (content != null) node.setContent(content);
+                nodes[i] = node;
+                nodeMap.put(nodeId, node);
+            }
+
+            int flowCount = readCount();
+            for (int i = 0; i < flowCount; i++) {
+                String flowId = readRequiredString();
+                Node<?> source = nodes[readIndex(nodeCount)];
+                Node<?> target = nodes[readIndex(nodeCount)];
+                int type = readVarInt();
+                Tansition flow;
+                switch (type) {
+                case FLOW_TRANSITION:
+                    flow = new Tansition(flowId, source, target);
+                    break;
+                case FLOW_DECISION:
+                    Map<String, String> displays = readMap();
+                    flow = new Decision(flowId, source, target, displays, readCondition());
+                    break;
+                default:
+                    throw invalid("Unsupported flow type " + type + ".");
+                }
+                source.addOutgoing(flow);
+                target.addIncoming(flow);
+            }
+
+            Guide guide = new Guide(id, nodeMap);
+            if (metadata != null) {
+                guide.setMetadataWithoutUpdate(metadata);
+            }
+            return guide;
+        }
+
+        private Condition readCondition() {
+            String type = readRequiredString();
+            String key = readString();
+            switch (type) {
+            case EqualsCondition.TYPE:
+                return new EqualsCondition(key, readString());
+            default:
+                throw new IllegalArgumentException("Unsupported condition type: " + type);
+            }
+        }
+
+        private MetadataAnnotation readMetadata() {
+            if (readVarInt() == 0) return null;
+            MetadataAnnotation metadata = new MetadataAnnotation();
+            for (Entry<String, String> entry : readMap().entrySet()) {
+                metadata.setTitle(entry.getKey(), entry.getValue());
+            }
+            for (Entry<String, String> entry : readMap().entrySet()) {
+                metadata.setDescription(entry.getKey(), entry.getValue());
+            }
+            if (readVarInt() != 0) {
+                long encoded = readVarLong();
+                metadata.setLastUpdate(new Date((encoded >>> 1) ^ -(encoded & 1)));
+            }
+            String vrSceneId = readString();
+            Map<String, String> vrSceneParameters = readMap();
+            if (vrSceneId != null) metadata.setVRScene(vrSceneId);
+            metadata.getVRSceneParameters().putAll(vrSceneParameters);
+            return metadata;
+        }
+
+        private ContentAnnotation readContent() {
+            if (readVarInt() == 0) return null;
+            ContentAnnotation content = new ContentAnnotation();
+            for (Entry<String, String> entry : readMap().entrySet()) {
+                content.setContentPackage(entry.getKey(), entry.getValue());
+            }
+            int languageCount = readCount();
+            for (int i = 0; i < languageCount; i++) {
+                String languageId = readString();
+                int warningCount = readCount();
+                for (int j = 0; j < warningCount; j++) {
+                    content.addWarning(languageId, readString());
+                }
+            }
+            int toolCount = readCount();
+            for (int i = 0; i < toolCount; i++) {
+                ToolAnnotation tool = new ToolAnnotation(readString());
+                tool.getParameteres().putAll(readMap());
+                content.addTool(tool);
+            }
+            if (readVarInt() != 0) {
+                SceneAnnotation scene = new SceneAnnotation(readString());
+                scene.setNodeParameters(readMap());
+                String methodId = readString();
+                Map<String, String> methodParameters = readMap();
+                if (methodId != null) {
+                    scene.setMethod(methodId, methodParameters);
+                } else {
+                    scene.getMethodParameters().putAll(methodParameters);
+                }
+                content.setScene(scene);
+            }
+            return content;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package de.glassroom.gpe.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.content.ContentDescriptor;
+import de.glassroom.gpe.content.ContentSource;
+import de.glassroom.gpe.misc.Namespaces;
+
+/**
+ * Guides and content descriptors read from a compressed guide bundle.
+ * <p>
+ * A bundle starts with the magic bytes <code>GPEZ</code> and the format version, followed by a single zlib stream compressed with a
+ * preset dictionary of namespaces, element names and language codes. The stream contains a sequence of entries, each consisting of its
+ * type, the length of its payload and the payload. Guides are stored as compact BPMN, content descriptors as compact XML. The first guide
+ * is the main guide, the sequence is terminated by an end entry. The stream is flushed after each entry, so entries can be read as soon
+ * as they arrived, see {@link GuideBundleReader}.
+ * </p>
+ * <p>
+ * The bundle can be used as content source, e.g., for a {@link de.glassroom.gpe.content.ContentRepository}.
+ * </p>
+ */
+public final class GuideBundle implements ContentSource {
+    /** Format version written by the bundle writer. */
+    public static final int VERSION = 1;
+    static final byte[] MAGIC = { 'G', 'P', 'E', 'Z' };
+
+    static final int ENTRY_END = 0;
+    static final int ENTRY_GUIDE = 1;
+    static final int ENTRY_CONTENT = 2;
+
+    /**
+     * Preset dictionary of the zlib stream. Deflate prefers close matches, so the most frequent strings are placed at the end.
+     * The dictionary is part of the format and must not be changed without changing the version.
+     */
+    static final byte[] DICTIONARY = new StringBuilder()
+            .append("fr_FRit_ITes_ESnl_NLpl_PLcs_CZzh_CNja_JPen_GB")
+            .append("<content xmlns=\"").append(Namespaces.CONTENTPACKAGE.getURI()).append("\" id=\"\" lang=\"\" version=\"\" lastUpdate=\"\">")
+            .append("<title></title><info></info><media mimeType=\"image/png\">media/</media><media mimeType=\"video/mp4\">")
+            .append("<isRoutine>false</isRoutine><isRoutine>true</isRoutine><hints><hint></hint></hints><warnings><warning icon=\"\"></warning></warnings></content>")
+            .append("<callActivity startQuantity=\"1\" isForCompensation=\"false\" completionQuantity=\"1\" id=\"\" name=\"\" calledElement=\"\">")
+            .append("<exclusiveGateway gatewayDirection=\"Diverging\" id=\"\" name=\"\">")
+            .append("<condition xmlns=\"").append(Namespaces.CONDITION.getURI()).append("\" type=\"equals\" key=\"\" value=\"\" />")
+            .append("<vrScene id=\"\"><params><param id=\"\" value=\"\" /></params></vrScene><lastUpdate></lastUpdate>")
+            .append("<endEvent id=\"endEvent-\" name=\"End Event\" /></process>")
+            .append("<process xmlns=\"").append(Namespaces.BPMN.getURI()).append("\" isExecutable=\"true\" id=\"\">")
+            .append("<startEvent parallelMultiple=\"false\" isInterrupting=\"true\" id=\"startEvent-\" name=\"Start Event\">")
+            .append("<content xmlns=\"").append(Namespaces.CONTENT.getURI()).append("\"><assistance><package lang=\"\"></package></assistance>")
+            .append("<warnings><warning lang=\"\"></warning></warnings><tools><tool id=\"\"><params><param id=\"\" value=\"\" /></params></tool></tools>")
+            .append("<scene><node id=\"\"></node><method id=\"\"></method></scene></content>")
+            .append("<userTask startQuantity=\"1\" implementation=\"##unspecified\" isForCompensation=\"false\" completionQuantity=\"1\" id=\"\" name=\"\">")
+            .append("<extensionElements><metadata xmlns=\"").append(Namespaces.METADATA.getURI()).append("\"><title lang=\"de_DE\"></title>")
+            .append("<description lang=\"en_US\"></description></metadata></extensionElements>")
+            .append("<incoming>flow-</incoming><outgoing>flow-</outgoing></userTask>")
+            .append("<sequenceFlow id=\"flow-\" sourceRef=\"\" targetRef=\"\" /><title lang=\"en_US\"></title><title lang=\"de_DE\">")
+            .toString().getBytes(StandardCharsets.UTF_8);
+
+    private final Map<String, Guide> guides;
+    private final Map<String, ContentDescriptor> descriptors;
+
+    GuideBundle() {
+        this.guides = new LinkedHashMap<>();
+        this.descriptors = new LinkedHashMap<>();
+    }
+
+    void addGuide(Guide guide) {
+        guides.put(guide.getId(), guide);
+    }
+
+    void addContentDescriptor(ContentDescriptor descriptor) {
+        descriptors.put(getKey(descriptor.getId(), descriptor.getLanguageId()), descriptor);
+    }
+
+    /**
+     * Returns the main guide of the bundle.
+     * @return Main guide or <code>null</code> if the bundle contains no guides.
+     */
+    public Guide getMainGuide() {
+        return guides.isEmpty() ? null : guides.values().iterator().next();
+    }
+
+    /**
+     * Returns all guides in the order of the bundle, starting with the main guide.
+     * @return Unmodifiable list of guides. May be empty.
+     */
+    public List<Guide> getGuides() {
+        return Collections.unmodifiableList(new ArrayList<>(guides.values()));
+    }
+
+    /**
+     * Returns a guide.
+     * @param guideId Identifier of the guide.
+     * @return Guide or <code>null</code> if the bundle contains no guide with the given identifier.
+     */
+    public Guide getGuide(String guideId) {
+        return guides.get(guideId);
+    }
+
+    /**
+     * Returns all content descriptors in the order of the bundle.
+     * @return Unmodifiable list of content descriptors. May be empty.
+     */
+    public List<ContentDescriptor> getContentDescriptors() {
+        return Collections.unmodifiableList(new ArrayList<>(descriptors.values()));
+    }
+
+    /**
+     * Returns a content descriptor.
+     * @param packageId Identifier of the content package.
+     * @param languageId Language of the content package.
+     * @return Content descriptor or <code>null</code> if the bundle does not contain it.
+     */
+    public ContentDescriptor getContentDescriptor(String packageId, String languageId) {
+        return descriptors.get(getKey(packageId, languageId));
+    }
+
+    /**
+     * Returns a content descriptor of the bundle. The guide identifier is ignored.
+     */
+    @Override
+    public ContentDescriptor load(String guideId, String packageId, String languageId) {
+        return getContentDescriptor(packageId, languageId);
+    }
+
+    static String getKey(String packageId, String languageId) {
+        return packageId + '\n' + languageId;
+    }
+}
@@ -0,0 +1,199 @@
+package de.glassroom.gpe.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.content.ContentDescriptor;
+
+/**
+ * Reads a compressed guide bundle entry by entry, see {@link GuideBundle} for the format.
+ * <p>
+ * An entry is decoded as soon as its compressed bytes are available, so the main guide can be used while the remaining entries are still
+ * being received. The reader is not thread-safe.
+ * </p>
+ */
+public final class GuideBundleReader implements Closeable {
+    private final InputStream in;
+    private final Inflater inflater;
+    private final InflaterInputStream inflaterIn;
+    private EntryType type;
+    private Guide guide;
+    private ContentDescriptor descriptor;
+    private boolean isComplete;
+
+    /**
+     * Types of bundle entries.
+     */
+    public enum EntryType {
+        GUIDE, CONTENT
+    }
+
+    /**
+     * Inflater stream providing the preset dictionary when it is requested by the zlib stream.
+     */
+    private static class DictionaryInflaterInputStream extends InflaterInputStream {
+
+        private DictionaryInflaterInputStream(InputStream in, Inflater inflater) {
+            super(in, inflater, 8192);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read < 0 && inf.needsDictionary()) {
+                // The inflater stream reports the end of the stream if a dictionary is required.
+                inf.setDictionary(GuideBundle.DICTIONARY);
+                read = super.read(b, off, len);
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Creates a new bundle reader and reads the bundle header.
+     * @param in Stream to read the bundle from. As the stream is read buffered, the bundle must be the remaining content of the stream.
+     * @throws IOException Failed to read from the stream.
+     * @throws IllegalArgumentException The stream provides no guide bundle of a supported version.
+     */
+    public GuideBundleReader(InputStream in) throws IOException, IllegalArgumentException {
+        byte[] magic = new byte[GuideBundle.MAGIC.length];
+        readFully(in, magic, 0, magic.length);
+        if (!Arrays.equals(magic, GuideBundle.MAGIC)) {
+            throw new IllegalArgumentException("Invalid guide bundle: Magic bytes do not match.");
+        }
+        int version = in.read();
+        if (version < 0) throw new EOFException("Unexpected end of guide bundle.");
+        if (version != GuideBundle.VERSION) {
+            throw new IllegalArgumentException("Unsupported guide bundle version: " + version);
+        }
+        this.in = in;
+        this.inflater = new Inflater();
+        this.inflaterIn = new DictionaryInflaterInputStream(in, inflater);
+    }
+
+    /**
+     * Reads the next entry. Blocks until the entry is available completely.
+     * @return Type of the entry or <code>null</code> if the end of the bundle has been reached.
+     * @throws IOException Failed to read from the stream or the stream ended before the end of the bundle.
+     * @throws IllegalArgumentException The bundle contains an invalid entry.
+     */
+    public EntryType next() throws IOException, IllegalArgumentException {
+        type = null;
+        guide = null;
+        descriptor = null;
+        if (isComplete) return null;
+        int entryType = inflaterIn.read();
+        if (entryType < 0) throw new EOFException("Unexpected end of guide bundle.");
+        if (entryType == GuideBundle.ENTRY_END) {
+            isComplete = true;
+            return null;
+        }
+        byte[] payload = new byte[readVarInt(inflaterIn)];
+        readFully(inflaterIn, payload, 0, payload.length);
+        switch (entryType) {
+        case GuideBundle.ENTRY_GUIDE:
+            guide = GuideSerializer.readFromBPMN(new ByteArrayInputStream(payload));
+            type = EntryType.GUIDE;
+            break;
+        case GuideBundle.ENTRY_CONTENT:
+            descriptor = ContentSerializer.readFromXML(new String(payload, StandardCharsets.UTF_8));
+            type = EntryType.CONTENT;
+            break;
+        default:
+            throw new IllegalArgumentException("Invalid guide bundle: Unknown entry type " + entryType + ".");
+        }
+        return type;
+    }
+
+    /**
+     * Returns the guide of the current entry.
+     * @return Guide or <code>null</code> if the current entry is no guide.
+     */
+    public Guide getGuide() {
+        return guide;
+    }
+
+    /**
+     * Returns the content descriptor of the current entry.
+     * @return Content descriptor or <code>null</code> if the current entry is no content descriptor.
+     */
+    public ContentDescriptor getContentDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Checks if the end of the bundle has been reached.
+     * @return <code>true</code> if all entries have been read, otherwise <code>false</code>.
+     */
+    public boolean isComplete() {
+        return isComplete;
+    }
+
+    /**
+     * Releases the inflater and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            inflater.end();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads a complete bundle. The stream is not closed.
+     * @param in Stream to read the bundle from.
+     * @return Bundle containing all guides and content descriptors.
+     * @throws IOException Failed to read from the stream or the stream ended before the end of the bundle.
+     * @throws IllegalArgumentException The stream provides no valid guide bundle.
+     */
+    public static GuideBundle readBundle(InputStream in) throws IOException, IllegalArgumentException {
+        GuideBundle bundle = new GuideBundle();
+        GuideBundleReader reader = new GuideBundleReader(in);
+        try {
+            EntryType type;
+            while ((type = reader.next()) != null) {
+                if (type == EntryType.GUIDE) {
+                    bundle.addGuide(reader.getGuide());
+                } else {
+                    bundle.addContentDescriptor(reader.getContentDescriptor());
+                }
+            }
+        } finally {
+            reader.inflater.end();
+        }
+        return bundle;
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            int read = in.read(buffer, offset, length);
+            if (read < 0) throw new EOFException("Unexpected end of guide bundle.");
+            offset += read;
+            length -= read;
+        }
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Unexpected end of guide bundle.");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) throw new IllegalArgumentException("Invalid guide bundle: Negative length.");
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid guide bundle: Malformed variable length integer.");
+    }
+}
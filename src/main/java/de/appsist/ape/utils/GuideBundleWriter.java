@@ -0,0 +1,180 @@
+package de.glassroom.gpe.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import de.glassroom.gpe.Chapter;
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideManager;
+import de.glassroom.gpe.Node;
+import de.glassroom.gpe.annotations.ContentAnnotation;
+import de.glassroom.gpe.content.ContentDescriptor;
+import de.glassroom.gpe.content.ContentRepository;
+
+/**
+ * Writes guides and content descriptors as compressed guide bundle, see {@link GuideBundle} for the format.
+ * <p>
+ * Each entry is compressed and flushed when it is written, so a receiver can read it before the remaining entries have been written.
+ * The bundle is completed by {@link #finish()} or {@link #close()}. The writer is not thread-safe.
+ * </p>
+ */
+public final class GuideBundleWriter implements Closeable {
+    private final OutputStream out;
+    private final Deflater deflater;
+    private final DeflaterOutputStream deflaterOut;
+    private final byte[] lengthBuffer;
+    private boolean isFinished;
+
+    /**
+     * Creates a new bundle writer and writes the bundle header.
+     * @param out Stream to write the bundle to.
+     * @throws IOException Failed to write to the stream.
+     */
+    public GuideBundleWriter(OutputStream out) throws IOException {
+        this.out = out;
+        this.deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        this.deflater.setDictionary(GuideBundle.DICTIONARY);
+        this.deflaterOut = new DeflaterOutputStream(out, deflater, 8192, true);
+        this.lengthBuffer = new byte[6];
+        out.write(GuideBundle.MAGIC);
+        out.write(GuideBundle.VERSION);
+    }
+
+    /**
+     * Writes a guide. The first guide written is the main guide of the bundle.
+     * @param guide Guide to write.
+     * @throws IOException Failed to write to the stream.
+     * @throws IllegalArgumentException The guide contains unsupported nodes or conditions.
+     * @throws IllegalStateException The bundle has already been finished.
+     */
+    public void writeGuide(Guide guide) throws IOException, IllegalArgumentException, IllegalStateException {
+        writeEntry(GuideBundle.ENTRY_GUIDE, GuideSerializer.writeAsBPMN(guide, true));
+    }
+
+    /**
+     * Writes a content descriptor.
+     * @param descriptor Content descriptor to write.
+     * @throws IOException Failed to write to the stream.
+     * @throws IllegalStateException The bundle has already been finished.
+     */
+    public void writeContentDescriptor(ContentDescriptor descriptor) throws IOException, IllegalStateException {
+        writeEntry(GuideBundle.ENTRY_CONTENT, ContentSerializer.writeAsXML(descriptor, true));
+    }
+
+    /**
+     * Completes the bundle. The underlying stream is flushed but not closed. Further calls have no effect.
+     * @throws IOException Failed to write to the stream.
+     */
+    public void finish() throws IOException {
+        if (isFinished) return;
+        isFinished = true;
+        try {
+            deflaterOut.write(GuideBundle.ENTRY_END);
+            deflaterOut.finish();
+            out.flush();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Completes the bundle and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes a guide together with the guides called by its chapters and the content descriptors referenced by all nodes of these guides.
+     * The main guide is written first. Each guide is followed by the content descriptors it references which have not been written before.
+     * Called guides are written in breadth first order. Called guides not managed by the guide manager and content packages not found in
+     * the repository are skipped. The stream is flushed but not closed.
+     * @param guide Main guide of the bundle.
+     * @param manager Guide manager to resolve called guides.
+     * @param repository Repository to resolve content packages.
+     * @param languageId Language of the content packages to write. If <code>null</code>, the content packages of all languages are written.
+     * @param out Stream to write the bundle to.
+     * @return Bundle containing the written guides and content descriptors.
+     * @throws IOException Failed to write to the stream or to load a content descriptor.
+     * @throws IllegalArgumentException A guide contains unsupported nodes or conditions.
+     * @throws IllegalStateException Failed to load a called guide.
+     */
+    public static GuideBundle writeBundle(Guide guide, GuideManager manager, ContentRepository repository, String languageId, OutputStream out)
+            throws IOException, IllegalArgumentException, IllegalStateException {
+        GuideBundle bundle = new GuideBundle();
+        GuideBundleWriter writer = new GuideBundleWriter(out);
+        try {
+            Deque<Guide> pendingGuides = new ArrayDeque<>();
+            Set<String> guideIds = new HashSet<>();
+            pendingGuides.add(guide);
+            guideIds.add(guide.getId());
+            while (!pendingGuides.isEmpty()) {
+                Guide current = pendingGuides.poll();
+                writer.writeGuide(current);
+                bundle.addGuide(current);
+                for (Node<?> node : current.getNodes()) {
+                    writeContentDescriptors(writer, bundle, current.getId(), node, repository, languageId);
+                    if (node instanceof Chapter) {
+                        String calledId = ((Chapter) node).getCalledProcessId();
+                        if (calledId != null && guideIds.add(calledId)) {
+                            Guide called = manager.getGuide(calledId);
+                            if (called != null) pendingGuides.add(called);
+                        }
+                    }
+                }
+            }
+            writer.finish();
+        } finally {
+            writer.deflater.end();
+        }
+        return bundle;
+    }
+
+    private static void writeContentDescriptors(GuideBundleWriter writer, GuideBundle bundle, String guideId, Node<?> node, ContentRepository repository, String languageId)
+            throws IOException {
+        ContentAnnotation content = node.getContent();
+        if (content == null) return;
+        for (Entry<String, String> entry : content.getContentPackages().entrySet()) {
+            if (languageId != null && !languageId.equals(entry.getKey())) continue;
+            if (bundle.getContentDescriptor(entry.getValue(), entry.getKey()) != null) continue;
+            ContentDescriptor descriptor = repository.get(guideId, entry.getValue(), entry.getKey());
+            if (descriptor != null) {
+                writer.writeContentDescriptor(descriptor);
+                bundle.addContentDescriptor(descriptor);
+            }
+        }
+    }
+
+    private void writeEntry(int type, String payload) throws IOException, IllegalStateException {
+        if (isFinished) {
+            throw new IllegalStateException("Bundle has already been finished.");
+        }
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        int length = 0;
+        lengthBuffer[length++] = (byte) type;
+        int value = bytes.length;
+        while ((value & ~0x7F) != 0) {
+            lengthBuffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        lengthBuffer[length++] = (byte) value;
+        deflaterOut.write(lengthBuffer, 0, length);
+        deflaterOut.write(bytes);
+        // Sync flush, so the entry can be decompressed without the following ones.
+        deflaterOut.flush();
+    }
+}
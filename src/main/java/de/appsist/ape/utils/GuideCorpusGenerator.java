@@ -0,0 +1,502 @@
+package de.glassroom.gpe.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import de.glassroom.gpe.Branch;
+import de.glassroom.gpe.Chapter;
+import de.glassroom.gpe.Decision;
+import de.glassroom.gpe.EqualsCondition;
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideEnd;
+import de.glassroom.gpe.GuideStart;
+import de.glassroom.gpe.Node;
+import de.glassroom.gpe.Step;
+import de.glassroom.gpe.Tansition;
+import de.glassroom.gpe.annotations.ContentAnnotation;
+import de.glassroom.gpe.annotations.MetadataAnnotation;
+import de.glassroom.gpe.annotations.SceneAnnotation;
+import de.glassroom.gpe.annotations.ToolAnnotation;
+import de.glassroom.gpe.content.ContentDescriptor;
+import de.glassroom.gpe.content.ContentSource;
+import de.glassroom.gpe.content.DirectoryContentSource;
+import de.glassroom.gpe.content.Hint;
+import de.glassroom.gpe.content.Warning;
+import de.glassroom.gpe.store.DirectoryGuideStore;
+
+/**
+ * Generates synthetic guides and content descriptors for benchmarks and load tests.
+ * <p>
+ * The generated corpus depends only on the seed and the configuration, including all identifiers, texts and dates. Each guide consists of
+ * a sequence of steps, branches and chapters from its start to its end event. Branches decide between the next node of the sequence and
+ * nodes further ahead, so all guides are free of cycles. Chapters call guides generated for the next nesting level, which are smaller
+ * than the calling guide. Annotated steps reference a content package for each language, for which a content descriptor is generated.
+ * </p>
+ * <p>
+ * The generator is not thread-safe. Use a separate instance for each thread.
+ * </p>
+ */
+public final class GuideCorpusGenerator {
+    /** Minimum number of nodes of a guide, including its start and end event. */
+    public static final int MIN_NODE_COUNT = 10;
+    /** Maximum number of nodes of a guide, including its start and end event. */
+    public static final int MAX_NODE_COUNT = 1000000;
+    /** Language codes used for the generated texts, in the order they are assigned. */
+    public static final List<String> LANGUAGES = Collections.unmodifiableList(Arrays.asList(
+            "de_DE", "en_US", "fr_FR", "it_IT", "es_ES", "nl_NL", "pl_PL", "cs_CZ"));
+
+    private static final long BASE_TIME = 1420070400000L; // 2015-01-01T00:00:00Z
+    private static final String[] SYLLABLES = {
+        "ven", "til", "schrau", "be", "dich", "tung", "ro", "tor", "la", "ger", "flan", "sch", "mo", "dul", "ka", "bel",
+        "ste", "cker", "hal", "ter", "pum", "pe", "fil", "ter", "\u00f6l", "k\u00fch", "ler", "ma", "\u00df", "ne", "con", "trol"
+    };
+
+    private final long seed;
+    private int nodeCount;
+    private int branchingFactor;
+    private double branchDensity;
+    private int chapterDepth;
+    private int chaptersPerGuide;
+    private int languageCount;
+    private double annotationDensity;
+    private Random random;
+
+    /**
+     * Corpus of generated guides and content descriptors.
+     * The corpus can be used as content source, e.g., for a {@link de.glassroom.gpe.content.ContentRepository}.
+     */
+    public static class Corpus implements ContentSource {
+        private final Map<String, Guide> guides;
+        private final Map<String, Map<String, ContentDescriptor>> descriptors;
+        private int descriptorCount;
+
+        private Corpus() {
+            this.guides = new LinkedHashMap<>();
+            this.descriptors = new LinkedHashMap<>();
+        }
+
+        /**
+         * Returns the main guide, i.e., the guide of the top nesting level.
+         * @return Main guide.
+         */
+        public Guide getMainGuide() {
+            return guides.values().iterator().next();
+        }
+
+        /**
+         * Returns all guides, starting with the main guide, followed by the called guides of each nesting level.
+         * @return Unmodifiable list of guides.
+         */
+        public List<Guide> getGuides() {
+            return Collections.unmodifiableList(new ArrayList<>(guides.values()));
+        }
+
+        /**
+         * Returns a guide.
+         * @param guideId Identifier of the guide.
+         * @return Guide or <code>null</code> if the corpus contains no guide with the given identifier.
+         */
+        public Guide getGuide(String guideId) {
+            return guides.get(guideId);
+        }
+
+        /**
+         * Returns the content descriptors of a guide.
+         * @param guideId Identifier of the guide.
+         * @return Unmodifiable list of content descriptors in the order of the nodes referencing them. May be empty.
+         */
+        public List<ContentDescriptor> getContentDescriptors(String guideId) {
+            Map<String, ContentDescriptor> guideDescriptors = descriptors.get(guideId);
+            if (guideDescriptors == null) return Collections.emptyList();
+            return Collections.unmodifiableList(new ArrayList<>(guideDescriptors.values()));
+        }
+
+        /**
+         * Returns the total number of content descriptors.
+         * @return Number of content descriptors of all guides.
+         */
+        public int getContentDescriptorCount() {
+            return descriptorCount;
+        }
+
+        /**
+         * Returns the total number of nodes.
+         * @return Number of nodes of all guides.
+         */
+        public int getNodeCount() {
+            int count = 0;
+            for (Guide guide : guides.values()) {
+                count += guide.getNodes().size();
+            }
+            return count;
+        }
+
+        /**
+         * Returns a generated content descriptor. Package identifiers are unique per language, so the language is not checked.
+         */
+        @Override
+        public ContentDescriptor load(String guideId, String packageId, String languageId) {
+            Map<String, ContentDescriptor> guideDescriptors = descriptors.get(guideId);
+            return guideDescriptors != null ? guideDescriptors.get(packageId) : null;
+        }
+
+        /**
+         * Writes the corpus to a guide directory.
+         * Guides are written as compact BPMN in the layout of the {@link DirectoryGuideStore}, content descriptors as compact XML in the
+         * layout of the {@link DirectoryContentSource}. Existing files are replaced. The index of the guide store is created when the
+         * directory is opened as store.
+         * @param directory Directory to write the corpus to. Will be created if it does not exist.
+         * @throws IOException Failed to write a file.
+         */
+        public void write(Path directory) throws IOException {
+            DirectoryContentSource contentSource = new DirectoryContentSource(directory);
+            for (Guide guide : guides.values()) {
+                Path guideDir = directory.resolve(guide.getId());
+                Files.createDirectories(guideDir);
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(guideDir.resolve(DirectoryGuideStore.GUIDE_FILE)))) {
+                    GuideSerializer.writeAsBPMN(guide, out, true);
+                }
+                for (ContentDescriptor descriptor : getContentDescriptors(guide.getId())) {
+                    Path descriptorFile = contentSource.getDescriptorFile(guide.getId(), descriptor.getId());
+                    Files.createDirectories(descriptorFile.getParent());
+                    Files.write(descriptorFile, ContentSerializer.writeAsXML(descriptor, true).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        private void addDescriptor(String guideId, ContentDescriptor descriptor) {
+            Map<String, ContentDescriptor> guideDescriptors = descriptors.get(guideId);
+            if (guideDescriptors == null) {
+                guideDescriptors = new LinkedHashMap<>();
+                descriptors.put(guideId, guideDescriptors);
+            }
+            guideDescriptors.put(descriptor.getId(), descriptor);
+            descriptorCount++;
+        }
+    }
+
+    /**
+     * Pending guide of the generation.
+     */
+    private static class GuideSpec {
+        private final String id;
+        private final int nodeCount;
+        private final int level;
+
+        private GuideSpec(String id, int nodeCount, int level) {
+            this.id = id;
+            this.nodeCount = nodeCount;
+            this.level = level;
+        }
+    }
+
+    /**
+     * Creates a new generator with the default configuration: a single guide of 100 nodes with a branching factor of 2,
+     * a branch density of 0.1, two languages and an annotation density of 0.5.
+     * @param seed Seed of the generator.
+     */
+    public GuideCorpusGenerator(long seed) {
+        this.seed = seed;
+        this.nodeCount = 100;
+        this.branchingFactor = 2;
+        this.branchDensity = 0.1;
+        this.chapterDepth = 0;
+        this.chaptersPerGuide = 2;
+        this.languageCount = 2;
+        this.annotationDensity = 0.5;
+    }
+
+    /**
+     * Returns the seed of the generator.
+     * @return Seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the number of nodes of the main guide. Called guides are smaller.
+     * @param nodeCount Number of nodes including the start and end event, between {@link #MIN_NODE_COUNT} and {@link #MAX_NODE_COUNT}.
+     * @return This for chaining.
+     * @throws IllegalArgumentException The number is out of range.
+     */
+    public GuideCorpusGenerator setNodeCount(int nodeCount) throws IllegalArgumentException {
+        if (nodeCount < MIN_NODE_COUNT || nodeCount > MAX_NODE_COUNT) {
+            throw new IllegalArgumentException("Node count must be between " + MIN_NODE_COUNT + " and " + MAX_NODE_COUNT + ".");
+        }
+        this.nodeCount = nodeCount;
+        return this;
+    }
+
+    /**
+     * Sets the number of decisions of each branch.
+     * @param branchingFactor Number of decisions. If less than 2, no branches are generated.
+     * @return This for chaining.
+     */
+    public GuideCorpusGenerator setBranchingFactor(int branchingFactor) {
+        this.branchingFactor = branchingFactor;
+        return this;
+    }
+
+    /**
+     * Sets the share of nodes which are branches.
+     * @param branchDensity Probability of a node to be a branch, between 0 and 1.
+     * @return This for chaining.
+     * @throws IllegalArgumentException The density is out of range.
+     */
+    public GuideCorpusGenerator setBranchDensity(double branchDensity) throws IllegalArgumentException {
+        this.branchDensity = checkProbability(branchDensity, "Branch density");
+        return this;
+    }
+
+    /**
+     * Sets the nesting depth of chapters.
+     * @param chapterDepth Number of levels of called guides. If 0, no chapters are generated.
+     * @param chaptersPerGuide Number of chapters of each guide above the last level.
+     * @return This for chaining.
+     * @throws IllegalArgumentException A value is negative.
+     */
+    public GuideCorpusGenerator setChapters(int chapterDepth, int chaptersPerGuide) throws IllegalArgumentException {
+        if (chapterDepth < 0 || chaptersPerGuide < 0) {
+            throw new IllegalArgumentException("Chapter depth and count must not be negative.");
+        }
+        this.chapterDepth = chapterDepth;
+        this.chaptersPerGuide = chaptersPerGuide;
+        return this;
+    }
+
+    /**
+     * Sets the number of languages of texts and content packages.
+     * @param languageCount Number of languages, between 1 and the number of {@link #LANGUAGES}.
+     * @return This for chaining.
+     * @throws IllegalArgumentException The number is out of range.
+     */
+    public GuideCorpusGenerator setLanguageCount(int languageCount) throws IllegalArgumentException {
+        if (languageCount < 1 || languageCount > LANGUAGES.size()) {
+            throw new IllegalArgumentException("Language count must be between 1 and " + LANGUAGES.size() + ".");
+        }
+        this.languageCount = languageCount;
+        return this;
+    }
+
+    /**
+     * Sets the share of nodes with metadata and content annotations.
+     * @param annotationDensity Probability of a node to be annotated, between 0 and 1.
+     * @return This for chaining.
+     * @throws IllegalArgumentException The density is out of range.
+     */
+    public GuideCorpusGenerator setAnnotationDensity(double annotationDensity) throws IllegalArgumentException {
+        this.annotationDensity = checkProbability(annotationDensity, "Annotation density");
+        return this;
+    }
+
+    /**
+     * Generates a corpus. Repeated calls return equal corpora.
+     * @return Corpus containing the main guide, all called guides and the content descriptors of their content packages.
+     */
+    public Corpus generate() {
+        random = new Random(seed);
+        Corpus corpus = new Corpus();
+        Deque<GuideSpec> pending = new ArrayDeque<>();
+        pending.add(new GuideSpec("corpus-" + Long.toHexString(seed), nodeCount, 0));
+        while (!pending.isEmpty()) {
+            GuideSpec spec = pending.poll();
+            corpus.guides.put(spec.id, generateGuide(spec, corpus, pending));
+        }
+        random = null;
+        return corpus;
+    }
+
+    private Guide generateGuide(GuideSpec spec, Corpus corpus, Deque<GuideSpec> pending) {
+        int innerCount = spec.nodeCount - 2;
+        boolean[] isChapter = new boolean[innerCount];
+        if (spec.level < chapterDepth) {
+            for (int i = Math.min(chaptersPerGuide, innerCount); i > 0; i--) {
+                int position = random.nextInt(innerCount);
+                while (isChapter[position]) {
+                    position = (position + 1) % innerCount;
+                }
+                isChapter[position] = true;
+            }
+        }
+        int childNodeCount = Math.max(MIN_NODE_COUNT, spec.nodeCount / (chaptersPerGuide + 1));
+
+        // Sequence of all nodes from start to end.
+        Node<?>[] sequence = new Node<?>[spec.nodeCount];
+        sequence[0] = new GuideStart(spec.id + "-start");
+        sequence[spec.nodeCount - 1] = new GuideEnd(spec.id + "-end");
+        for (int i = 0; i < innerCount; i++) {
+            String nodeId = spec.id + "-n" + i;
+            Node<?> node;
+            if (isChapter[i]) {
+                String calledId = spec.id + "-c" + i;
+                pending.add(new GuideSpec(calledId, childNodeCount, spec.level + 1));
+                node = new Chapter(nodeId, calledId).setName("Chapter " + i);
+            } else if (branchingFactor >= 2 && random.nextDouble() < branchDensity) {
+                node = new Branch(nodeId).setName(capitalize(words(2)) + "?");
+            } else {
+                node = new Step(nodeId).setName("Step " + i);
+            }
+            // Annotations of gateways are not read from BPMN, so only steps and chapters are annotated.
+            if (!(node instanceof Branch) && random.nextDouble() < annotationDensity) {
+                annotate(node, spec.id, corpus);
+            }
+            sequence[i + 1] = node;
+        }
+
+        Map<String, Node<?>> nodes = new LinkedHashMap<>();
+        for (Node<?> node : sequence) {
+            nodes.put(node.getId(), node);
+        }
+        for (int i = 0; i < sequence.length - 1; i++) {
+            Node<?> source = sequence[i];
+            if (source instanceof Branch) {
+                addDecisions((Branch) source, sequence, i);
+            } else {
+                Node<?> target = sequence[i + 1];
+                connect(source, target, new Tansition(flowId(source, target), source, target));
+            }
+        }
+
+        Guide guide = new Guide(spec.id, nodes);
+        MetadataAnnotation metadata = new MetadataAnnotation();
+        for (String languageId : getLanguages()) {
+            metadata.setTitle(languageId, capitalize(words(3)));
+            metadata.setDescription(languageId, sentence(12));
+        }
+        metadata.setLastUpdate(nextDate());
+        guide.setMetadataWithoutUpdate(metadata);
+        return guide;
+    }
+
+    private void addDecisions(Branch branch, Node<?>[] sequence, int position) {
+        // The first decision continues the sequence, the others skip ahead.
+        int remaining = sequence.length - position - 1;
+        int decisionCount = Math.min(branchingFactor, remaining);
+        int window = Math.min(remaining, 2 * branchingFactor);
+        boolean[] isTarget = new boolean[window];
+        isTarget[0] = true;
+        for (int d = 1; d < decisionCount; d++) {
+            int offset = 1 + random.nextInt(window - 1);
+            while (isTarget[offset]) {
+                offset = offset % (window - 1) + 1;
+            }
+            isTarget[offset] = true;
+        }
+        int d = 0;
+        for (int offset = 0; offset < window; offset++) {
+            if (!isTarget[offset]) continue;
+            Node<?> target = sequence[position + 1 + offset];
+            Map<String, String> display = new LinkedHashMap<>();
+            for (String languageId : getLanguages()) {
+                display.put(languageId, capitalize(words(1)));
+            }
+            connect(branch, target, new Decision(flowId(branch, target), branch, target, display, new EqualsCondition(branch.getId(), "option" + d++)));
+        }
+    }
+
+    private void annotate(Node<?> node, String guideId, Corpus corpus) {
+        MetadataAnnotation metadata = new MetadataAnnotation();
+        for (String languageId : getLanguages()) {
+            metadata.setTitle(languageId, capitalize(words(3)));
+            if (random.nextBoolean()) metadata.setDescription(languageId, sentence(8));
+        }
+        node.setMetadata(metadata);
+        if (!(node instanceof Step)) return;
+
+        ContentAnnotation content = new ContentAnnotation();
+        for (String languageId : getLanguages()) {
+            String packageId = node.getId() + "-" + languageId;
+            content.setContentPackage(languageId, packageId);
+            if (random.nextInt(4) == 0) content.addWarning(languageId, sentence(5));
+            corpus.addDescriptor(guideId, generateDescriptor(packageId, languageId));
+        }
+        if (random.nextInt(4) == 0) {
+            ToolAnnotation tool = new ToolAnnotation("tool" + random.nextInt(50));
+            tool.addParameter("size", Integer.toString(6 + random.nextInt(20)));
+            content.addTool(tool);
+        }
+        if (random.nextInt(8) == 0) {
+            SceneAnnotation scene = new SceneAnnotation("object" + random.nextInt(100));
+            Map<String, String> parameters = new LinkedHashMap<>();
+            parameters.put("highlight", Boolean.toString(random.nextBoolean()));
+            scene.setNodeParameters(parameters);
+            content.setScene(scene);
+        }
+        node.setContent(content);
+    }
+
+    private ContentDescriptor generateDescriptor(String packageId, String languageId) {
+        ContentDescriptor descriptor = new ContentDescriptor(packageId, languageId)
+                .setVersion("1." + random.nextInt(10))
+                .setLastUpdate(nextDate())
+                .setTitle(capitalize(words(3)))
+                .setInfo(sentence(20))
+                .setMedia("image/png", "media/" + packageId + ".png")
+                .setRoutineTask(random.nextInt(3) == 0);
+        for (int i = random.nextInt(3); i > 0; i--) {
+            descriptor.addHint(new Hint(sentence(6)));
+        }
+        if (random.nextInt(4) == 0) {
+            descriptor.addWarning(new Warning(sentence(6), "icons/warning.png"));
+        }
+        return descriptor;
+    }
+
+    private List<String> getLanguages() {
+        return LANGUAGES.subList(0, languageCount);
+    }
+
+    private Date nextDate() {
+        return new Date(BASE_TIME + (random.nextInt(365 * 24 * 60) * 60000L));
+    }
+
+    private String words(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(' ');
+            for (int s = 1 + random.nextInt(3); s > 0; s--) {
+                builder.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+        }
+        return builder.toString();
+    }
+
+    private String sentence(int maxWords) {
+        return capitalize(words(1 + random.nextInt(maxWords))) + ".";
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+
+    private static void connect(Node<?> source, Node<?> target, Tansition flow) {
+        source.addOutgoing(flow);
+        target.addIncoming(flow);
+    }
+
+    private static String flowId(Node<?> source, Node<?> target) {
+        return "flow-" + source.getId() + "_" + target.getId();
+    }
+
+    private static double checkProbability(double value, String name) throws IllegalArgumentException {
+        if (!(value >= 0 && value <= 1)) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1.");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,662 @@
+package de.glassroom.gpe.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.joda.time.DateTime;
+import org.joda.time.format.ISODateTimeFormat;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import de.glassroom.gpe.Branch;
+import de.glassroom.gpe.Chapter;
+import de.glassroom.gpe.Condition;
+import de.glassroom.gpe.Decision;
+import de.glassroom.gpe.EqualsCondition;
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideEnd;
+import de.glassroom.gpe.GuideStart;
+import de.glassroom.gpe.Node;
+import de.glassroom.gpe.Step;
+import de.glassroom.gpe.Tansition;
+import de.glassroom.gpe.annotations.ContentAnnotation;
+import de.glassroom.gpe.annotations.MetadataAnnotation;
+import de.glassroom.gpe.annotations.SceneAnnotation;
+import de.glassroom.gpe.annotations.ToolAnnotation;
+
+/**
+ * Serializes and deserializes a process as JSON.
+ * <p>
+ * The document is an object with the fields <code>id</code>, <code>metadata</code>, <code>nodes</code> and <code>flows</code>.
+ * Every node has a <code>type</code> (<code>start</code>, <code>end</code>, <code>step</code>, <code>chapter</code> or <code>branch</code>)
+ * and may carry <code>metadata</code> and <code>content</code> annotations. Flows reference their source and target node by id,
+ * decisions additionally contain their <code>displays</code> and <code>condition</code>.
+ * Like the BPMN representation, the flows are stored once and registered at both nodes when read.
+ * </p>
+ * <p>
+ * Documents are written and read with the streaming API of Jackson, without building an intermediate tree of maps.
+ * Unknown fields are skipped when reading.
+ * </p>
+ */
+public final class GuideJSONSerializer {
+    private static final String NODE_START = "start";
+    private static final String NODE_END = "end";
+    private static final String NODE_STEP = "step";
+    private static final String NODE_CHAPTER = "chapter";
+    private static final String NODE_BRANCH = "branch";
+    private static final String FLOW_TRANSITION = "transition";
+    private static final String FLOW_DECISION = "decision";
+
+    private GuideJSONSerializer() {
+    }
+
+    /**
+     * Serializes the given process as JSON string.
+     * @param process Process to serialize.
+     * @param compact If set to <code>true</code>, the JSON will be encoded without unnecessary whitespaces.
+     * @return JSON string representing the process.
+     * @throws IllegalArgumentException The process contains unsupported nodes or conditions.
+     */
+    public static String writeAsJSON(Guide process, boolean compact) throws IllegalArgumentException {
+        StringWriter writer = new StringWriter();
+        try {
+            writeAsJSON(process, writer, compact);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write to memory.", e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes the given process as JSON to a character stream.
+     * The writer is flushed but not closed.
+     * @param process Process to serialize.
+     * @param out Writer to write the JSON document to.
+     * @param compact If set to <code>true</code>, the JSON will be encoded without unnecessary whitespaces.
+     * @throws IOException Failed to write to the given writer.
+     * @throws IllegalArgumentException The process contains unsupported nodes or conditions.
+     */
+    public static void writeAsJSON(Guide process, Writer out, boolean compact) throws IOException, IllegalArgumentException {
+        try (JsonGenerator generator = JSONUtils.FACTORY.createGenerator(out)) {
+            write(process, generator, compact);
+        }
+    }
+
+    /**
+     * Writes the given process as UTF-8 encoded JSON to a stream.
+     * The stream is flushed but not closed.
+     * @param process Process to serialize.
+     * @param out Stream to write the JSON document to.
+     * @param compact If set to <code>true</code>, the JSON will be encoded without unnecessary whitespaces.
+     * @throws IOException Failed to write to the given stream.
+     * @throws IllegalArgumentException The process contains unsupported nodes or conditions.
+     */
+    public static void writeAsJSON(Guide process, OutputStream out, boolean compact) throws IOException, IllegalArgumentException {
+        try (JsonGenerator generator = JSONUtils.FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            write(process, generator, compact);
+        }
+    }
+
+    /**
+     * Parses a JSON process string.
+     * @param jsonString Process in JSON representation.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException The given string is no valid JSON representation of a process.
+     */
+    public static Guide readFromJSON(String jsonString) throws IllegalArgumentException {
+        try (JsonParser parser = JSONUtils.FACTORY.createParser(jsonString)) {
+            return read(parser);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The given string is no valid JSON.", e);
+        }
+    }
+
+    /**
+     * Reads a JSON process document from a character stream.
+     * The reader is not closed.
+     * @param in Reader providing the process in JSON representation.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException Failed to read the stream or the document is no valid JSON representation of a process.
+     */
+    public static Guide readFromJSON(Reader in) throws IllegalArgumentException {
+        try (JsonParser parser = JSONUtils.FACTORY.createParser(in)) {
+            return read(parser);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to read JSON process.", e);
+        }
+    }
+
+    /**
+     * Reads a JSON process document from a stream.
+     * The stream is not closed.
+     * @param in Stream providing the process in JSON representation. The encoding is detected from the document.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException Failed to read the stream or the document is no valid JSON representation of a process.
+     */
+    public static Guide readFromJSON(InputStream in) throws IllegalArgumentException {
+        try (JsonParser parser = JSONUtils.FACTORY.createParser(in)) {
+            return read(parser);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to read JSON process.", e);
+        }
+    }
+
+    private static void write(Guide process, JsonGenerator generator, boolean compact) throws IOException {
+        if (!compact) generator.useDefaultPrettyPrinter();
+        generator.writeStartObject();
+        generator.writeStringField("id", process.getId());
+        writeMetadata(generator, process.getMetadata());
+
+        List<Tansition> flows = new ArrayList<>();
+        generator.writeArrayFieldStart("nodes");
+        for (Node<?> node : process.getNodes()) {
+            generator.writeStartObject();
+            if (node instanceof GuideStart) {
+                generator.writeStringField("type", NODE_START);
+            } else if (node instanceof GuideEnd) {
+                generator.writeStringField("type", NODE_END);
+            } else if (node instanceof Step) {
+                generator.writeStringField("type", NODE_STEP);
+            } else if (node instanceof Chapter) {
+                generator.writeStringField("type", NODE_CHAPTER);
+            } else if (node instanceof Branch) {
+                generator.writeStringField("type", NODE_BRANCH);
+            } else {
+                throw new IllegalArgumentException("Unsupported node type: " + node);
+            }
+            generator.writeStringField("id", node.getId());
+            writeOptionalString(generator, "name", node.getName());
+            if (node instanceof Chapter) {
+                generator.writeStringField("calledProcessId", ((Chapter) node).getCalledProcessId());
+            }
+            writeMetadata(generator, node.getMetadata());
+            writeContent(generator, node.getContent());
+            generator.writeEndObject();
+            flows.addAll(node.getOutgoing());
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("flows");
+        for (Tansition flow : flows) {
+            generator.writeStartObject();
+            generator.writeStringField("type", flow instanceof Decision ? FLOW_DECISION : FLOW_TRANSITION);
+            generator.writeStringField("id", flow.getId());
+            generator.writeStringField("source", flow.getSource().getId());
+            generator.writeStringField("target", flow.getTarget().getId());
+            if (flow instanceof Decision) {
+                Decision decision = (Decision) flow;
+                writeMap(generator, "displays", decision.getDisplays());
+                writeCondition(generator, decision.getCondition());
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private static void writeOptionalString(JsonGenerator generator, String fieldName, String value) throws IOException {
+        if (value != null) generator.writeStringField(fieldName, value);
+    }
+
+    private static void writeMap(JsonGenerator generator, String fieldName, Map<String, String> map) throws IOException {
+        if (map == null || map.isEmpty()) return;
+        generator.writeObjectFieldStart(fieldName);
+        for (Entry<String, String> entry : map.entrySet()) {
+            generator.writeStringField(entry.getKey(), entry.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeCondition(JsonGenerator generator, Condition condition) throws IOException {
+        generator.writeObjectFieldStart("condition");
+        generator.writeStringField("type", condition.getType());
+        writeOptionalString(generator, "key", condition.getKey());
+        switch (condition.getType()) {
+        case EqualsCondition.TYPE:
+            writeOptionalString(generator, "value", ((EqualsCondition) condition).getValue());
+            break;
+        default:
+            throw new IllegalArgumentException("Unsupported condition type: " + condition);
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeMetadata(JsonGenerator generator, MetadataAnnotation metadata) throws IOException {
+        if (metadata == null) return;
+        generator.writeObjectFieldStart("metadata");
+        writeMap(generator, "titles", metadata.getTitles());
+        writeMap(generator, "descriptions", metadata.getDescriptions());
+        Date lastUpdate = metadata.getLastUpdate();
+        if (lastUpdate != null) {
+            generator.writeStringField("lastUpdate", ISODateTimeFormat.dateTime().print(new DateTime(lastUpdate)));
+        }
+        writeOptionalString(generator, "vrScene", metadata.getVRScene());
+        writeMap(generator, "vrSceneParams", metadata.getVRSceneParameters());
+        generator.writeEndObject();
+    }
+
+    private static void writeContent(JsonGenerator generator, ContentAnnotation content) throws IOException {
+        if (content == null) return;
+        generator.writeObjectFieldStart("content");
+        writeMap(generator, "packages", content.getContentPackages());
+        Map<String, List<String>> warnings = content.getWarnings();
+        if (!warnings.isEmpty()) {
+            generator.writeObjectFieldStart("warnings");
+            for (Entry<String, List<String>> entry : warnings.entrySet()) {
+                generator.writeArrayFieldStart(entry.getKey());
+                for (String warning : entry.getValue()) {
+                    generator.writeString(warning);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+        if (!content.getTools().isEmpty()) {
+            generator.writeArrayFieldStart("tools");
+            for (ToolAnnotation tool : content.getTools()) {
+                generator.writeStartObject();
+                generator.writeStringField("id", tool.getId());
+                writeMap(generator, "params", tool.getParameteres());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        SceneAnnotation scene = content.getScene();
+        if (scene != null) {
+            generator.writeObjectFieldStart("scene");
+            writeOptionalString(generator, "nodeId", scene.getNodeId());
+            writeMap(generator, "nodeParams", scene.getNodeParameters());
+            writeOptionalString(generator, "methodId", scene.getMethodId());
+            writeMap(generator, "methodParams", scene.getMethodParameters());
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Flow read from the document. Flows are registered at their nodes after all nodes are known.
+     */
+    private static class FlowRecord {
+        private String type = FLOW_TRANSITION;
+        private String id;
+        private String sourceId;
+        private String targetId;
+        private Map<String, String> displays = new LinkedHashMap<>();
+        private Condition condition;
+    }
+
+    private static Guide read(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Invalid JSON process: Expected an object.");
+        }
+        String id = null;
+        MetadataAnnotation metadata = null;
+        Map<String, Node<?>> nodes = new LinkedHashMap<>();
+        List<FlowRecord> flows = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+            case "id":
+                id = readString(parser);
+                break;
+            case "metadata":
+                metadata = readMetadata(parser);
+                break;
+            case "nodes":
+                expect(parser, JsonToken.START_ARRAY, fieldName);
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    Node<?> node = readNode(parser);
+                    if (nodes.put(node.getId(), node) != null) {
+                        throw new IllegalArgumentException("Invalid JSON process: Duplicate node id " + node.getId() + ".");
+                    }
+                }
+                break;
+            case "flows":
+                expect(parser, JsonToken.START_ARRAY, fieldName);
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    flows.add(readFlow(parser));
+                }
+                break;
+            default:
+                if (token.isStructStart()) parser.skipChildren();
+            }
+        }
+        if (id == null || id.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing required [id].");
+        }
+
+        for (FlowRecord record : flows) {
+            Node<?> source = getNode(nodes, record.sourceId, record.id);
+            Node<?> target = getNode(nodes, record.targetId, record.id);
+            Tansition flow;
+            switch (record.type) {
+            case FLOW_TRANSITION:
+                flow = new Tansition(record.id, source, target);
+                break;
+            case FLOW_DECISION:
+                if (record.condition == null) {
+                    throw new IllegalArgumentException("Invalid JSON process: Decision " + record.id + " has no condition.");
+                }
+                flow = new Decision(record.id, source, target, record.displays, record.condition);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported flow type: " + record.type);
+            }
+            source.addOutgoing(flow);
+            target.addIncoming(flow);
+        }
+
+        Guide guide = new Guide(id, nodes);
+        if (metadata != null) {
+            guide.setMetadataWithoutUpdate(metadata);
+        }
+        return guide;
+    }
+
+    private static Node<?> getNode(Map<String, Node<?>> nodes, String nodeId, String flowId) {
+        Node<?> node = nodes.get(nodeId);
+        if (node == null) {
+            throw new IllegalArgumentException("Invalid JSON process: Flow " + flowId + " references unknown node " + nodeId + ".");
+        }
+        return node;
+    }
+
+    private static void expect(JsonParser parser, JsonToken expected, String fieldName) {
+        if (parser.getCurrentToken() != expected) {
+            throw new IllegalArgumentException("Invalid JSON process: Unexpected " + parser.getCurrentToken() + " for [" + fieldName + "].");
+        }
+    }
+
+    private static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (!token.isScalarValue()) {
+            throw new IllegalArgumentException("Invalid JSON process: Expected a string for [" + parser.getCurrentName() + "].");
+        }
+        return parser.getText();
+    }
+
+    private static String readRequiredString(String value, String fieldName) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing required [" + fieldName + "].");
+        }
+        return value;
+    }
+
+    private static Map<String, String> readMap(JsonParser parser) throws IOException {
+        Map<String, String> map = new LinkedHashMap<>();
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) return map;
+        expect(parser, JsonToken.START_OBJECT, parser.getCurrentName());
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            parser.nextToken();
+            map.put(key, readString(parser));
+        }
+        return map;
+    }
+
+    private static Node<?> readNode(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT, "nodes");
+        String type = null;
+        String nodeId = null;
+        String name = null;
+        String calledProcessId = null;
+        MetadataAnnotation metadata = null;
+        ContentAnnotation content = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+            case "type":
+                type = readString(parser);
+                break;
+            case "id":
+                nodeId = readString(parser);
+                break;
+            case "name":
+                name = readString(parser);
+                break;
+            case "calledProcessId":
+                calledProcessId = readString(parser);
+                break;
+            case "metadata":
+                metadata = readMetadata(parser);
+                break;
+            case "content":
+                content = readContent(parser);
+                break;
+            default:
+                if (token.isStructStart()) parser.skipChildren();
+            }
+        }
+        readRequiredString(type, "type");
+        readRequiredString(nodeId, "id");
+
+        Node<?> node;
+        switch (type) {
+        case NODE_START:
+            node = new GuideStart(nodeId);
+            break;
+        case NODE_END:
+            node = new GuideEnd(nodeId);
+            break;
+        case NODE_STEP:
+            node = new Step(nodeId);
+            break;
+        case NODE_CHAPTER:
+            node = new Chapter(nodeId, readRequiredString(calledProcessId, "calledProcessId"));
+            break;
+        case NODE_BRANCH:
+            node = new Branch(nodeId);
+            break;
+        default:
+            throw new IllegalArgumentException("Unsupported node type: " + type);
+        }
+        node.setName(name);
+        if (metadata != null) node.setMetadata(metadata);
+        if (content != null) node.setContent(content);
+        return node;
+    }
+
+    private static FlowRecord readFlow(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT, "flows");
+        FlowRecord record = new FlowRecord();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+            case "type":
+                record.type = readRequiredString(readString(parser), fieldName);
+                break;
+            case "id":
+                record.id = readString(parser);
+                break;
+            case "source":
+                record.sourceId = readString(parser);
+                break;
+            case "target":
+                record.targetId = readString(parser);
+                break;
+            case "displays":
+                record.displays = readMap(parser);
+                break;
+            case "condition":
+                record.condition = readCondition(parser);
+                break;
+            default:
+                if (token.isStructStart()) parser.skipChildren();
+            }
+        }
+        readRequiredString(record.id, "id");
+        readRequiredString(record.sourceId, "source");
+        readRequiredString(record.targetId, "target");
+        return record;
+    }
+
+    private static Condition readCondition(JsonParser parser) throws IOException {
+        Map<String, String> fields = readMap(parser);
+        String type = readRequiredString(fields.get("type"), "type");
+        switch (type) {
+        case EqualsCondition.TYPE:
+            return new EqualsCondition(fields.get("key"), fields.get("value"));
+        default:
+            throw new IllegalArgumentException("Unsupported condition type: " + type);
+        }
+    }
+
+    private static MetadataAnnotation readMetadata(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) return null;
+        expect(parser, JsonToken.START_OBJECT, "metadata");
+        MetadataAnnotation metadata = new MetadataAnnotation();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+            case "titles":
+                for (Entry<String, String> entry : readMap(parser).entrySet()) {
+                    metadata.setTitle(entry.getKey(), entry.getValue());
+                }
+                break;
+            case "descriptions":
+                for (Entry<String, String> entry : readMap(parser).entrySet()) {
+                    metadata.setDescription(entry.getKey(), entry.getValue());
+                }
+                break;
+            case "lastUpdate":
+                String lastUpdateString = readString(parser);
+                if (lastUpdateString != null) {
+                    try {
+                        metadata.setLastUpdate(ISODateTimeFormat.dateTime().parseDateTime(lastUpdateString).toDate());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Invalid JSON process: Malformed [lastUpdate].", e);
+                    }
+                }
+                break;
+            case "vrScene":
+                String vrSceneId = readString(parser);
+                if (vrSceneId != null) metadata.setVRScene(vrSceneId);
+                break;
+            case "vrSceneParams":
+                metadata.getVRSceneParameters().putAll(readMap(parser));
+                break;
+            default:
+                if (token.isStructStart()) parser.skipChildren();
+            }
+        }
+        return metadata;
+    }
+
+    private static ContentAnnotation readContent(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) return null;
+        expect(parser, JsonToken.START_OBJECT, "content");
+        ContentAnnotation content = new ContentAnnotation();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+            case "packages":
+                for (Entry<String, String> entry : readMap(parser).entrySet()) {
+                    content.setContentPackage(entry.getKey(), entry.getValue());
+                }
+                break;
+            case "warnings":
+                expect(parser, JsonToken.START_OBJECT, fieldName);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String languageId = parser.getCurrentName();
+                    parser.nextToken();
+                    expect(parser, JsonToken.START_ARRAY, fieldName);
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        content.addWarning(languageId, readString(parser));
+                    }
+                }
+                break;
+            case "tools":
+                expect(parser, JsonToken.START_ARRAY, fieldName);
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    content.addTool(readTool(parser));
+                }
+                break;
+            case "scene":
+                content.setScene(readScene(parser));
+                break;
+            default:
+                if (token.isStructStart()) parser.skipChildren();
+            }
+        }
+        return content;
+    }
+
+    private static ToolAnnotation readTool(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT, "tools");
+        String toolId = null;
+        Map<String, String> parameters = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+            case "id":
+                toolId = readString(parser);
+                break;
+            case "params":
+                parameters = readMap(parser);
+                break;
+            default:
+                if (token.isStructStart()) parser.skipChildren();
+            }
+        }
+        ToolAnnotation tool = new ToolAnnotation(toolId);
+        if (parameters != null) tool.getParameteres().putAll(parameters);
+        return tool;
+    }
+
+    private static SceneAnnotation readScene(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) return null;
+        expect(parser, JsonToken.START_OBJECT, "scene");
+        String nodeId = null;
+        String methodId = null;
+        Map<String, String> nodeParameters = new LinkedHashMap<>();
+        Map<String, String> methodParameters = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+            case "nodeId":
+                nodeId = readString(parser);
+                break;
+            case "nodeParams":
+                nodeParameters = readMap(parser);
+                break;
+            case "methodId":
+                methodId = readString(parser);
+                break;
+            case "methodParams":
+                methodParameters = readMap(parser);
+                break;
+            default:
+                if (token.isStructStart()) parser.skipChildren();
+            }
+        }
+        SceneAnnotation scene = new SceneAnnotation(nodeId);
+        scene.setNodeParameters(nodeParameters);
+        if (methodId != null) {
+            scene.setMethod(methodId, methodParameters);
+        } else {
+            scene.getMethodParameters().putAll(methodParameters);
+        }
+        return scene;
+    }
+}
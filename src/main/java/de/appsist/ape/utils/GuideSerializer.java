@@ -1,8 +1,19 @@
 package de.glassroom.gpe.utils;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -10,11 +21,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
 import org.jdom2.Namespace;
-import org.jdom2.input.SAXBuilder;
 import org.jdom2.output.Format;
 import org.joda.time.DateTime;
 import org.joda.time.format.ISODateTimeFormat;
@@ -27,6 +39,7 @@ import de.glassroom.gpe.EqualsCondition;
 import de.glassroom.gpe.Guide;
 import de.glassroom.gpe.GuideEnd;
 import de.glassroom.gpe.GuideStart;
+import de.glassroom.gpe.GuideSummary;
 import de.glassroom.gpe.Node;
 import de.glassroom.gpe.Step;
 import de.glassroom.gpe.Tansition;
@@ -34,29 +47,155 @@ import de.glassroom.gpe.annotations.ContentAnnotation;
 import de.glassroom.gpe.annotations.MetadataAnnotation;
 import de.glassroom.gpe.annotations.SceneAnnotation;
 import de.glassroom.gpe.annotations.ToolAnnotation;
+import de.glassroom.gpe.metrics.JFREvents;
+import de.glassroom.gpe.metrics.Metric;
+import de.glassroom.gpe.metrics.Metrics;
 import de.glassroom.gpe.misc.Namespaces;
+import de.glassroom.gpe.utils.CountingStreams.CountingInputStream;
+import de.glassroom.gpe.utils.CountingStreams.CountingOutputStream;
+import de.glassroom.gpe.utils.CountingStreams.CountingReader;
+import de.glassroom.gpe.utils.CountingStreams.CountingWriter;
 
 /**
  * Serializes and deserializes a process in BPMN representation.
  * @author simon.schwantzer(at)im-c.de
  */
 public final class GuideSerializer {
-    private static SAXBuilder saxBuilder;
+    /** Minimum number of nodes of a process to serialize its nodes in chunks concurrently. The output does not depend on it. */
+    public static final int PARALLEL_WRITE_THRESHOLD = ParallelBPMNWriter.THRESHOLD;
+    /** Default attributes of BPMN elements. The iteration order determines the order of the attributes in the output. */
+    static final Map<String, String> PROCESS_ATTRIBUTES = defaultAttributes("isExecutable", "true");
+    static final Map<String, String> START_EVENT_ATTRIBUTES = defaultAttributes("isInterrupting", "true", "parallelMultiple", "false");
+    static final Map<String, String> USER_TASK_ATTRIBUTES = defaultAttributes("completionQuantity", "1", "startQuantity", "1", "isForCompensation", "false", "implementation", "##unspecified");
+    static final Map<String, String> CALL_ACTIVITY_ATTRIBUTES = defaultAttributes("completionQuantity", "1", "startQuantity", "1", "isForCompensation", "false");
+    static final Map<String, String> GATEWAY_ATTRIBUTES = defaultAttributes("gatewayDirection", "Diverging");
     
-    static {
-        saxBuilder = new SAXBuilder();
+    private static Map<String, String> defaultAttributes(String... keysAndValues) {
+        Map<String, String> attributes = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            attributes.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return Collections.unmodifiableMap(attributes);
     }
     
     /**
      * Serializes the given assistance process as BPMN process.
+     * Processes with at least {@link #PARALLEL_WRITE_THRESHOLD} nodes are rendered in chunks concurrently.
      * @param process Process to serialize.
      * @param compact If set to <code>true</code>, the XML will be encoded without unnecessary whitespaces.
      * @return BPMN process XML String.
      */
     public static String writeAsBPMN(Guide process, boolean compact) {
-        Element processElement = serializeAssistanceProcess(process);
-        
-        return XMLUtils.exportAsString(processElement, compact ? Format.getCompactFormat() : Format.getPrettyFormat());
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.GUIDE_WRITE);
+        String bpmn;
+        if (ParallelBPMNWriter.isParallel(process)) {
+            StringWriter out = new StringWriter();
+            try {
+                ParallelBPMNWriter.write(process, out, compact);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to write to memory.", e);
+            }
+            bpmn = out.toString();
+        } else {
+            Element processElement = serializeAssistanceProcess(process);
+            bpmn = XMLUtils.exportAsString(processElement, compact ? Format.getCompactFormat() : Format.getPrettyFormat());
+        }
+        if (startTime != Metrics.NOT_STARTED || event != null) recordWrite(startTime, event, process, bpmn.length());
+        return bpmn;
+    }
+    
+    /**
+     * Writes the given assistance process as BPMN process to a character stream.
+     * The process is written element by element, without creating an XML tree or a string of the complete document.
+     * The output is identical to the one of {@link #writeAsBPMN(Guide, boolean)}. The writer is flushed but not closed.
+     * Processes with at least {@link #PARALLEL_WRITE_THRESHOLD} nodes are rendered in chunks concurrently.
+     * @param process Process to serialize.
+     * @param out Writer to write the BPMN process XML to.
+     * @param compact If set to <code>true</code>, the XML will be encoded without unnecessary whitespaces.
+     * @throws IOException Failed to write to the given writer.
+     */
+    public static void writeAsBPMN(Guide process, Writer out, boolean compact) throws IOException {
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.GUIDE_WRITE);
+        CountingWriter counter = startTime != Metrics.NOT_STARTED || event != null ? new CountingWriter(out) : null;
+        Writer target = counter != null ? counter : out;
+        if (ParallelBPMNWriter.isParallel(process)) {
+            ParallelBPMNWriter.write(process, target, compact);
+        } else {
+            new BPMNStreamWriter(target, compact).writeProcess(process);
+        }
+        out.flush();
+        if (counter != null) recordWrite(startTime, event, process, counter.count);
+    }
+    
+    /**
+     * Writes the given assistance process as UTF-8 encoded BPMN process to a stream.
+     * The output is identical to the UTF-8 encoding of {@link #writeAsBPMN(Guide, boolean)}. The stream is flushed but not closed.
+     * Processes with at least {@link #PARALLEL_WRITE_THRESHOLD} nodes are rendered and encoded in chunks concurrently.
+     * @param process Process to serialize.
+     * @param out Stream to write the BPMN process XML to.
+     * @param compact If set to <code>true</code>, the XML will be encoded without unnecessary whitespaces.
+     * @throws IOException Failed to write to the given stream.
+     */
+    public static void writeAsBPMN(Guide process, OutputStream out, boolean compact) throws IOException {
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.GUIDE_WRITE);
+        CountingOutputStream counter = startTime != Metrics.NOT_STARTED || event != null ? new CountingOutputStream(out) : null;
+        OutputStream target = counter != null ? counter : out;
+        if (ParallelBPMNWriter.isParallel(process)) {
+            ParallelBPMNWriter.write(process, target, compact);
+        } else {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8));
+            new BPMNStreamWriter(writer, compact).writeProcess(process);
+            writer.flush();
+        }
+        out.flush();
+        if (counter != null) recordWrite(startTime, event, process, counter.count);
+    }
+    
+    /**
+     * Serializes multiple processes as BPMN definitions document.
+     * @param definitions Definitions containing the processes to serialize.
+     * @param compact If set to <code>true</code>, the XML will be encoded without unnecessary whitespaces.
+     * @return BPMN definitions XML String.
+     * @throws IllegalArgumentException A process contains unsupported nodes or conditions.
+     */
+    public static String writeAsBPMN(BPMNDefinitions definitions, boolean compact) throws IllegalArgumentException {
+        StringWriter out = new StringWriter();
+        try {
+            new BPMNStreamWriter(out, compact).writeDefinitions(definitions);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write to memory.", e);
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Writes multiple processes as BPMN definitions document to a character stream.
+     * Each process is written as by {@link #writeAsBPMN(Guide, Writer, boolean)}. The writer is flushed but not closed.
+     * @param definitions Definitions containing the processes to serialize.
+     * @param out Writer to write the BPMN definitions XML to.
+     * @param compact If set to <code>true</code>, the XML will be encoded without unnecessary whitespaces.
+     * @throws IOException Failed to write to the given writer.
+     * @throws IllegalArgumentException A process contains unsupported nodes or conditions.
+     */
+    public static void writeAsBPMN(BPMNDefinitions definitions, Writer out, boolean compact) throws IOException, IllegalArgumentException {
+        new BPMNStreamWriter(out, compact).writeDefinitions(definitions);
+        out.flush();
+    }
+    
+    /**
+     * Writes multiple processes as UTF-8 encoded BPMN definitions document to a stream.
+     * The stream is flushed but not closed.
+     * @param definitions Definitions containing the processes to serialize.
+     * @param out Stream to write the BPMN definitions XML to.
+     * @param compact If set to <code>true</code>, the XML will be encoded without unnecessary whitespaces.
+     * @throws IOException Failed to write to the given stream.
+     * @throws IllegalArgumentException A process contains unsupported nodes or conditions.
+     */
+    public static void writeAsBPMN(BPMNDefinitions definitions, OutputStream out, boolean compact) throws IOException, IllegalArgumentException {
+        writeAsBPMN(definitions, new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), compact);
     }
     
     /**
@@ -66,21 +205,253 @@ public final class GuideSerializer {
      * @throws IllegalArgumentException Failed to parse XML string. 
      */
     public static Guide readFromBPMN(String processString) throws IllegalArgumentException {
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.GUIDE_READ);
         Element processElement;
         try {
-            Document doc = saxBuilder.build(new StringReader(processString));
+            Document doc = XMLUtils.buildDocument(new StringReader(processString));
             processElement = doc.getRootElement();
-            if (!"process".equals(processElement.getName())) {
-                throw new IllegalArgumentException("Invalid process string: Route element does not match \"process\".");
-            }
         } catch (JDOMException|IOException e) {
             throw new IllegalArgumentException("Failed to parse process string.", e);
         }
         
-        return parseProcess(processElement);
-        
+        Guide process = readFromBPMN(processElement);
+        if (startTime != Metrics.NOT_STARTED || event != null) recordRead(startTime, event, process, processString.length());
+        return process;
+    }
+    
+    /**
+     * Reads a BPMN process document from a stream.
+     * The document is read in a single pass without building a DOM, which is faster and needs less memory for large processes.
+     * The stream is not closed.
+     * @param in Stream providing the BPMN process in XML representation. The encoding is detected from the document.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException Failed to read the stream or the document is no valid BPMN process.
+     */
+    public static Guide readFromBPMN(InputStream in) throws IllegalArgumentException {
+        return readFromBPMN(in, false);
     }
     
+    /**
+     * Reads a BPMN process document from a stream, optionally without decoding the annotations of the nodes.
+     * In lazy mode, the extension elements of each node are kept undecoded and the metadata and content annotations are decoded on the
+     * first call of {@link Node#getMetadata()}, {@link Node#getContent()} or a setter of the node. Invalid annotations are only detected
+     * then, causing an {@link IllegalStateException}. Undecoded annotations are written as they have been read, including
+     * extension elements which are otherwise dropped. The annotations of the process and of flows are always decoded.
+     * The stream is not closed.
+     * @param in Stream providing the BPMN process in XML representation. The encoding is detected from the document.
+     * @param lazyAnnotations If set to <code>true</code>, the annotations of nodes are decoded on first access.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException Failed to read the stream or the document is no valid BPMN process.
+     */
+    public static Guide readFromBPMN(InputStream in, boolean lazyAnnotations) throws IllegalArgumentException {
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.GUIDE_READ);
+        CountingInputStream counter = startTime != Metrics.NOT_STARTED || event != null ? new CountingInputStream(in) : null;
+        try {
+            Guide process = BPMNStreamReader.readDocument(XMLUtils.createStreamReader(counter != null ? counter : in), lazyAnnotations);
+            if (counter != null) recordRead(startTime, event, process, counter.count);
+            return process;
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse process string.", e);
+        }
+    }
+    
+    /**
+     * Reads a BPMN process document from a character stream.
+     * The document is read in a single pass without building a DOM, which is faster and needs less memory for large processes.
+     * The reader is not closed.
+     * @param in Reader providing the BPMN process in XML representation.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException Failed to read the stream or the document is no valid BPMN process.
+     */
+    public static Guide readFromBPMN(Reader in) throws IllegalArgumentException {
+        return readFromBPMN(in, false);
+    }
+    
+    /**
+     * Reads a BPMN process document from a character stream, optionally without decoding the annotations of the nodes.
+     * See {@link #readFromBPMN(InputStream, boolean)} for the lazy mode. The reader is not closed.
+     * @param in Reader providing the BPMN process in XML representation.
+     * @param lazyAnnotations If set to <code>true</code>, the annotations of nodes are decoded on first access.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException Failed to read the stream or the document is no valid BPMN process.
+     */
+    public static Guide readFromBPMN(Reader in, boolean lazyAnnotations) throws IllegalArgumentException {
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.GUIDE_READ);
+        CountingReader counter = startTime != Metrics.NOT_STARTED || event != null ? new CountingReader(in) : null;
+        try {
+            Guide process = BPMNStreamReader.readDocument(XMLUtils.createStreamReader(counter != null ? counter : in), lazyAnnotations);
+            if (counter != null) recordRead(startTime, event, process, counter.count);
+            return process;
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse process string.", e);
+        }
+    }
+    
+    /**
+     * Reads a BPMN definitions document containing multiple processes in a single pass.
+     * A document with a process as root element is read as definitions containing only this process.
+     * The stream is not closed.
+     * @param in Stream providing the BPMN definitions in XML representation. The encoding is detected from the document.
+     * @return Definitions containing the deserialized processes in the order of the document.
+     * @throws IllegalArgumentException Failed to read the stream, the document contains an invalid process or multiple processes with the same identifier.
+     */
+    public static BPMNDefinitions readDefinitionsFromBPMN(InputStream in) throws IllegalArgumentException {
+        try {
+            return BPMNStreamReader.readDefinitionsDocument(XMLUtils.createStreamReader(in));
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse definitions string.", e);
+        }
+    }
+    
+    /**
+     * Reads a BPMN definitions document containing multiple processes in a single pass.
+     * A document with a process as root element is read as definitions containing only this process.
+     * The reader is not closed.
+     * @param in Reader providing the BPMN definitions in XML representation.
+     * @return Definitions containing the deserialized processes in the order of the document.
+     * @throws IllegalArgumentException Failed to read the stream, the document contains an invalid process or multiple processes with the same identifier.
+     */
+    public static BPMNDefinitions readDefinitionsFromBPMN(Reader in) throws IllegalArgumentException {
+        try {
+            return BPMNStreamReader.readDefinitionsDocument(XMLUtils.createStreamReader(in));
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse definitions string.", e);
+        }
+    }
+    
+    /**
+     * Reads a BPMN process document from a stream and validates it against the BPMN 2.0 schema with glassroom extensions.
+     * The document is validated while it is read, see {@link BPMNSchema}. The stream is not closed.
+     * @param in Stream providing the BPMN process in XML representation. The encoding is detected from the document.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException Failed to read the stream or the document is no valid BPMN process.
+     */
+    public static Guide readValidatedFromBPMN(InputStream in) throws IllegalArgumentException {
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.GUIDE_READ);
+        CountingInputStream counter = startTime != Metrics.NOT_STARTED || event != null ? new CountingInputStream(in) : null;
+        try {
+            Guide process = BPMNStreamReader.readDocument(BPMNSchema.createValidatingReader(XMLUtils.createStreamReader(counter != null ? counter : in)), false);
+            if (counter != null) recordRead(startTime, event, process, counter.count);
+            return process;
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse process string.", e);
+        }
+    }
+    
+    /**
+     * Reads a BPMN process document from a character stream and validates it against the BPMN 2.0 schema with glassroom extensions.
+     * The document is validated while it is read, see {@link BPMNSchema}. The reader is not closed.
+     * @param in Reader providing the BPMN process in XML representation.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException Failed to read the stream or the document is no valid BPMN process.
+     */
+    public static Guide readValidatedFromBPMN(Reader in) throws IllegalArgumentException {
+        long startTime = Metrics.startTime();
+        Object event = JFREvents.begin(JFREvents.Type.GUIDE_READ);
+        CountingReader counter = startTime != Metrics.NOT_STARTED || event != null ? new CountingReader(in) : null;
+        try {
+            Guide process = BPMNStreamReader.readDocument(BPMNSchema.createValidatingReader(XMLUtils.createStreamReader(counter != null ? counter : in)), false);
+            if (counter != null) recordRead(startTime, event, process, counter.count);
+            return process;
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse process string.", e);
+        }
+    }
+    
+    /**
+     * Reads a BPMN definitions document and validates it against the BPMN 2.0 schema with glassroom extensions.
+     * The document is validated while it is read, see {@link BPMNSchema}. The stream is not closed.
+     * @param in Stream providing the BPMN definitions in XML representation. The encoding is detected from the document.
+     * @return Definitions containing the deserialized processes in the order of the document.
+     * @throws IllegalArgumentException Failed to read the stream, the document is not valid or contains multiple processes with the same identifier.
+     */
+    public static BPMNDefinitions readValidatedDefinitionsFromBPMN(InputStream in) throws IllegalArgumentException {
+        try {
+            return BPMNStreamReader.readDefinitionsDocument(BPMNSchema.createValidatingReader(XMLUtils.createStreamReader(in)));
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse definitions string.", e);
+        }
+    }
+    
+    /**
+     * Reads the summary of a BPMN process document from a stream.
+     * Only the process element and its extension elements are read, the nodes and flows are neither parsed nor created.
+     * The stream is not closed and may not be read to its end.
+     * @param in Stream providing the BPMN process in XML representation. The encoding is detected from the document.
+     * @return Summary containing the identifier, the titles, the descriptions and the last update of the process.
+     * @throws IllegalArgumentException Failed to read the stream or the document is no valid BPMN process.
+     */
+    public static GuideSummary readSummaryFromBPMN(InputStream in) throws IllegalArgumentException {
+        try {
+            return BPMNStreamReader.readSummaryDocument(XMLUtils.createStreamReader(in));
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse process string.", e);
+        }
+    }
+    
+    /**
+     * Reads the summary of a BPMN process document from a character stream.
+     * Only the process element and its extension elements are read, the nodes and flows are neither parsed nor created.
+     * The reader is not closed and may not be read to its end.
+     * @param in Reader providing the BPMN process in XML representation.
+     * @return Summary containing the identifier, the titles, the descriptions and the last update of the process.
+     * @throws IllegalArgumentException Failed to read the stream or the document is no valid BPMN process.
+     */
+    public static GuideSummary readSummaryFromBPMN(Reader in) throws IllegalArgumentException {
+        try {
+            return BPMNStreamReader.readSummaryDocument(XMLUtils.createStreamReader(in));
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Failed to parse process string.", e);
+        }
+    }
+    
+    /**
+     * Reads the summary of a BPMN process file.
+     * Only the process element and its extension elements are read, the nodes and flows are neither parsed nor created.
+     * @param file BPMN process file.
+     * @return Summary containing the identifier, the titles, the descriptions and the last update of the process.
+     * @throws IOException Failed to open the file.
+     * @throws IllegalArgumentException Failed to read the file or the file is no valid BPMN process.
+     */
+    public static GuideSummary readSummaryFromBPMN(Path file) throws IOException, IllegalArgumentException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return readSummaryFromBPMN(in);
+        }
+    }
+    
+    /**
+     * Deserializes an already parsed BPMN process element.
+     * @param processElement Root element of a BPMN process document.
+     * @return Deserialized process.
+     * @throws IllegalArgumentException The given element is no valid BPMN process.
+     */
+    public static Guide readFromBPMN(Element processElement) throws IllegalArgumentException {
+        if (!"process".equals(processElement.getName())) {
+            throw new IllegalArgumentException("Invalid process string: Route element does not match \"process\".");
+        }
+        return parseProcess(processElement);
+    }
+
+    private static void recordRead(long startTime, Object event, Guide process, long size) {
+        if (startTime != Metrics.NOT_STARTED) {
+            Metrics.recordTime(Metric.BPMN_READ_TIME, startTime);
+            Metrics.record(Metric.BPMN_READ_SIZE, size);
+        }
+        JFREvents.commitGuide(event, process.getId(), process.getNodeCount(), size);
+    }
+
+    private static void recordWrite(long startTime, Object event, Guide process, long size) {
+        if (startTime != Metrics.NOT_STARTED) {
+            Metrics.recordTime(Metric.BPMN_WRITE_TIME, startTime);
+            Metrics.record(Metric.BPMN_WRITE_SIZE, size);
+        }
+        JFREvents.commitGuide(event, process.getId(), process.getNodeCount(), size);
+    }
+
     private static Guide parseProcess(Element element) throws IllegalArgumentException {
         String id = XMLUtils.getRequiredAttribute(element, "id");
                 
@@ -294,7 +665,7 @@ public final class GuideSerializer {
             String methodId = XMLUtils.getRequiredAttribute(methodElement, "id");
             Element methodParamsElement = methodElement.getChild("params", ns);
             Map<String, String> methodParameters = new LinkedHashMap<>();
-            if (methodParamsElement != null) for (Element paramElement : methodParamsElement.getChildren("params", ns)) {
+            if (methodParamsElement != null) for (Element paramElement : methodParamsElement.getChildren("param", ns)) {
                 String paramId = XMLUtils.getRequiredAttribute(paramElement, "id");
                 String paramValue = XMLUtils.getRequiredAttribute(paramElement, "value");
                 methodParameters.put(paramId, paramValue);
@@ -325,12 +696,7 @@ public final class GuideSerializer {
     private static Element serializeAssistanceProcess(Guide process) throws IllegalArgumentException {
         Element element = new Element("process", Namespaces.BPMN);
         
-        @SuppressWarnings("serial")
-        Map<String, String> defaultAttributes = new HashMap<String, String>() {{
-            put("isExecutable", "true");
-        }};
-        
-        for (Entry<String, String> entry : defaultAttributes.entrySet()) element.setAttribute(entry.getKey(), entry.getValue());
+        for (Entry<String, String> entry : PROCESS_ATTRIBUTES.entrySet()) element.setAttribute(entry.getKey(), entry.getValue());
         
         element.setAttribute("id", process.getId());
         
@@ -371,13 +737,7 @@ public final class GuideSerializer {
     private static Element serializeProcessStart(GuideStart processStart) {
         Element element = new Element("startEvent", Namespaces.BPMN);
         
-        @SuppressWarnings("serial")
-        Map<String, String> defaultAttributes = new HashMap<String, String>() {{
-            put("isInterrupting", "true");
-            put("parallelMultiple", "false");
-        }};
-        
-        for (Entry<String, String> entry : defaultAttributes.entrySet()) element.setAttribute(entry.getKey(), entry.getValue());
+        for (Entry<String, String> entry : START_EVENT_ATTRIBUTES.entrySet()) element.setAttribute(entry.getKey(), entry.getValue());
         
         element.setAttribute("id", processStart.getId());
         if (processStart.getName() != null) element.setAttribute("name", processStart.getName());
@@ -436,15 +796,7 @@ public final class GuideSerializer {
     private static Element serializeSupportedTask(Step task) {
         Element element = new Element("userTask", Namespaces.BPMN);
         
-        @SuppressWarnings("serial")
-        Map<String, String> defaultAttributes = new HashMap<String, String>() {{
-            put("completionQuantity", "1");
-            put("startQuantity", "1");
-            put("isForCompensation", "false");
-            put("implementation", "##unspecified");
-        }};
-        
-        for (Entry<String, String> entry : defaultAttributes.entrySet()) element.setAttribute(entry.getKey(), entry.getValue());
+        for (Entry<String, String> entry : USER_TASK_ATTRIBUTES.entrySet()) element.setAttribute(entry.getKey(), entry.getValue());
         
         element.setAttribute("id", task.getId());
         if (task.getName() != null) element.setAttribute("name", task.getName());
@@ -458,14 +810,7 @@ public final class GuideSerializer {
     private static Element serializeSubProcessCall(Chapter call) {
         Element element = new Element("callActivity", Namespaces.BPMN);
         
-        @SuppressWarnings("serial")
-        Map<String, String> defaultAttributes = new HashMap<String, String>() {{
-            put("completionQuantity", "1");
-            put("startQuantity", "1");
-            put("isForCompensation", "false");
-        }};
-        
-        for (Entry<String, String> entry : defaultAttributes.entrySet()) element.setAttribute(entry.getKey(), entry.getValue());
+        for (Entry<String, String> entry : CALL_ACTIVITY_ATTRIBUTES.entrySet()) element.setAttribute(entry.getKey(), entry.getValue());
         
         element.setAttribute("id", call.getId());
         if (call.getName() != null) element.setAttribute("name", call.getName());
@@ -480,12 +825,7 @@ public final class GuideSerializer {
     private static Element serializeGateway(Branch gateway) {
         Element element = new Element("exclusiveGateway", Namespaces.BPMN);
         
-        @SuppressWarnings("serial")
-        Map<String, String> defaultAttributes = new HashMap<String, String>() {{
-            put("gatewayDirection", "##Diverging");
-        }};
-        
-        for (Entry<String, String> entry : defaultAttributes.entrySet()) element.setAttribute(entry.getKey(), entry.getValue());
+        for (Entry<String, String> entry : GATEWAY_ATTRIBUTES.entrySet()) element.setAttribute(entry.getKey(), entry.getValue());
         
         element.setAttribute("id", gateway.getId());
         if (gateway.getName() != null) element.setAttribute("name", gateway.getName());
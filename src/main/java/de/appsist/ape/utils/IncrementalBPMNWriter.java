@@ -0,0 +1,231 @@
+package de.glassroom.gpe.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.Node;
+import de.glassroom.gpe.Tansition;
+import de.glassroom.gpe.event.GuideEvent;
+import de.glassroom.gpe.event.GuideListener;
+
+/**
+ * Writes a guide repeatedly as BPMN, re-rendering only the nodes which changed since the last write.
+ * <p>
+ * The UTF-8 encoded fragment of each node, i.e., its element followed by its outgoing flows, is cached. A fragment is rendered again if
+ * the node has been marked as dirty or if its incoming or outgoing flows changed. All other fragments are copied as they are.
+ * The process element with the guide metadata is small and rendered on every write. The output is identical to the UTF-8 encoding of
+ * {@link GuideSerializer#writeAsBPMN(Guide, boolean)}.
+ * </p>
+ * <p>
+ * Changes of names and annotations must be reported with {@link #markDirty(String)}. If the guide is managed by a guide manager,
+ * the writer can be registered as listener at its event bus to mark changed nodes automatically. Annotations modified in place,
+ * e.g., by changing the map returned by {@link de.glassroom.gpe.annotations.MetadataAnnotation#getTitles()}, are only detected if reported.
+ * </p>
+ */
+public final class IncrementalBPMNWriter implements GuideListener {
+    private final Guide guide;
+    private final boolean compact;
+    private final Set<String> dirtyNodeIds;
+    private final StringWriter buffer;
+    private final byte[] processEnd;
+    private Map<Node<?>, Fragment> fragments;
+    private boolean isAllDirty;
+    private int renderCount;
+
+    /**
+     * Cached fragment of a node with the flows it has been rendered with.
+     */
+    private static class Fragment {
+        private final byte[] bytes;
+        private final Tansition[] incoming;
+        private final Tansition[] outgoing;
+
+        private Fragment(byte[] bytes, Node<?> node) {
+            this.bytes = bytes;
+            this.incoming = node.getIncoming().toArray(new Tansition[0]);
+            this.outgoing = node.getOutgoing().toArray(new Tansition[0]);
+        }
+
+        private boolean hasSameFlows(Node<?> node) {
+            return isSame(incoming, node.getIncoming()) && isSame(outgoing, node.getOutgoing());
+        }
+
+        private static boolean isSame(Tansition[] flows, Collection<Tansition> currentFlows) {
+            if (flows.length != currentFlows.size()) return false;
+            int i = 0;
+            for (Tansition flow : currentFlows) {
+                if (flows[i++] != flow) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Creates a new incremental writer. No fragments are rendered before the first write.
+     * @param guide Guide to write.
+     * @param compact If set to <code>true</code>, the XML will be encoded without unnecessary whitespaces.
+     */
+    public IncrementalBPMNWriter(Guide guide, boolean compact) {
+        this.guide = guide;
+        this.compact = compact;
+        this.dirtyNodeIds = new HashSet<>();
+        this.buffer = new StringWriter();
+        this.fragments = new IdentityHashMap<>();
+        try {
+            BPMNStreamWriter writer = new BPMNStreamWriter(buffer, compact);
+            writer.resumeProcess();
+            writer.endProcess();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write to memory.", e);
+        }
+        this.processEnd = takeBuffer();
+    }
+
+    /**
+     * Returns the guide written by this writer.
+     * @return Guide.
+     */
+    public Guide getGuide() {
+        return guide;
+    }
+
+    /**
+     * Marks a node as changed, so its fragment is rendered again on the next write.
+     * @param nodeId Identifier of the changed node.
+     */
+    public synchronized void markDirty(String nodeId) {
+        dirtyNodeIds.add(nodeId);
+    }
+
+    /**
+     * Marks all nodes as changed.
+     */
+    public synchronized void markAllDirty() {
+        isAllDirty = true;
+    }
+
+    /**
+     * Marks the nodes affected by the events for the guide of this writer as changed.
+     */
+    @Override
+    public synchronized void guidesChanged(List<GuideEvent> events) {
+        for (GuideEvent event : events) {
+            if (!guide.getId().equals(event.getGuideId())) continue;
+            if (event.getNodeId() != null) {
+                dirtyNodeIds.add(event.getNodeId());
+            } else if (event.getType() == GuideEvent.Type.GUIDE_ADDED) {
+                isAllDirty = true;
+            }
+        }
+    }
+
+    /**
+     * Renders the fragments of all changed nodes.
+     * Fragments of nodes which have been removed from the guide are dropped.
+     * @return Number of rendered fragments.
+     * @throws IllegalArgumentException The guide contains unsupported nodes or conditions.
+     */
+    public synchronized int update() throws IllegalArgumentException {
+        List<Node<?>> nodes = guide.getNodes();
+        Map<Node<?>, Fragment> updatedFragments = new IdentityHashMap<>(nodes.size() * 2);
+        int rendered = 0;
+        for (Node<?> node : nodes) {
+            Fragment fragment = isAllDirty ? null : fragments.get(node);
+            if (fragment == null || dirtyNodeIds.contains(node.getId()) || !fragment.hasSameFlows(node)) {
+                fragment = render(node);
+                rendered++;
+            }
+            updatedFragments.put(node, fragment);
+        }
+        fragments = updatedFragments;
+        dirtyNodeIds.clear();
+        isAllDirty = false;
+        renderCount += rendered;
+        return rendered;
+    }
+
+    /**
+     * Writes the guide as UTF-8 encoded BPMN. Changed fragments are rendered before.
+     * The stream is neither flushed nor closed.
+     * @param out Stream to write to.
+     * @throws IOException Failed to write to the stream.
+     * @throws IllegalArgumentException The guide contains unsupported nodes or conditions.
+     */
+    public synchronized void write(OutputStream out) throws IOException, IllegalArgumentException {
+        List<Node<?>> nodes = guide.getNodes();
+        if (nodes.isEmpty()) {
+            // Without nodes, the process element may be written as empty element.
+            GuideSerializer.writeAsBPMN(guide, out, compact);
+            return;
+        }
+        update();
+        out.write(renderProcessStart());
+        for (Node<?> node : nodes) {
+            out.write(fragments.get(node).bytes);
+        }
+        out.write(processEnd);
+    }
+
+    /**
+     * Returns the guide as UTF-8 encoded BPMN. Changed fragments are rendered before.
+     * @return BPMN process XML.
+     * @throws IllegalArgumentException The guide contains unsupported nodes or conditions.
+     */
+    public synchronized byte[] toByteArray() throws IllegalArgumentException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write to memory.", e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the total number of fragments rendered by this writer.
+     * @return Number of rendered fragments.
+     */
+    public synchronized int getRenderCount() {
+        return renderCount;
+    }
+
+    private Fragment render(Node<?> node) {
+        try {
+            BPMNStreamWriter writer = new BPMNStreamWriter(buffer, compact);
+            writer.resumeProcess();
+            writer.writeNode(node);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write to memory.", e);
+        } catch (IllegalArgumentException e) {
+            buffer.getBuffer().setLength(0);
+            throw e;
+        }
+        return new Fragment(takeBuffer(), node);
+    }
+
+    private byte[] renderProcessStart() {
+        try {
+            new BPMNStreamWriter(buffer, compact).writeProcessStart(guide);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write to memory.", e);
+        }
+        return takeBuffer();
+    }
+
+    private byte[] takeBuffer() {
+        StringBuffer chars = buffer.getBuffer();
+        byte[] bytes = chars.toString().getBytes(StandardCharsets.UTF_8);
+        chars.setLength(0);
+        return bytes;
+    }
+}
@@ -0,0 +1,21 @@
+package de.glassroom.gpe.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Shared configuration for the streaming JSON serializers.
+ */
+final class JSONUtils {
+    /**
+     * Factory for all JSON generators and parsers. The factory is thread-safe and caches symbol tables and buffers between documents.
+     * Generators and parsers do not close the underlying streams unless enabled for the single instance.
+     */
+    static final JsonFactory FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private JSONUtils() {
+    }
+}
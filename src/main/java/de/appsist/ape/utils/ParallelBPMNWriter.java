@@ -0,0 +1,155 @@
+package de.glassroom.gpe.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.Node;
+
+/**
+ * BPMN writer rendering the nodes of a large process concurrently.
+ * <p>
+ * The node list is split into chunks. The nodes of each chunk and their outgoing flows are rendered into a separate buffer on a shared
+ * fork join pool. The buffers are written in the order of the chunks as soon as they are available, so the output is identical to the one
+ * of the sequential {@link BPMNStreamWriter}. Only a bounded number of chunks is rendered ahead of the one being written, so the memory
+ * required does not grow with the size of the process. The guide must not be modified while it is written.
+ * </p>
+ */
+final class ParallelBPMNWriter {
+    /** Minimum number of nodes of a process to be written in parallel. Smaller processes are written faster sequentially. */
+    static final int THRESHOLD = 10000;
+    private static final int MIN_CHUNK_SIZE = 1000;
+    private static final int MAX_CHUNK_SIZE = 10000;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static class PoolHolder {
+        private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    private interface ChunkRenderer<T> {
+        T render(List<Node<?>> nodes) throws IllegalArgumentException;
+    }
+
+    private interface ChunkConsumer<T> {
+        void accept(T chunk) throws IOException;
+    }
+
+    private ParallelBPMNWriter() {
+    }
+
+    /**
+     * Checks if a process is large enough to be written in parallel.
+     * @param process Process to write.
+     * @return <code>true</code> if the process should be written by this writer, otherwise <code>false</code>.
+     */
+    static boolean isParallel(Guide process) {
+        return process.getNodes().size() >= THRESHOLD;
+    }
+
+    /**
+     * Writes a process to a character stream. The stream is neither flushed nor closed.
+     * @param process Process to write. Must contain at least one node.
+     * @param out Character stream to write to.
+     * @param compact If set to <code>true</code>, the XML will be encoded without unnecessary whitespaces.
+     * @throws IOException Failed to write to the stream.
+     * @throws IllegalArgumentException The process contains unsupported nodes or conditions.
+     */
+    static void write(Guide process, final Writer out, final boolean compact) throws IOException, IllegalArgumentException {
+        new BPMNStreamWriter(out, compact).writeProcessStart(process);
+        writeChunks(process.getNodes(), new ChunkRenderer<String>() {
+            @Override
+            public String render(List<Node<?>> nodes) {
+                return ParallelBPMNWriter.render(nodes, compact);
+            }
+        }, new ChunkConsumer<String>() {
+            @Override
+            public void accept(String chunk) throws IOException {
+                out.write(chunk);
+            }
+        });
+        writeProcessEnd(out, compact);
+    }
+
+    /**
+     * Writes a process UTF-8 encoded to a stream. The chunks are encoded concurrently as well. The stream is neither flushed nor closed.
+     * @param process Process to write. Must contain at least one node.
+     * @param out Stream to write to.
+     * @param compact If set to <code>true</code>, the XML will be encoded without unnecessary whitespaces.
+     * @throws IOException Failed to write to the stream.
+     * @throws IllegalArgumentException The process contains unsupported nodes or conditions.
+     */
+    static void write(Guide process, final OutputStream out, final boolean compact) throws IOException, IllegalArgumentException {
+        StringWriter buffer = new StringWriter();
+        new BPMNStreamWriter(buffer, compact).writeProcessStart(process);
+        out.write(buffer.toString().getBytes(StandardCharsets.UTF_8));
+        writeChunks(process.getNodes(), new ChunkRenderer<byte[]>() {
+            @Override
+            public byte[] render(List<Node<?>> nodes) {
+                return ParallelBPMNWriter.render(nodes, compact).getBytes(StandardCharsets.UTF_8);
+            }
+        }, new ChunkConsumer<byte[]>() {
+            @Override
+            public void accept(byte[] chunk) throws IOException {
+                out.write(chunk);
+            }
+        });
+        buffer = new StringWriter();
+        writeProcessEnd(buffer, compact);
+        out.write(buffer.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static <T> void writeChunks(List<Node<?>> nodes, final ChunkRenderer<T> renderer, ChunkConsumer<T> consumer) throws IOException {
+        int maxPending = PoolHolder.POOL.getParallelism() * CHUNKS_PER_THREAD;
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, nodes.size() / maxPending));
+        Deque<ForkJoinTask<T>> pending = new ArrayDeque<>();
+        int from = 0;
+        try {
+            while (from < nodes.size() || !pending.isEmpty()) {
+                while (from < nodes.size() && pending.size() < maxPending) {
+                    final List<Node<?>> chunk = nodes.subList(from, Math.min(from + chunkSize, nodes.size()));
+                    pending.add(PoolHolder.POOL.submit(new Callable<T>() {
+                        @Override
+                        public T call() {
+                            return renderer.render(chunk);
+                        }
+                    }));
+                    from += chunk.size();
+                }
+                consumer.accept(pending.poll().join());
+            }
+        } finally {
+            for (ForkJoinTask<T> task : pending) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private static String render(List<Node<?>> nodes, boolean compact) throws IllegalArgumentException {
+        StringWriter buffer = new StringWriter();
+        BPMNStreamWriter writer = new BPMNStreamWriter(buffer, compact);
+        writer.resumeProcess();
+        try {
+            for (Node<?> node : nodes) {
+                writer.writeNode(node);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write to memory.", e);
+        }
+        return buffer.toString();
+    }
+
+    private static void writeProcessEnd(Writer out, boolean compact) throws IOException {
+        BPMNStreamWriter writer = new BPMNStreamWriter(out, compact);
+        writer.resumeProcess();
+        writer.endProcess();
+    }
+}
@@ -0,0 +1,246 @@
+package de.glassroom.gpe.utils;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import de.glassroom.gpe.annotations.AnnotationSource;
+import de.glassroom.gpe.annotations.ContentAnnotation;
+import de.glassroom.gpe.annotations.MetadataAnnotation;
+import de.glassroom.gpe.misc.Namespaces;
+
+/**
+ * Undecoded children of the <code>extensionElements</code> element of a BPMN node.
+ * <p>
+ * The elements are kept as a flat token sequence of element starts, attributes, texts and element ends. Attributes with a namespace
+ * and text of elements containing child elements are dropped, as they are neither read nor written by the serializers.
+ * The annotations are decoded on the first request. Until then, the {@link BPMNStreamWriter} writes the tokens as they are.
+ * </p>
+ */
+final class RawExtensions implements AnnotationSource {
+    static final byte START = 0;
+    static final byte ATTRIBUTE = 1;
+    static final byte TEXT = 2;
+    static final byte END = 3;
+
+    /** Token types. */
+    final byte[] types;
+    /** Values of the tokens: namespace and name for starts, name and value for attributes, the text for texts and nothing for ends. */
+    final String[] values;
+    private boolean isDecoded;
+    private MetadataAnnotation metadata;
+    private ContentAnnotation content;
+
+    private RawExtensions(byte[] types, String[] values) {
+        this.types = types;
+        this.values = values;
+    }
+
+    /**
+     * Growable token arrays used while reading.
+     */
+    private static class Tokens {
+        private byte[] types = new byte[32];
+        private String[] values = new String[64];
+        private int typeCount;
+        private int valueCount;
+
+        private void add(byte type) {
+            if (typeCount == types.length) types = Arrays.copyOf(types, typeCount * 2);
+            types[typeCount++] = type;
+        }
+
+        private void add(byte type, String value) {
+            add(type);
+            addValue(value);
+        }
+
+        private void add(byte type, String value1, String value2) {
+            add(type);
+            addValue(value1);
+            addValue(value2);
+        }
+
+        private void addValue(String value) {
+            if (valueCount == values.length) values = Arrays.copyOf(values, valueCount * 2);
+            values[valueCount++] = value;
+        }
+    }
+
+    /**
+     * Reads the children of an <code>extensionElements</code> element without decoding them.
+     * @param reader StAX reader positioned at the start of the element. The reader is left at the end of the element.
+     * @return Raw extensions.
+     * @throws XMLStreamException Failed to read the document.
+     */
+    static RawExtensions read(XMLStreamReader reader) throws XMLStreamException {
+        Tokens tokens = new Tokens();
+        while (BPMNStreamReader.nextChild(reader)) {
+            readElement(reader, tokens);
+        }
+        return new RawExtensions(Arrays.copyOf(tokens.types, tokens.typeCount), Arrays.copyOf(tokens.values, tokens.valueCount));
+    }
+
+    private static void readElement(XMLStreamReader reader, Tokens tokens) throws XMLStreamException {
+        String ns = reader.getNamespaceURI();
+        tokens.add(START, ns != null ? ns : "", reader.getLocalName());
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String attributeNs = reader.getAttributeNamespace(i);
+            if (attributeNs == null || attributeNs.isEmpty()) {
+                tokens.add(ATTRIBUTE, reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
+        }
+        String text = null;
+        StringBuilder builder = null;
+        boolean hasChildElements = false;
+        while (true) {
+            switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                hasChildElements = true;
+                readElement(reader, tokens);
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                if (hasChildElements) break;
+                if (text == null) {
+                    text = reader.getText();
+                } else {
+                    if (builder == null) builder = new StringBuilder(text);
+                    builder.append(reader.getText());
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                if (!hasChildElements && text != null) {
+                    tokens.add(TEXT, builder != null ? builder.toString() : text);
+                }
+                tokens.add(END);
+                return;
+            case XMLStreamConstants.END_DOCUMENT:
+                throw new XMLStreamException("Unexpected end of document.");
+            default:
+                break;
+            }
+        }
+    }
+
+    @Override
+    public synchronized MetadataAnnotation getMetadata() throws IllegalStateException {
+        decode();
+        return metadata;
+    }
+
+    @Override
+    public synchronized ContentAnnotation getContent() throws IllegalStateException {
+        decode();
+        return content;
+    }
+
+    private void decode() throws IllegalStateException {
+        if (isDecoded) return;
+        try {
+            XMLStreamReader reader = XMLUtils.createStreamReader(new StringReader(toXML()));
+            try {
+                BPMNStreamReader.moveToRootElement(reader);
+                BPMNStreamReader.Extensions extensions = BPMNStreamReader.readExtensionElements(reader, true, false);
+                metadata = extensions.metadata;
+                content = extensions.content;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            throw new IllegalStateException("Failed to decode extension elements.", e);
+        }
+        isDecoded = true;
+    }
+
+    /**
+     * Creates an <code>extensionElements</code> document containing the tokens.
+     * Texts and attribute values are escaped, so they are read exactly as they have been read before.
+     * @return XML string.
+     */
+    private String toXML() {
+        StringBuilder builder = new StringBuilder();
+        List<String> namespaces = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        String bpmnNs = Namespaces.BPMN.getURI();
+        builder.append("<extensionElements xmlns=\"").append(bpmnNs).append('"');
+        namespaces.add(bpmnNs);
+        boolean isStartTagOpen = true;
+        int v = 0;
+        for (byte type : types) {
+            switch (type) {
+            case START:
+                if (isStartTagOpen) builder.append('>');
+                String ns = values[v++];
+                String name = values[v++];
+                builder.append('<').append(name);
+                if (!ns.equals(namespaces.get(namespaces.size() - 1))) {
+                    builder.append(" xmlns=\"");
+                    escape(builder, ns, true);
+                    builder.append('"');
+                }
+                namespaces.add(ns);
+                names.add(name);
+                isStartTagOpen = true;
+                break;
+            case ATTRIBUTE:
+                builder.append(' ').append(values[v++]).append("=\"");
+                escape(builder, values[v++], true);
+                builder.append('"');
+                break;
+            case TEXT:
+                if (isStartTagOpen) builder.append('>');
+                isStartTagOpen = false;
+                escape(builder, values[v++], false);
+                break;
+            case END:
+                if (isStartTagOpen) builder.append('>');
+                isStartTagOpen = false;
+                namespaces.remove(namespaces.size() - 1);
+                builder.append("</").append(names.remove(names.size() - 1)).append('>');
+                break;
+            default:
+                throw new IllegalStateException("Unknown token type: " + type);
+            }
+        }
+        if (isStartTagOpen) builder.append('>');
+        return builder.append("</extensionElements>").toString();
+    }
+
+    private static void escape(StringBuilder builder, String value, boolean isAttribute) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '<':
+                builder.append("&lt;");
+                break;
+            case '>':
+                builder.append("&gt;");
+                break;
+            case '&':
+                builder.append("&amp;");
+                break;
+            case '"':
+                builder.append(isAttribute ? "&quot;" : "\"");
+                break;
+            case '\r':
+                builder.append("&#xD;");
+                break;
+            case '\n':
+                builder.append(isAttribute ? "&#xA;" : "\n");
+                break;
+            case '\t':
+                builder.append(isAttribute ? "&#x9;" : "\t");
+                break;
+            default:
+                builder.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package de.glassroom.gpe.utils;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import javax.xml.validation.ValidatorHandler;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * StAX reader forwarding each event to a schema validator while it is read.
+ * The document is validated in the same pass as it is deserialized. All read methods are routed through {@link #next()},
+ * so no event bypasses the validator.
+ */
+final class ValidatingStreamReader extends StreamReaderDelegate {
+    private final ValidatorHandler handler;
+    private final AttributesImpl attributes;
+    private boolean isComplete;
+
+    /**
+     * Creates a validating reader.
+     * @param reader StAX reader positioned at the start of the document.
+     * @param handler Validator to forward the events to. The handler must not be used by other readers until this reader is closed.
+     * @throws XMLStreamException Failed to start the validation.
+     */
+    ValidatingStreamReader(XMLStreamReader reader, ValidatorHandler handler) throws XMLStreamException {
+        super(reader);
+        this.handler = handler;
+        this.attributes = new AttributesImpl();
+        if (reader.getEventType() != XMLStreamConstants.START_DOCUMENT) {
+            throw new XMLStreamException("Reader must be positioned at the start of the document.");
+        }
+        try {
+            handler.startDocument();
+        } catch (SAXException e) {
+            throw new XMLStreamException("Invalid BPMN document: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+        int event = super.next();
+        try {
+            switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+                startElement();
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                handler.endElement(getNamespace(getNamespaceURI()), getLocalName(), getQName(getPrefix(), getLocalName()));
+                for (int i = 0; i < getNamespaceCount(); i++) {
+                    handler.endPrefixMapping(getPrefix(getNamespacePrefix(i)));
+                }
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                handler.characters(getTextCharacters(), getTextStart(), getTextLength());
+                break;
+            case XMLStreamConstants.END_DOCUMENT:
+                handler.endDocument();
+                isComplete = true;
+                break;
+            default:
+                break;
+            }
+        } catch (SAXException e) {
+            throw new XMLStreamException("Invalid BPMN document: " + e.getMessage(), e);
+        }
+        return event;
+    }
+
+    @Override
+    public int nextTag() throws XMLStreamException {
+        int event = next();
+        while (event == XMLStreamConstants.CHARACTERS && isWhiteSpace()
+                || event == XMLStreamConstants.SPACE
+                || event == XMLStreamConstants.COMMENT
+                || event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+            event = next();
+        }
+        if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) {
+            throw new XMLStreamException("Expected start or end tag.", getLocation());
+        }
+        return event;
+    }
+
+    @Override
+    public String getElementText() throws XMLStreamException {
+        StringBuilder builder = new StringBuilder();
+        int event = next();
+        while (event != XMLStreamConstants.END_ELEMENT) {
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+                builder.append(getText());
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                throw new XMLStreamException("Element text must not contain elements.", getLocation());
+            }
+            event = next();
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Reads the remaining events of the document, so the validation of the document end, e.g., of references, is completed.
+     * @throws XMLStreamException Failed to read the document or the document is invalid.
+     */
+    void finish() throws XMLStreamException {
+        while (!isComplete && hasNext()) {
+            next();
+        }
+    }
+
+    /**
+     * Closes the reader. The validator is discarded if the document has not been read completely.
+     */
+    @Override
+    public void close() throws XMLStreamException {
+        if (!isComplete) {
+            BPMNSchema.discardValidatorHandler();
+        }
+        super.close();
+    }
+
+    private void startElement() throws SAXException {
+        for (int i = 0; i < getNamespaceCount(); i++) {
+            handler.startPrefixMapping(getPrefix(getNamespacePrefix(i)), getNamespace(getNamespaceURI(i)));
+        }
+        attributes.clear();
+        for (int i = 0; i < getAttributeCount(); i++) {
+            attributes.addAttribute(getNamespace(getAttributeNamespace(i)), getAttributeLocalName(i),
+                    getQName(getAttributePrefix(i), getAttributeLocalName(i)), "CDATA", getAttributeValue(i));
+        }
+        handler.startElement(getNamespace(getNamespaceURI()), getLocalName(), getQName(getPrefix(), getLocalName()), attributes);
+    }
+
+    private static String getNamespace(String namespace) {
+        return namespace != null ? namespace : "";
+    }
+
+    private static String getPrefix(String prefix) {
+        return prefix != null ? prefix : "";
+    }
+
+    private static String getQName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+}
@@ -1,18 +1,135 @@
 package de.glassroom.gpe.utils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.io.StringReader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.JDOMException;
 import org.jdom2.Namespace;
 import org.jdom2.input.SAXBuilder;
+import org.jdom2.input.sax.XMLReaders;
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
 
 public class XMLUtils {
     
-    private static SAXBuilder SAX_BUILDER = new SAXBuilder();
+    /**
+     * Resolves all external entities to an empty document, so no external resource is ever loaded.
+     */
+    private static final EntityResolver EMPTY_ENTITY_RESOLVER = new EntityResolver() {
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) {
+            return new InputSource(new StringReader(""));
+        }
+    };
+    
+    /**
+     * SAX builders are not thread-safe, so every thread gets its own builder. The builder reuses its parser for subsequent documents.
+     */
+    private static final ThreadLocal<SAXBuilder> SAX_BUILDERS = new ThreadLocal<SAXBuilder>() {
+        @Override
+        protected SAXBuilder initialValue() {
+            return createSAXBuilder();
+        }
+    };
+    
+    private static final XMLInputFactory INPUT_FACTORY;
+    
+    static {
+        INPUT_FACTORY = XMLInputFactory.newInstance();
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    }
+    
+    /**
+     * Creates a new non-validating SAX builder.
+     * The builder neither loads external DTDs nor resolves external entities.
+     * @return SAX builder. The builder must not be shared between threads.
+     */
+    public static SAXBuilder createSAXBuilder() {
+        SAXBuilder builder = new SAXBuilder(XMLReaders.NONVALIDATING);
+        builder.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        builder.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        builder.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        builder.setEntityResolver(EMPTY_ENTITY_RESOLVER);
+        return builder;
+    }
+    
+    /**
+     * Returns the SAX builder of the current thread.
+     * See {@link #createSAXBuilder()} for the settings of the builder.
+     * @return SAX builder. The builder must not be passed to other threads.
+     */
+    public static SAXBuilder getSAXBuilder() {
+        return SAX_BUILDERS.get();
+    }
+    
+    /**
+     * Parses a XML document using the SAX builder of the current thread.
+     * @param reader Reader providing the XML document.
+     * @return XML document.
+     * @throws JDOMException The document is no well-formed XML.
+     * @throws IOException Failed to read the document.
+     */
+    public static Document buildDocument(Reader reader) throws JDOMException, IOException {
+        return SAX_BUILDERS.get().build(reader);
+    }
+    
+    /**
+     * Parses a XML document using the SAX builder of the current thread.
+     * @param in Stream providing the XML document. The encoding is detected from the document.
+     * @return XML document.
+     * @throws JDOMException The document is no well-formed XML.
+     * @throws IOException Failed to read the document.
+     */
+    public static Document buildDocument(InputStream in) throws JDOMException, IOException {
+        return SAX_BUILDERS.get().build(in);
+    }
+    
+    /**
+     * Creates a namespace aware StAX reader which neither supports DTDs nor external entities. 
+     * Text is always reported in a single event. 
+     * @param in Stream providing the XML document. The encoding is detected from the document.
+     * @return StAX reader.
+     * @throws XMLStreamException Failed to create reader.
+     */
+    public static XMLStreamReader createStreamReader(InputStream in) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(in);
+    }
+    
+    /**
+     * Creates a namespace aware StAX reader which neither supports DTDs nor external entities. 
+     * Text is always reported in a single event. 
+     * @param in Stream providing the XML document.
+     * @param encoding Encoding of the document, e.g., if it can neither be detected from a byte order mark nor from an XML declaration.
+     * @return StAX reader.
+     * @throws XMLStreamException Failed to create reader.
+     */
+    public static XMLStreamReader createStreamReader(InputStream in, String encoding) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(in, encoding);
+    }
+    
+    /**
+     * Creates a namespace aware StAX reader which neither supports DTDs nor external entities. 
+     * Text is always reported in a single event. 
+     * @param reader Reader providing the XML document.
+     * @return StAX reader.
+     * @throws XMLStreamException Failed to create reader.
+     */
+    public static XMLStreamReader createStreamReader(Reader reader) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(reader);
+    }
     
     public static Element getOrCreateElement(String elementName, Namespace ns, Element parent) {
         Element element = parent.getChild(elementName, ns);
@@ -54,7 +171,7 @@ public class XMLUtils {
     public static Element importFromString(String xmlString) throws IllegalArgumentException {
         Element rootElement;
         try {
-            Document doc = SAX_BUILDER.build(new StringReader(xmlString));
+            Document doc = buildDocument(new StringReader(xmlString));
             rootElement = doc.getRootElement();
         } catch (JDOMException | IOException e) {
             throw new IllegalArgumentException("Failed to parse XML string.", e);
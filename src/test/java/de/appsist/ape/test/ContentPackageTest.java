@@ -1,11 +1,43 @@
 package de.glassroom.gpe.test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.StringReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import de.glassroom.gpe.Chapter;
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideManager;
+import de.glassroom.gpe.Step;
+import de.glassroom.gpe.annotations.ContentAnnotation;
 import de.glassroom.gpe.content.ContentDescriptor;
+import de.glassroom.gpe.content.ContentRepository;
+import de.glassroom.gpe.content.ContentSource;
+import de.glassroom.gpe.content.DirectoryContentSource;
 import de.glassroom.gpe.content.Hint;
 import de.glassroom.gpe.content.Warning;
+import de.glassroom.gpe.utils.ContentJSONReader;
+import de.glassroom.gpe.utils.ContentJSONWriter;
 import de.glassroom.gpe.utils.ContentSerializer;
+import de.glassroom.gpe.utils.GuideBundle;
+import de.glassroom.gpe.utils.GuideBundleReader;
+import de.glassroom.gpe.utils.GuideBundleWriter;
+import de.glassroom.gpe.utils.GuideSerializer;
 
 public class ContentPackageTest {
 	
@@ -27,6 +59,187 @@ public class ContentPackageTest {
 		descriptor = ContentSerializer.readFromJSON(serializedDescriptor);
 		
 		System.out.println(ContentSerializer.writeAsJSON(descriptor));
+		
+		testNDJSON(descriptor);
+		testRead(descriptor);
+		testRepository();
+		testBundle();
+	}
+	
+	public static void testRepository() throws Exception {
+		Path directory = Files.createTempDirectory("content");
+		GuideManager gm = new GuideManager();
+		Guide guide = gm.createGuide("contentGuide");
+		for (int i = 0; i < 4; i++) {
+			String packageId = "package" + (i % 2);
+			guide.addNode(new Step("step" + i).setContent(new ContentAnnotation().setContentPackage("de_DE", packageId)), guide.getStart());
+		}
+		final DirectoryContentSource directorySource = new DirectoryContentSource(directory);
+		for (String packageId : new String[] { "package0", "package1" }) {
+			Path descriptorFile = directorySource.getDescriptorFile(guide.getId(), packageId);
+			Files.createDirectories(descriptorFile.getParent());
+			ContentDescriptor packageDescriptor = new ContentDescriptor(packageId, "de_DE").setVersion("1").setTitle(packageId);
+			Files.write(descriptorFile, ContentSerializer.writeAsXML(packageDescriptor, true).getBytes(StandardCharsets.UTF_8));
+		}
+		
+		final AtomicInteger sourceLoads = new AtomicInteger();
+		final ContentRepository repository = new ContentRepository(new ContentSource() {
+			@Override
+			public ContentDescriptor load(String guideId, String packageId, String languageId) throws IOException {
+				sourceLoads.incrementAndGet();
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return directorySource.load(guideId, packageId, languageId);
+			}
+		}, 2, 0);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<ContentDescriptor>> futures = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			futures.add(executor.submit(new Callable<ContentDescriptor>() {
+				@Override
+				public ContentDescriptor call() throws Exception {
+					return repository.get("contentGuide", "package0", "de_DE");
+				}
+			}));
+		}
+		boolean isValid = true;
+		ContentDescriptor first = futures.get(0).get();
+		for (Future<ContentDescriptor> future : futures) {
+			isValid &= future.get() == first;
+		}
+		executor.shutdown();
+		isValid &= sourceLoads.get() == 1 && repository.getLoadCount() == 1;
+		
+		Map<String, ContentDescriptor> resolved = repository.resolveAll(guide, "de_DE");
+		isValid &= resolved.size() == 4 && "package1".equals(resolved.get("step1").getTitle()) && resolved.get("step2") == first;
+		isValid &= repository.size() == 2 && sourceLoads.get() == 2;
+		isValid &= repository.get("contentGuide", "missing", "de_DE") == null;
+
+		// Packages are scoped to their guide, so guides may use the same package identifier for different content
+		Path otherFile = directorySource.getDescriptorFile("otherGuide", "package0");
+		Files.createDirectories(otherFile.getParent());
+		Files.write(otherFile, ContentSerializer.writeAsXML(new ContentDescriptor("package0", "de_DE").setVersion("1").setTitle("other"), true).getBytes(StandardCharsets.UTF_8));
+		ContentRepository scoped = new ContentRepository(directorySource, 0, 0);
+		ContentDescriptor own = scoped.get("contentGuide", "package0", "de_DE");
+		isValid &= "other".equals(scoped.get("otherGuide", "package0", "de_DE").getTitle()) && scoped.get("contentGuide", "package0", "de_DE") == own
+				&& "package0".equals(own.getTitle()) && scoped.size() == 2;
+		scoped.invalidate("otherGuide", "package0", "de_DE");
+		isValid &= scoped.size() == 1 && scoped.get("contentGuide", "package0", "de_DE") == own && scoped.getLoadCount() == 2
+				&& "other".equals(scoped.get("otherGuide", "package0", "de_DE").getTitle()) && scoped.getLoadCount() == 3;
+		System.out.println("Content repository (" + repository.getHitCount() + " hits, " + repository.getMissCount() + " misses, " + repository.getLoadCount() + " loads): " + (isValid ? "OK" : "FAILED"));
+	}
+	
+	public static void testBundle() throws Exception {
+		GuideManager gm = new GuideManager();
+		final Map<String, ContentDescriptor> descriptors = new HashMap<>();
+		Guide main = gm.createGuide("bundleMain");
+		Guide called = gm.createGuide("bundleChapter");
+		for (Guide guide : new Guide[] { main, called }) {
+			for (int i = 0; i < 20; i++) {
+				String packageId = guide.getId() + "-package" + (i % 10);
+				guide.addNode(new Step(guide.getId() + "-step" + i).setName("Step " + i)
+						.setContent(new ContentAnnotation().setContentPackage("de_DE", packageId).setContentPackage("en_US", packageId)), guide.getStart());
+				for (String languageId : new String[] { "de_DE", "en_US" }) {
+					descriptors.put(packageId + languageId, new ContentDescriptor(packageId, languageId).setVersion("1").setTitle("Title " + i)
+							.setMedia("image/png", "media/" + packageId + ".png").addHint(new Hint("Hint " + i)));
+				}
+			}
+		}
+		main.addNode(new Chapter("chapter1", "bundleChapter"), main.getStart());
+		called.addNode(new Chapter("chapter2", "bundleMain"), called.getStart());
+		called.addNode(new Chapter("chapter3", "missing"), called.getStart());
+		ContentRepository repository = new ContentRepository(new ContentSource() {
+			@Override
+			public ContentDescriptor load(String guideId, String packageId, String languageId) {
+				return descriptors.get(packageId + languageId);
+			}
+		}, 0, 0);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GuideBundle written = GuideBundleWriter.writeBundle(main, gm, repository, "de_DE", out);
+		GuideBundle bundle = GuideBundleReader.readBundle(new ByteArrayInputStream(out.toByteArray()));
+		boolean isValid = bundle.getGuides().size() == 2 && bundle.getMainGuide().getId().equals("bundleMain")
+				&& bundle.getContentDescriptors().size() == 20 && written.getContentDescriptors().size() == 20;
+		int uncompressedSize = 0;
+		for (Guide guide : written.getGuides()) {
+			String bpmn = GuideSerializer.writeAsBPMN(guide, true);
+			isValid &= bpmn.equals(GuideSerializer.writeAsBPMN(bundle.getGuide(guide.getId()), true));
+			uncompressedSize += bpmn.length();
+		}
+		for (ContentDescriptor descriptor : written.getContentDescriptors()) {
+			String xml = ContentSerializer.writeAsXML(descriptor, true);
+			isValid &= xml.equals(ContentSerializer.writeAsXML(bundle.load(null, descriptor.getId(), "de_DE"), true));
+			uncompressedSize += xml.length();
+		}
+		isValid &= bundle.getContentDescriptor("bundleMain-package0", "en_US") == null;
+
+		// The main guide can be read before the bundle is complete.
+		ByteArrayOutputStream partialOut = new ByteArrayOutputStream();
+		GuideBundleWriter writer = new GuideBundleWriter(partialOut);
+		writer.writeGuide(main);
+		GuideBundleReader reader = new GuideBundleReader(new ByteArrayInputStream(partialOut.toByteArray()));
+		isValid &= reader.next() == GuideBundleReader.EntryType.GUIDE && reader.getGuide().getId().equals("bundleMain");
+		try {
+			reader.next();
+			isValid = false;
+		} catch (EOFException e) {
+			// Expected.
+		}
+		reader.close();
+		writer.close();
+		System.out.println("Guide bundle (" + uncompressedSize + " chars, " + out.size() + " bytes compressed): " + (isValid ? "OK" : "FAILED"));
+	}
+	
+	public static void testRead(ContentDescriptor descriptor) throws Exception {
+		String expected = ContentSerializer.writeAsJSON(descriptor, true);
+		boolean isEqual = true;
+		String xml = ContentSerializer.writeAsXML(descriptor, false);
+		for (String document : new String[] { xml, "<?xml version=\"1.0\" encoding=\"UTF-16\"?>" + xml, ContentSerializer.writeAsJSON(descriptor, false) }) {
+			for (String charset : new String[] { "UTF-8", "UTF-16BE", "UTF-16LE" }) {
+				// With and without byte order mark and leading whitespaces
+				for (String prefix : new String[] { "\uFEFF \r\n", "\uFEFF", " \r\n", "" }) {
+					// The XML declaration names UTF-16, so it is not written in UTF-8
+					if (document.startsWith("<?xml") && charset.equals("UTF-8")) continue;
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					out.write(prefix.getBytes(charset));
+					out.write(document.getBytes(charset));
+					ContentDescriptor read = ContentSerializer.read(new ByteArrayInputStream(out.toByteArray()));
+					isEqual &= expected.equals(ContentSerializer.writeAsJSON(read, true));
+				}
+			}
+			isEqual &= expected.equals(ContentSerializer.writeAsJSON(ContentSerializer.readFromString("\n " + document), true));
+		}
+		System.out.println("Format detection: " + (isEqual ? "OK" : "FAILED"));
+	}
+	
+	public static void testNDJSON(ContentDescriptor descriptor) throws Exception {
+		List<ContentDescriptor> descriptors = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			descriptors.add(i % 2 == 0 ? descriptor : new ContentDescriptor("id" + i, "en_US").setTitle("Title " + i));
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int written = ContentSerializer.writeAsNDJSON(descriptors, out);
+		List<ContentDescriptor> read = ContentSerializer.readFromNDJSON(new ByteArrayInputStream(out.toByteArray()));
+		
+		StringWriter writer = new StringWriter();
+		try (ContentJSONWriter jsonWriter = new ContentJSONWriter(writer)) {
+			for (ContentDescriptor item : read) {
+				jsonWriter.write(item);
+			}
+		}
+		int count = 0;
+		boolean isEqual = written == descriptors.size() && read.size() == descriptors.size();
+		try (ContentJSONReader jsonReader = new ContentJSONReader(new StringReader(writer.toString()))) {
+			ContentDescriptor item;
+			while ((item = jsonReader.read()) != null) {
+				isEqual &= ContentSerializer.writeAsJSON(descriptors.get(count++), true).equals(ContentSerializer.writeAsJSON(item, true));
+			}
+		}
+		isEqual &= count == descriptors.size() && writer.toString().split("\n").length == descriptors.size();
+		System.out.println("NDJSON round trip: " + (isEqual ? "OK" : "FAILED"));
 	}
 
 }
@@ -0,0 +1,227 @@
+package de.glassroom.gpe.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideManager;
+import de.glassroom.gpe.Node;
+import de.glassroom.gpe.Step;
+import de.glassroom.gpe.event.GuideEvent;
+import de.glassroom.gpe.event.GuideEventBus;
+import de.glassroom.gpe.event.GuideListener;
+
+public class GuideEventTest {
+
+	public static class RecordingListener implements GuideListener {
+		private final List<List<String>> batches = new ArrayList<>();
+
+		@Override
+		public void guidesChanged(List<GuideEvent> events) {
+			List<String> batch = new ArrayList<>();
+			for (GuideEvent event : events) {
+				batch.add(event.getType() + " " + event.getGuideId() + (event.getNodeId() != null ? " " + event.getNodeId() : ""));
+			}
+			batches.add(batch);
+		}
+	}
+
+	public static class QueuedExecutor implements Executor {
+		private final List<Runnable> tasks = new ArrayList<>();
+		private boolean isRejecting;
+
+		@Override
+		public void execute(Runnable command) {
+			if (isRejecting) throw new RejectedExecutionException("Rejected for testing.");
+			tasks.add(command);
+		}
+
+		public void runAll() {
+			while (!tasks.isEmpty()) {
+				tasks.remove(0).run();
+			}
+		}
+	}
+
+	private static GuideEvent event(GuideEvent.Type type, String guideId, String nodeId) {
+		return new GuideEvent(type, guideId, nodeId);
+	}
+
+	private static List<String> publishInTransaction(GuideEvent... events) {
+		GuideEventBus bus = new GuideEventBus();
+		RecordingListener listener = new RecordingListener();
+		bus.addListener(listener);
+		bus.beginTransaction();
+		for (GuideEvent event : events) {
+			bus.publish(event);
+		}
+		bus.endTransaction();
+		if (listener.batches.size() > 1) throw new IllegalStateException("Transaction delivered in " + listener.batches.size() + " batches.");
+		return listener.batches.isEmpty() ? new ArrayList<String>() : listener.batches.get(0);
+	}
+
+	public static void testCoalescing() {
+		GuideEvent.Type added = GuideEvent.Type.NODE_ADDED, removed = GuideEvent.Type.NODE_REMOVED, changed = GuideEvent.Type.ANNOTATION_CHANGED;
+		boolean isValid = publishInTransaction(event(changed, "g", "n"), event(changed, "g", "n"), event(changed, "g", null))
+				.equals(Arrays.asList("ANNOTATION_CHANGED g n", "ANNOTATION_CHANGED g"));
+		// A node added and removed again is not reported, neither are its annotation changes
+		isValid &= publishInTransaction(event(added, "g", "n"), event(changed, "g", "n"), event(removed, "g", "n")).isEmpty();
+		// A node removed and added again has been moved, its annotation changes are kept
+		isValid &= publishInTransaction(event(changed, "g", "n"), event(removed, "g", "n"), event(added, "g", "n"))
+				.equals(Arrays.asList("ANNOTATION_CHANGED g n", "NODE_MOVED g n"));
+		// A node added after being added and removed is reported as added at its new position
+		isValid &= publishInTransaction(event(added, "g", "n"), event(removed, "g", "n"), event(changed, "g", null), event(added, "g", "n"))
+				.equals(Arrays.asList("ANNOTATION_CHANGED g", "NODE_ADDED g n"));
+		// Changes of an added or deleted guide are dropped
+		isValid &= publishInTransaction(event(GuideEvent.Type.GUIDE_ADDED, "g", null), event(added, "g", "n"), event(changed, "g", "n"), event(changed, "g", null))
+				.equals(Arrays.asList("GUIDE_ADDED g"));
+		isValid &= publishInTransaction(event(GuideEvent.Type.GUIDE_ADDED, "g", null), event(added, "h", "n"), event(GuideEvent.Type.GUIDE_DELETED, "g", null))
+				.equals(Arrays.asList("NODE_ADDED h n"));
+		// Events keep the order of their first occurrence, independent of their type
+		isValid &= publishInTransaction(event(changed, "g", null), event(added, "h", "n"), event(changed, "h", "m"), event(removed, "g", "n"), event(changed, "g", null))
+				.equals(Arrays.asList("ANNOTATION_CHANGED g", "NODE_ADDED h n", "ANNOTATION_CHANGED h m", "NODE_REMOVED g n"));
+		System.out.println("Coalescing: " + (isValid ? "OK" : "FAILED"));
+	}
+
+	public static void testTransactions() {
+		GuideManager gm = new GuideManager();
+		GuideEventBus bus = gm.getEventBus();
+		Guide guide = gm.createGuide("guide");
+		Step step1 = new Step("step1"), step2 = new Step("step2");
+		guide.addNode(step1).addNode(step2);
+		RecordingListener listener = new RecordingListener();
+		bus.addListener(listener);
+
+		// Edits outside a transaction are delivered one by one on the publishing thread
+		guide.setTitle("de_DE", "Titel");
+		guide.setTitle("en_US", "Title");
+		boolean isValid = listener.batches.size() == 2;
+
+		listener.batches.clear();
+		bus.beginTransaction();
+		guide.setTitle("de_DE", "Neuer Titel");
+		bus.beginTransaction();
+		step1.setName("Step 1");
+		bus.endTransaction();
+		isValid &= listener.batches.isEmpty();
+		guide.setDescription("de_DE", "Beschreibung");
+		bus.endTransaction();
+		isValid &= listener.batches.equals(Arrays.asList(Arrays.asList("ANNOTATION_CHANGED guide", "ANNOTATION_CHANGED guide step1")));
+
+		// Edits consisting of multiple changes are delivered as a single batch
+		listener.batches.clear();
+		guide.moveNode(step2, guide.getStart());
+		isValid &= listener.batches.equals(Arrays.asList(Arrays.asList("NODE_MOVED guide step2")));
+		listener.batches.clear();
+		guide.combineStepsToChapter("chapter", Arrays.<Node>asList(step2, step1));
+		isValid &= listener.batches.size() == 1 && listener.batches.get(0).size() == 3 && listener.batches.get(0).get(0).startsWith("NODE_ADDED guide ")
+				&& listener.batches.get(0).contains("NODE_REMOVED guide step1");
+		listener.batches.clear();
+		gm.addGuides(Arrays.asList(new Guide("other1"), new Guide("other2")));
+		isValid &= listener.batches.equals(Arrays.asList(Arrays.asList("GUIDE_ADDED other1", "GUIDE_ADDED other2")));
+
+		boolean isRejected = false;
+		try {
+			bus.endTransaction();
+		} catch (IllegalStateException e) {
+			isRejected = true;
+		}
+		System.out.println("Transactions: " + (isValid && isRejected ? "OK" : "FAILED"));
+	}
+
+	public static void testExecutor() {
+		QueuedExecutor executor = new QueuedExecutor();
+		final GuideEventBus bus = new GuideEventBus(executor);
+		RecordingListener listener = new RecordingListener();
+		bus.addListener(listener);
+		// Events published during the delivery are delivered in a batch of their own by the same task
+		bus.addListener(new GuideListener() {
+			@Override
+			public void guidesChanged(List<GuideEvent> events) {
+				if (events.get(0).getGuideId().equals("g")) {
+					bus.publish(event(GuideEvent.Type.ANNOTATION_CHANGED, "h", null));
+				}
+			}
+		});
+		bus.publish(event(GuideEvent.Type.ANNOTATION_CHANGED, "g", "n"));
+		bus.publish(event(GuideEvent.Type.NODE_ADDED, "g", "m"));
+		bus.publish(event(GuideEvent.Type.ANNOTATION_CHANGED, "g", "n"));
+		boolean isValid = executor.tasks.size() == 1 && listener.batches.isEmpty();
+		executor.runAll();
+		isValid &= listener.batches.equals(Arrays.asList(Arrays.asList("ANNOTATION_CHANGED g n", "NODE_ADDED g m"), Arrays.asList("ANNOTATION_CHANGED h")));
+
+		// A rejected delivery does not block later deliveries, the rejected events are delivered with them
+		listener.batches.clear();
+		executor.isRejecting = true;
+		boolean isRejected = false;
+		try {
+			bus.publish(event(GuideEvent.Type.NODE_REMOVED, "r", "n"));
+		} catch (RejectedExecutionException e) {
+			isRejected = true;
+		}
+		executor.isRejecting = false;
+		bus.publish(event(GuideEvent.Type.NODE_ADDED, "r", "n"));
+		isValid &= isRejected && executor.tasks.size() == 1;
+		executor.runAll();
+		isValid &= listener.batches.equals(Arrays.asList(Arrays.asList("NODE_MOVED r n")));
+		System.out.println("Executor delivery: " + (isValid ? "OK" : "FAILED"));
+	}
+
+	public static void testListenerFailure() {
+		GuideEventBus bus = new GuideEventBus();
+		final IllegalStateException failure = new IllegalStateException("Listener failed for testing.");
+		bus.addListener(new GuideListener() {
+			@Override
+			public void guidesChanged(List<GuideEvent> events) {
+				throw failure;
+			}
+		});
+		RecordingListener listener = new RecordingListener();
+		bus.addListener(listener);
+		boolean isRethrown = false;
+		try {
+			bus.publish(event(GuideEvent.Type.ANNOTATION_CHANGED, "g", null));
+		} catch (IllegalStateException e) {
+			isRethrown = e == failure;
+		}
+		try {
+			bus.publish(event(GuideEvent.Type.ANNOTATION_CHANGED, "h", null));
+		} catch (IllegalStateException e) {
+			isRethrown &= e == failure;
+		}
+		boolean isValid = isRethrown && listener.batches.equals(Arrays.asList(Arrays.asList("ANNOTATION_CHANGED g"), Arrays.asList("ANNOTATION_CHANGED h")));
+		System.out.println("Listener failure: " + (isValid ? "OK" : "FAILED"));
+	}
+
+	public static void testWithoutListeners() {
+		QueuedExecutor executor = new QueuedExecutor();
+		GuideEventBus bus = new GuideEventBus(executor);
+		bus.beginTransaction();
+		bus.publish(event(GuideEvent.Type.NODE_ADDED, "g", "n"));
+		bus.endTransaction();
+		bus.publish(event(GuideEvent.Type.ANNOTATION_CHANGED, "g", null));
+		boolean isValid = !bus.hasListeners() && executor.tasks.isEmpty();
+		// Events published without listeners are dropped instead of being delivered to later listeners
+		RecordingListener listener = new RecordingListener();
+		bus.addListener(listener);
+		bus.publish(event(GuideEvent.Type.NODE_REMOVED, "g", "n"));
+		executor.runAll();
+		isValid &= bus.hasListeners() && listener.batches.equals(Arrays.asList(Arrays.asList("NODE_REMOVED g n")));
+		bus.removeListener(listener);
+		bus.publish(event(GuideEvent.Type.NODE_ADDED, "g", "n"));
+		isValid &= !bus.hasListeners() && executor.tasks.isEmpty();
+		System.out.println("Without listeners: " + (isValid ? "OK" : "FAILED"));
+	}
+
+	public static void main(String[] args) {
+		testCoalescing();
+		testTransactions();
+		testExecutor();
+		testListenerFailure();
+		testWithoutListeners();
+	}
+
+}
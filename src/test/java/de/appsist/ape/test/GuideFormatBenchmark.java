@@ -0,0 +1,81 @@
+package de.glassroom.gpe.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.Step;
+import de.glassroom.gpe.annotations.ContentAnnotation;
+import de.glassroom.gpe.annotations.MetadataAnnotation;
+import de.glassroom.gpe.annotations.ToolAnnotation;
+import de.glassroom.gpe.utils.GuideBinarySerializer;
+import de.glassroom.gpe.utils.GuideSerializer;
+
+/**
+ * Compares size, encoding and decoding speed of the guide formats.
+ */
+public class GuideFormatBenchmark {
+	private static final int ITERATIONS = 2000;
+
+	private interface Task {
+		void run() throws Exception;
+	}
+
+	public static Guide createGuide(int steps) {
+		Guide guide = GuideSerializerTest.createGuide();
+		for (int i = 0; i < steps; i++) {
+			ToolAnnotation tool = new ToolAnnotation("tool" + (i % 5));
+			tool.addParameter("size", String.valueOf(i % 3));
+			Step step = new Step("step-" + i)
+					.setName("Step " + i)
+					.setMetadata(new MetadataAnnotation().setTitle("de_DE", "Schritt " + i).setTitle("en_US", "Step " + i).setDescription("de_DE", "Beschreibung von Schritt " + i))
+					.setContent(new ContentAnnotation().setContentPackage("de_DE", "package-" + i).addWarning("de_DE", "Vorsicht").addTool(tool));
+			guide.addNode(step, guide.getStart());
+		}
+		return guide;
+	}
+
+	private static double measure(Task task) throws Exception {
+		for (int i = 0; i < ITERATIONS / 4; i++) task.run();
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) task.run();
+		return (System.nanoTime() - start) / 1000.0 / ITERATIONS;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final Guide guide = createGuide(100);
+		final String bpmn = GuideSerializer.writeAsBPMN(guide, true);
+		final byte[] bpmnBytes = bpmn.getBytes("UTF-8");
+		final byte[] binary = GuideBinarySerializer.writeAsBinary(guide);
+
+		System.out.println(String.format("Size:   BPMN %d bytes, binary %d bytes (%.1fx smaller)", bpmnBytes.length, binary.length, (double) bpmnBytes.length / binary.length));
+		System.out.println(String.format("Encode: BPMN %.1f us, binary %.1f us", measure(new Task() {
+			@Override
+			public void run() {
+				GuideSerializer.writeAsBPMN(guide, true);
+			}
+		}), measure(new Task() {
+			@Override
+			public void run() {
+				GuideBinarySerializer.writeAsBinary(guide);
+			}
+		})));
+		System.out.println(String.format("Decode: BPMN (JDOM) %.1f us, BPMN (StAX) %.1f us, binary %.1f us", measure(new Task() {
+			@Override
+			public void run() {
+				GuideSerializer.readFromBPMN(bpmn);
+			}
+		}), measure(new Task() {
+			@Override
+			public void run() {
+				GuideSerializer.readFromBPMN(new StringReader(bpmn));
+			}
+		}), measure(new Task() {
+			@Override
+			public void run() throws Exception {
+				GuideBinarySerializer.readFromBinary(new ByteArrayInputStream(binary));
+			}
+		})));
+	}
+
+}
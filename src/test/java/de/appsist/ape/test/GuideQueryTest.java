@@ -0,0 +1,203 @@
+package de.glassroom.gpe.test;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import de.glassroom.gpe.Filter;
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideManager;
+import de.glassroom.gpe.GuidePage;
+import de.glassroom.gpe.IndexedComparator;
+import de.glassroom.gpe.store.DirectoryGuideStore;
+
+public class GuideQueryTest {
+
+	private static final Filter<Guide> EVEN_FILTER = new Filter<Guide>() {
+		@Override
+		public boolean accept(Guide guide) {
+			return Integer.parseInt(guide.getId().substring(5)) % 2 == 0;
+		}
+	};
+
+	private static final Comparator<Guide> LENGTH_COMPARATOR = new Comparator<Guide>() {
+		@Override
+		public int compare(Guide guide1, Guide guide2) {
+			return Integer.compare(guide1.getId().length(), guide2.getId().length());
+		}
+	};
+
+	public static GuideManager createManager(int guideCount, int titleCount, long seed) {
+		GuideManager gm = new GuideManager();
+		Random random = new Random(seed);
+		List<Guide> guides = new ArrayList<>();
+		for (int i = 0; i < guideCount; i++) {
+			guides.add(createGuide("guide" + i, random, titleCount));
+		}
+		gm.addGuides(guides);
+		return gm;
+	}
+
+	private static Guide createGuide(String id, Random random, int titleCount) {
+		Guide guide = new Guide(id);
+		// Some guides have no title to be ordered last
+		int title = random.nextInt(titleCount + 1);
+		if (title < titleCount) {
+			guide.setTitle("de_DE", "Anleitung " + title);
+		}
+		return guide;
+	}
+
+	/**
+	 * Sorts all accepted guides, ordering guides considered equal by identifier as documented for listings.
+	 */
+	public static List<String> sortAll(GuideManager gm, Filter<Guide> filter, final Comparator<Guide> comparator) {
+		List<Guide> guides = gm.getGuides(filter, null);
+		if (comparator != null) {
+			Collections.sort(guides, new Comparator<Guide>() {
+				@Override
+				public int compare(Guide guide1, Guide guide2) {
+					int result = comparator.compare(guide1, guide2);
+					return result != 0 ? result : guide1.getId().compareTo(guide2.getId());
+				}
+			});
+		}
+		return getIds(guides);
+	}
+
+	public static List<String> getIds(List<Guide> guides) {
+		List<String> ids = new ArrayList<>(guides.size());
+		for (Guide guide : guides) {
+			ids.add(guide.getId());
+		}
+		return ids;
+	}
+
+	public static void testTopK() {
+		GuideManager gm = createManager(3000, 40, 1);
+		boolean isValid = true;
+		for (Comparator<Guide> comparator : Arrays.<Comparator<Guide>>asList(IndexedComparator.byTitle("de_DE", false), IndexedComparator.byTitle("de_DE", true),
+				IndexedComparator.byId(true), LENGTH_COMPARATOR, null)) {
+			for (Filter<Guide> filter : Arrays.asList(null, EVEN_FILTER)) {
+				List<String> expected = sortAll(gm, filter, comparator);
+				for (int[] section : new int[][] { { 0, 1 }, { 0, 25 }, { 17, 100 }, { 1490, 20 }, { 0, expected.size() }, { expected.size() - 3, 10 } }) {
+					int to = Math.min(expected.size(), section[0] + section[1]);
+					isValid &= expected.subList(section[0], to).equals(getIds(gm.getGuides(filter, comparator, section[0], section[1])));
+				}
+			}
+		}
+		System.out.println("Top k selection: " + (isValid ? "OK" : "FAILED"));
+	}
+
+	public static void testParallelFiltering() {
+		GuideManager gm = createManager(5000, 10, 2);
+		IndexedComparator byTitle = IndexedComparator.byTitle("de_DE", false);
+		List<List<String>> sequential = new ArrayList<>();
+		sequential.add(getIds(gm.getGuides(EVEN_FILTER, byTitle, 0, 300)));
+		sequential.add(getIds(gm.getGuides(EVEN_FILTER, LENGTH_COMPARATOR, 1000, 50)));
+		sequential.add(getIds(gm.getGuides(EVEN_FILTER, null, 2000, 600)));
+		sequential.add(getIds(gm.getGuidePage(EVEN_FILTER, byTitle, gm.getGuidePage(EVEN_FILTER, byTitle, null, 700).getNextCursor(), 700).getGuides()));
+		gm.setParallelFiltering(true);
+		List<List<String>> parallel = new ArrayList<>();
+		parallel.add(getIds(gm.getGuides(EVEN_FILTER, byTitle, 0, 300)));
+		parallel.add(getIds(gm.getGuides(EVEN_FILTER, LENGTH_COMPARATOR, 1000, 50)));
+		parallel.add(getIds(gm.getGuides(EVEN_FILTER, null, 2000, 600)));
+		parallel.add(getIds(gm.getGuidePage(EVEN_FILTER, byTitle, gm.getGuidePage(EVEN_FILTER, byTitle, null, 700).getNextCursor(), 700).getGuides()));
+		boolean isValid = sequential.equals(parallel) && sequential.get(0).equals(sortAll(gm, EVEN_FILTER, byTitle).subList(0, 300))
+				&& sequential.get(2).size() == 500;
+		System.out.println("Parallel filtering: " + (isValid ? "OK" : "FAILED"));
+	}
+
+	public static List<String> readAllPages(GuideManager gm, Filter<Guide> filter, Comparator<Guide> comparator, int limit, Random random) {
+		List<String> ids = new ArrayList<>();
+		GuidePage page = gm.getGuidePage(filter, comparator, null, limit);
+		ids.addAll(getIds(page.getGuides()));
+		int added = 0;
+		while (page.hasNext()) {
+			if (random != null) {
+				gm.addGuide(createGuide("added" + added++, random, 3));
+			}
+			page = gm.getGuidePage(filter, comparator, page.getNextCursor(), limit);
+			ids.addAll(getIds(page.getGuides()));
+		}
+		return ids;
+	}
+
+	public static void testCursor() throws Exception {
+		// Only three titles, so most guides have equal sort keys
+		GuideManager gm = createManager(200, 3, 3);
+		boolean isValid = true;
+		for (Comparator<Guide> comparator : Arrays.<Comparator<Guide>>asList(IndexedComparator.byTitle("de_DE", false), LENGTH_COMPARATOR, null)) {
+			for (int limit : new int[] { 1, 7, 200, 201 }) {
+				isValid &= readAllPages(gm, null, comparator, limit, null).equals(sortAll(gm, null, comparator));
+			}
+			isValid &= readAllPages(gm, EVEN_FILTER, comparator, 9, null).equals(sortAll(gm, EVEN_FILTER, comparator));
+		}
+
+		// Guides added between pages may show up or not, but existing guides neither repeat nor get lost
+		for (Comparator<Guide> comparator : Arrays.<Comparator<Guide>>asList(IndexedComparator.byTitle("de_DE", false), LENGTH_COMPARATOR, null)) {
+			GuideManager modified = createManager(200, 3, 4);
+			List<String> existing = sortAll(modified, null, comparator);
+			List<String> ids = readAllPages(modified, null, comparator, 11, new Random(5));
+			Set<String> uniqueIds = new HashSet<>(ids);
+			List<String> listed = new ArrayList<>(ids);
+			listed.retainAll(existing);
+			isValid &= uniqueIds.size() == ids.size() && listed.equals(existing);
+		}
+
+		// Listings based on the index of a store
+		GuideManager stored = new GuideManager(new DirectoryGuideStore(Files.createTempDirectory("query")), 10, 0);
+		stored.addGuides(createManager(60, 3, 6).getGuides(null, null));
+		IndexedComparator byTitle = IndexedComparator.byTitle("de_DE", true);
+		isValid &= readAllPages(stored, null, byTitle, 8, null).equals(sortAll(stored, null, byTitle));
+		isValid &= readAllPages(stored, null, null, 8, null).equals(sortAll(stored, null, null));
+		isValid &= getIds(stored.getGuides(null, byTitle, 13, 20)).equals(sortAll(stored, null, byTitle).subList(13, 33));
+		System.out.println("Cursor continuation: " + (isValid ? "OK" : "FAILED"));
+	}
+
+	public static void testBounds() {
+		GuideManager gm = createManager(50, 5, 7);
+		IndexedComparator byTitle = IndexedComparator.byTitle("de_DE", false);
+		List<String> expected = sortAll(gm, null, byTitle);
+		boolean isValid = gm.getGuides(null, byTitle, 0, 0).isEmpty() && gm.getGuides(null, byTitle, 10, 0).isEmpty()
+				&& gm.getGuides(null, byTitle, 50, 10).isEmpty() && gm.getGuides(null, byTitle, Integer.MAX_VALUE, Integer.MAX_VALUE).isEmpty()
+				&& getIds(gm.getGuides(null, byTitle, 0, Integer.MAX_VALUE)).equals(expected)
+				&& getIds(gm.getGuides(null, byTitle, 45, Integer.MAX_VALUE)).equals(expected.subList(45, 50))
+				&& getIds(gm.getGuides(null, byTitle, 49, 1)).equals(expected.subList(49, 50));
+		GuidePage page = gm.getGuidePage(null, byTitle, null, Integer.MAX_VALUE);
+		isValid &= !page.hasNext() && getIds(page.getGuides()).equals(expected);
+		page = gm.getGuidePage(null, byTitle, null, 50);
+		isValid &= !page.hasNext() && page.getGuides().size() == 50;
+		page = gm.getGuidePage(null, byTitle, null, 49);
+		isValid &= page.hasNext() && gm.getGuidePage(null, byTitle, page.getNextCursor(), 49).getGuides().size() == 1;
+		int rejected = 0;
+		for (int[] section : new int[][] { { -1, 10 }, { 0, -1 }, { Integer.MIN_VALUE, Integer.MIN_VALUE } }) {
+			try {
+				gm.getGuides(null, byTitle, section[0], section[1]);
+			} catch (IllegalArgumentException e) {
+				rejected++;
+			}
+		}
+		try {
+			gm.getGuidePage(null, byTitle, null, 0);
+		} catch (IllegalArgumentException e) {
+			rejected++;
+		}
+		isValid &= rejected == 4 && new GuideManager().getGuides(null, byTitle, 0, 10).isEmpty();
+		System.out.println("Offset and limit bounds: " + (isValid ? "OK" : "FAILED"));
+	}
+
+	public static void main(String[] args) throws Exception {
+		testTopK();
+		testParallelFiltering();
+		testCursor();
+		testBounds();
+	}
+
+}
@@ -0,0 +1,355 @@
+package de.glassroom.gpe.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.glassroom.gpe.Branch;
+import de.glassroom.gpe.Chapter;
+import de.glassroom.gpe.EqualsCondition;
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideEnd;
+import de.glassroom.gpe.GuideManager;
+import de.glassroom.gpe.Step;
+import de.glassroom.gpe.annotations.ContentAnnotation;
+import de.glassroom.gpe.annotations.MetadataAnnotation;
+import de.glassroom.gpe.annotations.SceneAnnotation;
+import de.glassroom.gpe.annotations.ToolAnnotation;
+import de.glassroom.gpe.content.ContentDescriptor;
+import de.glassroom.gpe.metrics.Histogram;
+import de.glassroom.gpe.metrics.InMemoryMetricsRecorder;
+import de.glassroom.gpe.metrics.Metric;
+import de.glassroom.gpe.metrics.Metrics;
+import de.glassroom.gpe.utils.BPMNDefinitions;
+import de.glassroom.gpe.utils.BPMNSchema;
+import de.glassroom.gpe.utils.ContentSerializer;
+import de.glassroom.gpe.utils.GuideBinarySerializer;
+import de.glassroom.gpe.utils.GuideJSONSerializer;
+import de.glassroom.gpe.utils.GuideSerializer;
+import de.glassroom.gpe.utils.IncrementalBPMNWriter;
+
+public class GuideSerializerTest {
+
+	@SuppressWarnings("serial")
+	public static Guide createGuide() {
+		GuideManager gm = new GuideManager();
+		Guide guide = gm.createGuide("serializer");
+		guide.setTitle("de_DE", "Serialisierung");
+		guide.setTitle("en_US", "Serialization");
+		guide.setDescription("de_DE", "Alle Annotationen & <Sonderzeichen>.");
+		guide.getMetadata().setVRScene("scene1");
+		guide.getMetadata().addVRSceneParameter("camera", "front");
+		GuideEnd end = guide.getEndNodes().iterator().next();
+
+		ToolAnnotation tool = new ToolAnnotation("wrench");
+		tool.addParameter("size", "13");
+		SceneAnnotation scene = new SceneAnnotation("valve");
+		Map<String, String> nodeParameters = new LinkedHashMap<>();
+		nodeParameters.put("highlight", "true");
+		scene.setNodeParameters(nodeParameters);
+		Map<String, String> methodParameters = new LinkedHashMap<>();
+		methodParameters.put("direction", "left");
+		scene.setMethod("rotate", methodParameters);
+		Step step = new Step("step1")
+				.setName("Open valve")
+				.setMetadata(new MetadataAnnotation().setTitle("de_DE", "Ventil \u00f6ffnen").setDescription("de_DE", "Vorsichtig \u00f6ffnen."))
+				.setContent(new ContentAnnotation()
+						.setContentPackage("de_DE", "package1")
+						.addWarning("de_DE", "Hei\u00df!")
+						.addTool(tool)
+						.setScene(scene));
+		guide.addNode(step);
+		guide.addNode(new Chapter("chapter1", "otherGuide").setName("Other guide"));
+		guide.addNode(new Branch("branch1")
+				.setName("Done?")
+				.addDecision(end, new HashMap<String, String>() {{ put("de_DE", "Ja"); }}, new EqualsCondition("done", "true"))
+				.addDecision(step, new HashMap<String, String>() {{ put("de_DE", "Nein"); }}, new EqualsCondition("done", "false")));
+		return guide;
+	}
+
+	public static void testStreamingRead() {
+		Guide guide = createGuide();
+		for (boolean compact : new boolean[] { true, false }) {
+			String bpmn = GuideSerializer.writeAsBPMN(guide, compact);
+			String expected = GuideSerializer.writeAsBPMN(GuideSerializer.readFromBPMN(bpmn), true);
+			String fromReader = GuideSerializer.writeAsBPMN(GuideSerializer.readFromBPMN(new StringReader(bpmn)), true);
+			String fromStream = GuideSerializer.writeAsBPMN(GuideSerializer.readFromBPMN(new ByteArrayInputStream(bpmn.getBytes(StandardCharsets.UTF_8))), true);
+			System.out.println("Streaming read " + (compact ? "compact" : "pretty") + ": "
+					+ (expected.equals(fromReader) && expected.equals(fromStream) ? "OK" : "FAILED"));
+		}
+	}
+
+	public static void testStreamingWrite() throws IOException {
+		Guide guide = createGuide();
+		for (boolean compact : new boolean[] { true, false }) {
+			String expected = GuideSerializer.writeAsBPMN(guide, compact);
+			StringWriter writer = new StringWriter();
+			GuideSerializer.writeAsBPMN(guide, writer, compact);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			GuideSerializer.writeAsBPMN(guide, out, compact);
+			System.out.println("Streaming write " + (compact ? "compact" : "pretty") + ": "
+					+ (expected.equals(writer.toString()) && Arrays.equals(expected.getBytes(StandardCharsets.UTF_8), out.toByteArray()) ? "OK" : "FAILED"));
+		}
+	}
+
+	public static void testBinaryRoundTrip() throws IOException {
+		Guide guide = createGuide();
+		byte[] bytes = GuideBinarySerializer.writeAsBinary(guide);
+		Guide copy = GuideBinarySerializer.readFromBinary(bytes);
+		String expected = GuideSerializer.writeAsBPMN(GuideSerializer.readFromBPMN(GuideSerializer.writeAsBPMN(guide, true)), true);
+		boolean isEqual = expected.equals(GuideSerializer.writeAsBPMN(copy, true))
+				&& Arrays.equals(bytes, GuideBinarySerializer.writeAsBinary(copy));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GuideBinarySerializer.writeAsBinary(guide, out);
+		GuideBinarySerializer.writeAsBinary(copy, out);
+		ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+		isEqual &= GuideBinarySerializer.readFromBinary(in).getId().equals(guide.getId())
+				&& GuideBinarySerializer.readFromBinary(in).getId().equals(guide.getId())
+				&& in.read() == -1;
+		System.out.println("Binary round trip (" + bytes.length + " bytes, BPMN " + GuideSerializer.writeAsBPMN(guide, true).length() + " chars): " + (isEqual ? "OK" : "FAILED"));
+	}
+
+	public static void testJsonRoundTrip() throws IOException {
+		Guide guide = createGuide();
+		String expected = GuideSerializer.writeAsBPMN(GuideSerializer.readFromBPMN(GuideSerializer.writeAsBPMN(guide, true)), true);
+		boolean isEqual = true;
+		for (boolean compact : new boolean[] { true, false }) {
+			String json = GuideJSONSerializer.writeAsJSON(guide, compact);
+			Guide copy = GuideJSONSerializer.readFromJSON(json);
+			isEqual &= expected.equals(GuideSerializer.writeAsBPMN(copy, true))
+					&& json.equals(GuideJSONSerializer.writeAsJSON(copy, compact));
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			GuideJSONSerializer.writeAsJSON(guide, out, compact);
+			isEqual &= Arrays.equals(json.getBytes(StandardCharsets.UTF_8), out.toByteArray())
+					&& expected.equals(GuideSerializer.writeAsBPMN(GuideJSONSerializer.readFromJSON(new ByteArrayInputStream(out.toByteArray())), true))
+					&& expected.equals(GuideSerializer.writeAsBPMN(GuideJSONSerializer.readFromJSON(new StringReader(json)), true));
+		}
+		System.out.println("JSON round trip (" + GuideJSONSerializer.writeAsJSON(guide, true).length() + " chars): " + (isEqual ? "OK" : "FAILED"));
+	}
+
+	public static void testIncrementalWrite() {
+		GuideManager gm = new GuideManager();
+		Guide guide = gm.createGuide("incremental");
+		for (int i = 0; i < 100; i++) {
+			guide.addNode(new Step("step" + i).setName("Step " + i), guide.getStart());
+		}
+		boolean isEqual = true;
+		for (boolean compact : new boolean[] { true, false }) {
+			IncrementalBPMNWriter writer = new IncrementalBPMNWriter(guide, compact);
+			gm.getEventBus().addListener(writer);
+			isEqual &= Arrays.equals(GuideSerializer.writeAsBPMN(guide, compact).getBytes(StandardCharsets.UTF_8), writer.toByteArray());
+
+			Step step = (Step) guide.getNode("step50");
+			step.setTitle("de_DE", "Schritt 50");
+			isEqual &= Arrays.equals(GuideSerializer.writeAsBPMN(guide, compact).getBytes(StandardCharsets.UTF_8), writer.toByteArray());
+			int renderCount = writer.getRenderCount();
+
+			guide.addNode(new Step("inserted").setName("Inserted"), step);
+			isEqual &= Arrays.equals(GuideSerializer.writeAsBPMN(guide, compact).getBytes(StandardCharsets.UTF_8), writer.toByteArray());
+			isEqual &= writer.getRenderCount() - renderCount <= 3 && writer.update() == 0;
+			gm.getEventBus().removeListener(writer);
+		}
+		System.out.println("Incremental write: " + (isEqual ? "OK" : "FAILED"));
+	}
+
+	public static void testDefinitions() throws IOException {
+		// Round trip first, as the incoming flows of decisions are only registered when read.
+		Guide guide = GuideSerializer.readFromBPMN(GuideSerializer.writeAsBPMN(createGuide(), true));
+		Guide otherGuide = new GuideManager().createGuide("otherGuide");
+		otherGuide.setTitle("de_DE", "Anderer Leitfaden");
+		otherGuide.addNode(new Step("otherStep").setName("Other step"));
+		BPMNDefinitions definitions = new BPMNDefinitions("definitions1", Arrays.asList(guide, otherGuide));
+		boolean isEqual = true;
+		for (boolean compact : new boolean[] { true, false }) {
+			String xml = GuideSerializer.writeAsBPMN(definitions, compact);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			GuideSerializer.writeAsBPMN(definitions, out, compact);
+			isEqual &= Arrays.equals(xml.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+
+			BPMNDefinitions copy = GuideSerializer.readDefinitionsFromBPMN(new ByteArrayInputStream(out.toByteArray()));
+			isEqual &= "definitions1".equals(copy.getId()) && copy.getGuides().size() == 2
+					&& xml.equals(GuideSerializer.writeAsBPMN(copy, compact));
+			for (Guide original : definitions.getGuides()) {
+				isEqual &= GuideSerializer.writeAsBPMN(original, true).equals(GuideSerializer.writeAsBPMN(copy.getGuide(original.getId()), true));
+			}
+			Chapter chapter = (Chapter) copy.getGuide("serializer").getNode("chapter1");
+			isEqual &= copy.getCalledGuide(chapter) == copy.getGuide("otherGuide")
+					&& copy.getMainGuides().equals(Arrays.asList(copy.getGuide("serializer")))
+					&& copy.getGuidesInCallOrder().get(0).getId().equals("otherGuide");
+
+			GuideManager gm = new GuideManager();
+			isEqual &= copy.register(gm).isEmpty() && gm.getGuideIds().size() == 2;
+		}
+
+		BPMNDefinitions single = GuideSerializer.readDefinitionsFromBPMN(new StringReader(GuideSerializer.writeAsBPMN(guide, false)));
+		GuideManager gm = new GuideManager();
+		isEqual &= single.getGuides().size() == 1 && single.getUnresolvedChapters().size() == 1
+				&& single.register(gm).size() == 1;
+		gm.addGuide(otherGuide);
+		isEqual &= single.register(gm).isEmpty();
+		System.out.println("Definitions: " + (isEqual ? "OK" : "FAILED"));
+	}
+
+	public static void testLazyAnnotations() throws IOException {
+		String bpmn = GuideSerializer.writeAsBPMN(createGuide(), false);
+		boolean isEqual = true;
+		for (boolean compact : new boolean[] { true, false }) {
+			String expected = GuideSerializer.writeAsBPMN(GuideSerializer.readFromBPMN(new StringReader(bpmn)), compact);
+			Guide guide = GuideSerializer.readFromBPMN(new StringReader(bpmn), true);
+			Step step = (Step) guide.getNode("step1");
+			StringWriter writer = new StringWriter();
+			GuideSerializer.writeAsBPMN(guide, writer, compact);
+			isEqual &= expected.equals(writer.toString()) && step.getAnnotationSource() != null;
+
+			isEqual &= step.getContent().getTools().get(0).getParameteres().get("size").equals("13")
+					&& step.getMetadata().getDescription("de_DE").equals("Vorsichtig \u00f6ffnen.")
+					&& step.getAnnotationSource() == null;
+			writer = new StringWriter();
+			GuideSerializer.writeAsBPMN(guide, writer, compact);
+			isEqual &= expected.equals(writer.toString());
+
+			Guide modified = GuideSerializer.readFromBPMN(new StringReader(bpmn), true);
+			modified.getNode("step1").setTitle("de_DE", "Ventil schlie\u00dfen");
+			isEqual &= modified.getNode("step1").getContent().getContentPackages().get("de_DE").equals("package1");
+		}
+		System.out.println("Lazy annotations: " + (isEqual ? "OK" : "FAILED"));
+	}
+
+	public static void testValidation() throws IOException {
+		Guide guide = createGuide();
+		boolean isValid = true;
+		for (boolean compact : new boolean[] { true, false }) {
+			String bpmn = GuideSerializer.writeAsBPMN(guide, compact);
+			isValid &= GuideSerializer.writeAsBPMN(GuideSerializer.readValidatedFromBPMN(new StringReader(bpmn)), true)
+					.equals(GuideSerializer.writeAsBPMN(GuideSerializer.readFromBPMN(new StringReader(bpmn)), true));
+			BPMNSchema.validate(new ByteArrayInputStream(bpmn.getBytes(StandardCharsets.UTF_8)));
+		}
+		Guide otherGuide = new GuideManager().createGuide("otherGuide");
+		String definitions = GuideSerializer.writeAsBPMN(new BPMNDefinitions("definitions1", Arrays.asList(guide, otherGuide)), false);
+		isValid &= GuideSerializer.readValidatedDefinitionsFromBPMN(new ByteArrayInputStream(definitions.getBytes(StandardCharsets.UTF_8))).getGuides().size() == 2;
+
+		String bpmn = GuideSerializer.writeAsBPMN(guide, false);
+		String[] invalidDocuments = {
+				bpmn.replace("<incoming>", "<unknown /><incoming>"),
+				bpmn.replace("lang=\"de_DE\"", "language=\"de_DE\""),
+				bpmn.replaceFirst("targetRef=\"[^\"]*\"", "targetRef=\"unknown\"")
+		};
+		boolean isRejected = true;
+		for (String invalidDocument : invalidDocuments) {
+			try {
+				GuideSerializer.readValidatedFromBPMN(new StringReader(invalidDocument));
+				isRejected = false;
+			} catch (IllegalArgumentException e) {
+				// Expected.
+			}
+		}
+		isValid &= GuideSerializer.readFromBPMN(new StringReader(invalidDocuments[0])) != null;
+		System.out.println("Schema validation: " + (isValid && isRejected ? "OK" : "FAILED"));
+	}
+
+	public static void testParallelWrite() throws IOException {
+		GuideManager gm = new GuideManager();
+		Guide guide = gm.createGuide("parallel");
+		guide.setTitle("de_DE", "Gro\u00dfe Anleitung");
+		Step previous = null;
+		for (int i = 0; i < GuideSerializer.PARALLEL_WRITE_THRESHOLD + 500; i++) {
+			Step step = new Step("step" + i).setName("Step " + i);
+			step.setMetadata(new MetadataAnnotation().setTitle("de_DE", "Schritt " + i + " \u00f6ffnen").setDescription("en_US", "Step <" + i + "> & more"));
+			guide.addNode(step, previous != null ? previous : guide.getStart());
+			previous = step;
+		}
+		boolean isEqual = true;
+		for (boolean compact : new boolean[] { true, false }) {
+			// The incremental writer renders the nodes one after the other.
+			byte[] expected = new IncrementalBPMNWriter(guide, compact).toByteArray();
+			String bpmn = GuideSerializer.writeAsBPMN(guide, compact);
+			StringWriter writer = new StringWriter();
+			GuideSerializer.writeAsBPMN(guide, writer, compact);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			GuideSerializer.writeAsBPMN(guide, out, compact);
+			isEqual &= Arrays.equals(expected, bpmn.getBytes(StandardCharsets.UTF_8))
+					&& bpmn.equals(writer.toString())
+					&& Arrays.equals(expected, out.toByteArray());
+		}
+		isEqual &= GuideSerializer.readFromBPMN(GuideSerializer.writeAsBPMN(guide, true)).getNodes().size() == guide.getNodes().size();
+		System.out.println("Parallel write (" + guide.getNodes().size() + " nodes): " + (isEqual ? "OK" : "FAILED"));
+	}
+
+	public static void testMetrics() throws IOException {
+		InMemoryMetricsRecorder recorder = new InMemoryMetricsRecorder();
+		Metrics.setRecorder(recorder);
+		boolean isRecorded;
+		try {
+			Guide guide = createGuide();
+			guide.moveNode(guide.getNode("chapter1"), guide.getStart());
+			String bpmn = GuideSerializer.writeAsBPMN(guide, true);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			GuideSerializer.writeAsBPMN(guide, out, true);
+			GuideSerializer.readFromBPMN(new ByteArrayInputStream(out.toByteArray()));
+			ContentDescriptor descriptor = new ContentDescriptor("package1", "de_DE");
+			descriptor.setTitle("Ventil");
+			String xml = ContentSerializer.writeAsXML(descriptor, true);
+			ContentSerializer.readFromXML(xml);
+			Histogram.Snapshot written = recorder.getHistogram(Metric.BPMN_WRITE_SIZE).getSnapshot();
+			Histogram.Snapshot read = recorder.getHistogram(Metric.BPMN_READ_SIZE).getSnapshot();
+			isRecorded = recorder.getCount(Metric.GUIDES_ADDED) == 1
+					&& recorder.getCount(Metric.NODES_ADDED) == 3
+					&& recorder.getCount(Metric.NODES_MOVED) == 1
+					&& recorder.getCount(Metric.NODES_REMOVED) == 0
+					&& written.getCount() == 2 && written.getSum() == bpmn.length() + out.size()
+					&& read.getCount() == 1 && read.getSum() == out.size()
+					&& recorder.getHistogram(Metric.BPMN_READ_TIME).getSnapshot().getCount() == 1
+					&& recorder.getHistogram(Metric.CONTENT_WRITE_SIZE).getSnapshot().getSum() == xml.length()
+					&& recorder.getHistogram(Metric.CONTENT_READ_TIME).getSnapshot().getCount() == 1;
+			
+			// Queries record their own time, but no lookup time per guide
+			GuideManager manager = new GuideManager();
+			for (int i = 0; i < 5; i++) {
+				manager.createGuide("metrics" + i);
+			}
+			manager.getGuides(null, null);
+			manager.getGuides(null, null, 1, 2);
+			manager.getGuidePage(null, null, null, 2);
+			manager.getGuide("metrics0");
+			isRecorded &= recorder.getHistogram(Metric.GUIDE_QUERY_TIME).getSnapshot().getCount() == 3
+					&& recorder.getHistogram(Metric.GUIDE_LOOKUP_TIME).getSnapshot().getCount() == 1;
+		} finally {
+			Metrics.setRecorder(null);
+		}
+		GuideSerializer.writeAsBPMN(createGuide(), true);
+		isRecorded &= recorder.getHistogram(Metric.BPMN_WRITE_SIZE).getSnapshot().getCount() == 2;
+
+		recorder.reset();
+		for (int i = 1; i <= 1000; i++) {
+			recorder.record(Metric.GUIDE_QUERY_TIME, i * 1000L);
+		}
+		Histogram.Snapshot snapshot = recorder.getHistogram(Metric.GUIDE_QUERY_TIME).getSnapshot();
+		long median = snapshot.getValueAtPercentile(50d);
+		boolean isAccurate = snapshot.getCount() == 1000 && snapshot.getMax() == 1000000L && snapshot.getSum() == 500500000L
+				&& median >= 500000L && median < 500000L * 1.0625d && snapshot.getValueAtPercentile(100d) == 1000000L;
+		System.out.println("Metrics (" + snapshot + "): " + (isRecorded && isAccurate ? "OK" : "FAILED"));
+	}
+
+	public static void main(String[] args) throws Exception {
+		testStreamingRead();
+		testStreamingWrite();
+		testBinaryRoundTrip();
+		testJsonRoundTrip();
+		testIncrementalWrite();
+		testDefinitions();
+		testLazyAnnotations();
+		testValidation();
+		testParallelWrite();
+		testMetrics();
+	}
+
+}
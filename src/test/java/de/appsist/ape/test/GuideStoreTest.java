@@ -0,0 +1,201 @@
+package de.glassroom.gpe.test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideManager;
+import de.glassroom.gpe.GuideSummary;
+import de.glassroom.gpe.Step;
+import de.glassroom.gpe.content.ContentDescriptor;
+import de.glassroom.gpe.content.DirectoryContentSource;
+import de.glassroom.gpe.store.DirectoryGuideStore;
+import de.glassroom.gpe.store.GuideArchive;
+import de.glassroom.gpe.store.GuideImporter;
+import de.glassroom.gpe.utils.ContentSerializer;
+import de.glassroom.gpe.utils.GuideCorpusGenerator;
+import de.glassroom.gpe.utils.GuideSerializer;
+
+public class GuideStoreTest {
+	
+	public static void main(String[] args) throws Exception {
+		Path dir = Files.createTempDirectory("guides");
+		
+		GuideManager gm = new GuideManager(new DirectoryGuideStore(dir), 2, 0);
+		for (int i = 0; i < 5; i++) {
+			Guide guide = gm.createGuide("guide" + i);
+			guide.setTitle("de_DE", "Guide " + i);
+			guide.addNode(new Step("step" + i).setName("Step " + i));
+		}
+		gm.getGuide("guide0").setTitle("de_DE", "Modified guide");
+		gm.getGuide("guide1").setDescription("de_DE", "Described guide");
+		gm.getGuide("guide4");
+		gm.flush();
+		
+		GuideManager reopened = new GuideManager(new DirectoryGuideStore(dir), 2, 0);
+		for (GuideSummary summary : reopened.getGuideSummaries()) {
+			System.out.println(summary);
+		}
+		System.out.println(reopened.getGuide("guide0").getMetadata().getTitle("de_DE"));
+		System.out.println(reopened.getGuide("guide3").getNode("step3"));
+		
+		GuideImporter importer = new GuideImporter(2, 16);
+		GuideImporter.SummaryResult summaries = importer.readSummaries(dir);
+		importer.shutdown();
+		GuideSummary scanned = summaries.getSummaries().get(dir.resolve("guide0").resolve(DirectoryGuideStore.GUIDE_FILE));
+		System.out.println("Summary scan: " + (summaries.getSummaries().size() == 5 && summaries.getErrors().isEmpty() && "Modified guide".equals(scanned.getTitle("de_DE")) ? "OK" : "FAILED"));
+		Files.delete(dir.resolve(DirectoryGuideStore.INDEX_FILE));
+		GuideSummary rebuilt = new DirectoryGuideStore(dir).getSummary("guide1");
+		System.out.println("Index rebuild: " + ("Described guide".equals(rebuilt.getDescription("de_DE")) && "Guide 1".equals(rebuilt.getTitle("de_DE")) ? "OK" : "FAILED"));
+		
+		List<Guide> guides = new ArrayList<>();
+		for (String id : reopened.getGuideIds()) {
+			guides.add(reopened.getGuide(id));
+		}
+		Path archiveFile = dir.resolve("guides" + GuideArchive.FILE_EXTENSION);
+		GuideArchive.write(archiveFile, guides);
+		try (GuideArchive archive = new GuideArchive(archiveFile)) {
+			archive.verify();
+			GuideManager archived = new GuideManager(archive, 2, 0);
+			System.out.println(archived.getGuideSummaries().size() + " guides archived.");
+			GuideSummary archivedSummary = archive.getSummary("guide1");
+			System.out.println("Archive summaries: " + ("Described guide".equals(archivedSummary.getDescription("de_DE")) && "Guide 1".equals(archivedSummary.getTitle("de_DE"))
+					&& archivedSummary.getLastUpdate().equals(reopened.getGuide("guide1").getLastUpdate()) ? "OK" : "FAILED"));
+			System.out.println(archived.getGuide("guide0").getMetadata().getTitle("de_DE"));
+			System.out.println(archived.getGuide("guide3").getNode("step3"));
+		}
+		
+		testCorpus();
+		testInvalidIds();
+		testEviction();
+		testImport();
+	}
+	
+	public static void testImport() throws Exception {
+		Path dir = Files.createTempDirectory("import");
+		for (int i = 0; i < 40; i++) {
+			Guide guide = new Guide("imported" + i);
+			guide.setTitle("de_DE", "Imported guide " + i);
+			guide.addNode(new Step("step" + i));
+			Path subDirectory = Files.createDirectories(dir.resolve("sub" + (i % 3)));
+			Files.write(subDirectory.resolve("guide" + i + GuideImporter.FILE_EXTENSION), GuideSerializer.writeAsBPMN(guide, true).getBytes("UTF-8"));
+		}
+		Path malformed = dir.resolve("sub1").resolve("malformed" + GuideImporter.FILE_EXTENSION);
+		Files.write(malformed, "<definitions><process id=\"broken\">".getBytes("UTF-8"));
+		Files.write(dir.resolve("ignored.txt"), "no guide".getBytes("UTF-8"));
+		
+		// A single worker has to wait for queue space while the guides are registered in batches
+		GuideImporter importer = new GuideImporter(1, 8);
+		GuideManager gm = new GuideManager();
+		GuideImporter.ImportResult result = importer.importDirectory(dir, gm);
+		boolean isValid = result.getImportedGuides() == 40 && gm.getGuideIds().size() == 40 && gm.getGuide("imported17").getNode("step17") != null
+				&& result.getErrors().size() == 1 && result.getErrors().containsKey(malformed);
+		
+		boolean isInterrupted = false;
+		Thread.currentThread().interrupt();
+		try {
+			importer.importDirectory(dir, new GuideManager());
+		} catch (InterruptedException e) {
+			isInterrupted = true;
+		}
+		// The cancelled import must release the worker, otherwise the next import would not finish
+		GuideImporter.ImportResult repeated = importer.importDirectory(dir, new GuideManager());
+		importer.shutdown();
+		isValid &= isInterrupted && repeated.getImportedGuides() == 40 && repeated.getErrors().size() == 1;
+		System.out.println("Import: " + (isValid ? "OK" : "FAILED"));
+	}
+	
+	public static void testInvalidIds() throws Exception {
+		Path dir = Files.createTempDirectory("guides");
+		DirectoryGuideStore store = new DirectoryGuideStore(dir.resolve("store"));
+		GuideManager gm = new GuideManager(store, 2, 0);
+		int rejected = 0;
+		for (String id : new String[] { "../escaped", "sub/escaped", "..", ".", "", "index.xml", "sub\\escaped" }) {
+			try {
+				gm.createGuide(id);
+			} catch (IllegalArgumentException e) {
+				rejected++;
+			}
+		}
+		gm.createGuide("valid.id");
+		boolean isValid = rejected == 7 && !Files.exists(dir.resolve("escaped")) && Files.isRegularFile(dir.resolve("store").resolve("valid.id").resolve(DirectoryGuideStore.GUIDE_FILE))
+				&& store.getSummaries().size() == 1 && store.load("../escaped") == null;
+		store.delete("../escaped");
+		System.out.println("Invalid guide ids: " + (isValid ? "OK" : "FAILED"));
+	}
+	
+	public static void testEviction() throws Exception {
+		DirectoryGuideStore store = new DirectoryGuideStore(Files.createTempDirectory("guides"));
+		GuideManager gm = new GuideManager(store, 1, 0);
+		Guide evicted = gm.createGuide("guide0");
+		Step step = new Step("step0");
+		evicted.addNode(step);
+		gm.createGuide("guide1");
+		boolean isRejected = false;
+		try {
+			evicted.setTitle("de_DE", "Lost title");
+		} catch (IllegalStateException e) {
+			isRejected = true;
+		}
+		boolean isNodeRejected = false;
+		try {
+			step.setName("Lost name");
+		} catch (IllegalStateException e) {
+			isNodeRejected = true;
+		}
+		try {
+			step.setTitle("de_DE", "Lost title");
+			isNodeRejected = false;
+		} catch (IllegalStateException e) {
+			// Rejected edits must not change the detached node
+			isNodeRejected &= !"Lost name".equals(step.getName()) && step.getMetadata() == null;
+		}
+		Guide current = gm.getGuide("guide0");
+		current.setTitle("de_DE", "Current title");
+		gm.flush();
+		boolean isValid = evicted.isDetached() && isRejected && isNodeRejected && current != evicted && !current.isDetached()
+				&& current.getNode("step0") != null && "Current title".equals(store.getSummary("guide0").getTitle("de_DE"));
+		
+		// Changes of nodes are written back on eviction and flush without marking the guide as modified
+		current.getNode("step0").setName("Renamed step");
+		gm.getGuide("guide1");
+		Guide reloaded = gm.getGuide("guide0");
+		isValid &= reloaded != current && "Renamed step".equals(reloaded.getNode("step0").getName());
+		reloaded.getNode("step0").setTitle("de_DE", "Flushed step");
+		gm.flush();
+		isValid &= "Flushed step".equals(store.load("guide0").getNode("step0").getMetadata().getTitle("de_DE"));
+		
+		// Listing more guides than the cache holds returns detached guides, except for the most recently loaded one
+		List<Guide> listed = gm.getGuides(null, null);
+		isValid &= listed.size() == 2 && listed.get(0).isDetached() && !listed.get(1).isDetached() && !gm.getGuide(listed.get(0).getId()).isDetached();
+		System.out.println("Eviction: " + (isValid ? "OK" : "FAILED"));
+	}
+	
+	public static void testCorpus() throws Exception {
+		GuideCorpusGenerator.Corpus corpus = new GuideCorpusGenerator(42).setNodeCount(300).setChapters(2, 2).setLanguageCount(3).generate();
+		GuideCorpusGenerator.Corpus same = new GuideCorpusGenerator(42).setNodeCount(300).setChapters(2, 2).setLanguageCount(3).generate();
+		GuideCorpusGenerator.Corpus other = new GuideCorpusGenerator(43).setNodeCount(300).setChapters(2, 2).setLanguageCount(3).generate();
+		boolean isValid = corpus.getGuides().size() == 7 && corpus.getMainGuide().getNodes().size() == 300;
+		isValid &= !GuideSerializer.writeAsBPMN(corpus.getMainGuide(), true).equals(GuideSerializer.writeAsBPMN(other.getMainGuide(), true));
+		
+		Path dir = Files.createTempDirectory("corpus");
+		corpus.write(dir);
+		DirectoryGuideStore store = new DirectoryGuideStore(dir);
+		DirectoryContentSource contentSource = new DirectoryContentSource(dir);
+		for (int i = 0; i < corpus.getGuides().size(); i++) {
+			Guide guide = corpus.getGuides().get(i);
+			String bpmn = GuideSerializer.writeAsBPMN(guide, true);
+			isValid &= bpmn.equals(GuideSerializer.writeAsBPMN(same.getGuides().get(i), true));
+			isValid &= bpmn.equals(GuideSerializer.writeAsBPMN(store.load(guide.getId()), true));
+			for (ContentDescriptor descriptor : corpus.getContentDescriptors(guide.getId())) {
+				isValid &= ContentSerializer.writeAsXML(descriptor, true).equals(
+						ContentSerializer.writeAsXML(contentSource.load(guide.getId(), descriptor.getId(), descriptor.getLanguageId()), true));
+			}
+		}
+		isValid &= store.getSummaries().size() == 7;
+		System.out.println("Corpus (" + corpus.getNodeCount() + " nodes, " + corpus.getContentDescriptorCount() + " content descriptors): " + (isValid ? "OK" : "FAILED"));
+	}
+
+}
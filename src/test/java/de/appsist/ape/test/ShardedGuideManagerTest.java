@@ -0,0 +1,194 @@
+package de.glassroom.gpe.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.GuideManager;
+import de.glassroom.gpe.cluster.LocalShardTransport;
+import de.glassroom.gpe.cluster.ShardedGuideManager;
+import de.glassroom.gpe.event.GuideEvent;
+import de.glassroom.gpe.event.GuideListener;
+
+public class ShardedGuideManagerTest {
+
+	private static final int GUIDE_COUNT = 500;
+
+	public static class CountingListener implements GuideListener {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public void guidesChanged(List<GuideEvent> events) {
+			count.addAndGet(events.size());
+		}
+	}
+
+	private static GuideManager registerShard(LocalShardTransport transport, String shardId) {
+		GuideManager manager = new GuideManager();
+		transport.registerShard(shardId, manager);
+		return manager;
+	}
+
+	private static boolean isPlaced(ShardedGuideManager sharded, LocalShardTransport transport, int guideCount) {
+		int placedGuides = 0;
+		for (String shardId : sharded.getShardIds()) {
+			for (String guideId : transport.getGuideIds(shardId)) {
+				if (!shardId.equals(sharded.getShardId(guideId))) return false;
+				placedGuides++;
+			}
+		}
+		return placedGuides == guideCount && sharded.getGuideIds().size() == guideCount;
+	}
+
+	public static void testRebalance() {
+		LocalShardTransport transport = new LocalShardTransport();
+		List<GuideManager> managers = new ArrayList<>();
+		List<CountingListener> listeners = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			GuideManager manager = registerShard(transport, "shard" + i);
+			CountingListener listener = new CountingListener();
+			manager.getEventBus().addListener(listener);
+			managers.add(manager);
+			listeners.add(listener);
+		}
+		ShardedGuideManager sharded = new ShardedGuideManager(transport);
+		sharded.addShard("shard0");
+		for (int i = 0; i < GUIDE_COUNT; i++) {
+			sharded.createGuide("guide" + i);
+		}
+		boolean isValid = managers.get(0).getGuideIds().size() == GUIDE_COUNT;
+
+		isValid &= sharded.addShard("shard1") == managers.get(1).getGuideIds().size() && isPlaced(sharded, transport, GUIDE_COUNT);
+		// The third shard takes over guides of both other shards
+		isValid &= sharded.addShard("shard2") == managers.get(2).getGuideIds().size() && managers.get(1).getGuideIds().size() > 0
+				&& managers.get(2).getGuideIds().size() > 0 && isPlaced(sharded, transport, GUIDE_COUNT) && sharded.addShard("shard1") == 0;
+
+		// Moved guides have to publish their changes on the event bus of their new shard
+		for (CountingListener listener : listeners) {
+			listener.count.set(0);
+		}
+		for (String guideId : transport.getGuideIds("shard2")) {
+			sharded.getGuide(guideId).setTitle("de_DE", "Verschoben");
+		}
+		isValid &= listeners.get(2).count.get() == managers.get(2).getGuideIds().size() && listeners.get(0).count.get() == 0 && listeners.get(1).count.get() == 0;
+
+		Set<String> removedIds = transport.getGuideIds("shard1");
+		isValid &= sharded.removeShard("shard1") == removedIds.size() && managers.get(1).getGuideIds().isEmpty() && isPlaced(sharded, transport, GUIDE_COUNT);
+		for (CountingListener listener : listeners) {
+			listener.count.set(0);
+		}
+		for (String guideId : removedIds) {
+			Guide guide = sharded.getGuide(guideId);
+			guide.setTitle("de_DE", "Verschoben");
+			isValid &= !guide.isDetached() && managers.get(Integer.parseInt(sharded.getShardId(guideId).substring(5))).getGuide(guideId) == guide;
+		}
+		isValid &= listeners.get(0).count.get() + listeners.get(2).count.get() == removedIds.size() && listeners.get(1).count.get() == 0;
+
+		boolean isRejected = false;
+		sharded.removeShard("shard2");
+		try {
+			sharded.removeShard("shard0");
+		} catch (IllegalStateException e) {
+			isRejected = true;
+		}
+		isValid &= isRejected && managers.get(0).getGuideIds().size() == GUIDE_COUNT;
+		System.out.println("Rebalance: " + (isValid ? "OK" : "FAILED"));
+	}
+
+	public static void testConcurrentLookups() throws Exception {
+		final LocalShardTransport transport = new LocalShardTransport();
+		registerShard(transport, "shard0");
+		final ShardedGuideManager sharded = new ShardedGuideManager(transport, 16);
+		sharded.addShard("shard0");
+		for (int i = 0; i < GUIDE_COUNT; i++) {
+			sharded.createGuide("guide" + i);
+		}
+
+		final AtomicBoolean isRunning = new AtomicBoolean(true);
+		final AtomicLong lookups = new AtomicLong();
+		final AtomicLong misses = new AtomicLong();
+		final List<Throwable> failures = new ArrayList<>();
+		List<Thread> readers = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			final Random random = new Random(i);
+			Thread reader = new Thread() {
+				@Override
+				public void run() {
+					try {
+						while (isRunning.get()) {
+							if (sharded.getGuide("guide" + random.nextInt(GUIDE_COUNT)) == null) {
+								misses.incrementAndGet();
+							}
+							lookups.incrementAndGet();
+						}
+					} catch (RuntimeException e) {
+						synchronized (failures) {
+							failures.add(e);
+						}
+					}
+				}
+			};
+			reader.start();
+			readers.add(reader);
+		}
+		for (int round = 0; round < 20; round++) {
+			String shardId = "shard" + (round % 3 + 1);
+			registerShard(transport, shardId);
+			sharded.addShard(shardId);
+			sharded.removeShard(shardId);
+			transport.unregisterShard(shardId);
+		}
+		isRunning.set(false);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		boolean isValid = misses.get() == 0 && failures.isEmpty() && isPlaced(sharded, transport, GUIDE_COUNT);
+		System.out.println("Concurrent lookups (" + lookups.get() + " lookups): " + (isValid ? "OK" : "FAILED " + misses.get() + " misses, " + failures));
+	}
+
+	public static void testFailedMove() {
+		final AtomicInteger remainingPuts = new AtomicInteger(10);
+		LocalShardTransport transport = new LocalShardTransport() {
+			@Override
+			public void putGuide(String shardId, Guide guide) {
+				if (shardId.equals("shard1") && remainingPuts.decrementAndGet() < 0) {
+					throw new IllegalStateException("Shard not reachable for testing.");
+				}
+				super.putGuide(shardId, guide);
+			}
+		};
+		registerShard(transport, "shard0");
+		GuideManager target = registerShard(transport, "shard1");
+		ShardedGuideManager sharded = new ShardedGuideManager(transport);
+		sharded.addShard("shard0");
+		for (int i = 0; i < GUIDE_COUNT; i++) {
+			sharded.createGuide("guide" + i);
+		}
+		boolean isFailed = false;
+		try {
+			sharded.addShard("shard1");
+		} catch (IllegalStateException e) {
+			isFailed = true;
+		}
+		// The guide failing to move is restored and all guides are found on either shard
+		boolean isValid = isFailed && target.getGuideIds().size() == 10 && sharded.getGuideIds().size() == GUIDE_COUNT;
+		for (int i = 0; i < GUIDE_COUNT; i++) {
+			isValid &= sharded.getGuide("guide" + i) != null;
+		}
+		remainingPuts.set(Integer.MAX_VALUE);
+		isValid &= sharded.addShard("shard1") > 0 && isPlaced(sharded, transport, GUIDE_COUNT);
+		System.out.println("Failed move: " + (isValid ? "OK" : "FAILED"));
+	}
+
+	public static void main(String[] args) throws Exception {
+		testRebalance();
+		testConcurrentLookups();
+		testFailedMove();
+	}
+
+}
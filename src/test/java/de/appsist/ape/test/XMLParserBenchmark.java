@@ -0,0 +1,69 @@
+package de.glassroom.gpe.test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.glassroom.gpe.Guide;
+import de.glassroom.gpe.Step;
+import de.glassroom.gpe.utils.GuideSerializer;
+
+/**
+ * Contention benchmark for the XML parsers.
+ * Parses the same guide on an increasing number of threads and prints the throughput relative to a single thread.
+ */
+public class XMLParserBenchmark {
+	private static final long MEASUREMENT_MS = 2000;
+	private static final long WARMUP_MS = 1000;
+
+	private static long run(final String bpmn, int threads, long durationMs) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicBoolean isRunning = new AtomicBoolean(true);
+		Future<?>[] futures = new Future<?>[threads];
+		for (int i = 0; i < threads; i++) {
+			futures[i] = executor.submit(new Callable<Long>() {
+				@Override
+				public Long call() throws Exception {
+					start.await();
+					long count = 0;
+					while (isRunning.get()) {
+						GuideSerializer.readFromBPMN(bpmn);
+						count++;
+					}
+					return count;
+				}
+			});
+		}
+		start.countDown();
+		Thread.sleep(durationMs);
+		isRunning.set(false);
+		long total = 0;
+		for (Future<?> future : futures) {
+			total += (Long) future.get();
+		}
+		executor.shutdown();
+		return total * 1000 / durationMs;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Guide guide = GuideSerializerTest.createGuide();
+		for (int i = 0; i < 50; i++) {
+			guide.addNode(new Step("bench" + i).setName("Step " + i), guide.getStart());
+		}
+		String bpmn = GuideSerializer.writeAsBPMN(guide, true);
+		int cores = Runtime.getRuntime().availableProcessors();
+
+		run(bpmn, cores, WARMUP_MS);
+		long single = 0;
+		for (int threads = 1; threads <= cores; threads = threads < cores && threads * 2 > cores ? cores : threads * 2) {
+			long throughput = run(bpmn, threads, MEASUREMENT_MS);
+			if (threads == 1) single = throughput;
+			System.out.println(String.format("%2d threads: %8d docs/s, speedup %.2f", threads, throughput, (double) throughput / single));
+		}
+	}
+
+}